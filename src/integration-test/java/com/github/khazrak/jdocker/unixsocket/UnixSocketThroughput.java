@@ -0,0 +1,102 @@
+package com.github.khazrak.jdocker.unixsocket;
+
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UnixSocketThroughput {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnixSocketThroughput.class);
+    private static final int PAYLOAD = 256 * 1024 * 1024;
+    private static final int ROUNDS = 3;
+
+    private File socketFile;
+    private UnixServerSocketChannel server;
+    private Thread serverThread;
+
+    @Before
+    public void setup() throws IOException {
+        socketFile = new File(Files.createTempDirectory("jdocker").toFile(), "throughput.sock");
+        server = UnixServerSocketChannel.open();
+        server.socket().bind(new UnixSocketAddress(socketFile));
+        serverThread = new Thread(this::serve, "unix-throughput-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        socketFile.delete();
+        socketFile.getParentFile().delete();
+    }
+
+    private void serve() {
+        ByteBuffer chunk = ByteBuffer.allocateDirect(64 * 1024);
+        while (server.isOpen()) {
+            try (UnixSocketChannel client = server.accept()) {
+                int left = PAYLOAD;
+                while (left > 0) {
+                    chunk.clear();
+                    chunk.limit(Math.min(left, chunk.capacity()));
+                    left -= client.write(chunk);
+                }
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    @Test
+    public void compareTransports() throws IOException {
+        Assume.assumeTrue(UnixSocketFactory.isJdkChannelSupported());
+
+        long jnr = 0;
+        long jdk = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            jnr += drain(new UnixSocketFactory(socketFile.getPath(), false));
+            jdk += drain(new UnixSocketFactory(socketFile.getPath(), true));
+        }
+
+        logger.info("jnr-unixsocket: {} MB/s", throughput(jnr));
+        logger.info("jdk channel:    {} MB/s", throughput(jdk));
+    }
+
+    private long drain(UnixSocketFactory factory) throws IOException {
+        long start = System.nanoTime();
+        long total = 0;
+        try (Socket socket = factory.createSocket()) {
+            socket.connect(null);
+            OutputStream out = socket.getOutputStream();
+            out.flush();
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        assertThat(total).isEqualTo(PAYLOAD);
+        return System.nanoTime() - start;
+    }
+
+    private static long throughput(long nanos) {
+        return (long) ROUNDS * PAYLOAD * 1000 / nanos;
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.khazrak.jdocker.handlers.*;
+import com.github.khazrak.jdocker.model.api124.*;
+import com.github.khazrak.jdocker.model.api124.parameters.*;
+import com.github.khazrak.jdocker.model.api124.requests.*;
+import com.github.khazrak.jdocker.utils.DockerImageName;
+import com.github.khazrak.jdocker.utils.RequestStreamBody;
+import com.github.khazrak.jdocker.utils.URLResolver;
+import okhttp3.OkHttpClient;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DefaultDockerAsyncClient implements DockerAsyncClient {
+
+    private final ExecutorService ownedExecutor;
+
+    private DockerImagesHandler imageHandler;
+    private DockerNetworksHandler networksHandler;
+    private DockerContainerHandler containerHandler;
+    private DockerVolumesHandler volumesHandler;
+    private DockerExecHandler execHandler;
+
+    /**
+     * Creates a client that decodes responses on its own pool, sized to the number of processors,
+     * which is shut down on {@link #close()}.
+     */
+    public DefaultDockerAsyncClient(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url) {
+        this(httpClient, urlResolver, mapper, url, newDecoderPool());
+    }
+
+    /**
+     * Creates a client that decodes responses on the given executor, the executor is not shut down on {@link #close()}.
+     */
+    public DefaultDockerAsyncClient(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url, Executor executor) {
+        this(new OkHttpExecuter(httpClient, url, urlResolver), mapper, executor);
+    }
+
+    /**
+     * Creates a client on an existing executer, sharing its connections and negotiated api version, that decodes
+     * responses on the given executor. The executor is not shut down on {@link #close()}.
+     */
+    public DefaultDockerAsyncClient(OkHttpExecuter okHttpExecuter, ObjectMapper mapper, Executor executor) {
+        this.ownedExecutor = null;
+        init(okHttpExecuter, mapper, executor);
+    }
+
+    private DefaultDockerAsyncClient(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url, ExecutorService ownedExecutor) {
+        this.ownedExecutor = ownedExecutor;
+        init(new OkHttpExecuter(httpClient, url, urlResolver), mapper, ownedExecutor);
+    }
+
+    private void init(OkHttpExecuter okHttpExecuter, ObjectMapper mapper, Executor executor) {
+        imageHandler = new DockerImagesHandler(okHttpExecuter, mapper, executor);
+        networksHandler = new DockerNetworksHandler(okHttpExecuter, mapper, executor);
+        containerHandler = new DockerContainerHandler(okHttpExecuter, mapper, executor);
+        volumesHandler = new DockerVolumesHandler(okHttpExecuter, mapper, executor);
+        execHandler = new DockerExecHandler(okHttpExecuter, mapper, executor);
+    }
+
+    static ExecutorService newDecoderPool() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "jdocker-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> ping() {
+        return containerHandler.pingAsync();
+    }
+
+    @Override
+    public CompletableFuture<DockerVersion> version() {
+        return containerHandler.versionAsync();
+    }
+
+    @Override
+    public CompletableFuture<SystemInfo> info() {
+        return containerHandler.infoAsync();
+    }
+
+    @Override
+    public CompletableFuture<String> createContainer(ContainerCreationRequest spec) {
+        return containerHandler.createContainerAsync(spec);
+    }
+
+    @Override
+    public CompletableFuture<Void> start(String id) {
+        return containerHandler.startAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Void> stop(String id) {
+        return stop(id, 10);
+    }
+
+    @Override
+    public CompletableFuture<Void> stop(String id, int secondsUntilKill) {
+        return containerHandler.stopAsync(id, secondsUntilKill);
+    }
+
+    @Override
+    public CompletableFuture<Void> remove(String id) {
+        return containerHandler.removeAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Void> remove(String id, boolean forceRemove, boolean removeVolume) {
+        return containerHandler.removeAsync(id, forceRemove, removeVolume);
+    }
+
+    @Override
+    public CompletableFuture<Void> kill(String id) {
+        return containerHandler.killAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Void> kill(String id, String signal) {
+        return containerHandler.killAsync(id, signal);
+    }
+
+    @Override
+    public CompletableFuture<List<Container>> listContainers() {
+        return containerHandler.listContainersAsync();
+    }
+
+    @Override
+    public CompletableFuture<List<Container>> listContainers(ListContainerParams listRequest) {
+        return containerHandler.listContainersAsync(listRequest);
+    }
+
+    @Override
+    public CompletableFuture<DockerContainerInspect> inspectContainer(String id, boolean size) {
+        return containerHandler.inspectContainerAsync(id, size);
+    }
+
+    @Override
+    public CompletableFuture<ContainerProcesses> top(String id) {
+        return top(id, null);
+    }
+
+    @Override
+    public CompletableFuture<ContainerProcesses> top(String id, String arg) {
+        return containerHandler.topAsync(id, arg);
+    }
+
+    @Override
+    public CompletableFuture<List<ContainerFileSystemChange>> containerFileSystemChanges(String id) {
+        return containerHandler.containerFileSystemChangesAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<ContainerStats> stats(String id) {
+        return containerHandler.statsAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> statsStream(String id) {
+        return containerHandler.statsStreamAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Void> resizeTty(String id, int width, int height) {
+        return containerHandler.resizeTtyAsync(id, width, height);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> logs(String id, DockerLogsParameters params) {
+        return containerHandler.logsAsync(id, params);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> logsRawStream(String id, DockerLogsParameters params) {
+        return containerHandler.logsRawStreamAsync(id, params);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> logsStream(String id, DockerLogsParameters params) {
+        return containerHandler.logsStreamAsync(id, params);
+    }
+
+    @Override
+    public CompletableFuture<DockerLogsLineReader> logsSpecial(String id, DockerLogsParameters params) {
+        return containerHandler.logsSpecialAsync(id, params);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> pullImage(DockerImageName image) {
+        return imageHandler.pullImageAsync(image);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> pullImage(DockerImageName image, AuthConfig authConfig) {
+        return imageHandler.pullImageAsync(image, authConfig);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> pullImage(DockerImageName image, String token) {
+        return imageHandler.pullImageAsync(image, token);
+    }
+
+    @Override
+    public CompletableFuture<Void> restart(String id) {
+        return restart(id, 10);
+    }
+
+    @Override
+    public CompletableFuture<Void> restart(String id, int wait) {
+        return containerHandler.restartAsync(id, wait);
+    }
+
+    @Override
+    public CompletableFuture<Warnings> update(String id, ContainerUpdateRequest updateConfig) {
+        return containerHandler.updateAsync(id, updateConfig);
+    }
+
+    @Override
+    public CompletableFuture<Void> rename(String originalName, String newName) {
+        return containerHandler.renameAsync(originalName, newName);
+    }
+
+    @Override
+    public CompletableFuture<Void> pause(String id) {
+        return containerHandler.pauseAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Void> unpause(String id) {
+        return containerHandler.unpauseAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<List<ImageInfo>> listImages(boolean all) {
+        return imageHandler.listImagesAsync(all);
+    }
+
+    @Override
+    public CompletableFuture<List<ImageInfo>> listImages(ListImagesParams params) {
+        return imageHandler.listImagesAsync(params);
+    }
+
+    @Override
+    public CompletableFuture<String> createNetwork(NetworkCreateRequest request) {
+        return networksHandler.createNetworkAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<List<Network>> listNetworks() {
+        return networksHandler.listNetworksAsync();
+    }
+
+    @Override
+    public CompletableFuture<List<Network>> listNetworks(NetworkListParams params) {
+        return networksHandler.listNetworksAsync(params);
+    }
+
+    @Override
+    public CompletableFuture<Void> connectContainerToNetwork(NetworkConnectRequest request) {
+        return networksHandler.connectContainerToNetworkAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<Void> disconnectContainerFromNetwork(String containerName, String networkName, boolean force) {
+        return networksHandler.disconnectContainerFromNetworkAsync(containerName, networkName, force);
+    }
+
+    @Override
+    public CompletableFuture<Network> inspectNetwork(String id) {
+        return networksHandler.inspectNetworkAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeNetwork(String id) {
+        return networksHandler.removeNetworkAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<List<Volume>> listVolumes() {
+        return volumesHandler.listVolumesAsync();
+    }
+
+    @Override
+    public CompletableFuture<List<Volume>> listVolumes(ListVolumeParams params) {
+        return volumesHandler.listVolumesAsync(params);
+    }
+
+    @Override
+    public CompletableFuture<Volume> createVolume(VolumeCreateRequest request) {
+        return volumesHandler.createVolumeAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<Volume> inspectVolume(String id) {
+        return volumesHandler.inspectVolumeAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeVolume(String id) {
+        return volumesHandler.removeVolumeAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Image> inspectImage(DockerImageName imageName) {
+        return imageHandler.inspectImageAsync(imageName);
+    }
+
+    @Override
+    public CompletableFuture<ExecInfo> inspectExec(String id) {
+        return execHandler.inspectExecAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<String> createExec(String containerId, ExecCreateRequest request) {
+        return execHandler.createExecAsync(containerId, request);
+    }
+
+    @Override
+    public CompletableFuture<Void> resizeExec(String id, int width, int height) {
+        return execHandler.resizeExecAsync(id, width, height);
+    }
+
+    @Override
+    public CompletableFuture<Void> startExec(String id, boolean tty) {
+        return execHandler.startExecAsync(id, tty);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> startExec(String id) {
+        return execHandler.startExecAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Void> tagImage(DockerImageName original, DockerImageName newName) {
+        return imageHandler.tagImageAsync(original, newName);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> pushImage(DockerImageName imageToPush, AuthConfig authConfig) {
+        return imageHandler.pushImageAsync(imageToPush, authConfig);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> pushImage(DockerImageName imageToPush, String identitytoken) {
+        return imageHandler.pushImageAsync(imageToPush, identitytoken);
+    }
+
+    @Override
+    public CompletableFuture<String> removeImage(DockerImageName name) {
+        return imageHandler.removeImageAsync(name, false, false);
+    }
+
+    @Override
+    public CompletableFuture<String> removeImage(DockerImageName name, boolean force, boolean noprune) {
+        return imageHandler.removeImageAsync(name, force, noprune);
+    }
+
+    @Override
+    public CompletableFuture<List<ImageSearchInfo>> searchImage(String term) {
+        return imageHandler.searchImageAsync(term);
+    }
+
+    @Override
+    public CompletableFuture<List<ImageHistoryInfo>> historyOfImage(DockerImageName name) {
+        return imageHandler.historyOfImageAsync(name);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> buildImageFromRemote(BuildImageFromRemoteRequest request) {
+        return imageHandler.buildImageFromRemoteAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> buildImageFromArchive(BuildImageFromArchiveRequest request) {
+        return imageHandler.buildImageFromArchiveAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<AuthTestResponse> auth(AuthTestRequest request) {
+        return containerHandler.authAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<Void> waitForContainerStop(String id) {
+        return containerHandler.waitForContainerStopAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<String> commitContainer(ContainerCommitRequest containerCommitRequest) {
+        return containerHandler.commitContainerAsync(containerCommitRequest);
+    }
+
+    @Override
+    public CompletableFuture<FileSystemInfo> fileSystemInfo(String id, String path) {
+        return containerHandler.fileSystemInfoAsync(id, path);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> fileSystemArchiveDownload(String id, String path) {
+        return containerHandler.fileSystemArchiveDownloadAsync(id, path);
+    }
+
+    @Override
+    public CompletableFuture<Void> fileSystemArchiveUpload(String id, String pathInContainer, RequestStreamBody body) {
+        return containerHandler.fileSystemArchiveUploadAsync(id, pathInContainer, body);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getImageTar(DockerImageName repositoryName) {
+        return imageHandler.getImageTarAsync(repositoryName);
+    }
+
+    @Override
+    public CompletableFuture<String> importImageTar(InputStream input, boolean quiet) {
+        return imageHandler.importImageTarAsync(input, quiet);
+    }
+
+    @Override
+    public CompletableFuture<String> ps(boolean all) {
+        return listContainers(ListContainerParams.builder().all(all).build())
+                .thenApply(DefaultDockerClient::formatPs);
+    }
+}
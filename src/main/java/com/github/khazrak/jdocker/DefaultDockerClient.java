@@ -16,11 +16,24 @@ package com.github.khazrak.jdocker;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.github.khazrak.jdocker.handlers.*;
+import com.github.khazrak.jdocker.http.DockerHttpEngine;
+import com.github.khazrak.jdocker.http.StreamListener;
+import com.github.khazrak.jdocker.http.StreamMultiplexer;
+import com.github.khazrak.jdocker.http.StreamSubscription;
+import com.github.khazrak.jdocker.logs.LogFrameListener;
+import com.github.khazrak.jdocker.logs.LogRecord;
+import com.github.khazrak.jdocker.logs.LogRecordReader;
+import com.github.khazrak.jdocker.logs.LogTail;
+import com.github.khazrak.jdocker.logs.LogSubscription;
+import com.github.khazrak.jdocker.logs.LogSubscriptionParameters;
 import com.github.khazrak.jdocker.model.api124.*;
 import com.github.khazrak.jdocker.model.api124.parameters.*;
 import com.github.khazrak.jdocker.model.api124.requests.*;
 import com.github.khazrak.jdocker.ssl.DockerSSLSocket;
 import com.github.khazrak.jdocker.ssl.SslSocketConfigFactory;
+import com.github.khazrak.jdocker.stats.ContainerStatsIterator;
+import com.github.khazrak.jdocker.stats.ContainerStatsListener;
+import com.github.khazrak.jdocker.stats.StatsRecordDecoder;
 import com.github.khazrak.jdocker.unixsocket.NpipeSocketFactory;
 import com.github.khazrak.jdocker.unixsocket.UnixSocketFactory;
 import com.github.khazrak.jdocker.utils.*;
@@ -30,10 +43,16 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.*;
 import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class DefaultDockerClient implements DockerClient {
 
@@ -42,6 +61,12 @@ public class DefaultDockerClient implements DockerClient {
     private OkHttpClient httpClient;
 
     private final String URL;
+    private URLResolver urlResolver;
+    private DockerHttpEngine engine;
+    private StreamMultiplexer multiplexer;
+    private OkHttpExecuter okHttpExecuter;
+    private ExecutorService asyncPool;
+    private DockerAsyncClient asyncClient;
 
     private DockerImagesHandler imageHandler;
     private DockerNetworksHandler networksHandler;
@@ -52,8 +77,6 @@ public class DefaultDockerClient implements DockerClient {
     private ObjectMapper mapper;
 
     public DefaultDockerClient() {
-        URLResolver urlResolver;
-
         OkHttpClient.Builder builder = new OkHttpClient.Builder();
         if(UnixSocketFactory.isSupported()) {
             UnixSocketFactory unixSocketFactory = new UnixSocketFactory("/var/run/docker.sock");
@@ -84,32 +107,22 @@ public class DefaultDockerClient implements DockerClient {
 
         mapper = getMapper();
 
-        imageHandler = new DockerImagesHandler(httpClient, urlResolver, mapper, URL);
-        networksHandler = new DockerNetworksHandler(httpClient, urlResolver,mapper, URL);
-        containerHandler = new DockerContainerHandler(httpClient, urlResolver,mapper, URL);
-        volumesHandler = new DockerVolumesHandler(httpClient, urlResolver,mapper, URL);
-        execHandler = new DockerExecHandler(httpClient, urlResolver, mapper, URL);
+        initHandlers(new OkHttpExecuter(httpClient, URL, urlResolver));
     }
 
     public DefaultDockerClient(String host) {
 
         httpClient = new OkHttpClient.Builder()
-                .connectTimeout(0, TimeUnit.MINUTES)
+                .connectTimeout(1, TimeUnit.MINUTES)
                 .readTimeout(0, TimeUnit.SECONDS)
                 .writeTimeout(0, TimeUnit.SECONDS)
                 .build();
 
-        httpClient = new OkHttpClient();
-
         URL = host;
         mapper = getMapper();
 
-        URLResolver urlResolver = new HttpURLResolver();
-        imageHandler = new DockerImagesHandler(httpClient, urlResolver, mapper, URL);
-        networksHandler = new DockerNetworksHandler(httpClient, urlResolver, mapper, URL);
-        containerHandler = new DockerContainerHandler(httpClient, urlResolver, mapper, URL);
-        volumesHandler = new DockerVolumesHandler(httpClient, urlResolver, mapper, URL);
-        execHandler = new DockerExecHandler(httpClient, urlResolver, mapper, URL);
+        urlResolver = new HttpURLResolver();
+        initHandlers(new OkHttpExecuter(httpClient, URL, urlResolver));
     }
 
     public DefaultDockerClient(String host, String certPath) throws IOException, GeneralSecurityException {
@@ -129,15 +142,48 @@ public class DefaultDockerClient implements DockerClient {
 
         //SerializationFeature.FAIL_ON_EMPTY_BEANS
 
-        URLResolver urlResolver = new HttpURLResolver();
-        imageHandler = new DockerImagesHandler(httpClient, urlResolver, mapper, URL);
-        networksHandler = new DockerNetworksHandler(httpClient, urlResolver, mapper, URL);
-        containerHandler = new DockerContainerHandler(httpClient, urlResolver, mapper, URL);
-        volumesHandler = new DockerVolumesHandler(httpClient, urlResolver, mapper, URL);
-        execHandler = new DockerExecHandler(httpClient, urlResolver, mapper, URL);
+        urlResolver = new HttpURLResolver();
+        initHandlers(new OkHttpExecuter(httpClient, URL, urlResolver));
+    }
+
+    /**
+     * Client on a preconfigured OkHttpClient. If an engine is given, blocking request/response calls go through it and
+     * OkHttp is only used for uploads and asynchronous calls; the engine is closed together with the client.
+     */
+    public DefaultDockerClient(OkHttpClient httpClient, URLResolver urlResolver, String url, DockerHttpEngine engine) {
+        this(httpClient, urlResolver, url, engine, null);
+    }
+
+    /**
+     * As above, with listener based streams (stats, followed logs, pulls, exec output) registered on the multiplexer's
+     * selector threads instead of a thread each. The multiplexer is closed together with the client.
+     */
+    public DefaultDockerClient(OkHttpClient httpClient, URLResolver urlResolver, String url, DockerHttpEngine engine,
+                               StreamMultiplexer multiplexer) {
+        this.httpClient = httpClient;
+        this.urlResolver = urlResolver;
+        this.engine = engine;
+        this.multiplexer = multiplexer;
+        URL = url;
+        mapper = getMapper();
+
+        initHandlers(new OkHttpExecuter(httpClient, url, urlResolver, engine, multiplexer));
     }
 
-    private ObjectMapper getMapper() {
+    /**
+     * All handlers, and the asynchronous client, share one executer so they share its negotiated api version.
+     */
+    private void initHandlers(OkHttpExecuter okHttpExecuter) {
+        this.okHttpExecuter = okHttpExecuter;
+        Executor executor = ForkJoinPool.commonPool();
+        imageHandler = new DockerImagesHandler(okHttpExecuter, mapper, executor);
+        networksHandler = new DockerNetworksHandler(okHttpExecuter, mapper, executor);
+        containerHandler = new DockerContainerHandler(okHttpExecuter, mapper, executor);
+        volumesHandler = new DockerVolumesHandler(okHttpExecuter, mapper, executor);
+        execHandler = new DockerExecHandler(okHttpExecuter, mapper, executor);
+    }
+
+    static ObjectMapper getMapper() {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
         return objectMapper;
@@ -145,9 +191,39 @@ public class DefaultDockerClient implements DockerClient {
 
     @Override
     public void close()  {
+        if(engine != null) {
+            engine.close();
+        }
+        if(multiplexer != null) {
+            multiplexer.close();
+        }
+        synchronized (this) {
+            if(asyncPool != null) {
+                asyncPool.shutdown();
+                asyncPool = null;
+                asyncClient = null;
+            }
+        }
         httpClient = null;
     }
 
+    /**
+     * The asynchronous client of this client, created on first use. Every call returns the same instance, decoding
+     * on one pool sized to the number of processors that is shut down together with this client.
+     */
+    @Override
+    public synchronized DockerAsyncClient async() {
+        if(asyncClient == null) {
+            asyncPool = DefaultDockerAsyncClient.newDecoderPool();
+            asyncClient = new DefaultDockerAsyncClient(okHttpExecuter, mapper, asyncPool);
+        }
+        return asyncClient;
+    }
+
+    public DockerAsyncClient async(Executor executor) {
+        return new DefaultDockerAsyncClient(okHttpExecuter, mapper, executor);
+    }
+
     @Override
     public AuthTestResponse auth(AuthTestRequest request) {
         return containerHandler.auth(request);
@@ -190,6 +266,11 @@ public class DefaultDockerClient implements DockerClient {
 
     @Override
     public String ps(boolean all) {
+        List<Container> containers = listContainers(ListContainerParams.builder().all(all).build());
+        return formatPs(containers);
+    }
+
+    static String formatPs(List<Container> containers) {
 
         Formatter formatter = new Formatter();
 
@@ -198,8 +279,6 @@ public class DefaultDockerClient implements DockerClient {
                 "CONTAINER ID", "IMAGE", "COMMAND", "CREATED", "STATUS", "PORTS", "NAMES"
                 );
 
-        List<Container> containers = listContainers(ListContainerParams.builder().all(all).build());
-
         for(Container c : containers) {
             String [] parts = c.toString().split("\t");
             formatter.format("%14s\t%40s\t%30s\t%12s\t%18s\t%40s\t%30s \n",
@@ -222,6 +301,16 @@ public class DefaultDockerClient implements DockerClient {
         return containerHandler.version();
     }
 
+    @Override
+    public ApiVersion negotiateApiVersion() {
+        return containerHandler.negotiateApiVersion();
+    }
+
+    @Override
+    public ApiVersion getApiVersion() {
+        return containerHandler.getApiVersion();
+    }
+
     @Override
     public SystemInfo info() {
         return containerHandler.info();
@@ -262,6 +351,26 @@ public class DefaultDockerClient implements DockerClient {
         return containerHandler.statsStream(id);
     }
 
+    @Override
+    public StreamSubscription statsStream(String id, StreamListener listener) {
+        return containerHandler.statsStream(id, listener);
+    }
+
+    @Override
+    public ContainerStatsIterator statsIterator(String id) {
+        return containerHandler.statsIterator(id);
+    }
+
+    @Override
+    public StatsRecordDecoder statsRecords(String id) {
+        return containerHandler.statsRecords(id);
+    }
+
+    @Override
+    public StreamSubscription subscribeStats(String id, ContainerStatsListener listener) {
+        return containerHandler.subscribeStats(id, listener);
+    }
+
     @Override
     public void resizeTty(String id, int width, int height) {
         containerHandler.resizeTty(id,width,height);
@@ -312,6 +421,11 @@ public class DefaultDockerClient implements DockerClient {
         return containerHandler.listContainers(listRequest);
     }
 
+    @Override
+    public Stream<Container> streamContainers(ListContainerParams listRequest) {
+        return containerHandler.streamContainers(listRequest);
+    }
+
     @Override
     public List<String> logs(String id, DockerLogsParameters params) {
         return containerHandler.logs(id, params);
@@ -322,11 +436,46 @@ public class DefaultDockerClient implements DockerClient {
         return containerHandler.logsSpecial(id, params);
     }
 
+    @Override
+    public LogRecordReader logRecords(String id, DockerLogsParameters params) {
+        return containerHandler.logRecords(id, params);
+    }
+
+    @Override
+    public LogTail logsTail(String id, DockerLogsParameters params, int maxLines, int maxBytes) {
+        return containerHandler.logsTail(id, params, maxLines, maxBytes);
+    }
+
+    @Override
+    public void logs(String id, DockerLogsParameters params, Consumer<LogRecord> consumer) {
+        containerHandler.logs(id, params, consumer);
+    }
+
+    @Override
+    public void logs(String id, DockerLogsParameters params, OutputStream stdout, OutputStream stderr) {
+        containerHandler.logs(id, params, stdout, stderr);
+    }
+
+    @Override
+    public LogSubscription followLogs(String id, DockerLogsParameters params, LogFrameListener listener) {
+        return containerHandler.followLogs(id, params, LogSubscriptionParameters.defaults(), listener);
+    }
+
+    @Override
+    public LogSubscription followLogs(String id, DockerLogsParameters params, LogSubscriptionParameters options, LogFrameListener listener) {
+        return containerHandler.followLogs(id, params, options, listener);
+    }
+
     @Override
     public InputStream logsRawStream(String id, DockerLogsParameters params) {
         return containerHandler.logsRawStream(id, params);
     }
 
+    @Override
+    public StreamSubscription logsRawStream(String id, DockerLogsParameters params, StreamListener listener) {
+        return containerHandler.logsRawStream(id, params, listener);
+    }
+
     @Override
     public InputStream pullImage(DockerImageName image) {
         return imageHandler.pullImage(image);
@@ -342,6 +491,11 @@ public class DefaultDockerClient implements DockerClient {
         return imageHandler.pullImage(image,token);
     }
 
+    @Override
+    public StreamSubscription pullImage(DockerImageName image, StreamListener listener) {
+        return imageHandler.pullImage(image, listener);
+    }
+
     @Override
     public void restart(String id) {
         restart(id,10);
@@ -382,6 +536,11 @@ public class DefaultDockerClient implements DockerClient {
         return imageHandler.listImages(params);
     }
 
+    @Override
+    public Stream<ImageInfo> streamImages(ListImagesParams params) {
+        return imageHandler.streamImages(params);
+    }
+
     @Override
     public String createNetwork(NetworkCreateRequest request) {
         return networksHandler.createNetwork(request);
@@ -397,6 +556,11 @@ public class DefaultDockerClient implements DockerClient {
         return networksHandler.listNetworks(params);
     }
 
+    @Override
+    public Stream<Network> streamNetworks(NetworkListParams params) {
+        return networksHandler.streamNetworks(params);
+    }
+
     @Override
     public void connectContainerToNetwork(NetworkConnectRequest request) {
         networksHandler.connectContainerToNetwork(request);
@@ -432,6 +596,11 @@ public class DefaultDockerClient implements DockerClient {
         return volumesHandler.listVolumes(params);
     }
 
+    @Override
+    public Stream<Volume> streamVolumes(ListVolumeParams params) {
+        return volumesHandler.streamVolumes(params);
+    }
+
     @Override
     public Volume createVolume(VolumeCreateRequest request) {
         return volumesHandler.createVolume(request);
@@ -477,6 +646,16 @@ public class DefaultDockerClient implements DockerClient {
         return execHandler.startExec(id);
     }
 
+    @Override
+    public void startExec(String id, OutputStream stdout, OutputStream stderr) {
+        execHandler.startExec(id, stdout, stderr);
+    }
+
+    @Override
+    public StreamSubscription startExec(String id, StreamListener listener) {
+        return execHandler.startExec(id, listener);
+    }
+
     @Override
     public void tagImage(DockerImageName original, DockerImageName newName) {
         imageHandler.tagImage(original, newName);
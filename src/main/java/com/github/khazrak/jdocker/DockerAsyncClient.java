@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker;
+
+import com.github.khazrak.jdocker.handlers.DockerLogsLineReader;
+import com.github.khazrak.jdocker.model.api124.*;
+import com.github.khazrak.jdocker.model.api124.parameters.*;
+import com.github.khazrak.jdocker.model.api124.requests.*;
+import com.github.khazrak.jdocker.utils.DockerImageName;
+import com.github.khazrak.jdocker.utils.RequestStreamBody;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link DockerClient}. Every call is enqueued on the http client and the
+ * returned future is completed once the response has been decoded.
+ */
+public interface DockerAsyncClient {
+
+    void close();
+
+    CompletableFuture<String> ping();
+
+    CompletableFuture<DockerVersion> version();
+
+    CompletableFuture<SystemInfo> info();
+
+    CompletableFuture<String> createContainer(ContainerCreationRequest spec);
+
+    CompletableFuture<Void> start(String id);
+
+    CompletableFuture<Void> stop(String id);
+
+    CompletableFuture<Void> stop(String id, int secondsUntilKill);
+
+    CompletableFuture<Void> remove(String id);
+
+    CompletableFuture<Void> remove(String id, boolean forceRemove, boolean removeVolume);
+
+    CompletableFuture<Void> kill(String id);
+
+    CompletableFuture<Void> kill(String id, String signal);
+
+    CompletableFuture<List<Container>> listContainers();
+
+    CompletableFuture<List<Container>> listContainers(ListContainerParams listRequest);
+
+    CompletableFuture<DockerContainerInspect> inspectContainer(String id, boolean size);
+
+    CompletableFuture<ContainerProcesses> top(String id);
+
+    CompletableFuture<ContainerProcesses> top(String id, String arg);
+
+    CompletableFuture<List<ContainerFileSystemChange>> containerFileSystemChanges(String id);
+
+    CompletableFuture<ContainerStats> stats(String id);
+
+    CompletableFuture<InputStream> statsStream(String id);
+
+    CompletableFuture<Void> resizeTty(String id, int width, int height);
+
+    CompletableFuture<List<String>> logs(String id, DockerLogsParameters params);
+
+    CompletableFuture<InputStream> logsRawStream(String id, DockerLogsParameters params);
+
+    CompletableFuture<InputStream> logsStream(String id, DockerLogsParameters params);
+
+    CompletableFuture<DockerLogsLineReader> logsSpecial(String id, DockerLogsParameters params);
+
+    CompletableFuture<InputStream> pullImage(DockerImageName image);
+
+    CompletableFuture<InputStream> pullImage(DockerImageName image, AuthConfig authConfig);
+
+    CompletableFuture<InputStream> pullImage(DockerImageName image, String token);
+
+    CompletableFuture<Void> restart(String id);
+
+    CompletableFuture<Void> restart(String id, int wait);
+
+    CompletableFuture<Warnings> update(String id, ContainerUpdateRequest updateConfig);
+
+    CompletableFuture<Void> rename(String originalName, String newName);
+
+    CompletableFuture<Void> pause(String id);
+
+    CompletableFuture<Void> unpause(String id);
+
+    CompletableFuture<List<ImageInfo>> listImages(boolean all);
+
+    CompletableFuture<List<ImageInfo>> listImages(ListImagesParams params);
+
+    CompletableFuture<String> createNetwork(NetworkCreateRequest request);
+
+    CompletableFuture<List<Network>> listNetworks();
+
+    CompletableFuture<List<Network>> listNetworks(NetworkListParams params);
+
+    CompletableFuture<Void> connectContainerToNetwork(NetworkConnectRequest request);
+
+    CompletableFuture<Void> disconnectContainerFromNetwork(String containerName, String networkName, boolean force);
+
+    CompletableFuture<Network> inspectNetwork(String id);
+
+    CompletableFuture<Void> removeNetwork(String id);
+
+    CompletableFuture<List<Volume>> listVolumes();
+
+    CompletableFuture<List<Volume>> listVolumes(ListVolumeParams params);
+
+    CompletableFuture<Volume> createVolume(VolumeCreateRequest request);
+
+    CompletableFuture<Volume> inspectVolume(String id);
+
+    CompletableFuture<Void> removeVolume(String id);
+
+    CompletableFuture<Image> inspectImage(DockerImageName imageName);
+
+    CompletableFuture<ExecInfo> inspectExec(String id);
+
+    CompletableFuture<String> createExec(String containerId, ExecCreateRequest request);
+
+    CompletableFuture<Void> resizeExec(String id, int width, int height);
+
+    CompletableFuture<Void> startExec(String id, boolean tty);
+
+    CompletableFuture<InputStream> startExec(String id);
+
+    CompletableFuture<Void> tagImage(DockerImageName original, DockerImageName newName);
+
+    CompletableFuture<InputStream> pushImage(DockerImageName imageToPush, AuthConfig authConfig);
+
+    CompletableFuture<InputStream> pushImage(DockerImageName imageToPush, String identitytoken);
+
+    CompletableFuture<String> removeImage(DockerImageName name);
+
+    CompletableFuture<String> removeImage(DockerImageName name, boolean force, boolean noprune);
+
+    CompletableFuture<List<ImageSearchInfo>> searchImage(String term);
+
+    CompletableFuture<List<ImageHistoryInfo>> historyOfImage(DockerImageName name);
+
+    CompletableFuture<InputStream> buildImageFromRemote(BuildImageFromRemoteRequest request);
+
+    CompletableFuture<InputStream> buildImageFromArchive(BuildImageFromArchiveRequest request);
+
+    CompletableFuture<AuthTestResponse> auth(AuthTestRequest request);
+
+    CompletableFuture<Void> waitForContainerStop(String id);
+
+    CompletableFuture<String> commitContainer(ContainerCommitRequest containerCommitRequest);
+
+    CompletableFuture<FileSystemInfo> fileSystemInfo(String id, String path);
+
+    CompletableFuture<InputStream> fileSystemArchiveDownload(String id, String path);
+
+    CompletableFuture<Void> fileSystemArchiveUpload(String id, String pathInContainer, RequestStreamBody body);
+
+    CompletableFuture<InputStream> getImageTar(DockerImageName repositoryName);
+
+    CompletableFuture<String> importImageTar(InputStream input, boolean quiet);
+
+    CompletableFuture<String> ps(boolean all);
+}
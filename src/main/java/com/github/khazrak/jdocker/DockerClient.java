@@ -14,23 +14,48 @@
 package com.github.khazrak.jdocker;
 
 import com.github.khazrak.jdocker.handlers.DockerLogsLineReader;
+import com.github.khazrak.jdocker.http.StreamListener;
+import com.github.khazrak.jdocker.http.StreamSubscription;
+import com.github.khazrak.jdocker.logs.LogFrameListener;
+import com.github.khazrak.jdocker.logs.LogRecord;
+import com.github.khazrak.jdocker.logs.LogRecordReader;
+import com.github.khazrak.jdocker.logs.LogTail;
+import com.github.khazrak.jdocker.logs.LogSubscription;
+import com.github.khazrak.jdocker.logs.LogSubscriptionParameters;
 import com.github.khazrak.jdocker.model.api124.*;
 import com.github.khazrak.jdocker.model.api124.parameters.*;
 import com.github.khazrak.jdocker.model.api124.requests.*;
+import com.github.khazrak.jdocker.stats.ContainerStatsIterator;
+import com.github.khazrak.jdocker.stats.ContainerStatsListener;
+import com.github.khazrak.jdocker.stats.StatsRecordDecoder;
+import com.github.khazrak.jdocker.utils.ApiVersion;
 import com.github.khazrak.jdocker.utils.DockerImageName;
 import com.github.khazrak.jdocker.utils.RequestStreamBody;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface DockerClient {
 
     void close();
 
+    DockerAsyncClient async();
+
     String ping();
 
     DockerVersion version();
 
+    /**
+     * Reads the daemon's api version so endpoints with a faster variant on newer daemons, like the one-shot
+     * {@link #stats(String)}, can use it. Everything else stays on v1.24.
+     */
+    ApiVersion negotiateApiVersion();
+
+    ApiVersion getApiVersion();
+
     SystemInfo info();
 
     String createContainer(ContainerCreationRequest spec);
@@ -53,6 +78,8 @@ public interface DockerClient {
 
     List<Container> listContainers(ListContainerParams listRequest);
 
+    Stream<Container> streamContainers(ListContainerParams listRequest);
+
     DockerContainerInspect inspectContainer(String id, boolean size);
 
     ContainerProcesses top(String id);
@@ -65,22 +92,57 @@ public interface DockerClient {
 
     InputStream statsStream(String id);
 
+    StreamSubscription statsStream(String id, StreamListener listener);
+
+    ContainerStatsIterator statsIterator(String id);
+
+    StatsRecordDecoder statsRecords(String id);
+
+    StreamSubscription subscribeStats(String id, ContainerStatsListener listener);
+
     void resizeTty(String id, int width, int height);
 
     List<String> logs(String id, DockerLogsParameters params);
 
     InputStream logsRawStream(String id, DockerLogsParameters params);
 
+    StreamSubscription logsRawStream(String id, DockerLogsParameters params, StreamListener listener);
+
     InputStream logsStream(String id, DockerLogsParameters params);
 
     DockerLogsLineReader logsSpecial(String id, DockerLogsParameters params);
 
+    /**
+     * Reads the logs as {@link com.github.khazrak.jdocker.logs.LogRecord}s, parsing the timestamps only on demand
+     * when {@code params} asks for them.
+     */
+    LogRecordReader logRecords(String id, DockerLogsParameters params);
+
+    /**
+     * Reads the logs keeping only the last {@code maxLines} lines and {@code maxBytes} bytes, in buffers allocated up
+     * front, however much the container logged.
+     */
+    LogTail logsTail(String id, DockerLogsParameters params, int maxLines, int maxBytes);
+
+    /**
+     * Streams the logs line by line to {@code consumer} without keeping them. The record is only valid during the call.
+     */
+    void logs(String id, DockerLogsParameters params, Consumer<LogRecord> consumer);
+
+    void logs(String id, DockerLogsParameters params, OutputStream stdout, OutputStream stderr);
+
+    LogSubscription followLogs(String id, DockerLogsParameters params, LogFrameListener listener);
+
+    LogSubscription followLogs(String id, DockerLogsParameters params, LogSubscriptionParameters options, LogFrameListener listener);
+
     InputStream pullImage(DockerImageName image);
 
     InputStream pullImage(DockerImageName image, AuthConfig authConfig);
 
     InputStream pullImage(DockerImageName image, String token);
 
+    StreamSubscription pullImage(DockerImageName image, StreamListener listener);
+
     void restart(String id);
 
     void restart(String id, int wait);
@@ -97,12 +159,16 @@ public interface DockerClient {
 
     List<ImageInfo> listImages(ListImagesParams params);
 
+    Stream<ImageInfo> streamImages(ListImagesParams params);
+
     String createNetwork(NetworkCreateRequest request);
 
     List<Network> listNetworks();
 
     List<Network> listNetworks(NetworkListParams params);
 
+    Stream<Network> streamNetworks(NetworkListParams params);
+
     void connectContainerToNetwork(NetworkConnectRequest request);
 
     void disconnectContainerFromNetwork(String containerName, String networkName, boolean force);
@@ -115,6 +181,8 @@ public interface DockerClient {
 
     List<Volume> listVolumes(ListVolumeParams params);
 
+    Stream<Volume> streamVolumes(ListVolumeParams params);
+
     Volume createVolume(VolumeCreateRequest request);
 
     Volume inspectVolume(String id);
@@ -133,6 +201,10 @@ public interface DockerClient {
 
     InputStream startExec(String id);
 
+    void startExec(String id, OutputStream stdout, OutputStream stderr);
+
+    StreamSubscription startExec(String id, StreamListener listener);
+
     void tagImage(DockerImageName original, DockerImageName newName);
 
     InputStream pushImage(DockerImageName imageToPush, AuthConfig authConfig);
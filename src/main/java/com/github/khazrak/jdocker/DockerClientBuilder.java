@@ -0,0 +1,372 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker;
+
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.http.DockerHttpEngine;
+import com.github.khazrak.jdocker.http.StreamMultiplexer;
+import com.github.khazrak.jdocker.ssl.DockerSSLSocket;
+import com.github.khazrak.jdocker.ssl.SslSocketConfigFactory;
+import com.github.khazrak.jdocker.unixsocket.NpipeSocketFactory;
+import com.github.khazrak.jdocker.unixsocket.UnixSocketFactory;
+import com.github.khazrak.jdocker.utils.HttpURLResolver;
+import com.github.khazrak.jdocker.utils.NpipeURLResolver;
+import com.github.khazrak.jdocker.utils.URLResolver;
+import com.github.khazrak.jdocker.utils.UnixURLResolver;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds clients with an explicitly sized connection pool, dispatcher, socket buffers and timeouts.
+ *
+ * Without a transport the daemon is found the same way as {@link DefaultDockerClient#DefaultDockerClient()}:
+ * /var/run/docker.sock, then the docker_engine named pipe, then http://127.0.0.1:4243.
+ * Since every request goes to the same daemon, the per-host request limit defaults to the overall limit.
+ */
+public class DockerClientBuilder {
+
+    private enum Transport { AUTO, UNIX, NPIPE, TCP, TLS }
+
+    private static final String DEFAULT_UNIX_SOCKET = "/var/run/docker.sock";
+    private static final String DEFAULT_NPIPE = "\\\\.\\pipe/docker_engine";
+    private static final String DEFAULT_TCP = "http://127.0.0.1:4243";
+
+    private Transport transport = Transport.AUTO;
+    private String address;
+    private DockerSSLSocket sslSocket;
+    private Boolean jdkUnixChannel;
+
+    private int maxIdleConnections = 16;
+    private long keepAliveMillis = TimeUnit.MINUTES.toMillis(5);
+    private int maxRequests = 64;
+    private int maxRequestsPerHost;
+
+    private int sendBufferSize;
+    private int receiveBufferSize;
+
+    private long connectTimeoutMillis = TimeUnit.MINUTES.toMillis(1);
+    private long readTimeoutMillis;
+    private long writeTimeoutMillis;
+
+    private boolean httpEngine;
+    private int engineBufferSize = DockerHttpEngine.DEFAULT_BUFFER_SIZE;
+    private int streamSelectorThreads;
+
+    private boolean negotiateApiVersion;
+
+    //=== Transport ====================================================================================================
+
+    public DockerClientBuilder unixSocket(String socketPath) {
+        this.transport = Transport.UNIX;
+        this.address = socketPath;
+        return this;
+    }
+
+    public DockerClientBuilder namedPipe() {
+        this.transport = Transport.NPIPE;
+        this.address = DEFAULT_NPIPE;
+        return this;
+    }
+
+    public DockerClientBuilder tcp(String url) {
+        this.transport = Transport.TCP;
+        this.address = url;
+        return this;
+    }
+
+    public DockerClientBuilder tls(String url, String certPath) throws IOException, GeneralSecurityException {
+        this.transport = Transport.TLS;
+        this.address = url;
+        this.sslSocket = new SslSocketConfigFactory().createDockerSslSocket(certPath);
+        return this;
+    }
+
+    /**
+     * Chooses between JDK unix socket channels (Java 16+) and jnr-unixsocket, by default the JDK is used when available.
+     */
+    public DockerClientBuilder jdkUnixChannel(boolean enabled) {
+        this.jdkUnixChannel = enabled;
+        return this;
+    }
+
+    //=== Connection pool and dispatcher ===============================================================================
+
+    public DockerClientBuilder maxIdleConnections(int maxIdleConnections) {
+        if (maxIdleConnections < 0) {
+            throw new IllegalArgumentException("maxIdleConnections < 0: " + maxIdleConnections);
+        }
+        this.maxIdleConnections = maxIdleConnections;
+        return this;
+    }
+
+    public DockerClientBuilder keepAlive(long duration, TimeUnit unit) {
+        this.keepAliveMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public DockerClientBuilder maxRequests(int maxRequests) {
+        if (maxRequests < 1) {
+            throw new IllegalArgumentException("maxRequests < 1: " + maxRequests);
+        }
+        this.maxRequests = maxRequests;
+        return this;
+    }
+
+    /**
+     * Defaults to {@link #maxRequests(int)}.
+     */
+    public DockerClientBuilder maxRequestsPerHost(int maxRequestsPerHost) {
+        if (maxRequestsPerHost < 1) {
+            throw new IllegalArgumentException("maxRequestsPerHost < 1: " + maxRequestsPerHost);
+        }
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return this;
+    }
+
+    //=== Sockets and timeouts =========================================================================================
+
+    public DockerClientBuilder sendBufferSize(int bytes) {
+        this.sendBufferSize = bytes;
+        return this;
+    }
+
+    public DockerClientBuilder receiveBufferSize(int bytes) {
+        this.receiveBufferSize = bytes;
+        return this;
+    }
+
+    public DockerClientBuilder connectTimeout(long timeout, TimeUnit unit) {
+        this.connectTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * 0 means no timeout, which is the default since followed logs and stats can be quiet for a long time.
+     */
+    public DockerClientBuilder readTimeout(long timeout, TimeUnit unit) {
+        this.readTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    public DockerClientBuilder writeTimeout(long timeout, TimeUnit unit) {
+        this.writeTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    //=== Engines ======================================================================================================
+
+    /**
+     * Sends blocking request/response calls through {@link DockerHttpEngine}, which shares the pool size, keep-alive,
+     * socket buffers and timeouts configured here. Not available over TLS.
+     */
+    public DockerClientBuilder httpEngine(boolean enabled) {
+        this.httpEngine = enabled;
+        return this;
+    }
+
+    public DockerClientBuilder httpEngineBufferSize(int bytes) {
+        this.engineBufferSize = bytes;
+        return this;
+    }
+
+    /**
+     * Runs listener based streams on this many selector threads, 0 (the default) gives every stream its own thread.
+     * Their connections get the socket buffer sizes and connect timeout configured here. Not available over TLS or
+     * named pipes.
+     */
+    public DockerClientBuilder streamSelectorThreads(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("threads < 0: " + threads);
+        }
+        this.streamSelectorThreads = threads;
+        return this;
+    }
+
+    //=== Api version ==================================================================================================
+
+    /**
+     * Asks the daemon for its api version when the client is built, see {@link DockerClient#negotiateApiVersion()}.
+     */
+    public DockerClientBuilder negotiateApiVersion(boolean enabled) {
+        this.negotiateApiVersion = enabled;
+        return this;
+    }
+
+    //=== Build ========================================================================================================
+
+    public DockerClient build() {
+        Transport resolved = resolveTransport();
+        if (httpEngine && resolved == Transport.TLS) {
+            throw new IllegalStateException("The http engine is not available over TLS");
+        }
+        if (streamSelectorThreads > 0 && (resolved == Transport.TLS || resolved == Transport.NPIPE)) {
+            throw new IllegalStateException("Stream multiplexing is only available over unix sockets and plain tcp");
+        }
+
+        String url = url(resolved);
+        SocketFactory socketFactory = socketFactory(resolved, url);
+        OkHttpClient httpClient = httpClient(resolved, socketFactory);
+        URLResolver urlResolver = urlResolver(resolved, socketFactory);
+
+        DockerHttpEngine engine = httpEngine ? engine(resolved, url, socketFactory) : null;
+        StreamMultiplexer multiplexer;
+        try {
+            multiplexer = streamSelectorThreads > 0 ? multiplexer(resolved, url, socketFactory) : null;
+        } catch (IOException e) {
+            if (engine != null) {
+                engine.close();
+            }
+            throw new DockerClientException("Could not start the stream multiplexer", e);
+        }
+
+        DockerClient client = new DefaultDockerClient(httpClient, urlResolver, url, engine, multiplexer);
+        if (negotiateApiVersion) {
+            client.negotiateApiVersion();
+        }
+        return client;
+    }
+
+    /**
+     * Asynchronous calls always go through OkHttp, so only the pool, dispatcher, socket and timeout settings apply.
+     */
+    public DockerAsyncClient buildAsync() {
+        Transport resolved = resolveTransport();
+        String url = url(resolved);
+        SocketFactory socketFactory = socketFactory(resolved, url);
+
+        return new DefaultDockerAsyncClient(httpClient(resolved, socketFactory), urlResolver(resolved, socketFactory),
+                DefaultDockerClient.getMapper(), url);
+    }
+
+    private Transport resolveTransport() {
+        if (transport != Transport.AUTO) {
+            return transport;
+        }
+        if (UnixSocketFactory.isSupported()) {
+            return Transport.UNIX;
+        }
+        if (NpipeSocketFactory.isSupported()) {
+            return Transport.NPIPE;
+        }
+        return Transport.TCP;
+    }
+
+    private String url(Transport resolved) {
+        if (address != null) {
+            return address;
+        }
+        switch (resolved) {
+            case UNIX:
+                return DEFAULT_UNIX_SOCKET;
+            case NPIPE:
+                return DEFAULT_NPIPE;
+            default:
+                return DEFAULT_TCP;
+        }
+    }
+
+    /**
+     * The raw socket factory of the transport, unix and named pipe factories also serve as OkHttp's dns.
+     */
+    private SocketFactory socketFactory(Transport resolved, String url) {
+        switch (resolved) {
+            case UNIX:
+                return jdkUnixChannel == null ? new UnixSocketFactory(url) : new UnixSocketFactory(url, jdkUnixChannel);
+            case NPIPE:
+                return new NpipeSocketFactory();
+            default:
+                return SocketFactory.getDefault();
+        }
+    }
+
+    private SocketFactory sized(Transport resolved, SocketFactory socketFactory) {
+        if (resolved == Transport.NPIPE || (sendBufferSize <= 0 && receiveBufferSize <= 0)) {
+            return socketFactory;
+        }
+        return new SizedSocketFactory(socketFactory, sendBufferSize, receiveBufferSize);
+    }
+
+    private OkHttpClient httpClient(Transport resolved, SocketFactory socketFactory) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost > 0 ? maxRequestsPerHost : maxRequests);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .socketFactory(sized(resolved, socketFactory));
+
+        if (resolved == Transport.UNIX) {
+            builder = builder.dns((UnixSocketFactory) socketFactory);
+        }
+        else if (resolved == Transport.NPIPE) {
+            builder = builder.dns((NpipeSocketFactory) socketFactory);
+        }
+        else if (resolved == Transport.TLS) {
+            builder = builder.sslSocketFactory(sslSocket.getSslSocketFactory(), sslSocket.getTrustManager());
+        }
+        return builder.build();
+    }
+
+    private URLResolver urlResolver(Transport resolved, SocketFactory socketFactory) {
+        switch (resolved) {
+            case UNIX:
+                return new UnixURLResolver((UnixSocketFactory) socketFactory);
+            case NPIPE:
+                return new NpipeURLResolver((NpipeSocketFactory) socketFactory);
+            default:
+                return new HttpURLResolver();
+        }
+    }
+
+    private DockerHttpEngine engine(Transport resolved, String url, SocketFactory socketFactory) {
+        SocketAddress endpoint;
+        String host;
+        if (resolved == Transport.TCP) {
+            HttpUrl httpUrl = HttpUrl.parse(url);
+            if (httpUrl == null) {
+                throw new IllegalStateException("Invalid daemon url: " + url);
+            }
+            endpoint = new InetSocketAddress(httpUrl.host(), httpUrl.port());
+            host = httpUrl.host() + ":" + httpUrl.port();
+        }
+        else {
+            endpoint = InetSocketAddress.createUnresolved("docker", 80);
+            host = "docker";
+        }
+
+        return new DockerHttpEngine(sized(resolved, socketFactory), endpoint, host, maxIdleConnections, keepAliveMillis,
+                TimeUnit.MILLISECONDS, engineBufferSize, (int) connectTimeoutMillis, (int) readTimeoutMillis);
+    }
+
+    private StreamMultiplexer multiplexer(Transport resolved, String url, SocketFactory socketFactory) throws IOException {
+        if (resolved == Transport.UNIX) {
+            return StreamMultiplexer.unixSocket((UnixSocketFactory) socketFactory, streamSelectorThreads, sendBufferSize,
+                    receiveBufferSize);
+        }
+        return StreamMultiplexer.tcp(url, streamSelectorThreads, sendBufferSize, receiveBufferSize, (int) connectTimeoutMillis);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.handlers;
+
+import com.github.khazrak.jdocker.utils.ApiVersion;
+
+/**
+ * Builds the versioned request paths. Endpoints are pinned to v1.24, the version the models are written
+ * against; an endpoint that has a faster variant on newer daemons asks for it with a minimum version and
+ * gets the negotiated version when the daemon supports it.
+ *
+ * Until {@link #negotiate(ApiVersion)} is called the daemon is assumed to speak v1.24 only.
+ */
+public class ApiPathResolver {
+
+    private static final String BASELINE_PREFIX = "v" + ApiVersion.V1_24 + "/";
+
+    private volatile ApiVersion negotiated = ApiVersion.V1_24;
+
+    public String path(String endpoint) {
+        return BASELINE_PREFIX + endpoint;
+    }
+
+    /**
+     * The path of an endpoint variant that needs at least {@code minimum}, or null if the daemon is older.
+     */
+    public String path(String endpoint, ApiVersion minimum) {
+        ApiVersion version = negotiated;
+        return version.isAtLeast(minimum) ? "v" + version + "/" + endpoint : null;
+    }
+
+    public boolean supports(ApiVersion minimum) {
+        return negotiated.isAtLeast(minimum);
+    }
+
+    /**
+     * Uses the version the daemon reports. A daemon older than v1.24 keeps the baseline, requests to it
+     * fail as they did before negotiation.
+     */
+    public ApiVersion negotiate(ApiVersion daemonVersion) {
+        ApiVersion version = daemonVersion.isAtLeast(ApiVersion.V1_24) ? daemonVersion : ApiVersion.V1_24;
+        negotiated = version;
+        return version;
+    }
+
+    public ApiVersion getNegotiated() {
+        return negotiated;
+    }
+
+}
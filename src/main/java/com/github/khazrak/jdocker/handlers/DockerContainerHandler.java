@@ -14,13 +14,28 @@
 package com.github.khazrak.jdocker.handlers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.khazrak.jdocker.http.StreamListener;
+import com.github.khazrak.jdocker.http.StreamSubscription;
+import com.github.khazrak.jdocker.logs.LogFrameListener;
+import com.github.khazrak.jdocker.logs.LogRecord;
+import com.github.khazrak.jdocker.logs.LogRecordReader;
+import com.github.khazrak.jdocker.logs.LogTail;
+import com.github.khazrak.jdocker.logs.LogSubscription;
+import com.github.khazrak.jdocker.logs.LogSubscriptionParameters;
 import com.github.khazrak.jdocker.model.api124.*;
 import com.github.khazrak.jdocker.model.api124.parameters.DockerLogsParameters;
 import com.github.khazrak.jdocker.model.api124.parameters.ListContainerParams;
 import com.github.khazrak.jdocker.model.api124.requests.ContainerCommitRequest;
 import com.github.khazrak.jdocker.model.api124.requests.ContainerCreationRequest;
 import com.github.khazrak.jdocker.model.api124.requests.ContainerUpdateRequest;
+import com.github.khazrak.jdocker.stats.ContainerStatsDecoder;
+import com.github.khazrak.jdocker.stats.ContainerStatsIterator;
+import com.github.khazrak.jdocker.stats.ContainerStatsListener;
+import com.github.khazrak.jdocker.stats.StatsRecordDecoder;
+import com.github.khazrak.jdocker.utils.ApiVersion;
 import com.github.khazrak.jdocker.utils.URLResolver;
 import okhttp3.OkHttpClient;
 import okhttp3.Response;
@@ -29,23 +44,49 @@ import org.slf4j.LoggerFactory;
 import com.github.khazrak.jdocker.model.api124.requests.AuthTestRequest;
 import com.github.khazrak.jdocker.utils.RequestStreamBody;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class DockerContainerHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(DockerContainerHandler.class);
 
+    /**
+     * Lines spanning frames are split past this size when streaming logs to a consumer
+     */
+    private static final int MAX_LOG_LINE_BYTES = 1024 * 1024;
+
     private final ObjectMapper mapper;
+    private final Executor executor;
+    private final ResponseReader reader;
+    private final ObjectReader statsReader;
+    private final ObjectReader oneShotStatsReader;
+    private final ObjectReader versionReader;
     private OkHttpExecuter okHttpExecuter;
 
     public DockerContainerHandler(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url) {
-        this.mapper = mapper;
-        this.okHttpExecuter = new OkHttpExecuter(httpClient, url, urlResolver);
+        this(httpClient, urlResolver, mapper, url, ForkJoinPool.commonPool());
+    }
 
+    public DockerContainerHandler(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url, Executor executor) {
+        this(new OkHttpExecuter(httpClient, url, urlResolver), mapper, executor);
+    }
+
+    public DockerContainerHandler(OkHttpExecuter okHttpExecuter, ObjectMapper mapper, Executor executor) {
+        this.okHttpExecuter = okHttpExecuter;
+        this.mapper = mapper;
+        this.executor = executor;
+        this.reader = new ResponseReader(mapper, logger);
+        this.statsReader = mapper.readerFor(ContainerStats.class);
+        this.oneShotStatsReader = statsReader.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.versionReader = mapper.readerFor(DockerVersion.class).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     }
 
     public String createContainer(ContainerCreationRequest spec) {
@@ -58,122 +99,235 @@ public class DockerContainerHandler {
         try {
             String json = mapper.writeValueAsString(spec);
             logger.debug("Creating container with json: {}", json);
-            Map<String, String> queries = new TreeMap<>();
-            queries.put("name", spec.getName());
 
-            response = okHttpExecuter.post(path, queries, json);
-            id = response.body().string();
-            id = mapper.readTree(id).findValue("Id").asText();
-            logger.debug("Created container with Id: {}", id);
+            response = okHttpExecuter.post(path, nameQuery(spec), json);
+            id = readCreatedId(response);
         } catch (IOException e) {
             logger.error("Exception during container creation", e);
         }
         return id;
     }
 
+    public CompletableFuture<String> createContainerAsync(ContainerCreationRequest spec) {
+        logger.debug("Creating container");
+        final String path = "v1.24/containers/create";
+
+        try {
+            String json = mapper.writeValueAsString(spec);
+            logger.debug("Creating container with json: {}", json);
+
+            return okHttpExecuter.postAsync(path, nameQuery(spec), json)
+                    .thenApplyAsync(response -> {
+                        try {
+                            return readCreatedId(response);
+                        } catch (IOException e) {
+                            logger.error("Exception during container creation", e);
+                        }
+                        return null;
+                    }, executor);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
+    private Map<String, String> nameQuery(ContainerCreationRequest spec) {
+        Map<String, String> queries = new TreeMap<>();
+        queries.put("name", spec.getName());
+        return queries;
+    }
+
+    private String readCreatedId(Response response) throws IOException {
+        String id = reader.readField(response, "Id");
+        logger.debug("Created container with Id: {}", id);
+        return id;
+    }
 
     public DockerContainerInspect inspectContainer(String id, boolean size) {
         logger.debug("Inspect container with {}, parameter: size={}", id, size);
         final String path = "v1.24/containers/" + id + "/json";
 
-        Map<String, String> queries = new TreeMap<>();
-        queries.put("size", Boolean.toString(size));
+        Response response = okHttpExecuter.get(path, sizeQuery(size));
+        return reader.read(response, DockerContainerInspect.class, "Exception during inspecting container " + id);
+    }
 
-        Response response = null;
+    public CompletableFuture<DockerContainerInspect> inspectContainerAsync(String id, boolean size) {
+        logger.debug("Inspect container with {}, parameter: size={}", id, size);
+        final String path = "v1.24/containers/" + id + "/json";
 
-        try {
-            response = okHttpExecuter.get(path, queries);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            return mapper.readValue(responseBody, DockerContainerInspect.class);
-        } catch (IOException e) {
-            logger.error("Exception during inspecting container " + id, e);
-        }
+        return okHttpExecuter.getAsync(path, sizeQuery(size))
+                .thenApplyAsync(response -> reader.read(response, DockerContainerInspect.class, "Exception during inspecting container " + id), executor);
+    }
 
-        return null;
+    private Map<String, String> sizeQuery(boolean size) {
+        Map<String, String> queries = new TreeMap<>();
+        queries.put("size", Boolean.toString(size));
+        return queries;
     }
 
     public ContainerProcesses top(String id, String arg) {
         logger.debug("Checking processin in container: {}, with ps_args={}", id, arg);
         final String path = "v1.24/containers/" + id + "/top";
 
+        Response response = okHttpExecuter.get(path, psArgsQuery(arg));
+        return reader.read(response, ContainerProcesses.class, "Exception during checking containers process for " + id);
+    }
+
+    public CompletableFuture<ContainerProcesses> topAsync(String id, String arg) {
+        logger.debug("Checking processin in container: {}, with ps_args={}", id, arg);
+        final String path = "v1.24/containers/" + id + "/top";
+
+        return okHttpExecuter.getAsync(path, psArgsQuery(arg))
+                .thenApplyAsync(response -> reader.read(response, ContainerProcesses.class, "Exception during checking containers process for " + id), executor);
+    }
+
+    private Map<String, String> psArgsQuery(String arg) {
         Map<String, String> queries = new TreeMap<>();
 
         if (arg != null) {
             queries.put("ps_args", arg);
         }
+        return queries;
+    }
 
-        try {
-            Response response = okHttpExecuter.get(path, queries);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            return mapper.readValue(responseBody, ContainerProcesses.class);
-        } catch (IOException e) {
-            logger.error("Exception during checking containers process for " + id, e);
-        }
+    public List<ContainerFileSystemChange> containerFileSystemChanges(String id) {
+        logger.debug("Checking container filesystem changes for id: {}", id);
+        final String path = "v1.24/containers/" + id + "/changes";
 
-        return null;
+        Response response = okHttpExecuter.get(path);
+        return reader.readList(response, ContainerFileSystemChange[].class, "Exception during checking container filesystem changes for " + id);
     }
 
-    public List<ContainerFileSystemChange> containerFileSystemChanges(String id) {
+    public CompletableFuture<List<ContainerFileSystemChange>> containerFileSystemChangesAsync(String id) {
         logger.debug("Checking container filesystem changes for id: {}", id);
         final String path = "v1.24/containers/" + id + "/changes";
 
-        try {
-            Response response = okHttpExecuter.get(path);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            ContainerFileSystemChange[] array = mapper.readValue(responseBody, ContainerFileSystemChange[].class);
-            return Arrays.asList(array);
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(response -> reader.readList(response, ContainerFileSystemChange[].class, "Exception during checking container filesystem changes for " + id), executor);
+    }
 
-        } catch (IOException e) {
-            logger.error("Exception during checking container filesystem changes for " + id, e);
+    /**
+     * On a daemon negotiated to API 1.41 or later the one-shot variant is used, which answers at once instead of
+     * waiting a second for the previous sample; its precpu_stats are empty.
+     */
+    public ContainerStats stats(String id) {
+        logger.debug("Checking stats for container {}", id);
+        final String oneShotPath = okHttpExecuter.paths().path("containers/" + id + "/stats", ApiVersion.V1_41);
+        if (oneShotPath != null) {
+            Response response = okHttpExecuter.get(oneShotPath, oneShotQuery());
+            return reader.read(response, oneShotStatsReader, "Exception during checking stats for " + id);
         }
+        final String path = okHttpExecuter.paths().path("containers/" + id + "/stats");
 
-        return null;
+        Response response = okHttpExecuter.get(path, streamQuery(false));
+        return reader.read(response, ContainerStats.class, "Exception during checking stats for " + id);
     }
 
-    public ContainerStats stats(String id) {
+    public CompletableFuture<ContainerStats> statsAsync(String id) {
         logger.debug("Checking stats for container {}", id);
-        final String path = "v1.24/containers/" + id + "/stats";
+        final String oneShotPath = okHttpExecuter.paths().path("containers/" + id + "/stats", ApiVersion.V1_41);
+        if (oneShotPath != null) {
+            return okHttpExecuter.getAsync(oneShotPath, oneShotQuery())
+                    .thenApplyAsync(response -> reader.read(response, oneShotStatsReader, "Exception during checking stats for " + id), executor);
+        }
+        final String path = okHttpExecuter.paths().path("containers/" + id + "/stats");
 
-        Map<String, String> queries = new TreeMap<>();
-        queries.put("stream", Boolean.toString(false));
+        return okHttpExecuter.getAsync(path, streamQuery(false))
+                .thenApplyAsync(response -> reader.read(response, ContainerStats.class, "Exception during checking stats for " + id), executor);
+    }
 
+    public InputStream statsStream(String id) {
+        logger.debug("Streaming stats for container {}", id);
+        final String path = okHttpExecuter.paths().path("containers/" + id + "/stats");
+
+        Response response = okHttpExecuter.get(path, streamQuery(true));
+        return response.body().byteStream();
+    }
+
+    public CompletableFuture<InputStream> statsStreamAsync(String id) {
+        logger.debug("Streaming stats for container {}", id);
+        final String path = okHttpExecuter.paths().path("containers/" + id + "/stats");
+
+        return okHttpExecuter.getAsync(path, streamQuery(true))
+                .thenApply(response -> response.body().byteStream());
+    }
+
+    public StreamSubscription statsStream(String id, StreamListener listener) {
+        logger.debug("Streaming stats for container {}", id);
+        final String path = okHttpExecuter.paths().path("containers/" + id + "/stats");
+
+        return okHttpExecuter.stream("GET", null, path, streamQuery(true), null, listener);
+    }
+
+    public ContainerStatsIterator statsIterator(String id) {
+        logger.debug("Iterating stats for container {}", id);
+        final String path = okHttpExecuter.paths().path("containers/" + id + "/stats");
+
+        Response response = okHttpExecuter.get(path, streamQuery(true));
         try {
-            Response response = okHttpExecuter.get(path, queries);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            return mapper.readValue(responseBody, ContainerStats.class);
+            return new ContainerStatsIterator(response.body().byteStream(), statsReader);
+        } catch (IOException e) {
+            response.close();
+            logger.error("Exception during stats streaming of container " + id, e);
+        }
+
+        return null;
+    }
 
+    public StatsRecordDecoder statsRecords(String id) {
+        logger.debug("Decoding stats records for container {}", id);
+        final String path = okHttpExecuter.paths().path("containers/" + id + "/stats");
+
+        Response response = okHttpExecuter.get(path, streamQuery(true));
+        try {
+            return new StatsRecordDecoder(response.body().byteStream(), statsReader.getFactory());
         } catch (IOException e) {
-            logger.error("Exception during checking stats for " + id, e);
+            response.close();
+            logger.error("Exception during stats streaming of container " + id, e);
         }
 
         return null;
     }
 
-    public InputStream statsStream(String id) {
-        logger.debug("Streaming stats for container {}", id);
-        final String path = "v1.24/containers/" + id + "/stats";
+    public StreamSubscription subscribeStats(String id, ContainerStatsListener listener) {
+        logger.debug("Subscribing to stats for container {}", id);
+        final String path = okHttpExecuter.paths().path("containers/" + id + "/stats");
+
+        return okHttpExecuter.stream("GET", null, path, streamQuery(true), null, new ContainerStatsDecoder(statsReader, listener));
+    }
 
+    private Map<String, String> streamQuery(boolean stream) {
         Map<String, String> queries = new TreeMap<>();
-        queries.put("stream", Boolean.toString(true));
+        queries.put("stream", Boolean.toString(stream));
+        return queries;
+    }
 
-        Response response = okHttpExecuter.get(path, queries);
-        return response.body().byteStream();
+    private Map<String, String> oneShotQuery() {
+        Map<String, String> queries = streamQuery(false);
+        queries.put("one-shot", "true");
+        return queries;
     }
 
     public void resizeTty(String id, int width, int height) {
         logger.debug("Resizing TTY with id: {}, with new width: {} and new height: {}", id, width, height);
         final String path = "v1.24/containers/" + id + "/resize";
 
+        Response response = okHttpExecuter.post(path, resizeQuery(width, height));
+        ;
+    }
+
+    public CompletableFuture<Void> resizeTtyAsync(String id, int width, int height) {
+        logger.debug("Resizing TTY with id: {}, with new width: {} and new height: {}", id, width, height);
+        final String path = "v1.24/containers/" + id + "/resize";
+
+        return okHttpExecuter.postAsync(path, resizeQuery(width, height))
+                .thenAccept(reader::discard);
+    }
+
+    private Map<String, String> resizeQuery(int width, int height) {
         Map<String, String> queries = new TreeMap<>();
         queries.put("h", Integer.toString(height));
         queries.put("w", Integer.toString(width));
-
-        Response response = okHttpExecuter.post(path, queries);
-        ;
+        return queries;
     }
 
     public void start(String id) {
@@ -186,23 +340,51 @@ public class DockerContainerHandler {
         }
     }
 
+    public CompletableFuture<Void> startAsync(String id) {
+        logger.debug("Starting container {}", id);
+        final String path = "v1.24/containers/" + id + "/start";
+
+        return okHttpExecuter.postAsync(path)
+                .thenAccept(response -> {
+                    if (response.code() == 304) {
+                        logger.warn("Container already started: " + id);
+                    }
+                    reader.discard(response);
+                });
+    }
+
     public void stop(String id, int secondsUntilKill) {
         logger.debug("Stopping container {}, seconds until issuing kill {}", id, secondsUntilKill);
         final String path = "v1.24/containers/" + id + "/stop";
 
-        Map<String, String> queries = new TreeMap<>();
-        queries.put("t", Integer.toString(secondsUntilKill));
-
-        Response response = okHttpExecuter.post(path, queries);
+        Response response = okHttpExecuter.post(path, timeoutQuery(secondsUntilKill));
         if (response.code() == 304) {
             logger.warn("Container already stopped: " + id);
         }
     }
 
+    public CompletableFuture<Void> stopAsync(String id, int secondsUntilKill) {
+        logger.debug("Stopping container {}, seconds until issuing kill {}", id, secondsUntilKill);
+        final String path = "v1.24/containers/" + id + "/stop";
+
+        return okHttpExecuter.postAsync(path, timeoutQuery(secondsUntilKill))
+                .thenAccept(response -> {
+                    if (response.code() == 304) {
+                        logger.warn("Container already stopped: " + id);
+                    }
+                    reader.discard(response);
+                });
+    }
+
+    private Map<String, String> timeoutQuery(int seconds) {
+        Map<String, String> queries = new TreeMap<>();
+        queries.put("t", Integer.toString(seconds));
+        return queries;
+    }
+
     public List<String> logs(String id, DockerLogsParameters params) {
         logger.debug("Reading logs as List for container {}, with params {} ", id, params);
         final String path = "v1.24/containers/" + id + "/logs";
-        List<String> logLines = null;
 
         Response response = okHttpExecuter.get(path, params.getQueryMap());
         if (response == null) {
@@ -210,7 +392,21 @@ public class DockerContainerHandler {
             return null; //fail fast
         }
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body().byteStream()))) {
+        return readLogLines(response, id, params);
+    }
+
+    public CompletableFuture<List<String>> logsAsync(String id, DockerLogsParameters params) {
+        logger.debug("Reading logs as List for container {}, with params {} ", id, params);
+        final String path = "v1.24/containers/" + id + "/logs";
+
+        return okHttpExecuter.getAsync(path, params.getQueryMap())
+                .thenApplyAsync(response -> readLogLines(response, id, params), executor);
+    }
+
+    private List<String> readLogLines(Response response, String id, DockerLogsParameters params) {
+        List<String> logLines = null;
+
+        try (DockerLogsLineReader reader = new DockerLogsLineReader(response.body().byteStream(), false)) {
             logLines = new ArrayList<>();
             String line;
             while ((line = reader.readLine()) != null) {
@@ -223,6 +419,18 @@ public class DockerContainerHandler {
         return logLines;
     }
 
+    public void logs(String id, DockerLogsParameters params, OutputStream stdout, OutputStream stderr) {
+        logger.debug("Reading logs into sinks for container {}, with params {} ", id, params);
+        final String path = "v1.24/containers/" + id + "/logs";
+
+        Response response = okHttpExecuter.get(path, params.getQueryMap());
+        try (DockerFrameDecoder decoder = new DockerFrameDecoder(response.body().byteStream())) {
+            decoder.demultiplex(stdout, stderr);
+        } catch (IOException e) {
+            logger.error("Exception during reading of logs from container " + id + " with params " + params.toString(), e);
+        }
+    }
+
     public DockerLogsLineReader logsSpecial(String id, DockerLogsParameters params) {
         logger.debug("Reading logs as DockerLogsLineReader for container {}, with params {} ", id, params);
         final String path = "v1.24/containers/" + id + "/logs";
@@ -230,6 +438,43 @@ public class DockerContainerHandler {
         return new DockerLogsLineReader(response.body().byteStream());
     }
 
+    public CompletableFuture<DockerLogsLineReader> logsSpecialAsync(String id, DockerLogsParameters params) {
+        logger.debug("Reading logs as DockerLogsLineReader for container {}, with params {} ", id, params);
+        final String path = "v1.24/containers/" + id + "/logs";
+        return okHttpExecuter.getAsync(path, params.getQueryMap())
+                .thenApply(response -> new DockerLogsLineReader(response.body().byteStream()));
+    }
+
+    public LogTail logsTail(String id, DockerLogsParameters params, int maxLines, int maxBytes) {
+        logger.debug("Reading logs into a tail of {} lines, {} bytes for container {}, with params {} ", maxLines, maxBytes, id, params);
+        LogTail tail = new LogTail(maxLines, maxBytes);
+        // lines are read whole, so the tail cuts the ones longer than maxBytes and counts them as truncated
+        logs(id, params, tail::add);
+        return tail;
+    }
+
+    public void logs(String id, DockerLogsParameters params, Consumer<LogRecord> consumer) {
+        logger.debug("Reading logs into a consumer for container {}, with params {} ", id, params);
+        final String path = "v1.24/containers/" + id + "/logs";
+        Response response = okHttpExecuter.get(path, params.getQueryMap());
+
+        LogRecord record = new LogRecord();
+        try (LogRecordReader reader = new LogRecordReader(response.body().byteStream(), params.isTimestamps(), MAX_LOG_LINE_BYTES)) {
+            while (reader.next(record)) {
+                consumer.accept(record);
+            }
+        } catch (IOException e) {
+            logger.error("Exception during reading of logs from container " + id + " with params " + params.toString(), e);
+        }
+    }
+
+    public LogRecordReader logRecords(String id, DockerLogsParameters params) {
+        logger.debug("Reading logs as LogRecordReader for container {}, with params {} ", id, params);
+        final String path = "v1.24/containers/" + id + "/logs";
+        Response response = okHttpExecuter.get(path, params.getQueryMap());
+        return new LogRecordReader(response.body().byteStream(), params.isTimestamps());
+    }
+
     public InputStream logsRawStream(String id, DockerLogsParameters params) {
         logger.debug("Reading logs as raw stream for container {}, with params {} ", id, params);
         final String path = "v1.24/containers/" + id + "/logs";
@@ -237,12 +482,46 @@ public class DockerContainerHandler {
         return response.body().byteStream();
     }
 
+    public CompletableFuture<InputStream> logsRawStreamAsync(String id, DockerLogsParameters params) {
+        logger.debug("Reading logs as raw stream for container {}, with params {} ", id, params);
+        final String path = "v1.24/containers/" + id + "/logs";
+        return okHttpExecuter.getAsync(path, params.getQueryMap())
+                .thenApply(response -> response.body().byteStream());
+    }
+
+    public StreamSubscription logsRawStream(String id, DockerLogsParameters params, StreamListener listener) {
+        logger.debug("Reading logs as raw stream for container {}, with params {} ", id, params);
+        final String path = "v1.24/containers/" + id + "/logs";
+
+        return okHttpExecuter.stream("GET", null, path, params.getQueryMap(), null, listener);
+    }
+
+    public LogSubscription followLogs(String id, DockerLogsParameters params, LogSubscriptionParameters options, LogFrameListener listener) {
+        logger.debug("Following logs for container {}, with params {} ", id, params);
+        final String path = "v1.24/containers/" + id + "/logs";
+        Map<String, String> queries = params.getQueryMap();
+        queries.put("follow", Boolean.toString(true));
+
+        return new LogSubscription(receiver -> okHttpExecuter.stream("GET", null, path, queries, null, receiver), options, listener, executor);
+    }
+
     public InputStream logsStream(String id, DockerLogsParameters params) {
         logger.debug("Reading logs as DockerLogsInputStream for container {}, with params {} ", id, params);
         final String path = "v1.24/containers/" + id + "/logs";
 
         Response response = okHttpExecuter.get(path, params.getQueryMap());
+        return readLogsStream(response, id);
+    }
+
+    public CompletableFuture<InputStream> logsStreamAsync(String id, DockerLogsParameters params) {
+        logger.debug("Reading logs as DockerLogsInputStream for container {}, with params {} ", id, params);
+        final String path = "v1.24/containers/" + id + "/logs";
 
+        return okHttpExecuter.getAsync(path, params.getQueryMap())
+                .thenApplyAsync(response -> readLogsStream(response, id), executor);
+    }
+
+    private InputStream readLogsStream(Response response, String id) {
         try {
             return new DockerLogsInputStream(response.body().byteStream());
         } catch (IOException e) {
@@ -255,31 +534,41 @@ public class DockerContainerHandler {
     public List<Container> listContainers() {
         logger.debug("Listing containers");
         final String path = "v1.24/containers/json";
-        try {
-            Response response = okHttpExecuter.get(path);
-            String responseBody = response.body().string();
-            logger.debug("Response: {}", responseBody);
-            Container[] containers = mapper.readValue(responseBody, Container[].class);
-            return Arrays.asList(containers);
-        } catch (IOException e) {
-            logger.error("Exception during listing of containers", e);
-        }
-        return null;
+
+        Response response = okHttpExecuter.get(path);
+        return reader.readList(response, Container[].class, "Exception during listing of containers");
+    }
+
+    public CompletableFuture<List<Container>> listContainersAsync() {
+        logger.debug("Listing containers");
+        final String path = "v1.24/containers/json";
+
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(response -> reader.readList(response, Container[].class, "Exception during listing of containers"), executor);
     }
 
     public List<Container> listContainers(ListContainerParams listParams) {
         logger.debug("Listing containers with params: {}", listParams);
         final String path = "v1.24/containers/json";
-        try {
-            Response response = okHttpExecuter.get(path, listParams.getQueries());
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            Container[] containers = mapper.readValue(responseBody, Container[].class);
-            return Arrays.asList(containers);
-        } catch (IOException e) {
-            logger.error("Exception during listing of containers with params " + listParams, e);
-        }
-        return null;
+
+        Response response = okHttpExecuter.get(path, listParams.getQueries());
+        return reader.readList(response, Container[].class, "Exception during listing of containers with params " + listParams);
+    }
+
+    public CompletableFuture<List<Container>> listContainersAsync(ListContainerParams listParams) {
+        logger.debug("Listing containers with params: {}", listParams);
+        final String path = "v1.24/containers/json";
+
+        return okHttpExecuter.getAsync(path, listParams.getQueries())
+                .thenApplyAsync(response -> reader.readList(response, Container[].class, "Exception during listing of containers with params " + listParams), executor);
+    }
+
+    public Stream<Container> streamContainers(ListContainerParams listParams) {
+        logger.debug("Streaming containers with params: {}", listParams);
+        final String path = "v1.24/containers/json";
+
+        Response response = okHttpExecuter.get(path, listParams.getQueries());
+        return reader.stream(response, Container.class, "Exception during streaming of containers with params " + listParams);
     }
 
     public void remove(String id) {
@@ -292,33 +581,79 @@ public class DockerContainerHandler {
         }
     }
 
+    public CompletableFuture<Void> removeAsync(String id) {
+        logger.debug("Removing container with id {}", id);
+        final String path = "v1.24/containers/" + id;
+
+        return okHttpExecuter.deleteAsync(path)
+                .thenAccept(response -> {
+                    if (response.code() == 304) {
+                        logger.warn("Container already removed: " + id);
+                    }
+                    reader.discard(response);
+                });
+    }
+
     public void remove(String id, boolean forceRemove, boolean removeVolume) {
         logger.debug("Removing container with id {} forceRemove: {} remove volume: {}", id, forceRemove, removeVolume);
         final String path = "v1.24/containers/" + id;
 
-        Map<String, String> queries = new TreeMap<>();
-        queries.put("force", Boolean.toString(forceRemove));
-        queries.put("v", Boolean.toString(removeVolume));
-
-        Response response = okHttpExecuter.delete(path, queries);
+        Response response = okHttpExecuter.delete(path, removeQuery(forceRemove, removeVolume));
         if (response.code() == 304) {
             logger.warn("Container already removed: " + id);
         }
     }
 
+    public CompletableFuture<Void> removeAsync(String id, boolean forceRemove, boolean removeVolume) {
+        logger.debug("Removing container with id {} forceRemove: {} remove volume: {}", id, forceRemove, removeVolume);
+        final String path = "v1.24/containers/" + id;
+
+        return okHttpExecuter.deleteAsync(path, removeQuery(forceRemove, removeVolume))
+                .thenAccept(response -> {
+                    if (response.code() == 304) {
+                        logger.warn("Container already removed: " + id);
+                    }
+                    reader.discard(response);
+                });
+    }
+
+    private Map<String, String> removeQuery(boolean forceRemove, boolean removeVolume) {
+        Map<String, String> queries = new TreeMap<>();
+        queries.put("force", Boolean.toString(forceRemove));
+        queries.put("v", Boolean.toString(removeVolume));
+        return queries;
+    }
+
     public void kill(String id) {
         logger.debug("Killing container {}", id);
         final String path = "v1.24/containers/" + id + "/kill";
         Response response = okHttpExecuter.post(path);
     }
 
+    public CompletableFuture<Void> killAsync(String id) {
+        logger.debug("Killing container {}", id);
+        final String path = "v1.24/containers/" + id + "/kill";
+        return okHttpExecuter.postAsync(path).thenAccept(reader::discard);
+    }
+
     public void kill(String id, String signal) {
         logger.debug("Killing container {} with signal: {}", id, signal);
         final String path = "v1.24/containers/" + id + "/kill";
+
+        Response response = okHttpExecuter.post(path, signalQuery(signal));
+    }
+
+    public CompletableFuture<Void> killAsync(String id, String signal) {
+        logger.debug("Killing container {} with signal: {}", id, signal);
+        final String path = "v1.24/containers/" + id + "/kill";
+
+        return okHttpExecuter.postAsync(path, signalQuery(signal)).thenAccept(reader::discard);
+    }
+
+    private Map<String, String> signalQuery(String signal) {
         Map<String, String> queries = new TreeMap<>();
         queries.put("signal", signal);
-
-        Response response = okHttpExecuter.post(path, queries);
+        return queries;
     }
 
     public void restart(String id, int wait) {
@@ -327,6 +662,12 @@ public class DockerContainerHandler {
         Response response = okHttpExecuter.post(path);
     }
 
+    public CompletableFuture<Void> restartAsync(String id, int wait) {
+        logger.debug("Restarting container {}, wait {}", id, wait);
+        final String path = "v1.24/containers/" + id + "/restart?t=" + wait;
+        return okHttpExecuter.postAsync(path).thenAccept(reader::discard);
+    }
+
     public Warnings update(String id, ContainerUpdateRequest updateConfig) {
         logger.debug("Updating container config");
         final String path = "v1.24/containers/" + id + "/update";
@@ -334,24 +675,45 @@ public class DockerContainerHandler {
         try {
             String json = mapper.writeValueAsString(updateConfig);
             Response response = okHttpExecuter.post(path, json);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            return mapper.readValue(responseBody, Warnings.class);
-
-        } catch (IOException e) {
+            return reader.read(response, Warnings.class, "Exception during updating container config for container " + id);
+        } catch (JsonProcessingException e) {
             logger.error("Exception during updating container config for container " + id, e);
         }
 
         return null;
     }
 
+    public CompletableFuture<Warnings> updateAsync(String id, ContainerUpdateRequest updateConfig) {
+        logger.debug("Updating container config");
+        final String path = "v1.24/containers/" + id + "/update";
+
+        try {
+            String json = mapper.writeValueAsString(updateConfig);
+            return okHttpExecuter.postAsync(path, json)
+                    .thenApplyAsync(response -> reader.read(response, Warnings.class, "Exception during updating container config for container " + id), executor);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
     public void rename(String originalName, String newName) {
         logger.debug("Renaming container from {} to {}", originalName, newName);
         final String path = "v1.24/containers/" + originalName + "/rename";
 
+        Response response = okHttpExecuter.post(path, renameQuery(newName));
+    }
+
+    public CompletableFuture<Void> renameAsync(String originalName, String newName) {
+        logger.debug("Renaming container from {} to {}", originalName, newName);
+        final String path = "v1.24/containers/" + originalName + "/rename";
+
+        return okHttpExecuter.postAsync(path, renameQuery(newName)).thenAccept(reader::discard);
+    }
+
+    private Map<String, String> renameQuery(String newName) {
         Map<String, String> queries = new TreeMap<>();
         queries.put("name", newName);
-        Response response = okHttpExecuter.post(path, queries);
+        return queries;
     }
 
     public void pause(String id) {
@@ -360,55 +722,91 @@ public class DockerContainerHandler {
         Response response = okHttpExecuter.post(path);
     }
 
+    public CompletableFuture<Void> pauseAsync(String id) {
+        logger.debug("Pausing container {}", id);
+        final String path = "v1.24/containers/" + id + "/pause";
+        return okHttpExecuter.postAsync(path).thenAccept(reader::discard);
+    }
+
     public void unpause(String id) {
         logger.debug("Unpausing container {}", id);
         final String path = "v1.24/containers/" + id + "/unpause";
         Response response = okHttpExecuter.post(path);
     }
 
+    public CompletableFuture<Void> unpauseAsync(String id) {
+        logger.debug("Unpausing container {}", id);
+        final String path = "v1.24/containers/" + id + "/unpause";
+        return okHttpExecuter.postAsync(path).thenAccept(reader::discard);
+    }
+
     public String ping() {
         logger.debug("Ping");
         final String path = "v1.24/_ping";
         Response response = okHttpExecuter.get(path);
-        try {
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            return responseBody;
-        } catch (IOException e) {
-            logger.error("Exception during ping", e);
-        }
-        return null;
+        return reader.readString(response, "Exception during ping");
+    }
+
+    public CompletableFuture<String> pingAsync() {
+        logger.debug("Ping");
+        final String path = "v1.24/_ping";
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(response -> reader.readString(response, "Exception during ping"), executor);
     }
 
     public DockerVersion version() {
         logger.debug("Version");
         final String path = "version";
         Response response = okHttpExecuter.get(path);
+        return reader.read(response, versionReader, "Exception during ping");
+    }
+
+    /**
+     * Asks the daemon for its API version and lets the endpoints that have a faster variant on newer daemons use it.
+     * Keeps the current version if the daemon can not be reached, answers with an error or reports a version that
+     * can not be parsed.
+     */
+    public ApiVersion negotiateApiVersion() {
+        ApiVersion daemon;
         try {
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            return mapper.readValue(responseBody, DockerVersion.class);
-        } catch (IOException e) {
-            logger.error("Exception during ping", e);
+            DockerVersion version = version();
+            daemon = version == null || version.getApiVersion() == null ? null : ApiVersion.parse(version.getApiVersion());
+        } catch (RuntimeException e) {
+            logger.warn("Could not negotiate the api version, staying on {}", okHttpExecuter.paths().getNegotiated(), e);
+            return okHttpExecuter.paths().getNegotiated();
         }
-        return null;
+        if (daemon == null) {
+            logger.warn("Could not read the daemon api version, staying on {}", okHttpExecuter.paths().getNegotiated());
+            return okHttpExecuter.paths().getNegotiated();
+        }
+        ApiVersion negotiated = okHttpExecuter.paths().negotiate(daemon);
+        logger.debug("Negotiated api version {}", negotiated);
+        return negotiated;
+    }
+
+    public ApiVersion getApiVersion() {
+        return okHttpExecuter.paths().getNegotiated();
+    }
+
+    public CompletableFuture<DockerVersion> versionAsync() {
+        logger.debug("Version");
+        final String path = "version";
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(response -> reader.read(response, versionReader, "Exception during ping"), executor);
     }
 
     public SystemInfo info() {
         logger.debug("Info");
         final String path = "info";
         Response response = okHttpExecuter.get(path);
+        return reader.read(response, SystemInfo.class, "Exception during info command");
+    }
 
-        try {
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            SystemInfo systemInfo = mapper.readValue(responseBody, SystemInfo.class);
-            return systemInfo;
-        } catch (IOException e) {
-            logger.error("Exception during info command", e);
-        }
-
-        return null;
+    public CompletableFuture<SystemInfo> infoAsync() {
+        logger.debug("Info");
+        final String path = "info";
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(response -> reader.read(response, SystemInfo.class, "Exception during info command"), executor);
     }
 
     public AuthTestResponse auth(AuthTestRequest authRequest) {
@@ -417,24 +815,38 @@ public class DockerContainerHandler {
         try {
             String json = mapper.writeValueAsString(authRequest);
             Response respone = okHttpExecuter.post(path, json);
-            String responseBody = respone.body().string();
-            logger.debug("Response body: {}", responseBody);
-            return mapper.readValue(responseBody, AuthTestResponse.class);
+            return reader.read(respone, AuthTestResponse.class, "Exception during auth test when retrieving response body");
         } catch (JsonProcessingException e) {
             logger.error("Exception during auth test due to JSON de/serialization", e);
-        } catch (IOException e) {
-            logger.error("Exception during auth test when retrieving response body", e);
         }
 
         return null;
     }
 
+    public CompletableFuture<AuthTestResponse> authAsync(AuthTestRequest authRequest) {
+        logger.debug("Auth test");
+        final String path = "v1.24/auth";
+        try {
+            String json = mapper.writeValueAsString(authRequest);
+            return okHttpExecuter.postAsync(path, json)
+                    .thenApplyAsync(response -> reader.read(response, AuthTestResponse.class, "Exception during auth test when retrieving response body"), executor);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
     public void waitForContainerStop(String id) {
         logger.debug("Wait for container {}", id);
         final String path = "v1.24/containers/" + id + "/wait";
         Response response = okHttpExecuter.post(path);
     }
 
+    public CompletableFuture<Void> waitForContainerStopAsync(String id) {
+        logger.debug("Wait for container {}", id);
+        final String path = "v1.24/containers/" + id + "/wait";
+        return okHttpExecuter.postAsync(path).thenAccept(reader::discard);
+    }
+
     public String commitContainer(ContainerCommitRequest containerCommitRequest) {
         logger.debug("Commit container {}", containerCommitRequest.getContainerName());
         final String path = "v1.24/commit";
@@ -442,9 +854,7 @@ public class DockerContainerHandler {
         try {
             String json = mapper.writeValueAsString(containerCommitRequest.getContainerCommit());
             Response response = okHttpExecuter.post(path, containerCommitRequest.getQueries(), json);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            return mapper.readTree(responseBody).get("Id").textValue();
+            return readCommitId(response);
         } catch (IOException e) {
             logger.error("Exception during commit due to JsonProcessing", e);
         }
@@ -452,12 +862,45 @@ public class DockerContainerHandler {
         return null;
     }
 
+    public CompletableFuture<String> commitContainerAsync(ContainerCommitRequest containerCommitRequest) {
+        logger.debug("Commit container {}", containerCommitRequest.getContainerName());
+        final String path = "v1.24/commit";
+
+        try {
+            String json = mapper.writeValueAsString(containerCommitRequest.getContainerCommit());
+            return okHttpExecuter.postAsync(path, containerCommitRequest.getQueries(), json)
+                    .thenApplyAsync(response -> {
+                        try {
+                            return readCommitId(response);
+                        } catch (IOException e) {
+                            logger.error("Exception during commit due to JsonProcessing", e);
+                        }
+                        return null;
+                    }, executor);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
+    private String readCommitId(Response response) throws IOException {
+        return reader.readField(response, "Id");
+    }
+
     public FileSystemInfo fileSystemInfo(String id, String pathInContainer) {
         logger.debug("FileSystemInfo for container {} with path {}", id, pathInContainer);
         final String path = "v1.24/containers/" + id + "/archive";
-        Map<String, String> queries = new TreeMap<>();
-        queries.put("path",pathInContainer);
-        Response response = okHttpExecuter.head(path, queries);
+        Response response = okHttpExecuter.head(path, pathQuery(pathInContainer));
+        return readFileSystemInfo(response);
+    }
+
+    public CompletableFuture<FileSystemInfo> fileSystemInfoAsync(String id, String pathInContainer) {
+        logger.debug("FileSystemInfo for container {} with path {}", id, pathInContainer);
+        final String path = "v1.24/containers/" + id + "/archive";
+        return okHttpExecuter.headAsync(path, pathQuery(pathInContainer))
+                .thenApplyAsync(this::readFileSystemInfo, executor);
+    }
+
+    private FileSystemInfo readFileSystemInfo(Response response) {
         try {
 
             String responseHead = response.header("X-Docker-Container-Path-Stat");
@@ -476,17 +919,32 @@ public class DockerContainerHandler {
     public InputStream fileSystemArchiveDownload(String id, String pathInContainer) {
         logger.debug("FileSystemArchiveDownload for container {} with path {}", id, pathInContainer);
         final String path = "v1.24/containers/" + id + "/archive";
-        Map<String, String> queries = new TreeMap<>();
-        queries.put("path",pathInContainer);
-        Response response = okHttpExecuter.get(path, queries);
+        Response response = okHttpExecuter.get(path, pathQuery(pathInContainer));
         return response.body().byteStream();
     }
 
+    public CompletableFuture<InputStream> fileSystemArchiveDownloadAsync(String id, String pathInContainer) {
+        logger.debug("FileSystemArchiveDownload for container {} with path {}", id, pathInContainer);
+        final String path = "v1.24/containers/" + id + "/archive";
+        return okHttpExecuter.getAsync(path, pathQuery(pathInContainer))
+                .thenApply(response -> response.body().byteStream());
+    }
+
     public void fileSystemArchiveUpload(String id, String pathInContainer, RequestStreamBody body) {
         logger.debug("FileSystemArchiveUpload for container {} with path {}", id, pathInContainer);
         final String path = "v1.24/containers/" + id + "/archive";
+        Response response = okHttpExecuter.put(path, pathQuery(pathInContainer), body);
+    }
+
+    public CompletableFuture<Void> fileSystemArchiveUploadAsync(String id, String pathInContainer, RequestStreamBody body) {
+        logger.debug("FileSystemArchiveUpload for container {} with path {}", id, pathInContainer);
+        final String path = "v1.24/containers/" + id + "/archive";
+        return okHttpExecuter.putAsync(path, pathQuery(pathInContainer), body).thenAccept(reader::discard);
+    }
+
+    private Map<String, String> pathQuery(String pathInContainer) {
         Map<String, String> queries = new TreeMap<>();
         queries.put("path", pathInContainer);
-        Response response = okHttpExecuter.put(path, queries, body);
+        return queries;
     }
 }
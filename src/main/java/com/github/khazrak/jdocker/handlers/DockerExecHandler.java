@@ -19,25 +19,43 @@ import okhttp3.OkHttpClient;
 import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.github.khazrak.jdocker.http.StreamListener;
+import com.github.khazrak.jdocker.http.StreamSubscription;
 import com.github.khazrak.jdocker.model.api124.ExecInfo;
 import com.github.khazrak.jdocker.model.api124.requests.ExecCreateRequest;
 import com.github.khazrak.jdocker.utils.URLResolver;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class DockerExecHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(DockerExecHandler.class);
 
     private final ObjectMapper mapper;
+    private final Executor executor;
+    private final ResponseReader reader;
     private final OkHttpExecuter okHttpExecuter;
 
     public DockerExecHandler(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url) {
-        this.okHttpExecuter = new OkHttpExecuter(httpClient, url, urlResolver);
+        this(httpClient, urlResolver, mapper, url, ForkJoinPool.commonPool());
+    }
+
+    public DockerExecHandler(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url, Executor executor) {
+        this(new OkHttpExecuter(httpClient, url, urlResolver), mapper, executor);
+    }
+
+    public DockerExecHandler(OkHttpExecuter okHttpExecuter, ObjectMapper mapper, Executor executor) {
+        this.okHttpExecuter = okHttpExecuter;
         this.mapper = mapper;
+        this.executor = executor;
+        this.reader = new ResponseReader(mapper, logger);
     }
 
     public String createExec(String containerId, ExecCreateRequest execCreateRequest) {
@@ -47,10 +65,7 @@ public class DockerExecHandler {
         try {
             String json = mapper.writeValueAsString(execCreateRequest);
             Response response = okHttpExecuter.post(path, json);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-
-            return mapper.readTree(responseBody).findValue("Id").asText();
+            return readExecId(response);
 
         } catch (IOException e) {
             logger.error("Exception during exec creation for container "+containerId, e);
@@ -59,62 +74,97 @@ public class DockerExecHandler {
         return null;
     }
 
+    public CompletableFuture<String> createExecAsync(String containerId, ExecCreateRequest execCreateRequest) {
+        logger.debug("Creating exec for container {}", containerId);
+        final String path = "v1.24/containers/" + containerId + "/exec";
+
+        try {
+            String json = mapper.writeValueAsString(execCreateRequest);
+            return okHttpExecuter.postAsync(path, json)
+                    .thenApplyAsync(response -> {
+                        try {
+                            return readExecId(response);
+                        } catch (IOException e) {
+                            logger.error("Exception during exec creation for container "+containerId, e);
+                        }
+                        return null;
+                    }, executor);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
+    private String readExecId(Response response) throws IOException {
+        return reader.readField(response, "Id");
+    }
+
     public ExecInfo inspectExec(String id) {
         logger.debug("Inspecting exec {}", id);
         final String path = "v1.24/exec/" + id + "/json";
 
-        try {
-            Response response = okHttpExecuter.get(path);
+        Response response = okHttpExecuter.get(path);
+        return reader.read(response, ExecInfo.class, "Exception during inspecting exec "+id);
+    }
 
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
+    public CompletableFuture<ExecInfo> inspectExecAsync(String id) {
+        logger.debug("Inspecting exec {}", id);
+        final String path = "v1.24/exec/" + id + "/json";
 
-            return mapper.readValue(responseBody, ExecInfo.class);
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(response -> reader.read(response, ExecInfo.class, "Exception during inspecting exec "+id), executor);
+    }
 
-        } catch (IOException e) {
-            logger.error("Exception during inspecting exec "+id, e);
-        }
+    public void resizeExec(String id, int width, int height) {
+        logger.debug("Resizing exec tty {}, new width {}, new height {}", id, width, height);
+        final String path = "v1.24/exec/" + id + "/resize";
 
-        return null;
+        Response response = okHttpExecuter.post(path, resizeQuery(width, height));
     }
 
-    public void resizeExec(String id, int width, int height) {
+    public CompletableFuture<Void> resizeExecAsync(String id, int width, int height) {
         logger.debug("Resizing exec tty {}, new width {}, new height {}", id, width, height);
         final String path = "v1.24/exec/" + id + "/resize";
 
+        return okHttpExecuter.postAsync(path, resizeQuery(width, height)).thenAccept(reader::discard);
+    }
+
+    private Map<String, String> resizeQuery(int width, int height) {
         Map<String, String> queries = new TreeMap<>();
         queries.put("w", Integer.toString(width));
         queries.put("h", Integer.toString(height));
-
-        Response response = okHttpExecuter.post(path, queries);
+        return queries;
     }
 
     public void startExec(String id, boolean tty) {
         logger.debug("Starting exec {} with a tty: {}", id, tty);
         final String path = "v1.24/exec/" + id + "/start";
 
-        Map<String, Boolean> startRequest = new TreeMap<>();
-        startRequest.put("Detach",true);
-        startRequest.put("Tty",tty);
-
         try {
-            String json = mapper.writeValueAsString(startRequest);
+            String json = mapper.writeValueAsString(startRequest(true, tty));
             Response response = okHttpExecuter.post(path, json);
         } catch (JsonProcessingException e) {
             logger.error("Exception during start of exec "+id+" due to json serialization problem", e);
         }
     }
 
+    public CompletableFuture<Void> startExecAsync(String id, boolean tty) {
+        logger.debug("Starting exec {} with a tty: {}", id, tty);
+        final String path = "v1.24/exec/" + id + "/start";
+
+        try {
+            String json = mapper.writeValueAsString(startRequest(true, tty));
+            return okHttpExecuter.postAsync(path, json).thenAccept(reader::discard);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
     public InputStream startExec(String id) {
         logger.debug("Starting exec {}, streaming");
         final String path = "v1.24/exec/" + id + "/start";
 
-        Map<String, Boolean> startRequest = new TreeMap<>();
-        startRequest.put("Detach",false);
-        startRequest.put("Tty",true);
-
         try {
-            String json = mapper.writeValueAsString(startRequest);
+            String json = mapper.writeValueAsString(startRequest(false, true));
             Response response = okHttpExecuter.post(path, json);
             return response.body().byteStream();
         } catch (IOException e) {
@@ -123,4 +173,51 @@ public class DockerExecHandler {
 
         return null;
     }
+
+    public void startExec(String id, OutputStream stdout, OutputStream stderr) {
+        logger.debug("Starting exec {}, streaming into sinks", id);
+        final String path = "v1.24/exec/" + id + "/start";
+
+        try {
+            String json = mapper.writeValueAsString(startRequest(false, true));
+            Response response = okHttpExecuter.post(path, json);
+            try (DockerFrameDecoder decoder = new DockerFrameDecoder(response.body().byteStream())) {
+                decoder.demultiplex(stdout, stderr);
+            }
+        } catch (IOException e) {
+            logger.error("Exception during exec start of "+id, e);
+        }
+    }
+
+    public CompletableFuture<InputStream> startExecAsync(String id) {
+        logger.debug("Starting exec {}, streaming");
+        final String path = "v1.24/exec/" + id + "/start";
+
+        try {
+            String json = mapper.writeValueAsString(startRequest(false, true));
+            return okHttpExecuter.postAsync(path, json)
+                    .thenApply(response -> response.body().byteStream());
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
+    public StreamSubscription startExec(String id, StreamListener listener) {
+        logger.debug("Starting exec {}, streaming", id);
+        final String path = "v1.24/exec/" + id + "/start";
+
+        try {
+            String json = mapper.writeValueAsString(startRequest(false, true));
+            return okHttpExecuter.stream("POST", null, path, null, json, listener);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(listener, e);
+        }
+    }
+
+    private Map<String, Boolean> startRequest(boolean detach, boolean tty) {
+        Map<String, Boolean> startRequest = new TreeMap<>();
+        startRequest.put("Detach",detach);
+        startRequest.put("Tty",tty);
+        return startRequest;
+    }
 }
@@ -0,0 +1,249 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.handlers;
+
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Decoder for the multiplexed stream Docker uses for logs, attach and exec output when
+ * no tty is allocated. Every frame starts with an 8 byte header {@code [stream, 0, 0, 0, size]},
+ * size being a big endian int, followed by size bytes of payload.
+ *
+ * Frames can be taken one at a time with {@link #nextFrame()}, read as one stream of payload
+ * bytes through the {@link InputStream} methods, or split into separate sinks with
+ * {@link #demultiplex(OutputStream, OutputStream)}. A stream that does not start with a valid
+ * header (the container or exec has a tty) is passed through untouched as {@link LOG_TYPE#NONE}.
+ *
+ * Not thread safe.
+ */
+public class DockerFrameDecoder extends InputStream {
+
+    private static final int HEADER_SIZE = 8;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final InputStream in;
+    private final byte[] header = new byte[HEADER_SIZE];
+    private final byte[] single = new byte[1];
+    private byte[] buffer;
+    private ByteBuffer frame;
+
+    private LOG_TYPE type = LOG_TYPE.NONE;
+    private long remaining;
+    private boolean started;
+    private boolean raw;
+    private int headerPos;
+    private int headerLimit;
+
+    public DockerFrameDecoder(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public DockerFrameDecoder(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[Math.max(bufferSize, HEADER_SIZE)];
+        this.frame = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Reads the next whole frame, skipping whatever is left of the current one.
+     * For a tty stream the next chunk of at most the buffer size is returned instead.
+     *
+     * @return false at the end of the stream
+     */
+    public boolean nextFrame() throws IOException {
+        if (!raw && remaining > 0) {
+            skipPayload();
+        }
+        if (!advance()) {
+            return false;
+        }
+        if (raw) {
+            int read = read(buffer, 0, buffer.length);
+            if (read < 0) {
+                return false;
+            }
+            frame.clear().limit(read);
+            return true;
+        }
+        if (remaining > Integer.MAX_VALUE - 8) {
+            throw new IOException("Frame of " + remaining + " bytes is too large to buffer");
+        }
+        int size = (int) remaining;
+        if (size > buffer.length) {
+            buffer = new byte[Math.max(size, buffer.length * 2)];
+            frame = ByteBuffer.wrap(buffer);
+        }
+        readPayload(buffer, 0, size);
+        remaining = 0;
+        frame.clear().limit(size);
+        return true;
+    }
+
+    /**
+     * The payload of the frame returned by the last {@link #nextFrame()}. The buffer is
+     * reused and only valid until the next call.
+     */
+    public ByteBuffer frame() {
+        return frame;
+    }
+
+    /**
+     * The stream of the current frame, {@link LOG_TYPE#NONE} for a tty stream.
+     */
+    public LOG_TYPE frameType() {
+        return type;
+    }
+
+    /**
+     * Copies the remaining payload to {@code stdout} or {@code stderr} depending on the
+     * stream of each frame; stdin frames and tty output go to {@code stdout}. A null sink
+     * drops its frames.
+     *
+     * @return the number of payload bytes read
+     */
+    public long demultiplex(OutputStream stdout, OutputStream stderr) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = read(buffer, 0, buffer.length)) != -1) {
+            OutputStream sink = type == LOG_TYPE.STDERR ? stderr : stdout;
+            if (sink != null) {
+                sink.write(buffer, 0, read);
+            }
+            total += read;
+        }
+        if (stdout != null) {
+            stdout.flush();
+        }
+        if (stderr != null) {
+            stderr.flush();
+        }
+        return total;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == 1 ? single[0] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!advance()) {
+            return -1;
+        }
+        if (raw) {
+            if (headerPos < headerLimit) {
+                int count = Math.min(len, headerLimit - headerPos);
+                System.arraycopy(header, headerPos, b, off, count);
+                headerPos += count;
+                return count;
+            }
+            return in.read(b, off, len);
+        }
+        int read = in.read(b, off, (int) Math.min(len, remaining));
+        if (read < 0) {
+            throw new EOFException("Stream ended in the middle of a frame");
+        }
+        remaining -= read;
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (raw) {
+            return headerLimit - headerPos + in.available();
+        }
+        return (int) Math.min(remaining, in.available());
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Moves to a frame with payload left, reading headers (and skipping empty frames) as needed.
+     */
+    private boolean advance() throws IOException {
+        while (!raw && remaining == 0) {
+            int read = readHeader();
+            if (read == 0) {
+                return false;
+            }
+            if (!started) {
+                started = true;
+                if (read < HEADER_SIZE || !isHeader(header)) {
+                    raw = true;
+                    type = LOG_TYPE.NONE;
+                    headerLimit = read;
+                    return true;
+                }
+            }
+            else if (read < HEADER_SIZE) {
+                throw new EOFException("Stream ended in the middle of a frame header");
+            }
+            else if (!isHeader(header)) {
+                throw new IOException("Invalid frame header for stream " + header[0]);
+            }
+            type = LOG_TYPE.valueOf(header[0]);
+            remaining = ((header[4] & 0xffL) << 24) | ((header[5] & 0xff) << 16) | ((header[6] & 0xff) << 8) | (header[7] & 0xff);
+        }
+        return true;
+    }
+
+    private int readHeader() throws IOException {
+        int count = 0;
+        while (count < HEADER_SIZE) {
+            int read = in.read(header, count, HEADER_SIZE - count);
+            if (read < 0) {
+                break;
+            }
+            count += read;
+        }
+        return count;
+    }
+
+    private void readPayload(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int read = in.read(b, off, len);
+            if (read < 0) {
+                throw new EOFException("Stream ended in the middle of a frame");
+            }
+            off += read;
+            len -= read;
+        }
+    }
+
+    private void skipPayload() throws IOException {
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Stream ended in the middle of a frame");
+            }
+            remaining -= read;
+        }
+    }
+
+    private static boolean isHeader(byte[] header) {
+        return header[0] >= 0 && header[0] <= 2 && header[1] == 0 && header[2] == 0 && header[3] == 0;
+    }
+}
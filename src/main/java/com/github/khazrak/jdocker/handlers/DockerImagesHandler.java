@@ -15,6 +15,8 @@ package com.github.khazrak.jdocker.handlers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.khazrak.jdocker.http.StreamListener;
+import com.github.khazrak.jdocker.http.StreamSubscription;
 import com.github.khazrak.jdocker.model.api124.*;
 import com.github.khazrak.jdocker.model.api124.parameters.ListImagesParams;
 import com.github.khazrak.jdocker.model.api124.requests.BuildImageFromArchiveRequest;
@@ -30,20 +32,37 @@ import com.github.khazrak.jdocker.utils.RequestStreamBody;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 public class DockerImagesHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(DockerImagesHandler.class);
 
     private final ObjectMapper mapper;
+    private final Executor executor;
+    private final ResponseReader reader;
     private final OkHttpExecuter okHttpExecuter;
 
     public DockerImagesHandler(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url) {
-        this.okHttpExecuter = new OkHttpExecuter(httpClient, url, urlResolver);
+        this(httpClient, urlResolver, mapper, url, ForkJoinPool.commonPool());
+    }
+
+    public DockerImagesHandler(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url, Executor executor) {
+        this(new OkHttpExecuter(httpClient, url, urlResolver), mapper, executor);
+    }
+
+    public DockerImagesHandler(OkHttpExecuter okHttpExecuter, ObjectMapper mapper, Executor executor) {
+        this.okHttpExecuter = okHttpExecuter;
         this.mapper = mapper;
+        this.executor = executor;
+        this.reader = new ResponseReader(mapper, logger);
     }
 
     public List<ImageInfo> listImages(boolean all) {
@@ -51,23 +70,33 @@ public class DockerImagesHandler {
         return listImages(params);
     }
 
+    public CompletableFuture<List<ImageInfo>> listImagesAsync(boolean all) {
+        ListImagesParams params = ListImagesParams.builder().all(all).build();
+        return listImagesAsync(params);
+    }
+
     public List<ImageInfo> listImages(ListImagesParams params) {
         logger.debug("Listing images");
         final String path = "v1.24/images/json";
 
-        try {
-            Response response = okHttpExecuter.get(path, params.getQueries());
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
+        Response response = okHttpExecuter.get(path, params.getQueries());
+        return reader.readList(response, ImageInfo[].class, "Exception during listing of images");
+    }
 
-            ImageInfo[] imageInfos = mapper.readValue(responseBody, ImageInfo[].class);
-            return Arrays.asList(imageInfos);
+    public CompletableFuture<List<ImageInfo>> listImagesAsync(ListImagesParams params) {
+        logger.debug("Listing images");
+        final String path = "v1.24/images/json";
 
-        } catch (IOException e) {
-            logger.error("Exception during listing of images", e);
-        }
+        return okHttpExecuter.getAsync(path, params.getQueries())
+                .thenApplyAsync(response -> reader.readList(response, ImageInfo[].class, "Exception during listing of images"), executor);
+    }
 
-        return null;
+    public Stream<ImageInfo> streamImages(ListImagesParams params) {
+        logger.debug("Streaming images");
+        final String path = "v1.24/images/json";
+
+        Response response = okHttpExecuter.get(path, params.getQueries());
+        return reader.stream(response, ImageInfo.class, "Exception during streaming of images");
     }
 
 
@@ -75,6 +104,10 @@ public class DockerImagesHandler {
         return pull(image, getBase64EncodedJson("{}"));
     }
 
+    public CompletableFuture<InputStream> pullImageAsync(DockerImageName image) {
+        return pullAsync(image, getBase64EncodedJson("{}"));
+    }
+
     public InputStream pullImage(DockerImageName image, AuthConfig authConfig) {
         try {
             String jsonHeader = mapper.writeValueAsString(authConfig);
@@ -86,27 +119,60 @@ public class DockerImagesHandler {
         return null;
     }
 
+    public CompletableFuture<InputStream> pullImageAsync(DockerImageName image, AuthConfig authConfig) {
+        try {
+            String jsonHeader = mapper.writeValueAsString(authConfig);
+            jsonHeader = getBase64EncodedJson(jsonHeader);
+            return pullAsync(image, jsonHeader);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
     public InputStream pullImage(DockerImageName image, String token) {
-        String json = mapper.createObjectNode().put("identitytoken", token).toString();
-        json = getBase64EncodedJson(json);
+        return pull(image, getBase64EncodedJson(identityTokenJson(token)));
+    }
+
+    public CompletableFuture<InputStream> pullImageAsync(DockerImageName image, String token) {
+        return pullAsync(image, getBase64EncodedJson(identityTokenJson(token)));
+    }
+
+    private String identityTokenJson(String token) {
+        return mapper.createObjectNode().put("identitytoken", token).toString();
+    }
 
-        return pull(image, json);
+    public StreamSubscription pullImage(DockerImageName image, StreamListener listener) {
+        final String path = "v1.24/images/create";
+
+        return okHttpExecuter.stream("POST", pullHeaders(getBase64EncodedJson("{}")), path, pullQuery(image), null, listener);
     }
 
     private InputStream pull(DockerImageName image, String encodedAuthJson) {
         final String path = "v1.24/images/create";
 
-        Headers headers = new Headers.Builder()
+        Response response = okHttpExecuter.post(pullHeaders(encodedAuthJson), path, pullQuery(image));
+        return response.body().byteStream();
+    }
+
+    private CompletableFuture<InputStream> pullAsync(DockerImageName image, String encodedAuthJson) {
+        final String path = "v1.24/images/create";
+
+        return okHttpExecuter.postAsync(pullHeaders(encodedAuthJson), path, pullQuery(image))
+                .thenApply(response -> response.body().byteStream());
+    }
+
+    private Headers pullHeaders(String encodedAuthJson) {
+        return new Headers.Builder()
                 .add("Content-Type", "application/json")
                 .add("X-Registry-Auth", encodedAuthJson)
                 .build();
+    }
 
+    private Map<String, String> pullQuery(DockerImageName image) {
         Map<String, String> queries = new TreeMap<>();
         queries.put("fromImage", image.toStringWithoutTag());
         queries.put("tag", image.getTag());
-
-        Response response = okHttpExecuter.post(headers, path, queries);
-        return response.body().byteStream();
+        return queries;
     }
 
     private String getBase64EncodedJson(String json) {
@@ -115,29 +181,47 @@ public class DockerImagesHandler {
 
     public Image inspectImage(DockerImageName imageName) {
         logger.debug("Inspecting image {}", imageName.toString());
-        final String path;
         try {
-            path = "v1.24/images/" + URLEncoder.encode(imageName.toString(), StandardCharsets.UTF_8.toString()) + "/json";
-            Response response = okHttpExecuter.get(path);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-
-            return mapper.readValue(responseBody, Image.class);
-
-        } catch (IOException e) {
+            Response response = okHttpExecuter.get(inspectPath(imageName));
+            return reader.read(response, Image.class, "Exception during inspecting image: " + imageName.toString());
+        } catch (UnsupportedEncodingException e) {
             logger.error("Exception during inspecting image: " + imageName.toString(), e);
         }
 
         return null;
     }
 
+    public CompletableFuture<Image> inspectImageAsync(DockerImageName imageName) {
+        logger.debug("Inspecting image {}", imageName.toString());
+        try {
+            return okHttpExecuter.getAsync(inspectPath(imageName))
+                    .thenApplyAsync(response -> reader.read(response, Image.class, "Exception during inspecting image: " + imageName.toString()), executor);
+        } catch (UnsupportedEncodingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
+    private String inspectPath(DockerImageName imageName) throws UnsupportedEncodingException {
+        return "v1.24/images/" + URLEncoder.encode(imageName.toString(), StandardCharsets.UTF_8.toString()) + "/json";
+    }
+
     public void tagImage(DockerImageName original, DockerImageName newName) {
         logger.debug("Taggin image {} to {}", original, newName);
         final String path = "v1.24/images/" + original.toString() + "/tag";
+        okHttpExecuter.post(path, tagQuery(newName));
+    }
+
+    public CompletableFuture<Void> tagImageAsync(DockerImageName original, DockerImageName newName) {
+        logger.debug("Taggin image {} to {}", original, newName);
+        final String path = "v1.24/images/" + original.toString() + "/tag";
+        return okHttpExecuter.postAsync(path, tagQuery(newName)).thenAccept(reader::discard);
+    }
+
+    private Map<String, String> tagQuery(DockerImageName newName) {
         Map<String, String> queries = new TreeMap<>();
         queries.put("repo", newName.toStringWithoutTag());
         queries.put("tag", newName.getTag());
-        okHttpExecuter.post(path, queries);
+        return queries;
     }
 
     public InputStream pushImage(DockerImageName imageToPush, AuthConfig authConfig) {
@@ -151,76 +235,105 @@ public class DockerImagesHandler {
         return null;
     }
 
+    public CompletableFuture<InputStream> pushImageAsync(DockerImageName imageToPush, AuthConfig authConfig) {
+        try {
+            String auth = getBase64EncodedJson(mapper.writeValueAsString(authConfig));
+            return pushImageWithAuthAsync(imageToPush, auth);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
     public InputStream pushImage(DockerImageName imageToPush, String identyToken) {
-        String token = mapper.createObjectNode().put("identitytoken", identyToken).toString();
-        token = getBase64EncodedJson(token);
-        return pushImageWithAuth(imageToPush, token);
+        return pushImageWithAuth(imageToPush, getBase64EncodedJson(identityTokenJson(identyToken)));
+    }
+
+    public CompletableFuture<InputStream> pushImageAsync(DockerImageName imageToPush, String identyToken) {
+        return pushImageWithAuthAsync(imageToPush, getBase64EncodedJson(identityTokenJson(identyToken)));
     }
 
     private InputStream pushImageWithAuth(DockerImageName name, String auth) {
         logger.debug("Pushing image {}", name);
         final String path = "v1.24/images/" + name.toStringWithoutTag() + "/push";
-        Headers headers = new Headers.Builder().add("X-Registry-Auth", auth).build();
-        Map<String, String> queries = new TreeMap<>();
-        queries.put("tag", name.getTag());
 
-        Response response = okHttpExecuter.post(headers, path, queries);
+        Response response = okHttpExecuter.post(authHeaders(auth), path, pushQuery(name));
 
         return response.body().byteStream();
     }
 
+    private CompletableFuture<InputStream> pushImageWithAuthAsync(DockerImageName name, String auth) {
+        logger.debug("Pushing image {}", name);
+        final String path = "v1.24/images/" + name.toStringWithoutTag() + "/push";
+
+        return okHttpExecuter.postAsync(authHeaders(auth), path, pushQuery(name))
+                .thenApply(response -> response.body().byteStream());
+    }
+
+    private Headers authHeaders(String auth) {
+        return new Headers.Builder().add("X-Registry-Auth", auth).build();
+    }
+
+    private Map<String, String> pushQuery(DockerImageName name) {
+        Map<String, String> queries = new TreeMap<>();
+        queries.put("tag", name.getTag());
+        return queries;
+    }
+
     public String removeImage(DockerImageName name, boolean force, boolean noprune) {
         logger.debug("Removing image {}", name);
         final String path = "v1.24/images/" + name;
+        Response response = okHttpExecuter.delete(path, removeQuery(force, noprune));
+        return reader.readString(response, "Exception during removal of image " + name);
+    }
+
+    public CompletableFuture<String> removeImageAsync(DockerImageName name, boolean force, boolean noprune) {
+        logger.debug("Removing image {}", name);
+        final String path = "v1.24/images/" + name;
+        return okHttpExecuter.deleteAsync(path, removeQuery(force, noprune))
+                .thenApplyAsync(response -> reader.readString(response, "Exception during removal of image " + name), executor);
+    }
+
+    private Map<String, String> removeQuery(boolean force, boolean noprune) {
         Map<String, String> queries = new TreeMap<>();
         queries.put("force", Boolean.toString(force));
         queries.put("noprune", Boolean.toString(noprune));
-        Response response = okHttpExecuter.delete(path, queries);
-        String responseBody = null;
-        try {
-            responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-        } catch (IOException e) {
-            logger.error("Exception during removal of image " + name, e);
-        }
-
-        return responseBody;
+        return queries;
     }
 
     public List<ImageSearchInfo> searchImage(String term) {
         logger.debug("Searching docker hub for {}", term);
         final String path = "v1.24/images/search";
-        Map<String, String> queries = new TreeMap<>();
-        queries.put("term", term);
-        Response response = okHttpExecuter.get(path, queries);
+        Response response = okHttpExecuter.get(path, termQuery(term));
+        return reader.readList(response, ImageSearchInfo[].class, "Exception during image search for term " + term);
+    }
 
-        try {
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            ImageSearchInfo[] searchInfos = mapper.readValue(responseBody, ImageSearchInfo[].class);
-            return Arrays.asList(searchInfos);
-        } catch (IOException e) {
-            logger.error("Exception during image search for term " + term, e);
-        }
+    public CompletableFuture<List<ImageSearchInfo>> searchImageAsync(String term) {
+        logger.debug("Searching docker hub for {}", term);
+        final String path = "v1.24/images/search";
+        return okHttpExecuter.getAsync(path, termQuery(term))
+                .thenApplyAsync(response -> reader.readList(response, ImageSearchInfo[].class, "Exception during image search for term " + term), executor);
+    }
 
-        return null;
+    private Map<String, String> termQuery(String term) {
+        Map<String, String> queries = new TreeMap<>();
+        queries.put("term", term);
+        return queries;
     }
 
     public List<ImageHistoryInfo> historyOfImage(DockerImageName name) {
         logger.debug("Retrieving history of image {}", name);
         final String path = "v1.24/images/" + name + "/history";
 
-        try {
-            Response response = okHttpExecuter.get(path);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            ImageHistoryInfo[] history = mapper.readValue(responseBody, ImageHistoryInfo[].class);
-            return Arrays.asList(history);
-        } catch (IOException e) {
-            logger.error("Exception during retrieving of history for image " + name, e);
-        }
+        Response response = okHttpExecuter.get(path);
+        return reader.readList(response, ImageHistoryInfo[].class, "Exception during retrieving of history for image " + name);
+    }
 
-        return null;
+    public CompletableFuture<List<ImageHistoryInfo>> historyOfImageAsync(DockerImageName name) {
+        logger.debug("Retrieving history of image {}", name);
+        final String path = "v1.24/images/" + name + "/history";
+
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(response -> reader.readList(response, ImageHistoryInfo[].class, "Exception during retrieving of history for image " + name), executor);
     }
 
     public InputStream buildImageFromArchive(BuildImageFromArchiveRequest request) {
@@ -229,12 +342,7 @@ public class DockerImagesHandler {
         Map<String, String> queries = request.getQueries();
 
         try {
-            Headers headers = new Headers.Builder()
-                    .add("X-Registry-Config", getBase64EncodedJson(mapper.writeValueAsString(request.getAuthConfigs())))
-                    .add("Content-type", "application/tar")
-                    .build();
-
-            Response response = okHttpExecuter.post(headers,path,queries, request.getBody());
+            Response response = okHttpExecuter.post(buildHeaders(request.getAuthConfigs()), path, queries, request.getBody());
             return response.body().byteStream();
         } catch (IOException e) {
             logger.error("Exception during build from archive", e);
@@ -243,18 +351,26 @@ public class DockerImagesHandler {
         return null;
     }
 
+    public CompletableFuture<InputStream> buildImageFromArchiveAsync(BuildImageFromArchiveRequest request) {
+        logger.debug("Building image from archive");
+        final String path = "v1.24/build";
+        Map<String, String> queries = request.getQueries();
+
+        try {
+            return okHttpExecuter.postAsync(buildHeaders(request.getAuthConfigs()), path, queries, request.getBody())
+                    .thenApply(response -> response.body().byteStream());
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
     public InputStream buildImageFromRemote(BuildImageFromRemoteRequest request) {
         logger.debug("Building image from remote url: {}", request.getRemoteUrl());
         final String path = "v1.24/build";
         Map<String, String> queries = request.getQueries();
 
         try {
-            Headers headers = new Headers.Builder()
-                    .add("X-Registry-Config", getBase64EncodedJson(mapper.writeValueAsString(request.getAuthConfigs())))
-                    .add("Content-type", "application/tar")
-                    .build();
-
-            Response response = okHttpExecuter.post(headers,path,queries);
+            Response response = okHttpExecuter.post(buildHeaders(request.getAuthConfigs()), path, queries);
             return response.body().byteStream();
         } catch (IOException e) {
             logger.error("Exception during build from remote", e);
@@ -263,9 +379,44 @@ public class DockerImagesHandler {
         return null;
     }
 
+    public CompletableFuture<InputStream> buildImageFromRemoteAsync(BuildImageFromRemoteRequest request) {
+        logger.debug("Building image from remote url: {}", request.getRemoteUrl());
+        final String path = "v1.24/build";
+        Map<String, String> queries = request.getQueries();
+
+        try {
+            return okHttpExecuter.postAsync(buildHeaders(request.getAuthConfigs()), path, queries)
+                    .thenApply(response -> response.body().byteStream());
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
+    private Headers buildHeaders(Object authConfigs) throws JsonProcessingException {
+        return new Headers.Builder()
+                .add("X-Registry-Config", getBase64EncodedJson(mapper.writeValueAsString(authConfigs)))
+                .add("Content-type", "application/tar")
+                .build();
+    }
+
     public InputStream getImageTar(DockerImageName repositoryName) {
         logger.debug("Downloading images as tar from repository: {}", repositoryName.toString());
         final String path = "v1.24/images/get";
+
+        Response response = okHttpExecuter.get(path, namesQuery(repositoryName));
+
+        return response.body().byteStream();
+    }
+
+    public CompletableFuture<InputStream> getImageTarAsync(DockerImageName repositoryName) {
+        logger.debug("Downloading images as tar from repository: {}", repositoryName.toString());
+        final String path = "v1.24/images/get";
+
+        return okHttpExecuter.getAsync(path, namesQuery(repositoryName))
+                .thenApply(response -> response.body().byteStream());
+    }
+
+    private Map<String, String> namesQuery(DockerImageName repositoryName) {
         String name = repositoryName.getImageName();
 
         if(repositoryName.getTag() != null) {
@@ -278,28 +429,32 @@ public class DockerImagesHandler {
 
         Map<String, String> queries = new TreeMap<>();
         queries.put("names", name);
-
-
-        Response response = okHttpExecuter.get(path, queries);
-
-        return response.body().byteStream();
+        return queries;
     }
 
     public String importImageTar(InputStream input, boolean quiet) {
         logger.debug("Importing images from tar");
         final String path = "v1.24/images/load";
+        RequestStreamBody body = new RequestStreamBody(input);
+        Response response = okHttpExecuter.post(importHeaders(), path, quietQuery(quiet), body);
+        return reader.readString(response, "Exception during retrieving body from response");
+    }
+
+    public CompletableFuture<String> importImageTarAsync(InputStream input, boolean quiet) {
+        logger.debug("Importing images from tar");
+        final String path = "v1.24/images/load";
+        RequestStreamBody body = new RequestStreamBody(input);
+        return okHttpExecuter.postAsync(importHeaders(), path, quietQuery(quiet), body)
+                .thenApplyAsync(response -> reader.readString(response, "Exception during retrieving body from response"), executor);
+    }
+
+    private Headers importHeaders() {
+        return new Headers.Builder().add("Content-Type", "application/x-tar").build();
+    }
+
+    private Map<String, String> quietQuery(boolean quiet) {
         Map<String,String> queries = new TreeMap<>();
         queries.put("quiet", Boolean.toString(quiet));
-        RequestStreamBody body = new RequestStreamBody(input);
-        Headers headers = new Headers.Builder().add("Content-Type", "application/x-tar").build();
-        Response response = okHttpExecuter.post(headers, path, queries, body);
-        try {
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            return responseBody;
-        } catch (IOException e) {
-            logger.error("Exception during retrieving body from response", e);
-        }
-        return null;
+        return queries;
     }
 }
@@ -13,11 +13,12 @@
  */
 package com.github.khazrak.jdocker.handlers;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 
+/**
+ * Log payload with the frame headers stripped, see {@link DockerFrameDecoder}.
+ */
 public class DockerLogsInputStream extends InputStream {
 
     public enum LOG_TYPE{
@@ -44,52 +45,39 @@ public class DockerLogsInputStream extends InputStream {
         }
     }
 
-    private BufferedReader reader;
-
-    private int index;
-    private String cache;
-    private LOG_TYPE currentLogType;
+    private final DockerFrameDecoder decoder;
 
     public DockerLogsInputStream(InputStream inputStream) throws IOException {
-        reader = new BufferedReader(new InputStreamReader(inputStream));
-        cache = reader.readLine(); //initial read
-        index = 8;
-        currentLogType = LOG_TYPE.NONE;
+        decoder = new DockerFrameDecoder(inputStream);
     }
 
     @Override
     public int read() throws IOException {
-        int value = -1;
+        return decoder.read();
+    }
 
-        if(cache != null && index >= cache.length()) {
-            cache = reader.readLine();
-            index = 8;
-            currentLogType = parseLogType(cache);
-            value = (int)'\n';
-        }
-        else if(cache != null) {
-            value = cache.charAt(index);
-            index++;
-        }
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return decoder.read(b, off, len);
+    }
 
-        return value;
+    @Override
+    public int available() throws IOException {
+        return decoder.available();
     }
 
     /**
-     * Returns the current lines LOG_TYPE
-     *
-     * This will not work with BufferedReader since it buffers Several lines
+     * Returns the LOG_TYPE of the frame the last read came from
      *
      * @return
      */
     public LOG_TYPE getCurrentLineLogType() {
-        return currentLogType;
+        return decoder.frameType();
     }
 
     @Override
     public void close() throws IOException {
-        super.close();
-        reader.close();
+        decoder.close();
     }
 
     public static LOG_TYPE parseLogType(String line) {
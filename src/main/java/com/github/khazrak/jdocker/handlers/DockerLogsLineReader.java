@@ -13,53 +13,88 @@
  */
 package com.github.khazrak.jdocker.handlers;
 
-import org.slf4j.Logger;
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * Splits the frames of a log stream into lines, a frame may hold several lines or part of one.
+ * Lines are prefixed with the stream they came from, e.g. {@code "<STDOUT> "}.
+ */
 public class DockerLogsLineReader implements AutoCloseable {
 
     public static int STDIN = 1;
     public static int STDOUT = 2;
     public static int STDERR = 3;
 
-    private static Logger logger;
-    private BufferedReader reader;
+    private final DockerFrameDecoder decoder;
+    private final boolean prefixed;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+    private LOG_TYPE lineType = LOG_TYPE.NONE;
+    private ByteBuffer frame;
 
     DockerLogsLineReader(InputStream inputStream) {
-        reader = new BufferedReader(new InputStreamReader(inputStream));
+        this(inputStream, true);
+    }
+
+    DockerLogsLineReader(InputStream inputStream, boolean prefixed) {
+        this.decoder = new DockerFrameDecoder(inputStream);
+        this.prefixed = prefixed;
     }
 
     public String readLine() throws IOException {
+        while (true) {
+            if (frame == null || !frame.hasRemaining()) {
+                if (!decoder.nextFrame()) {
+                    frame = null;
+                    return line.size() > 0 ? emit() : null;
+                }
+                frame = decoder.frame();
+                if (line.size() > 0 && decoder.frameType() != lineType) {
+                    String partial = emit();
+                    lineType = decoder.frameType();
+                    return partial;
+                }
+                lineType = decoder.frameType();
+            }
 
-        String data = reader.readLine();
-        if(data == null) {
-            return null;
+            byte[] array = frame.array();
+            int start = frame.arrayOffset() + frame.position();
+            int end = frame.arrayOffset() + frame.limit();
+            for (int i = start; i < end; i++) {
+                if (array[i] == '\n') {
+                    line.write(array, start, i - start);
+                    frame.position(frame.position() + i - start + 1);
+                    return emit();
+                }
+            }
+            line.write(array, start, end - start);
+            frame.position(frame.limit());
         }
+    }
 
-        int streamBit = data.charAt(0);
-
-        String res = "";
-
-        if(streamBit == STDIN) {
-            res += "<STDIN>";
-        }
-        else if(streamBit == STDOUT) {
-            res += "<STDOUT>";
+    private String emit() throws UnsupportedEncodingException {
+        String text = line.toString(StandardCharsets.UTF_8.name());
+        line.reset();
+        if (!prefixed) {
+            return text;
         }
-        else if(streamBit == STDERR) {
-            res += "<SRDERR>";
+        switch (lineType) {
+            case STDIN:
+                return "<STDIN> " + text;
+            case STDOUT:
+                return "<STDOUT> " + text;
+            case STDERR:
+                return "<STDERR> " + text;
+            default:
+                return text;
         }
-
-        res += " " + data.substring(8);
-        return res;
     }
 
-
     @Override
     public void close() throws IOException {
-        if(reader != null) {
-            reader.close();
-        }
+        decoder.close();
     }
-}
\ No newline at end of file
+}
@@ -14,7 +14,6 @@
 package com.github.khazrak.jdocker.handlers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.khazrak.jdocker.model.api124.Network;
 import com.github.khazrak.jdocker.model.api124.parameters.NetworkListParams;
@@ -28,19 +27,35 @@ import org.slf4j.LoggerFactory;
 import com.github.khazrak.jdocker.model.api124.requests.NetworkDisconnectRequest;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 public class DockerNetworksHandler {
 
     private static Logger logger = LoggerFactory.getLogger(DockerNetworksHandler.class);
 
     private final ObjectMapper mapper;
+    private final Executor executor;
+    private final ResponseReader reader;
     private final OkHttpExecuter okHttpExecuter;
 
     public DockerNetworksHandler(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url) {
-        this.okHttpExecuter = new OkHttpExecuter(httpClient,url,urlResolver);
+        this(httpClient, urlResolver, mapper, url, ForkJoinPool.commonPool());
+    }
+
+    public DockerNetworksHandler(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url, Executor executor) {
+        this(new OkHttpExecuter(httpClient, url, urlResolver), mapper, executor);
+    }
+
+    public DockerNetworksHandler(OkHttpExecuter okHttpExecuter, ObjectMapper mapper, Executor executor) {
+        this.okHttpExecuter = okHttpExecuter;
         this.mapper = mapper;
+        this.executor = executor;
+        this.reader = new ResponseReader(mapper, logger);
     }
 
 
@@ -52,16 +67,7 @@ public class DockerNetworksHandler {
         try {
             String json = mapper.writeValueAsString(networkRequest);
             Response response = okHttpExecuter.post(path, json);
-            JsonNode jsonNode = mapper.readTree(response.body().string());
-            String warn = jsonNode.get("Warning").textValue();
-
-            if(warn.length() > 0) {
-                logger.warn(warn);
-            }
-
-            logger.debug("Network created with id {}", jsonNode.get("Id").textValue());
-
-            return jsonNode.get("Id").textValue();
+            return readNetworkId(response);
 
         } catch (IOException e) {
            logger.error("Exception during network creation", e);
@@ -70,47 +76,77 @@ public class DockerNetworksHandler {
         return null;
     }
 
-    public List<Network> listNetworks() {
-        logger.debug("Listing networks");
-        final String path = "v1.24/networks";
+    public CompletableFuture<String> createNetworkAsync(NetworkCreateRequest networkRequest) {
+        logger.debug("Creating network");
+        final String path = "v1.24/networks/create";
 
         try {
+            String json = mapper.writeValueAsString(networkRequest);
+            return okHttpExecuter.postAsync(path, json)
+                    .thenApplyAsync(response -> {
+                        try {
+                            return readNetworkId(response);
+                        } catch (IOException e) {
+                            logger.error("Exception during network creation", e);
+                        }
+                        return null;
+                    }, executor);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
 
-            Response response = okHttpExecuter.get(path);
+    private String readNetworkId(Response response) throws IOException {
+        Map<String, String> fields = reader.readFields(response, "Id", "Warning");
+        String warn = fields.get("Warning");
 
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}",responseBody);
+        if(warn != null && warn.length() > 0) {
+            logger.warn(warn);
+        }
 
-            Network[] networkArray = mapper.readValue(responseBody,Network[].class);
-            return Arrays.asList(networkArray);
+        logger.debug("Network created with id {}", fields.get("Id"));
 
-        } catch (IOException e) {
-            logger.error("Exception during listing of networks", e);
-        }
+        return fields.get("Id");
+    }
 
-        return null;
+    public List<Network> listNetworks() {
+        logger.debug("Listing networks");
+        final String path = "v1.24/networks";
+
+        Response response = okHttpExecuter.get(path);
+        return reader.readList(response, Network[].class, "Exception during listing of networks");
     }
 
-    public List<Network> listNetworks(NetworkListParams params) {
+    public CompletableFuture<List<Network>> listNetworksAsync() {
         logger.debug("Listing networks");
         final String path = "v1.24/networks";
 
-        try {
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(response -> reader.readList(response, Network[].class, "Exception during listing of networks"), executor);
+    }
 
-            Response response = okHttpExecuter.get(path, params.getQueries());
+    public List<Network> listNetworks(NetworkListParams params) {
+        logger.debug("Listing networks");
+        final String path = "v1.24/networks";
 
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}",responseBody);
+        Response response = okHttpExecuter.get(path, params.getQueries());
+        return reader.readList(response, Network[].class, "Exception during listing of networks");
+    }
 
-            Network[] networkArray = mapper.readValue(responseBody,Network[].class);
+    public CompletableFuture<List<Network>> listNetworksAsync(NetworkListParams params) {
+        logger.debug("Listing networks");
+        final String path = "v1.24/networks";
 
-            return Arrays.asList(networkArray);
+        return okHttpExecuter.getAsync(path, params.getQueries())
+                .thenApplyAsync(response -> reader.readList(response, Network[].class, "Exception during listing of networks"), executor);
+    }
 
-        } catch (IOException e) {
-            logger.error("Exception during listing of networks", e);
-        }
+    public Stream<Network> streamNetworks(NetworkListParams params) {
+        logger.debug("Streaming networks");
+        final String path = "v1.24/networks";
 
-        return null;
+        Response response = okHttpExecuter.get(path, params.getQueries());
+        return reader.stream(response, Network.class, "Exception during streaming of networks");
     }
 
     public void connectContainerToNetwork(NetworkConnectRequest networkConnectRequest) {
@@ -127,17 +163,24 @@ public class DockerNetworksHandler {
 
     }
 
+    public CompletableFuture<Void> connectContainerToNetworkAsync(NetworkConnectRequest networkConnectRequest) {
+        logger.debug("Connect container to a network");
+        final String path = "v1.24/networks/"+networkConnectRequest.getNetworkName()+"/connect";
+
+        try {
+            String json = mapper.writeValueAsString(networkConnectRequest);
+            return okHttpExecuter.postAsync(path, json).thenAccept(reader::discard);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
     public void disconnectContainerFromNetwork(String containerName, String networkName, boolean force) {
         logger.debug("Disconnecting container {} from network {}, force: {}", containerName, networkName, force);
         final String path = "v1.24/networks/"+ networkName +"/disconnect";
-        NetworkDisconnectRequest networkDisconnectRequest = NetworkDisconnectRequest
-                .builder()
-                .container(containerName)
-                .force(force)
-                .build();
 
         try {
-            String json = mapper.writeValueAsString(networkDisconnectRequest);
+            String json = mapper.writeValueAsString(disconnectRequest(containerName, force));
             Response response = okHttpExecuter.post(path, json);
 
         } catch (JsonProcessingException e) {
@@ -145,22 +188,40 @@ public class DockerNetworksHandler {
         }
     }
 
+    public CompletableFuture<Void> disconnectContainerFromNetworkAsync(String containerName, String networkName, boolean force) {
+        logger.debug("Disconnecting container {} from network {}, force: {}", containerName, networkName, force);
+        final String path = "v1.24/networks/"+ networkName +"/disconnect";
+
+        try {
+            String json = mapper.writeValueAsString(disconnectRequest(containerName, force));
+            return okHttpExecuter.postAsync(path, json).thenAccept(reader::discard);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
+        }
+    }
+
+    private NetworkDisconnectRequest disconnectRequest(String containerName, boolean force) {
+        return NetworkDisconnectRequest
+                .builder()
+                .container(containerName)
+                .force(force)
+                .build();
+    }
+
     public Network inspectNetwork(String id) {
         logger.debug("Inspecting network {}", id);
         final String path = "v1.24/networks/"+id;
 
-        try {
-            Response response = okHttpExecuter.get(path);
-
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}",responseBody);
-            return mapper.readValue(responseBody,Network.class);
+        Response response = okHttpExecuter.get(path);
+        return reader.read(response, Network.class, "Exception during inspecting network "+id);
+    }
 
-        } catch (IOException e) {
-            logger.error("Exception during inspecting network "+id, e);
-        }
+    public CompletableFuture<Network> inspectNetworkAsync(String id) {
+        logger.debug("Inspecting network {}", id);
+        final String path = "v1.24/networks/"+id;
 
-        return null;
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(response -> reader.read(response, Network.class, "Exception during inspecting network "+id), executor);
     }
 
     public void removeNetwork(String id) {
@@ -168,4 +229,10 @@ public class DockerNetworksHandler {
         final String path = "v1.24/networks/"+id;
         Response response = okHttpExecuter.delete(path);
     }
+
+    public CompletableFuture<Void> removeNetworkAsync(String id) {
+        logger.debug("Removing network {}", id);
+        final String path = "v1.24/networks/"+id;
+        return okHttpExecuter.deleteAsync(path).thenAccept(reader::discard);
+    }
 }
@@ -13,7 +13,7 @@
  */
 package com.github.khazrak.jdocker.handlers;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.khazrak.jdocker.model.api124.Volume;
 import com.github.khazrak.jdocker.model.api124.requests.VolumeCreateRequest;
@@ -24,63 +24,80 @@ import org.slf4j.LoggerFactory;
 import com.github.khazrak.jdocker.model.api124.parameters.ListVolumeParams;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 public class DockerVolumesHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(DockerVolumesHandler.class);
 
     private final ObjectMapper mapper;
+    private final Executor executor;
+    private final ResponseReader reader;
     private OkHttpExecuter okHttpExecuter;
 
 
     public DockerVolumesHandler(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url) {
-        this.okHttpExecuter = new OkHttpExecuter(httpClient, url, urlResolver);
+        this(httpClient, urlResolver, mapper, url, ForkJoinPool.commonPool());
+    }
+
+    public DockerVolumesHandler(OkHttpClient httpClient, URLResolver urlResolver, ObjectMapper mapper, String url, Executor executor) {
+        this(new OkHttpExecuter(httpClient, url, urlResolver), mapper, executor);
+    }
+
+    public DockerVolumesHandler(OkHttpExecuter okHttpExecuter, ObjectMapper mapper, Executor executor) {
+        this.okHttpExecuter = okHttpExecuter;
         this.mapper = mapper;
+        this.executor = executor;
+        this.reader = new ResponseReader(mapper, logger);
     }
 
     public List<Volume> listVolumes() {
         logger.debug("Listing volumes");
         final String path = "v1.24/volumes";
 
-        try {
-
-            Response response = okHttpExecuter.get(path);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-
-            JsonNode volumeJson = mapper.readTree(responseBody);
-
-            volumeJson = volumeJson.get("Volumes");
-            Volume[] volumes = mapper.readValue(volumeJson.toString(), Volume[].class);
-
-            return Arrays.asList(volumes);
+        Response response = okHttpExecuter.get(path);
+        return readVolumes(response);
+    }
 
-        } catch (IOException e) {
-            logger.error("Exception during listing volumes", e);
-        }
+    public CompletableFuture<List<Volume>> listVolumesAsync() {
+        logger.debug("Listing volumes");
+        final String path = "v1.24/volumes";
 
-        return null;
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(this::readVolumes, executor);
     }
 
     public List<Volume> listVolumes(ListVolumeParams params) {
         logger.debug("Listing volumes with params {}", params);
         final String path = "v1.24/volumes";
 
-        try {
+        Response response = okHttpExecuter.get(path, params.getQueries());
+        return readVolumes(response);
+    }
 
-            Response response = okHttpExecuter.get(path, params.getQueries());
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
+    public CompletableFuture<List<Volume>> listVolumesAsync(ListVolumeParams params) {
+        logger.debug("Listing volumes with params {}", params);
+        final String path = "v1.24/volumes";
 
-            JsonNode volumeJson = mapper.readTree(responseBody);
+        return okHttpExecuter.getAsync(path, params.getQueries())
+                .thenApplyAsync(this::readVolumes, executor);
+    }
 
-            volumeJson = volumeJson.get("Volumes");
-            Volume[] volumes = mapper.readValue(volumeJson.toString(), Volume[].class);
+    public Stream<Volume> streamVolumes(ListVolumeParams params) {
+        logger.debug("Streaming volumes with params {}", params);
+        final String path = "v1.24/volumes";
 
-            return Arrays.asList(volumes);
+        Response response = okHttpExecuter.get(path, params.getQueries());
+        return reader.streamArrayField(response, "Volumes", Volume.class, "Exception during streaming volumes");
+    }
 
+    private List<Volume> readVolumes(Response response) {
+        try {
+            return reader.readArrayField(response, "Volumes", Volume[].class);
         } catch (IOException e) {
             logger.error("Exception during listing volumes", e);
         }
@@ -97,35 +114,44 @@ public class DockerVolumesHandler {
             String json = mapper.writeValueAsString(volumeCreateRequest);
 
             Response response = okHttpExecuter.post(path, json);
+            return reader.read(response, Volume.class, "Exception during volume creation");
 
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-
-            return mapper.readValue(responseBody, Volume.class);
-
-        } catch (IOException e) {
+        } catch (JsonProcessingException e) {
             logger.error("Exception during volume creation", e);
         }
 
         return null;
     }
 
-    public Volume inspectVolume(String id) {
-        logger.debug("Inspecting volume {}", id);
-        final String path = "v1.24/volumes/" + id;
+    public CompletableFuture<Volume> createVolumeAsync(VolumeCreateRequest volumeCreateRequest) {
+        logger.debug("Creating volume");
+        final String path = "v1.24/volumes/create";
 
         try {
+            String json = mapper.writeValueAsString(volumeCreateRequest);
 
-            Response response = okHttpExecuter.get(path);
-            String responseBody = response.body().string();
-            logger.debug("Response body: {}", responseBody);
-            return mapper.readValue(responseBody, Volume.class);
+            return okHttpExecuter.postAsync(path, json)
+                    .thenApplyAsync(response -> reader.read(response, Volume.class, "Exception during volume creation"), executor);
 
-        } catch (IOException e) {
-            logger.error("Exception during volume inspection of " + id, e);
+        } catch (JsonProcessingException e) {
+            return OkHttpExecuter.failed(e);
         }
+    }
 
-        return null;
+    public Volume inspectVolume(String id) {
+        logger.debug("Inspecting volume {}", id);
+        final String path = "v1.24/volumes/" + id;
+
+        Response response = okHttpExecuter.get(path);
+        return reader.read(response, Volume.class, "Exception during volume inspection of " + id);
+    }
+
+    public CompletableFuture<Volume> inspectVolumeAsync(String id) {
+        logger.debug("Inspecting volume {}", id);
+        final String path = "v1.24/volumes/" + id;
+
+        return okHttpExecuter.getAsync(path)
+                .thenApplyAsync(response -> reader.read(response, Volume.class, "Exception during volume inspection of " + id), executor);
     }
 
     public void removeVolume(String id) {
@@ -133,4 +159,10 @@ public class DockerVolumesHandler {
         final String path = "v1.24/volumes/" + id;
         Response response = okHttpExecuter.delete(path);
     }
+
+    public CompletableFuture<Void> removeVolumeAsync(String id) {
+        logger.debug("Removing volume {}", id);
+        final String path = "v1.24/volumes/" + id;
+        return okHttpExecuter.deleteAsync(path).thenAccept(reader::discard);
+    }
 }
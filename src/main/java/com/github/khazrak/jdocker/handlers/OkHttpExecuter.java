@@ -15,14 +15,24 @@ package com.github.khazrak.jdocker.handlers;
 
 import com.github.khazrak.jdocker.exception.DockerClientException;
 import com.github.khazrak.jdocker.exception.DockerServerException;
+import com.github.khazrak.jdocker.http.DockerHttpEngine;
+import com.github.khazrak.jdocker.http.StreamListener;
+import com.github.khazrak.jdocker.http.StreamMultiplexer;
+import com.github.khazrak.jdocker.http.StreamSubscription;
 import com.github.khazrak.jdocker.utils.RequestStreamBody;
 import com.github.khazrak.jdocker.utils.URLResolver;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OkHttpExecuter {
 
@@ -30,154 +40,361 @@ public class OkHttpExecuter {
     private static final Logger logger = LoggerFactory.getLogger(OkHttpExecuter.class);
 
 
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private static final AtomicInteger streamThreadCount = new AtomicInteger();
+
     private RequestBody emptyRequestBody;
     private OkHttpClient httpClient;
+    private DockerHttpEngine engine;
+    private StreamMultiplexer multiplexer;
 
     private String URL;
     private URLResolver urlResolver;
+    private final ApiPathResolver paths = new ApiPathResolver();
 
     public OkHttpExecuter(OkHttpClient httpClient, String url, URLResolver urlResolver) {
+        this(httpClient, url, urlResolver, null);
+    }
+
+    /**
+     * When an engine is given, the blocking calls without a streamed request body go through it instead of OkHttp.
+     * Asynchronous calls and uploads always use OkHttp.
+     */
+    public OkHttpExecuter(OkHttpClient httpClient, String url, URLResolver urlResolver, DockerHttpEngine engine) {
+        this(httpClient, url, urlResolver, engine, null);
+    }
+
+    /**
+     * When a multiplexer is given, {@link #stream} registers the responses on its selector threads, otherwise
+     * every stream gets its own thread.
+     */
+    public OkHttpExecuter(OkHttpClient httpClient, String url, URLResolver urlResolver, DockerHttpEngine engine,
+                          StreamMultiplexer multiplexer) {
         this.httpClient = httpClient;
+        this.multiplexer = multiplexer;
         this.URL = url;
         this.urlResolver = urlResolver;
+        this.engine = engine;
 
         emptyRequestBody = RequestBody.create(JSON, "");
     }
 
+    /**
+     * The path resolver shared by every handler using this executer.
+     */
+    public ApiPathResolver paths() {
+        return paths;
+    }
+
     //=== GET ==========================================================================================================
 
     public Response get(String path) {
-        Request request =  new Request.Builder()
-                .url(urlResolver.resolve(URL, path))
-                .get()
-                .build();
-
-        return execute(request);
+        return get(path, null);
     }
 
     public Response get(String path, Map<String, String> queries) {
-        Request request =  new Request.Builder()
-                .url(urlResolver.resolve(URL, path, queries))
+        if(engine != null) {
+            return execute("GET", null, path, queries, null);
+        }
+        return execute(getRequest(path, queries));
+    }
+
+    public CompletableFuture<Response> getAsync(String path) {
+        return enqueue(getRequest(path, null));
+    }
+
+    public CompletableFuture<Response> getAsync(String path, Map<String, String> queries) {
+        return enqueue(getRequest(path, queries));
+    }
+
+    private Request getRequest(String path, Map<String, String> queries) {
+        return new Request.Builder()
+                .url(resolve(path, queries))
                 .get()
                 .build();
-
-        return execute(request);
     }
 
     //=== POST =========================================================================================================
 
     public Response post(String path) {
-        Request request =  new Request.Builder()
-                .url(urlResolver.resolve(URL, path))
-                .post(emptyRequestBody)
-                .build();
-
-        return execute(request);
+        return post(null, path, null);
     }
 
     public Response post(Headers headers, String path) {
-        Request request =  new Request.Builder()
-                .headers(headers)
-                .url(urlResolver.resolve(URL, path))
-                .post(emptyRequestBody)
-                .build();
-
-        return execute(request);
+        return post(headers, path, null);
     }
 
     public Response post(String path, Map<String, String> queries) {
-        Request request =  new Request.Builder()
-                .url(urlResolver.resolve(URL, path, queries))
-                .post(emptyRequestBody)
-                .build();
-
-        return execute(request);
+        return post(null, path, queries);
     }
 
     public Response post(Headers headers, String path, Map<String, String> queries) {
-        Request request =  new Request.Builder()
-                .headers(headers)
-                .url(urlResolver.resolve(URL, path, queries))
-                .post(emptyRequestBody)
-                .build();
-
-        return execute(request);
+        if(engine != null) {
+            return execute("POST", headers, path, queries, EMPTY_BODY);
+        }
+        return execute(postRequest(headers, path, queries, emptyRequestBody));
     }
 
     public Response post(String path, String jsonBody) {
-        RequestBody body = RequestBody.create(JSON,jsonBody);
-        Request request =  new Request.Builder()
-                .url(urlResolver.resolve(URL, path))
-                .post(body)
-                .build();
-
-        return execute(request);
+        return post(path, null, jsonBody);
     }
 
     public Response post(String path, Map<String, String> queries, String jsonBody) {
-        RequestBody body = RequestBody.create(JSON,jsonBody);
-        Request request =  new Request.Builder()
-                .url(urlResolver.resolve(URL, path, queries))
-                .post(body)
-                .build();
-
-        return execute(request);
+        if(engine != null) {
+            return execute("POST", null, path, queries, jsonBody.getBytes(StandardCharsets.UTF_8));
+        }
+        return execute(postRequest(null, path, queries, RequestBody.create(JSON, jsonBody)));
     }
 
     public Response post(Headers headers, String path, Map<String, String> queries, RequestStreamBody body) {
-        Request request =  new Request.Builder()
-                .headers(headers)
-                .url(urlResolver.resolve(URL, path, queries))
+        return execute(postRequest(headers, path, queries, body));
+    }
+
+    public CompletableFuture<Response> postAsync(String path) {
+        return enqueue(postRequest(null, path, null, emptyRequestBody));
+    }
+
+    public CompletableFuture<Response> postAsync(Headers headers, String path) {
+        return enqueue(postRequest(headers, path, null, emptyRequestBody));
+    }
+
+    public CompletableFuture<Response> postAsync(String path, Map<String, String> queries) {
+        return enqueue(postRequest(null, path, queries, emptyRequestBody));
+    }
+
+    public CompletableFuture<Response> postAsync(Headers headers, String path, Map<String, String> queries) {
+        return enqueue(postRequest(headers, path, queries, emptyRequestBody));
+    }
+
+    public CompletableFuture<Response> postAsync(String path, String jsonBody) {
+        return enqueue(postRequest(null, path, null, RequestBody.create(JSON, jsonBody)));
+    }
+
+    public CompletableFuture<Response> postAsync(String path, Map<String, String> queries, String jsonBody) {
+        return enqueue(postRequest(null, path, queries, RequestBody.create(JSON, jsonBody)));
+    }
+
+    public CompletableFuture<Response> postAsync(Headers headers, String path, Map<String, String> queries, RequestStreamBody body) {
+        return enqueue(postRequest(headers, path, queries, body));
+    }
+
+    private Request postRequest(Headers headers, String path, Map<String, String> queries, RequestBody body) {
+        Request.Builder builder = new Request.Builder();
+        if(headers != null) {
+            builder = builder.headers(headers);
+        }
+        return builder
+                .url(resolve(path, queries))
                 .post(body)
                 .build();
-
-        return execute(request);
     }
 
     //=== DELETE =======================================================================================================
 
     public Response delete(String path) {
-        Request request =  new Request
-                .Builder()
-                .url(urlResolver.resolve(URL, path))
-                .delete()
-                .build();
-
-        return execute(request);
+        return delete(path, (Map<String, String>) null);
     }
 
     public Response delete(String path, Map<String, String> queries) {
-        Request request =  new Request
+        if(engine != null) {
+            return execute("DELETE", null, path, queries, null);
+        }
+        return execute(deleteRequest(path, queries, null));
+    }
+
+    public Response delete(String path, String jsonBody) {
+        return delete(path, null, jsonBody);
+    }
+
+    public Response delete(String path, Map<String, String> queries, String jsonBody) {
+        if(engine != null) {
+            return execute("DELETE", null, path, queries, jsonBody.getBytes(StandardCharsets.UTF_8));
+        }
+        return execute(deleteRequest(path, queries, RequestBody.create(JSON, jsonBody)));
+    }
+
+    public CompletableFuture<Response> deleteAsync(String path) {
+        return enqueue(deleteRequest(path, null, null));
+    }
+
+    public CompletableFuture<Response> deleteAsync(String path, Map<String, String> queries) {
+        return enqueue(deleteRequest(path, queries, null));
+    }
+
+    private Request deleteRequest(String path, Map<String, String> queries, RequestBody body) {
+        Request.Builder builder = new Request
                 .Builder()
-                .url(urlResolver.resolve(URL, path, queries))
-                .delete()
-                .build();
+                .url(resolve(path, queries));
 
-        return execute(request);
+        if(body != null) {
+            builder = builder.delete(body);
+        }
+        else {
+            builder = builder.delete();
+        }
+
+        return builder.build();
     }
 
-    public Response delete(String path, String jsonBody) {
-        RequestBody body = RequestBody.create(JSON, jsonBody);
+    //=== HEAD/PUT =====================================================================================================
+
+    public Response head(String path, Map<String, String> queries) {
+        if(engine != null) {
+            return execute("HEAD", null, path, queries, null);
+        }
+        return execute(headRequest(path, queries));
+    }
 
-        Request request = new Request
+    public CompletableFuture<Response> headAsync(String path, Map<String, String> queries) {
+        return enqueue(headRequest(path, queries));
+    }
+
+    private Request headRequest(String path, Map<String, String> queries) {
+        return new Request
                 .Builder()
-                .url(urlResolver.resolve(URL, path))
-                .delete(body)
+                .url(urlResolver.resolve(URL, path, queries))
+                .head()
                 .build();
+    }
 
-        return execute(request);
+    public Response put(String path, Map<String, String> queries, RequestStreamBody body) {
+        return execute(putRequest(path, queries, body));
     }
 
-    public Response delete(String path, Map<String, String> queries, String jsonBody) {
-        RequestBody body = RequestBody.create(JSON, jsonBody);
-        Request request = new Request
+    public CompletableFuture<Response> putAsync(String path, Map<String, String> queries, RequestStreamBody body) {
+        return enqueue(putRequest(path, queries, body));
+    }
+
+    private Request putRequest(String path, Map<String, String> queries, RequestStreamBody body) {
+        return new Request
                 .Builder()
                 .url(urlResolver.resolve(URL, path, queries))
-                .delete(body)
+                .put(body)
                 .build();
+    }
+
+    //=== STREAM =======================================================================================================
+
+    public StreamSubscription stream(String method, Headers headers, String path, Map<String, String> queries,
+                                     String jsonBody, StreamListener listener) {
+        byte[] body = jsonBody != null ? jsonBody.getBytes(StandardCharsets.UTF_8) : method.equals("POST") ? EMPTY_BODY : null;
+
+        if(multiplexer != null) {
+            try {
+                logger.debug("{} {} (multiplexed)", method, path);
+                return multiplexer.subscribe(method, path, queries, headers, body == null ? null : JSON, body, listener);
+            } catch (IOException e) {
+                return failed(listener, e);
+            }
+        }
+
+        Request.Builder builder = new Request.Builder()
+                .url(resolve(path, queries))
+                .method(method, body == null ? null : RequestBody.create(JSON, body));
+        if(headers != null) {
+            builder = builder.headers(headers);
+        }
+        return pump(builder.build(), listener);
+    }
+
+    private StreamSubscription pump(Request request, StreamListener listener) {
+        logger.debug("URL {}", request.url().toString());
+        Call call = this.httpClient.newCall(request);
+        AtomicBoolean open = new AtomicBoolean(true);
+        AtomicBoolean paused = new AtomicBoolean();
+
+        Thread thread = new Thread(() -> {
+            try (Response response = call.execute()) {
+                checkResponse(request.url().toString(), response);
+                BufferedSource source = response.body().source();
+                byte[] bytes = new byte[8192];
+                int read;
+                while (awaitResume(open, paused) && (read = source.read(bytes)) != -1) {
+                    listener.onData(ByteBuffer.wrap(bytes, 0, read));
+                }
+                if (open.getAndSet(false)) {
+                    listener.onComplete();
+                }
+            } catch (IOException | RuntimeException e) {
+                if (open.getAndSet(false)) {
+                    listener.onError(e);
+                }
+            }
+        }, "jdocker-stream-thread-" + streamThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+
+        return new StreamSubscription() {
+            @Override
+            public void cancel() {
+                open.set(false);
+                call.cancel();
+                resume();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open.get();
+            }
+
+            @Override
+            public void pause() {
+                paused.set(true);
+            }
+
+            @Override
+            public void resume() {
+                synchronized (paused) {
+                    paused.set(false);
+                    paused.notifyAll();
+                }
+            }
+        };
+    }
+
+    private static boolean awaitResume(AtomicBoolean open, AtomicBoolean paused) {
+        if (paused.get()) {
+            synchronized (paused) {
+                while (paused.get() && open.get()) {
+                    try {
+                        paused.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+        }
+        return open.get();
+    }
+
+    static StreamSubscription failed(StreamListener listener, Throwable throwable) {
+        listener.onError(throwable);
+        return new StreamSubscription() {
+            @Override
+            public void cancel() {
+            }
+
+            @Override
+            public boolean isOpen() {
+                return false;
+            }
 
-        return execute(request);
+            @Override
+            public void pause() {
+            }
 
+            @Override
+            public void resume() {
+            }
+        };
+    }
+
+    private HttpUrl resolve(String path, Map<String, String> queries) {
+        if(queries == null) {
+            return urlResolver.resolve(URL, path);
+        }
+        return urlResolver.resolve(URL, path, queries);
     }
 
     private Response execute(Request request) {
@@ -185,19 +402,20 @@ public class OkHttpExecuter {
         try {
             logger.debug("URL {}", request.url().toString());
             response = this.httpClient.newCall(request).execute();
+            checkResponse(request.url().toString(), response);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
-            if(response.code() >= 300 && response.code() < 400) {
-                logger.warn("Http Code: "+response.code() + " while doing command: " + request.url());
-            }
-            else if(response.code() >= 400 && response.code() < 500) {
-                throw new DockerClientException("Command with URL: " +request.url() + " Failed\nMessage from Docker Daemon: " +response.body().string()
-                        +"\nHTTP-Code: "+response.code());
-            }
-            else if(response.code() >= 500) {
-                throw new DockerServerException("Command with URL: " +request.url() + " Failed\nMessage from Docker Daemon: " +response.body().string()
-                        +"\nHTTP-Code: "+response.code());
-            }
+        return response;
+    }
 
+    private Response execute(String method, Headers headers, String path, Map<String, String> queries, byte[] body) {
+        Response response = null;
+        try {
+            logger.debug("{} {}", method, path);
+            response = engine.execute(method, path, queries, headers, body == null ? null : JSON, body);
+            checkResponse(path, response);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -205,24 +423,50 @@ public class OkHttpExecuter {
         return response;
     }
 
+    private CompletableFuture<Response> enqueue(Request request) {
+        logger.debug("URL {}", request.url().toString());
+        Call call = this.httpClient.newCall(request);
+        CompletableFuture<Response> future = new CancellableFuture<>(call::cancel);
 
-    public Response head(String path, Map<String, String> queries) {
-        Request request = new Request
-                .Builder()
-                .url(urlResolver.resolve(URL, path, queries))
-                .head()
-                .build();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try {
+                    checkResponse(request.url().toString(), response);
+                    if (!future.complete(response)) {
+                        response.close();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
 
-        return execute(request);
+        return future;
     }
 
-    public Response put(String path, Map<String, String> queries, RequestStreamBody body) {
-        Request request = new Request
-                .Builder()
-                .url(urlResolver.resolve(URL, path, queries))
-                .put(body)
-                .build();
+    static <T> CompletableFuture<T> failed(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
 
-        return execute(request);
+    private void checkResponse(String url, Response response) throws IOException {
+        if(response.code() >= 300 && response.code() < 400) {
+            logger.warn("Http Code: "+response.code() + " while doing command: " + url);
+        }
+        else if(response.code() >= 400 && response.code() < 500) {
+            throw new DockerClientException("Command with URL: " + url + " Failed\nMessage from Docker Daemon: " +response.body().string()
+                    +"\nHTTP-Code: "+response.code());
+        }
+        else if(response.code() >= 500) {
+            throw new DockerServerException("Command with URL: " + url + " Failed\nMessage from Docker Daemon: " +response.body().string()
+                    +"\nHTTP-Code: "+response.code());
+        }
     }
 }
@@ -0,0 +1,285 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.handlers;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Response decoding shared by the synchronous and asynchronous handler methods,
+ * logging through the owning handler's logger. Bodies are parsed straight from the
+ * byte stream; they are only buffered as a String when debug logging is enabled.
+ */
+final class ResponseReader {
+
+    private final ObjectMapper mapper;
+    private final Logger logger;
+
+    ResponseReader(ObjectMapper mapper, Logger logger) {
+        this.mapper = mapper;
+        this.logger = logger;
+    }
+
+    <T> T read(Response response, Class<T> type, String errorMessage) {
+        try (ResponseBody body = response.body(); JsonParser parser = open(body)) {
+            T value = mapper.readValue(parser, type);
+            drain(body, parser);
+            return value;
+        } catch (IOException e) {
+            logger.error(errorMessage, e);
+        }
+
+        return null;
+    }
+
+    <T> T read(Response response, ObjectReader objectReader, String errorMessage) {
+        try (ResponseBody body = response.body(); JsonParser parser = open(body)) {
+            T value = objectReader.readValue(parser);
+            drain(body, parser);
+            return value;
+        } catch (IOException e) {
+            logger.error(errorMessage, e);
+        }
+
+        return null;
+    }
+
+    <T> List<T> readList(Response response, Class<T[]> type, String errorMessage) {
+        T[] array = read(response, type, errorMessage);
+        return array != null ? Arrays.asList(array) : null;
+    }
+
+    String readString(Response response, String errorMessage) {
+        try {
+            String responseBody = response.body().string();
+            logger.debug("Response body: {}", responseBody);
+            return responseBody;
+        } catch (IOException e) {
+            logger.error(errorMessage, e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the text value of a top level field, e.g. "Id", without building a tree.
+     * Returns null if the field is absent.
+     */
+    String readField(Response response, String field) throws IOException {
+        return readFields(response, field).get(field);
+    }
+
+    /**
+     * Reads the text values of the given top level fields, stopping as soon as all
+     * of them have been seen. Absent fields are left out of the returned map.
+     */
+    Map<String, String> readFields(Response response, String... fields) throws IOException {
+        Map<String, String> values = new HashMap<>(fields.length * 2);
+        List<String> wanted = Arrays.asList(fields);
+        try (ResponseBody body = response.body(); JsonParser parser = open(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return values;
+            }
+            while (values.size() < fields.length && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (wanted.contains(name) && value.isScalarValue()) {
+                    values.put(name, value == JsonToken.VALUE_NULL ? null : parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            drain(body, parser);
+        }
+        return values;
+    }
+
+    /**
+     * Reads the array held by a top level field, e.g. the "Volumes" of a volume listing.
+     * Returns an empty list if the field is absent or null.
+     */
+    <T> List<T> readArrayField(Response response, String field, Class<T[]> type) throws IOException {
+        try (ResponseBody body = response.body(); JsonParser parser = open(body)) {
+            if (!advanceTo(parser, field) || parser.nextToken() == JsonToken.VALUE_NULL) {
+                return Collections.emptyList();
+            }
+            List<T> values = Arrays.asList(mapper.readValue(parser, type));
+            drain(body, parser);
+            return values;
+        }
+    }
+
+    /**
+     * Lazily decodes a top level JSON array one element at a time, so only the element
+     * being handed to the caller is held in memory. The body is released when the stream
+     * is exhausted or closed; callers that stop early should close the stream.
+     */
+    <T> Stream<T> stream(Response response, Class<T> type, String errorMessage) {
+        return streamArray(response, null, type, errorMessage);
+    }
+
+    /**
+     * Like {@link #stream(Response, Class, String)} for an array held by a top level
+     * field, e.g. the "Volumes" of a volume listing.
+     */
+    <T> Stream<T> streamArrayField(Response response, String field, Class<T> type, String errorMessage) {
+        return streamArray(response, field, type, errorMessage);
+    }
+
+    private <T> Stream<T> streamArray(Response response, String field, Class<T> type, String errorMessage) {
+        ResponseBody body = response.body();
+        try {
+            JsonParser parser = mapper.getFactory().createParser(body.byteStream());
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if ((field != null && !advanceTo(parser, field)) || parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.close();
+                body.close();
+                return Stream.empty();
+            }
+            ElementIterator<T> iterator = new ElementIterator<>(body, parser, type, errorMessage);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(iterator::close);
+        } catch (IOException e) {
+            body.close();
+            logger.error(errorMessage, e);
+        }
+
+        return Stream.empty();
+    }
+
+    private JsonParser open(ResponseBody body) throws IOException {
+        if (logger.isDebugEnabled()) {
+            String responseBody = body.string();
+            logger.debug("Response body: {}", responseBody);
+            return mapper.getFactory().createParser(responseBody);
+        }
+        JsonParser parser = mapper.getFactory().createParser(body.byteStream());
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return parser;
+    }
+
+    /**
+     * The parser stops at the end of the root value, so the rest of the body (at least
+     * the chunked terminator) is consumed here to let a pooled connection be reused.
+     */
+    private static void drain(ResponseBody body, JsonParser parser) throws IOException {
+        if (!(parser.getInputSource() instanceof InputStream)) {
+            return;
+        }
+        BufferedSource source = body.source();
+        while (!source.exhausted()) {
+            source.skip(source.buffer().size());
+        }
+    }
+
+    private static boolean advanceTo(JsonParser parser, String field) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (field.equals(parser.getCurrentName())) {
+                return true;
+            }
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    void discard(Response response) {
+        response.body().close();
+    }
+
+    private final class ElementIterator<T> implements Iterator<T> {
+
+        private final ResponseBody body;
+        private final JsonParser parser;
+        private final Class<T> type;
+        private final String errorMessage;
+        private T next;
+        private boolean done;
+
+        ElementIterator(ResponseBody body, JsonParser parser, Class<T> type, String errorMessage) {
+            this.body = body;
+            this.parser = parser;
+            this.type = type;
+            this.errorMessage = errorMessage;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+            try {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    next = mapper.readValue(parser, type);
+                    return true;
+                }
+                drain(body, parser);
+            } catch (IOException e) {
+                close();
+                throw new DockerClientException(errorMessage, e);
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T element = next;
+            next = null;
+            return element;
+        }
+
+        void close() {
+            if (!done) {
+                done = true;
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                    logger.debug("Exception closing parser", e);
+                }
+                body.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.http;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.spi.SelectorProvider;
+
+/**
+ * Opens selectable channels to the daemon for the {@link StreamMultiplexer}.
+ */
+public interface ChannelConnector {
+
+    /**
+     * A connected channel in blocking mode, which must also be a {@link java.nio.channels.ByteChannel}.
+     */
+    SelectableChannel connect() throws IOException;
+
+    /**
+     * The provider of the channels returned by {@link #connect()}, used to open the selectors.
+     */
+    SelectorProvider provider();
+}
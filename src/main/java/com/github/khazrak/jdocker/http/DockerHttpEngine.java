@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.http;
+
+import com.github.khazrak.jdocker.unixsocket.NpipeSocketFactory;
+import com.github.khazrak.jdocker.unixsocket.UnixSocketFactory;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.SocketFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal HTTP/1.1 client for the short request/response calls made against the Docker API.
+ *
+ * It skips OkHttp's url building, dns lookup and interceptor chain: request lines and the fixed headers are
+ * pre-encoded once, connections are kept alive in a small pool and every connection reuses its own buffers.
+ * Responses are still returned as {@link Response} objects so the handlers don't care which engine was used.
+ * {@link Response#request()} is a placeholder pointing at the daemon, not the called path.
+ */
+public class DockerHttpEngine implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DockerHttpEngine.class);
+
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    private final SocketFactory socketFactory;
+    private final SocketAddress endpoint;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int maxIdleConnections;
+    private final long keepAliveNanos;
+    private final int bufferSize;
+
+    private final RequestEncoder.Template template;
+    private final Request request;
+
+    private final Deque<HttpConnection> idle = new ArrayDeque<>();
+    private boolean closed;
+
+    public static DockerHttpEngine unixSocket(String socketPath) {
+        return new DockerHttpEngine(new UnixSocketFactory(socketPath), InetSocketAddress.createUnresolved("docker", 80), "docker");
+    }
+
+    public static DockerHttpEngine namedPipe() {
+        return new DockerHttpEngine(new NpipeSocketFactory(), InetSocketAddress.createUnresolved("docker", 80), "docker");
+    }
+
+    public static DockerHttpEngine tcp(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null || httpUrl.isHttps()) {
+            throw new IllegalArgumentException("Only plain http urls are supported: " + url);
+        }
+        return new DockerHttpEngine(SocketFactory.getDefault(), new InetSocketAddress(httpUrl.host(), httpUrl.port()),
+                httpUrl.host() + ":" + httpUrl.port());
+    }
+
+    public DockerHttpEngine(SocketFactory socketFactory, SocketAddress endpoint, String host) {
+        this(socketFactory, endpoint, host, DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS,
+                DEFAULT_BUFFER_SIZE, (int) TimeUnit.MINUTES.toMillis(1), 0);
+    }
+
+    public DockerHttpEngine(SocketFactory socketFactory, SocketAddress endpoint, String host, int maxIdleConnections,
+                            long keepAlive, TimeUnit keepAliveUnit, int bufferSize, int connectTimeoutMillis,
+                            int readTimeoutMillis) {
+        if (maxIdleConnections < 0) {
+            throw new IllegalArgumentException("maxIdleConnections < 0: " + maxIdleConnections);
+        }
+        if (bufferSize < 1024) {
+            throw new IllegalArgumentException("bufferSize < 1024: " + bufferSize);
+        }
+        this.socketFactory = socketFactory;
+        this.endpoint = endpoint;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAliveNanos = keepAliveUnit.toNanos(keepAlive);
+        this.bufferSize = bufferSize;
+        this.template = new RequestEncoder.Template(host);
+        this.request = new Request.Builder().url("http://" + host + "/").build();
+    }
+
+    public Response execute(String method, String path, Map<String, String> queries, Headers headers,
+                            MediaType contentType, byte[] body) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            HttpConnection connection = pooled();
+            boolean recycled = connection != null;
+            if (!recycled) {
+                connection = connect();
+            }
+
+            try {
+                connection.writeRequest(template, method, path, queries, headers, contentType, body);
+                return connection.readResponse(method, request);
+            } catch (IOException e) {
+                connection.close();
+                if (!recycled || connection.responseStarted() || attempt > 0) {
+                    throw e;
+                }
+                logger.debug("Pooled connection was stale, retrying on a new one", e);
+            } catch (RuntimeException e) {
+                connection.close();
+                throw e;
+            }
+        }
+    }
+
+    private HttpConnection connect() throws IOException {
+        synchronized (idle) {
+            if (closed) {
+                throw new IOException("Engine is closed");
+            }
+        }
+
+        Socket socket = socketFactory.createSocket();
+        try {
+            socket.connect(endpoint, connectTimeoutMillis);
+            socket.setSoTimeout(readTimeoutMillis);
+            return new HttpConnection(this, socket, bufferSize);
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private HttpConnection pooled() {
+        long now = System.nanoTime();
+        synchronized (idle) {
+            HttpConnection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (connection.isHealthy(now, keepAliveNanos)) {
+                    return connection;
+                }
+                connection.close();
+            }
+        }
+        return null;
+    }
+
+    void release(HttpConnection connection) {
+        connection.idle(System.nanoTime());
+        synchronized (idle) {
+            if (!closed && idle.size() < maxIdleConnections) {
+                idle.offerFirst(connection);
+                return;
+            }
+        }
+        connection.close();
+    }
+
+    public int idleConnectionCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (idle) {
+            closed = true;
+            HttpConnection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                connection.close();
+            }
+        }
+    }
+
+}
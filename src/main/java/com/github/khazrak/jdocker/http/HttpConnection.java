@@ -0,0 +1,387 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.http;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.util.Map;
+
+/**
+ * One keep-alive connection to the daemon. The read and write buffers are allocated once and reused
+ * for every exchange on the connection.
+ */
+final class HttpConnection implements Closeable {
+
+    private final DockerHttpEngine engine;
+    private final Socket socket;
+    private final InputStream in;
+    private final RequestEncoder encoder;
+
+    private final byte[] readBuffer;
+    private int readPos;
+    private int readLimit;
+
+    private final StringBuilder line = new StringBuilder(128);
+
+    private boolean reusable = true;
+    private boolean responseStarted;
+    private long idleSince;
+
+    HttpConnection(DockerHttpEngine engine, Socket socket, int bufferSize) throws IOException {
+        this.engine = engine;
+        this.socket = socket;
+        this.in = socket.getInputStream();
+        this.encoder = new RequestEncoder(socket.getOutputStream(), bufferSize);
+        this.readBuffer = new byte[bufferSize];
+    }
+
+    boolean isHealthy(long now, long keepAliveNanos) {
+        return reusable && !socket.isClosed() && now - idleSince < keepAliveNanos;
+    }
+
+    void idle(long now) {
+        idleSince = now;
+    }
+
+    boolean responseStarted() {
+        return responseStarted;
+    }
+
+    @Override
+    public void close() {
+        reusable = false;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already broken, nothing to do
+        }
+    }
+
+    void writeRequest(RequestEncoder.Template template, String method, String path, Map<String, String> queries,
+                      Headers headers, MediaType contentType, byte[] body) throws IOException {
+        encoder.writeRequest(template, method, path, queries, headers, contentType, body);
+    }
+
+    //=== Reading ======================================================================================================
+
+    Response readResponse(String method, Request request) throws IOException {
+        responseStarted = false;
+
+        String statusLine;
+        int code;
+        do {
+            statusLine = readLine();
+            if (statusLine == null) {
+                throw new EOFException("Connection closed before a response was received");
+            }
+            code = statusCode(statusLine);
+        } while (code == 100);
+
+        boolean http10 = statusLine.startsWith("HTTP/1.0");
+        String message = statusLine.length() > 13 ? statusLine.substring(13) : "";
+
+        Headers.Builder headers = new Headers.Builder();
+        long contentLength = -1;
+        boolean chunked = false;
+        boolean close = http10;
+        MediaType contentType = null;
+
+        String header;
+        while ((header = readLine()) != null && !header.isEmpty()) {
+            int colon = header.indexOf(':');
+            if (colon <= 0) {
+                throw new ProtocolException("Unexpected header: " + header);
+            }
+            String name = header.substring(0, colon).trim();
+            String value = header.substring(colon + 1).trim();
+            headers.add(name, value);
+
+            if (name.equalsIgnoreCase("Content-Length")) {
+                contentLength = parseLength(value);
+            }
+            else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                chunked = value.equalsIgnoreCase("chunked");
+            }
+            else if (name.equalsIgnoreCase("Connection")) {
+                close = value.equalsIgnoreCase("close");
+            }
+            else if (name.equalsIgnoreCase("Content-Type")) {
+                contentType = MediaType.parse(value);
+            }
+        }
+        if (header == null) {
+            throw new EOFException("Connection closed while reading response headers");
+        }
+
+        if (close) {
+            reusable = false;
+        }
+
+        Source body;
+        if (method.equals("HEAD") || code == 204 || code == 304 || (code >= 100 && code < 200)) {
+            contentLength = 0;
+            body = emptyBody();
+        }
+        else if (chunked) {
+            contentLength = -1;
+            body = new ChunkedSource();
+        }
+        else if (contentLength >= 0) {
+            body = contentLength == 0 ? emptyBody() : new FixedLengthSource(contentLength);
+        }
+        else {
+            reusable = false;
+            body = new UntilCloseSource();
+        }
+
+        return new Response.Builder()
+                .request(request)
+                .protocol(http10 ? Protocol.HTTP_1_0 : Protocol.HTTP_1_1)
+                .code(code)
+                .message(message)
+                .headers(headers.build())
+                .body(ResponseBody.create(contentType, contentLength, Okio.buffer(body)))
+                .build();
+    }
+
+    private Source emptyBody() {
+        done(true);
+        return new Buffer();
+    }
+
+    private static int statusCode(String statusLine) throws ProtocolException {
+        if (!statusLine.startsWith("HTTP/1.") || statusLine.length() < 12) {
+            throw new ProtocolException("Unexpected status line: " + statusLine);
+        }
+        try {
+            return Integer.parseInt(statusLine.substring(9, 12));
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Unexpected status line: " + statusLine);
+        }
+    }
+
+    private static long parseLength(String value) throws ProtocolException {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Invalid Content-Length: " + value);
+        }
+    }
+
+    /**
+     * Returns the next line without its CRLF, or null if the stream ended before any byte of it.
+     */
+    private String readLine() throws IOException {
+        line.setLength(0);
+        boolean any = false;
+        while (true) {
+            if (readPos == readLimit && !fill()) {
+                if (!any) {
+                    return null;
+                }
+                throw new EOFException("Connection closed in the middle of a line");
+            }
+            any = true;
+            responseStarted = true;
+            int b = readBuffer[readPos++] & 0xff;
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(readBuffer, 0, readBuffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        readPos = 0;
+        readLimit = read;
+        return true;
+    }
+
+    private int buffered() {
+        return readLimit - readPos;
+    }
+
+    private void done(boolean reuse) {
+        if (reuse && reusable) {
+            engine.release(this);
+        }
+        else {
+            close();
+        }
+    }
+
+    private abstract class BodySource implements Source {
+
+        private boolean finished;
+
+        final void finish(boolean reuse) {
+            if (!finished) {
+                finished = true;
+                done(reuse);
+            }
+        }
+
+        final boolean finished() {
+            return finished;
+        }
+
+        final long copy(Buffer sink, long byteCount) throws IOException {
+            if (buffered() == 0 && !fill()) {
+                return -1;
+            }
+            int count = (int) Math.min(byteCount, buffered());
+            sink.write(readBuffer, readPos, count);
+            readPos += count;
+            return count;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+    }
+
+    private final class FixedLengthSource extends BodySource {
+
+        private long remaining;
+
+        FixedLengthSource(long length) {
+            this.remaining = length;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            long read = copy(sink, Math.min(byteCount, remaining));
+            if (read == -1) {
+                finish(false);
+                throw new ProtocolException("Unexpected end of stream");
+            }
+            remaining -= read;
+            if (remaining == 0) {
+                finish(true);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+            if (!finished() && remaining <= buffered()) {
+                readPos += remaining;
+                remaining = 0;
+                finish(true);
+            }
+            finish(false);
+        }
+    }
+
+    private final class ChunkedSource extends BodySource {
+
+        private long chunkRemaining = -1;
+        private boolean hasMoreChunks = true;
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (!hasMoreChunks) {
+                return -1;
+            }
+            if (chunkRemaining <= 0) {
+                nextChunk();
+                if (!hasMoreChunks) {
+                    return -1;
+                }
+            }
+            long read = copy(sink, Math.min(byteCount, chunkRemaining));
+            if (read == -1) {
+                finish(false);
+                throw new ProtocolException("Unexpected end of stream");
+            }
+            chunkRemaining -= read;
+            return read;
+        }
+
+        private void nextChunk() throws IOException {
+            if (chunkRemaining == 0) {
+                readLine();
+            }
+            String size = readLine();
+            if (size == null) {
+                finish(false);
+                throw new ProtocolException("Unexpected end of stream");
+            }
+            int extension = size.indexOf(';');
+            try {
+                chunkRemaining = Long.parseLong((extension >= 0 ? size.substring(0, extension) : size).trim(), 16);
+            } catch (NumberFormatException e) {
+                finish(false);
+                throw new ProtocolException("Invalid chunk size: " + size);
+            }
+            if (chunkRemaining == 0) {
+                hasMoreChunks = false;
+                String trailer;
+                while ((trailer = readLine()) != null && !trailer.isEmpty()) {
+                    // trailers are not used by the daemon
+                }
+                finish(trailer != null);
+            }
+        }
+
+        @Override
+        public void close() {
+            finish(false);
+        }
+    }
+
+    private final class UntilCloseSource extends BodySource {
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read = copy(sink, byteCount);
+            if (read == -1) {
+                finish(false);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+            finish(false);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.http;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes HTTP/1.1 requests through a reusable buffer. The request line prefixes and the per-daemon header block are
+ * pre-encoded, paths and queries are percent-encoded byte by byte without intermediate strings.
+ */
+final class RequestEncoder {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final byte[] GET = ascii("GET /");
+    private static final byte[] POST = ascii("POST /");
+    private static final byte[] PUT = ascii("PUT /");
+    private static final byte[] DELETE = ascii("DELETE /");
+    private static final byte[] HEAD = ascii("HEAD /");
+    private static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+    private static final byte[] HEADER_SEPARATOR = ascii(": ");
+
+    /**
+     * The encoded parts that are the same for every request to one daemon.
+     */
+    static final class Template {
+
+        private final byte[] requestLineEnd;
+        private final Map<MediaType, byte[]> contentTypeLines = new ConcurrentHashMap<>();
+
+        Template(String host) {
+            this.requestLineEnd = ascii(" HTTP/1.1\r\nHost: " + host + "\r\nUser-Agent: jdocker\r\n");
+        }
+
+        private byte[] contentTypeLine(MediaType contentType) {
+            return contentTypeLines.computeIfAbsent(contentType, type -> ascii("Content-Type: " + type + "\r\n"));
+        }
+    }
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private final byte[] digits = new byte[20];
+    private int position;
+
+    RequestEncoder(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    void writeRequest(Template template, String method, String path, Map<String, String> queries, Headers headers,
+                      MediaType contentType, byte[] body) throws IOException {
+        write(requestLine(method));
+        writePath(path);
+
+        if (queries != null && !queries.isEmpty()) {
+            char separator = '?';
+            for (Map.Entry<String, String> query : queries.entrySet()) {
+                writeByte(separator);
+                writeQueryComponent(query.getKey());
+                writeByte('=');
+                writeQueryComponent(query.getValue());
+                separator = '&';
+            }
+        }
+        write(template.requestLineEnd);
+
+        boolean hasContentType = false;
+        if (headers != null) {
+            for (int i = 0; i < headers.size(); i++) {
+                String name = headers.name(i);
+                hasContentType |= name.equalsIgnoreCase("Content-Type");
+                writeLatin1(name);
+                write(HEADER_SEPARATOR);
+                writeLatin1(headers.value(i));
+                write(CRLF);
+            }
+        }
+
+        if (body != null) {
+            if (contentType != null && !hasContentType) {
+                write(template.contentTypeLine(contentType));
+            }
+            write(CONTENT_LENGTH);
+            writeDecimal(body.length);
+            write(CRLF);
+            write(CRLF);
+            write(body);
+        }
+        else {
+            write(CRLF);
+        }
+        flush();
+    }
+
+    private static byte[] requestLine(String method) {
+        switch (method) {
+            case "GET":
+                return GET;
+            case "POST":
+                return POST;
+            case "PUT":
+                return PUT;
+            case "DELETE":
+                return DELETE;
+            case "HEAD":
+                return HEAD;
+            default:
+                throw new IllegalArgumentException("Unsupported method: " + method);
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int count = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeLatin1(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            writeByte(value.charAt(i));
+        }
+    }
+
+    private void writeDecimal(long value) throws IOException {
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        write(digits, pos, digits.length - pos);
+    }
+
+    /**
+     * Writes a path with every character outside the RFC 3986 path set percent-encoded.
+     */
+    private void writePath(String path) throws IOException {
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c >= 0x80) {
+                writeEncoded(path.substring(i), false);
+                return;
+            }
+            writePathByte(c);
+        }
+    }
+
+    /**
+     * Writes a query key or value the way {@link java.net.URLEncoder} encodes it, which is what the
+     * OkHttp based resolvers send.
+     */
+    private void writeQueryComponent(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                writeEncoded(value.substring(i), true);
+                return;
+            }
+            writeQueryByte(c);
+        }
+    }
+
+    private void writeEncoded(String value, boolean query) throws IOException {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            if (query) {
+                writeQueryByte(b & 0xff);
+            }
+            else {
+                writePathByte(b & 0xff);
+            }
+        }
+    }
+
+    private void writePathByte(int c) throws IOException {
+        if (c < 0x80 && (isUnreserved(c) || c == '/' || c == ':' || c == '@')) {
+            writeByte(c);
+        }
+        else {
+            writePercent(c);
+        }
+    }
+
+    private void writeQueryByte(int c) throws IOException {
+        if (c == ' ') {
+            writeByte('+');
+        }
+        else if (c < 0x80 && (isAlphaNumeric(c) || c == '.' || c == '-' || c == '*' || c == '_')) {
+            writeByte(c);
+        }
+        else {
+            writePercent(c);
+        }
+    }
+
+    private void writePercent(int c) throws IOException {
+        writeByte('%');
+        writeByte(HEX[(c >> 4) & 0xf]);
+        writeByte(HEX[c & 0xf]);
+    }
+
+    private static boolean isUnreserved(int c) {
+        return isAlphaNumeric(c) || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static boolean isAlphaNumeric(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.http;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the body of a long-lived response. Callbacks run on a shared selector thread and should return quickly,
+ * a slow listener delays every other stream on the same thread.
+ */
+public interface StreamListener {
+
+    /**
+     * A decoded piece of the response body (HTTP chunking removed). The buffer is only valid during the call.
+     */
+    void onData(ByteBuffer data);
+
+    default void onComplete() {
+    }
+
+    default void onError(Throwable throwable) {
+    }
+}
@@ -0,0 +1,601 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.http;
+
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.exception.DockerServerException;
+import com.github.khazrak.jdocker.unixsocket.UnixSocketFactory;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.channels.spi.SelectorProvider;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many long-lived responses (followed logs, stats, pulls, exec output) on a few selector threads instead of one
+ * blocked thread per stream. Each selector thread owns a single read buffer, streams only keep their parser state,
+ * and the decoded body is handed to a {@link StreamListener} as it arrives.
+ */
+public class StreamMultiplexer implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamMultiplexer.class);
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+    private static final int MAX_ERROR_BODY = 64 * 1024;
+    private static final AtomicInteger multiplexerCount = new AtomicInteger();
+
+    private final ChannelConnector connector;
+    private final RequestEncoder.Template template;
+    private final SelectorLoop[] loops;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean closed;
+
+    public static StreamMultiplexer unixSocket(String socketPath, int selectorThreads) throws IOException {
+        return unixSocket(new UnixSocketFactory(socketPath), selectorThreads);
+    }
+
+    public static StreamMultiplexer unixSocket(UnixSocketFactory socketFactory, int selectorThreads) throws IOException {
+        return unixSocket(socketFactory, selectorThreads, 0, 0);
+    }
+
+    /**
+     * @param sendBufferSize SO_SNDBUF of every connection, 0 for the system default
+     * @param receiveBufferSize SO_RCVBUF of every connection, 0 for the system default
+     */
+    public static StreamMultiplexer unixSocket(UnixSocketFactory socketFactory, int selectorThreads, int sendBufferSize,
+                                               int receiveBufferSize) throws IOException {
+        ChannelConnector connector = new ChannelConnector() {
+            @Override
+            public SelectableChannel connect() throws IOException {
+                return socketFactory.openChannel(sendBufferSize, receiveBufferSize);
+            }
+
+            @Override
+            public SelectorProvider provider() {
+                return socketFactory.selectorProvider();
+            }
+        };
+        return new StreamMultiplexer(connector, "docker", selectorThreads, DEFAULT_BUFFER_SIZE);
+    }
+
+    public static StreamMultiplexer tcp(String url, int selectorThreads) throws IOException {
+        return tcp(url, selectorThreads, 0, 0, 0);
+    }
+
+    /**
+     * @param sendBufferSize SO_SNDBUF of every connection, 0 for the system default
+     * @param receiveBufferSize SO_RCVBUF of every connection, 0 for the system default
+     * @param connectTimeoutMillis 0 waits as long as the system does
+     */
+    public static StreamMultiplexer tcp(String url, int selectorThreads, int sendBufferSize, int receiveBufferSize,
+                                        int connectTimeoutMillis) throws IOException {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null || httpUrl.isHttps()) {
+            throw new IllegalArgumentException("Only plain http urls are supported: " + url);
+        }
+        ChannelConnector connector = new ChannelConnector() {
+            @Override
+            public SelectableChannel connect() throws IOException {
+                SocketChannel channel = SocketChannel.open();
+                try {
+                    // buffer sizes before connecting, the receive buffer decides the window scale
+                    if (sendBufferSize > 0) {
+                        channel.socket().setSendBufferSize(sendBufferSize);
+                    }
+                    if (receiveBufferSize > 0) {
+                        channel.socket().setReceiveBufferSize(receiveBufferSize);
+                    }
+                    channel.socket().connect(new InetSocketAddress(httpUrl.host(), httpUrl.port()), connectTimeoutMillis);
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+                return channel;
+            }
+
+            @Override
+            public SelectorProvider provider() {
+                return SelectorProvider.provider();
+            }
+        };
+        return new StreamMultiplexer(connector, httpUrl.host() + ":" + httpUrl.port(), selectorThreads, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamMultiplexer(ChannelConnector connector, String host, int selectorThreads, int bufferSize) throws IOException {
+        if (selectorThreads < 1) {
+            throw new IllegalArgumentException("selectorThreads < 1: " + selectorThreads);
+        }
+        this.connector = connector;
+        this.template = new RequestEncoder.Template(host);
+        this.loops = new SelectorLoop[selectorThreads];
+
+        int id = multiplexerCount.incrementAndGet();
+        try {
+            for (int i = 0; i < selectorThreads; i++) {
+                loops[i] = new SelectorLoop(connector.provider(), bufferSize, "jdocker-stream-" + id + "-" + i);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        for (SelectorLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /**
+     * Sends the request on a new connection and hands the response to one of the selector threads. Error responses
+     * are reported to {@link StreamListener#onError(Throwable)} as {@link DockerClientException} or
+     * {@link DockerServerException}.
+     */
+    public StreamSubscription subscribe(String method, String path, Map<String, String> queries, Headers headers,
+                                        MediaType contentType, byte[] body, StreamListener listener) throws IOException {
+        if (closed) {
+            throw new IOException("Multiplexer is closed");
+        }
+
+        SelectableChannel channel = connector.connect();
+        try {
+            RequestEncoder encoder = new RequestEncoder(Channels.newOutputStream((WritableByteChannel) channel), 4 * 1024);
+            encoder.writeRequest(template, method, path, queries, headers, contentType, body);
+            channel.configureBlocking(false);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        SelectorLoop loop = loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+        Stream stream = new Stream(loop, channel, path, listener);
+        active.incrementAndGet();
+        loop.add(stream);
+        return stream;
+    }
+
+    public int activeStreams() {
+        return active.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (SelectorLoop loop : loops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    private final class SelectorLoop implements Runnable {
+
+        private final Selector selector;
+        private final ByteBuffer buffer;
+        private final Queue<Stream> pending = new ConcurrentLinkedQueue<>();
+        private final Queue<Stream> updates = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+
+        SelectorLoop(SelectorProvider provider, int bufferSize, String name) throws IOException {
+            this.selector = provider.openSelector();
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        void add(Stream stream) {
+            pending.add(stream);
+            selector.wakeup();
+        }
+
+        void update(Stream stream) {
+            updates.add(stream);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+
+                    Stream stream;
+                    while ((stream = pending.poll()) != null) {
+                        stream.register(selector);
+                    }
+                    while ((stream = updates.poll()) != null) {
+                        stream.updateInterest();
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid() && key.isReadable()) {
+                            ((Stream) key.attachment()).readable(buffer);
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                logger.error("Stream selector failed", e);
+            } finally {
+                shutdown();
+            }
+        }
+
+        private void shutdown() {
+            List<Stream> streams = new ArrayList<>(pending);
+            for (SelectionKey key : selector.keys()) {
+                if (key != null && key.attachment() instanceof Stream) {
+                    streams.add((Stream) key.attachment());
+                }
+            }
+            for (Stream stream : streams) {
+                stream.fail(new IOException("Stream multiplexer closed"));
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.debug("Exception during closing of selector", e);
+            }
+        }
+    }
+
+    private final class Stream implements StreamSubscription {
+
+        private static final int STATUS = 0;
+        private static final int HEADERS = 1;
+        private static final int FIXED = 2;
+        private static final int CHUNK_SIZE = 3;
+        private static final int CHUNK_DATA = 4;
+        private static final int CHUNK_END = 5;
+        private static final int TRAILERS = 6;
+        private static final int UNTIL_CLOSE = 7;
+        private static final int DONE = 8;
+
+        private final SelectorLoop loop;
+        private final SelectableChannel channel;
+        private final ByteChannel byteChannel;
+        private final String path;
+        private final StreamListener listener;
+        private volatile boolean open = true;
+        private volatile boolean paused;
+        private SelectionKey key;
+
+        private final StringBuilder line = new StringBuilder(64);
+        private boolean lineDone;
+        private int state = STATUS;
+        private int code;
+        private long contentLength = -1;
+        private boolean chunked;
+        private long remaining;
+        private ByteArrayOutputStream errorBody;
+
+        Stream(SelectorLoop loop, SelectableChannel channel, String path, StreamListener listener) {
+            this.loop = loop;
+            this.channel = channel;
+            this.byteChannel = (ByteChannel) channel;
+            this.path = path;
+            this.listener = listener;
+        }
+
+        void register(Selector selector) {
+            if (!open) {
+                return;
+            }
+            try {
+                key = channel.register(selector, paused ? 0 : SelectionKey.OP_READ, this);
+            } catch (ClosedChannelException e) {
+                fail(e);
+            }
+        }
+
+        void updateInterest() {
+            if (key != null && key.isValid()) {
+                key.interestOps(paused ? 0 : SelectionKey.OP_READ);
+            }
+        }
+
+        void readable(ByteBuffer buffer) {
+            try {
+                buffer.clear();
+                int read = byteChannel.read(buffer);
+                if (read == -1) {
+                    endOfStream();
+                    return;
+                }
+                buffer.flip();
+                decode(buffer);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void decode(ByteBuffer buffer) throws IOException {
+            while (open && state != DONE && buffer.hasRemaining()) {
+                switch (state) {
+                    case STATUS:
+                        if (readLine(buffer)) {
+                            code = statusCode();
+                            state = HEADERS;
+                        }
+                        break;
+                    case HEADERS:
+                        if (readLine(buffer)) {
+                            if (line.length() == 0) {
+                                startBody();
+                            }
+                            else {
+                                header();
+                            }
+                        }
+                        break;
+                    case FIXED:
+                        remaining -= deliver(buffer, remaining);
+                        if (remaining == 0) {
+                            complete();
+                        }
+                        break;
+                    case CHUNK_SIZE:
+                        if (readLine(buffer)) {
+                            remaining = chunkSize();
+                            state = remaining == 0 ? TRAILERS : CHUNK_DATA;
+                        }
+                        break;
+                    case CHUNK_DATA:
+                        remaining -= deliver(buffer, remaining);
+                        if (remaining == 0) {
+                            state = CHUNK_END;
+                        }
+                        break;
+                    case CHUNK_END:
+                        if (readLine(buffer)) {
+                            state = CHUNK_SIZE;
+                        }
+                        break;
+                    case TRAILERS:
+                        if (readLine(buffer) && line.length() == 0) {
+                            complete();
+                        }
+                        break;
+                    default:
+                        deliver(buffer, buffer.remaining());
+                        break;
+                }
+            }
+        }
+
+        private boolean readLine(ByteBuffer buffer) throws ProtocolException {
+            if (lineDone) {
+                line.setLength(0);
+                lineDone = false;
+            }
+            while (buffer.hasRemaining()) {
+                char c = (char) (buffer.get() & 0xff);
+                if (c == '\n') {
+                    int length = line.length();
+                    if (length > 0 && line.charAt(length - 1) == '\r') {
+                        line.setLength(length - 1);
+                    }
+                    lineDone = true;
+                    return true;
+                }
+                if (line.length() == MAX_LINE_LENGTH) {
+                    throw new ProtocolException("Line too long in response to " + path);
+                }
+                line.append(c);
+            }
+            return false;
+        }
+
+        private int statusCode() throws ProtocolException {
+            if (line.length() < 12 || !line.toString().startsWith("HTTP/1.")) {
+                throw new ProtocolException("Unexpected status line: " + line);
+            }
+            try {
+                return Integer.parseInt(line.substring(9, 12));
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("Unexpected status line: " + line);
+            }
+        }
+
+        private void header() throws ProtocolException {
+            int colon = line.indexOf(":");
+            if (colon <= 0) {
+                throw new ProtocolException("Unexpected header: " + line);
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                try {
+                    contentLength = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new ProtocolException("Invalid Content-Length: " + value);
+                }
+            }
+            else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                chunked = value.equalsIgnoreCase("chunked");
+            }
+        }
+
+        private long chunkSize() throws ProtocolException {
+            int extension = line.indexOf(";");
+            String size = (extension >= 0 ? line.substring(0, extension) : line.toString()).trim();
+            try {
+                return Long.parseLong(size, 16);
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("Invalid chunk size: " + size);
+            }
+        }
+
+        private void startBody() {
+            if (code == 100) {
+                state = STATUS;
+                return;
+            }
+            if (code >= 300 && code < 400) {
+                logger.warn("Http Code: " + code + " while doing command: " + path);
+            }
+            else if (code >= 400) {
+                errorBody = new ByteArrayOutputStream();
+            }
+
+            if (code == 204 || code == 304) {
+                complete();
+            }
+            else if (chunked) {
+                state = CHUNK_SIZE;
+            }
+            else if (contentLength == 0) {
+                complete();
+            }
+            else if (contentLength > 0) {
+                remaining = contentLength;
+                state = FIXED;
+            }
+            else {
+                state = UNTIL_CLOSE;
+            }
+        }
+
+        private int deliver(ByteBuffer buffer, long max) {
+            int count = (int) Math.min(max, buffer.remaining());
+            int limit = buffer.limit();
+            int end = buffer.position() + count;
+            buffer.limit(end);
+            try {
+                if (errorBody != null) {
+                    if (errorBody.size() < MAX_ERROR_BODY) {
+                        byte[] bytes = new byte[count];
+                        buffer.get(bytes);
+                        errorBody.write(bytes, 0, count);
+                    }
+                }
+                else if (open) {
+                    listener.onData(buffer);
+                }
+            } finally {
+                buffer.limit(limit);
+                buffer.position(end);
+            }
+            return count;
+        }
+
+        private void endOfStream() {
+            if (state == UNTIL_CLOSE) {
+                complete();
+            }
+            else {
+                fail(new EOFException("Unexpected end of stream from " + path));
+            }
+        }
+
+        private void complete() {
+            state = DONE;
+            if (!finish()) {
+                return;
+            }
+
+            try {
+                if (errorBody != null) {
+                    listener.onError(error());
+                }
+                else {
+                    listener.onComplete();
+                }
+            } catch (RuntimeException e) {
+                logger.error("Exception in stream listener for " + path, e);
+            }
+        }
+
+        private RuntimeException error() {
+            String message = "Command with URL: " + path + " Failed\nMessage from Docker Daemon: "
+                    + new String(errorBody.toByteArray(), StandardCharsets.UTF_8) + "\nHTTP-Code: " + code;
+            if (code >= 500) {
+                return new DockerServerException(message);
+            }
+            return new DockerClientException(message);
+        }
+
+        void fail(Throwable throwable) {
+            if (!finish()) {
+                return;
+            }
+
+            try {
+                listener.onError(throwable);
+            } catch (RuntimeException e) {
+                logger.error("Exception in stream listener for " + path, e);
+            }
+        }
+
+        private synchronized boolean finish() {
+            if (!open) {
+                return false;
+            }
+            open = false;
+            active.decrementAndGet();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Exception during closing of stream " + path, e);
+            }
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+            finish();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void pause() {
+            if (!paused) {
+                paused = true;
+                loop.update(this);
+            }
+        }
+
+        @Override
+        public void resume() {
+            if (paused) {
+                paused = false;
+                loop.update(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.http;
+
+public interface StreamSubscription {
+
+    /**
+     * Closes the stream, no further callbacks are made once the current one returns.
+     */
+    void cancel();
+
+    boolean isOpen();
+
+    /**
+     * Stops reading from the daemon until {@link #resume()}, so its socket buffer fills up and the daemon holds back
+     * instead of the client buffering. Data that was already read may still be delivered after this returns.
+     */
+    void pause();
+
+    void resume();
+}
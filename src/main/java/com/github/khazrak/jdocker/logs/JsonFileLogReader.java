@@ -0,0 +1,515 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
+import com.github.khazrak.jdocker.model.api124.DockerContainerInspect;
+import com.github.khazrak.jdocker.model.api124.parameters.DockerLogsParameters;
+import com.github.khazrak.jdocker.utils.Rfc3339;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the log of a container using the {@code json-file} log driver straight from the files under its
+ * {@code LogPath}, for clients on the same host as the daemon. The files are memory mapped and every line is parsed
+ * with a streaming parser into the same bytes the daemon would send, so records look like those of
+ * {@link DockerClient#logRecords(String, DockerLogsParameters)}.
+ *
+ * {@code stdout}, {@code stderr}, {@code since}, {@code tail}, {@code timestamps} and {@code follow} behave like the
+ * daemon's: rotated files ({@code -json.log.1}, {@code .2}, ...) are read oldest first, {@code tail} counts lines
+ * across them, and following picks up growth and rotation of the file by polling it until the container stops.
+ * {@code details} is ignored. Compressed rotated files are skipped. Containers with another log driver, or whose log
+ * files are not visible, are read through the daemon instead.
+ *
+ * Not thread safe, apart from {@link #close()} which may be called from another thread to stop a blocked
+ * {@link #next(LogRecord)}.
+ */
+public class JsonFileLogReader implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonFileLogReader.class);
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final String JSON_FILE = "json-file";
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long RUNNING_CHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int MAX_WINDOW = 64 * 1024 * 1024;
+
+    private final DockerClient client;
+    private final String id;
+    private final DockerLogsParameters params;
+    private final long pollIntervalMillis;
+    private final LogRecordReader remote;
+    private final Path logPath;
+    private final Deque<FileChannel> pending = new ArrayDeque<>();
+
+    private volatile boolean closed;
+    private boolean stopped;
+    private FileChannel channel;
+    private Object fileKey;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private long lastRunningCheck;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private byte[] out = new byte[256];
+    private char[] message = new char[256];
+    private int messageLength;
+    private char[] time = new char[40];
+    private CharBuffer timeText = CharBuffer.wrap(time);
+    private int timeLength;
+
+    public JsonFileLogReader(DockerClient client, String id, DockerLogsParameters params) throws IOException {
+        this(client, id, params, Paths.get("/"), 250, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param hostRoot     where the host's filesystem is visible, {@code LogPath} is resolved against it
+     * @param pollInterval how often a followed file is checked for growth once read to the end
+     */
+    public JsonFileLogReader(DockerClient client, String id, DockerLogsParameters params, Path hostRoot,
+                             long pollInterval, TimeUnit unit) throws IOException {
+        this.client = client;
+        this.id = id;
+        this.params = params;
+        this.pollIntervalMillis = unit.toMillis(pollInterval);
+        this.logPath = resolve(hostRoot);
+        if (logPath == null) {
+            this.remote = client.logRecords(id, params);
+        }
+        else {
+            this.remote = null;
+            open();
+        }
+    }
+
+    /**
+     * Whether the log is read from the local files rather than through the daemon.
+     */
+    public boolean isLocal() {
+        return remote == null;
+    }
+
+    /**
+     * Fills {@code record} with the next line. Without {@code follow} the log ends at the end of the current file,
+     * with it once the container stopped and the file was read to the end.
+     *
+     * @return false at the end of the log or once the reader was closed
+     */
+    public boolean next(LogRecord record) throws IOException, InterruptedException {
+        if (remote != null) {
+            return remote.next(record);
+        }
+        try {
+            return readLocal(record);
+        } catch (ClosedChannelException e) {
+            if (closed) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private boolean readLocal(LogRecord record) throws IOException, InterruptedException {
+        while (!closed) {
+            if (nextLine()) {
+                if (decode(record)) {
+                    return true;
+                }
+                continue;
+            }
+            if (!pending.isEmpty()) {
+                switchTo(pending.poll());
+                continue;
+            }
+            if (!params.isFollow()) {
+                return false;
+            }
+            if (stopped) {
+                return false;
+            }
+            Object current = currentKey();
+            if (current != null && !current.equals(fileKey)) {
+                logger.debug("Log file of {} was rotated", id);
+                pending.add(openCurrent());
+                continue;
+            }
+            if (!isRunning()) {
+                stopped = true;
+                continue;
+            }
+            Thread.sleep(pollIntervalMillis);
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (remote != null) {
+            remote.close();
+            return;
+        }
+        closeQuietly(channel);
+        for (FileChannel rotated : pending) {
+            closeQuietly(rotated);
+        }
+        pending.clear();
+        window = null;
+    }
+
+    private Path resolve(Path hostRoot) {
+        DockerContainerInspect inspect = client.inspectContainer(id, false);
+        if (inspect == null || inspect.getLogPath() == null || inspect.getLogPath().isEmpty()) {
+            return null;
+        }
+        if (inspect.getHostConfig() != null && inspect.getHostConfig().getLogConfig() != null) {
+            String driver = inspect.getHostConfig().getLogConfig().getType();
+            if (driver != null && !driver.isEmpty() && !JSON_FILE.equals(driver)) {
+                return null;
+            }
+        }
+        String logPath = inspect.getLogPath();
+        Path path = hostRoot.resolve(logPath.startsWith("/") ? logPath.substring(1) : logPath);
+        if (!Files.isReadable(path)) {
+            logger.debug("Log file {} of {} is not readable here, reading through the daemon", path, id);
+            return null;
+        }
+        return path;
+    }
+
+    /**
+     * Opens the rotated files and the current one in one go, so renames by a rotation while reading do not matter,
+     * and drops whatever lies before {@code tail}.
+     */
+    private void open() throws IOException {
+        List<FileChannel> files = new ArrayList<>();
+        try {
+            for (int i = 1; ; i++) {
+                Path rotated = logPath.resolveSibling(logPath.getFileName() + "." + i);
+                if (!Files.isRegularFile(rotated)) {
+                    if (Files.exists(rotated.resolveSibling(rotated.getFileName() + ".gz"))) {
+                        logger.debug("Skipping compressed log file {}", rotated);
+                        continue;
+                    }
+                    break;
+                }
+                files.add(0, FileChannel.open(rotated, StandardOpenOption.READ));
+            }
+            files.add(openCurrent());
+        } catch (IOException e) {
+            for (FileChannel file : files) {
+                closeQuietly(file);
+            }
+            throw e;
+        }
+
+        int first = 0;
+        long offset = 0;
+        if (params.getTail() > 0) {
+            long remaining = params.getTail() + 1L;
+            first = -1;
+            for (int i = files.size() - 1; i >= 0 && first < 0; i--) {
+                FileChannel file = files.get(i);
+                long[] found = tailOffset(file, file.size(), remaining);
+                remaining -= found[1];
+                if (found[0] >= 0) {
+                    first = i;
+                    offset = found[0];
+                }
+            }
+            if (first < 0) {
+                first = 0;
+            }
+        }
+        for (int i = 0; i < files.size(); i++) {
+            if (i < first) {
+                closeQuietly(files.get(i));
+            }
+            else if (i > first) {
+                pending.add(files.get(i));
+            }
+        }
+        switchTo(files.get(first));
+        position = offset;
+    }
+
+    /**
+     * Counts newlines backwards from the end of a file.
+     *
+     * @return the offset after the {@code newlines}th newline from the end, or -1 if the file has fewer, and how many
+     * newlines were counted
+     */
+    private static long[] tailOffset(FileChannel file, long size, long newlines) throws IOException {
+        long count = 0;
+        long end = size;
+        while (end > 0) {
+            long start = Math.max(0, end - MAX_WINDOW);
+            MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            for (int i = (int) (end - start) - 1; i >= 0; i--) {
+                if (mapped.get(i) == '\n' && ++count == newlines) {
+                    return new long[]{start + i + 1, count};
+                }
+            }
+            end = start;
+        }
+        return new long[]{-1, count};
+    }
+
+    private void switchTo(FileChannel next) {
+        closeQuietly(channel);
+        channel = next;
+        window = null;
+        windowStart = 0;
+        position = 0;
+    }
+
+    /**
+     * Opens {@code LogPath} and remembers which file it was, retrying if it was rotated in between.
+     */
+    private FileChannel openCurrent() throws IOException {
+        while (true) {
+            Object before = currentKey();
+            FileChannel file = FileChannel.open(logPath, StandardOpenOption.READ);
+            Object after = currentKey();
+            if (after != null && after.equals(before)) {
+                fileKey = after;
+                return file;
+            }
+            file.close();
+        }
+    }
+
+    /**
+     * Copies the next complete line of the current file into {@code line}. A line still being written is left for
+     * the next call.
+     */
+    private boolean nextLine() throws IOException {
+        long size = channel.size();
+        if (size < position) {
+            logger.debug("Log file of {} was truncated, reading it from the start", id);
+            position = 0;
+            window = null;
+        }
+        while (position < size) {
+            if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+                map(size);
+            }
+            int from = (int) (position - windowStart);
+            int limit = window.limit();
+            int newline = -1;
+            for (int i = from; i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    newline = i;
+                    break;
+                }
+            }
+            if (newline >= 0) {
+                lineLength = newline - from;
+                if (lineLength > line.length) {
+                    line = new byte[Math.max(lineLength, line.length * 2)];
+                }
+                for (int i = 0; i < lineLength; i++) {
+                    line[i] = window.get(from + i);
+                }
+                position = windowStart + newline + 1;
+                return true;
+            }
+            if (windowStart + limit >= size) {
+                return false;
+            }
+            if (from == 0 && limit == MAX_WINDOW) {
+                throw new IOException("Log line of " + id + " at " + position + " is longer than " + MAX_WINDOW + " bytes");
+            }
+            map(size);
+        }
+        return false;
+    }
+
+    private void map(long size) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, MAX_WINDOW));
+    }
+
+    /**
+     * Parses {@code {"log":"...","stream":"stdout","time":"..."}} from {@code line} and fills the record if it passes
+     * the stream and {@code since} filters.
+     */
+    private boolean decode(LogRecord record) throws IOException {
+        LOG_TYPE type = LOG_TYPE.STDOUT;
+        messageLength = 0;
+        timeLength = 0;
+        try (JsonParser parser = JSON.createParser(line, 0, lineLength)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value != JsonToken.VALUE_STRING) {
+                    parser.skipChildren();
+                }
+                else if ("log".equals(name)) {
+                    messageLength = parser.getTextLength();
+                    if (messageLength > message.length) {
+                        message = new char[Math.max(messageLength, message.length * 2)];
+                    }
+                    System.arraycopy(parser.getTextCharacters(), parser.getTextOffset(), message, 0, messageLength);
+                }
+                else if ("stream".equals(name)) {
+                    char[] text = parser.getTextCharacters();
+                    int offset = parser.getTextOffset();
+                    if (parser.getTextLength() == 6 && text[offset + 3] == 'e') {
+                        type = LOG_TYPE.STDERR;
+                    }
+                }
+                else if ("time".equals(name)) {
+                    timeLength = parser.getTextLength();
+                    if (timeLength > time.length) {
+                        time = new char[timeLength];
+                        timeText = CharBuffer.wrap(time);
+                    }
+                    System.arraycopy(parser.getTextCharacters(), parser.getTextOffset(), time, 0, timeLength);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Skipping malformed log line of {}", id, e);
+            return false;
+        }
+
+        if (type == LOG_TYPE.STDOUT ? !params.isStdout() : !params.isStderr()) {
+            return false;
+        }
+        if (params.getSince() > 0) {
+            long nanos;
+            try {
+                nanos = Rfc3339.parseEpochNanos(timeText, 0, timeLength);
+            } catch (IllegalArgumentException e) {
+                nanos = Long.MIN_VALUE;
+            }
+            if (nanos < params.getSince() * NANOS_PER_SECOND) {
+                return false;
+            }
+        }
+
+        if (messageLength > 0 && message[messageLength - 1] == '\n') {
+            messageLength--;
+        }
+        int length = 0;
+        if (params.isTimestamps()) {
+            length = encode(time, timeLength, length);
+            ensureOut(length + 1);
+            out[length++] = ' ';
+        }
+        length = encode(message, messageLength, length);
+        record.set(type, out, 0, length, params.isTimestamps());
+        return true;
+    }
+
+    /**
+     * Appends {@code chars[0, count)} to {@code out} as UTF-8.
+     */
+    private int encode(char[] chars, int count, int length) {
+        ensureOut(length + count * 3);
+        for (int i = 0; i < count; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                out[length++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                out[length++] = (byte) (0xc0 | (c >> 6));
+                out[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(chars[i + 1])) {
+                int codePoint = Character.toCodePoint(c, chars[++i]);
+                out[length++] = (byte) (0xf0 | (codePoint >> 18));
+                out[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                out[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                out[length++] = (byte) (0x80 | (codePoint & 0x3f));
+            }
+            else if (Character.isSurrogate(c)) {
+                out[length++] = '?';
+            }
+            else {
+                out[length++] = (byte) (0xe0 | (c >> 12));
+                out[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                out[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return length;
+    }
+
+    private void ensureOut(int capacity) {
+        if (capacity > out.length) {
+            byte[] grown = new byte[Math.max(capacity, out.length * 2)];
+            System.arraycopy(out, 0, grown, 0, out.length);
+            out = grown;
+        }
+    }
+
+    private Object currentKey() throws IOException {
+        try {
+            return Files.readAttributes(logPath, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private boolean isRunning() {
+        long now = System.nanoTime();
+        if (lastRunningCheck != 0 && now - lastRunningCheck < RUNNING_CHECK_NANOS) {
+            return true;
+        }
+        lastRunningCheck = now;
+        try {
+            DockerContainerInspect inspect = client.inspectContainer(id, false);
+            return inspect == null || inspect.getState() == null || inspect.getState().isRunning();
+        } catch (RuntimeException e) {
+            logger.debug("Could not inspect {}, assuming it is still running", id, e);
+            return true;
+        }
+    }
+
+    private void closeQuietly(FileChannel file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                logger.debug("Exception closing a log file of {}", id, e);
+            }
+        }
+    }
+}
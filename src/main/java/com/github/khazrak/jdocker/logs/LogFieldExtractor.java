@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Pulls a fixed set of fields out of log lines written as JSON objects, without building a tree. The message bytes of
+ * a {@link LogRecord} are run through a streaming parser: fields that are not asked for are skipped unparsed, and
+ * parsing stops as soon as every field has been seen. Nested fields are named with dots, {@code trace.id} is the
+ * {@code id} field of the {@code trace} object.
+ *
+ * Values land in a {@link LogFields} holder as primitives or, for strings, as instances shared between lines with the
+ * same value, so checking {@code level} on every line allocates next to nothing. The extractor itself is immutable
+ * and can be shared between threads; every thread needs its own holder.
+ */
+public class LogFieldExtractor {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final String[] fields;
+    private final Node root = new Node();
+
+    public LogFieldExtractor(String... fields) {
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("No fields to extract");
+        }
+        this.fields = fields.clone();
+        for (int i = 0; i < fields.length; i++) {
+            Node node = root;
+            for (String name : fields[i].split("\\.", -1)) {
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid field: " + fields[i]);
+                }
+                node = node.child(name);
+            }
+            if (node.index >= 0) {
+                throw new IllegalArgumentException("Duplicate field: " + fields[i]);
+            }
+            node.index = i;
+        }
+    }
+
+    public int size() {
+        return fields.length;
+    }
+
+    public String field(int index) {
+        return fields[index];
+    }
+
+    /**
+     * @return the index of {@code field} in the holders of this extractor, or -1
+     */
+    public int indexOf(String field) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public LogFields newFields() {
+        return new LogFields(this);
+    }
+
+    /**
+     * Extracts the fields from the message of {@code record} into {@code fields}, clearing what was there.
+     *
+     * @return false if the message is not a JSON object; fields seen before a syntax error are kept
+     */
+    public boolean extract(LogRecord record, LogFields fields) {
+        return extract(record.bytes(), record.messageOffset(), record.messageLength(), fields);
+    }
+
+    public boolean extract(byte[] bytes, int offset, int length, LogFields fields) {
+        fields.clear();
+        int start = offset;
+        int end = offset + length;
+        while (start < end && (bytes[start] == ' ' || bytes[start] == '\t')) {
+            start++;
+        }
+        if (start == end || bytes[start] != '{') {
+            return false;
+        }
+        try (JsonParser parser = JSON.createParser(bytes, start, end - start)) {
+            parser.nextToken();
+            walk(parser, root, fields);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A stage for {@link com.github.khazrak.jdocker.DockerClient#logs(String, com.github.khazrak.jdocker.model.api124.parameters.DockerLogsParameters, Consumer)}
+     * that extracts the fields of every line and hands both on. The returned consumer reuses one holder, so it must
+     * not be shared between threads.
+     */
+    public Consumer<LogRecord> consumer(BiConsumer<LogRecord, LogFields> consumer) {
+        LogFields holder = newFields();
+        return record -> {
+            extract(record, holder);
+            consumer.accept(record, holder);
+        };
+    }
+
+    /**
+     * Reads the fields of the object the parser is at, descending only into objects that hold wanted fields.
+     *
+     * @return false once every field was found and the rest of the line can be left alone
+     */
+    private boolean walk(JsonParser parser, Node node, LogFields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Node child = node.children != null ? node.children.get(parser.getCurrentName()) : null;
+            JsonToken value = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+            }
+            else if (value == JsonToken.START_OBJECT && child.children != null) {
+                if (!walk(parser, child, fields)) {
+                    return false;
+                }
+            }
+            else if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            }
+            else if (child.index >= 0 && fields.set(child.index, parser, value) == fields.size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Node {
+
+        private Map<String, Node> children;
+        private int index = -1;
+
+        Node child(String name) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(name, key -> new Node());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * The fields a {@link LogFieldExtractor} found in one line, by the index of the field in the extractor. Meant to be
+ * reused from line to line: numbers and booleans are kept as primitives, and short strings are looked up in a table
+ * of values seen before in that field, so a field with few distinct values such as {@code level} hands out the same
+ * String instance every time instead of a new one.
+ *
+ * Not thread safe.
+ */
+public final class LogFields {
+
+    public enum Kind {
+        MISSING, STRING, LONG, DOUBLE, BOOLEAN, NULL
+    }
+
+    private static final int TABLE_SIZE = 256;
+    private static final int MAX_PROBES = 4;
+    private static final int MAX_SHARED_LENGTH = 64;
+
+    private final LogFieldExtractor extractor;
+    private final Kind[] kinds;
+    private final String[] strings;
+    private final long[] longs;
+    private final double[] doubles;
+    private final String[][] tables;
+    private int found;
+
+    LogFields(LogFieldExtractor extractor) {
+        this.extractor = extractor;
+        int size = extractor.size();
+        this.kinds = new Kind[size];
+        this.strings = new String[size];
+        this.longs = new long[size];
+        this.doubles = new double[size];
+        this.tables = new String[size][];
+        clear();
+    }
+
+    public int size() {
+        return kinds.length;
+    }
+
+    /**
+     * How many of the fields were found in the last line.
+     */
+    public int found() {
+        return found;
+    }
+
+    public Kind kind(int index) {
+        return kinds[index];
+    }
+
+    public boolean has(int index) {
+        return kinds[index] != Kind.MISSING;
+    }
+
+    /**
+     * @return the value of a string field, or null for a missing field or one of another kind
+     */
+    public String getString(int index) {
+        return strings[index];
+    }
+
+    public String getString(String field) {
+        int index = extractor.indexOf(field);
+        return index < 0 ? null : strings[index];
+    }
+
+    /**
+     * @return the value of a number field, truncated if it has a fraction, or {@code defaultValue}
+     */
+    public long getLong(int index, long defaultValue) {
+        switch (kinds[index]) {
+            case LONG:
+                return longs[index];
+            case DOUBLE:
+                return (long) doubles[index];
+            default:
+                return defaultValue;
+        }
+    }
+
+    /**
+     * @return the value of a number field, or {@code defaultValue}
+     */
+    public double getDouble(int index, double defaultValue) {
+        switch (kinds[index]) {
+            case LONG:
+                return longs[index];
+            case DOUBLE:
+                return doubles[index];
+            default:
+                return defaultValue;
+        }
+    }
+
+    /**
+     * @return the value of a boolean field, or {@code defaultValue}
+     */
+    public boolean getBoolean(int index, boolean defaultValue) {
+        return kinds[index] == Kind.BOOLEAN ? longs[index] != 0 : defaultValue;
+    }
+
+    void clear() {
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = Kind.MISSING;
+            strings[i] = null;
+        }
+        found = 0;
+    }
+
+    /**
+     * Stores the scalar the parser is at, unless the field was already seen in this line.
+     *
+     * @return how many fields were found so far
+     */
+    int set(int index, JsonParser parser, JsonToken token) throws IOException {
+        if (kinds[index] != Kind.MISSING) {
+            return found;
+        }
+        switch (token) {
+            case VALUE_STRING:
+                kinds[index] = Kind.STRING;
+                strings[index] = share(index, parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                break;
+            case VALUE_NUMBER_INT:
+                JsonParser.NumberType type = parser.getNumberType();
+                if (type == JsonParser.NumberType.INT || type == JsonParser.NumberType.LONG) {
+                    kinds[index] = Kind.LONG;
+                    longs[index] = parser.getLongValue();
+                }
+                else {
+                    kinds[index] = Kind.DOUBLE;
+                    doubles[index] = parser.getDoubleValue();
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                kinds[index] = Kind.DOUBLE;
+                doubles[index] = parser.getDoubleValue();
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                kinds[index] = Kind.BOOLEAN;
+                longs[index] = token == JsonToken.VALUE_TRUE ? 1 : 0;
+                break;
+            default:
+                kinds[index] = Kind.NULL;
+                break;
+        }
+        return ++found;
+    }
+
+    /**
+     * Returns the String for {@code chars[offset, offset + length)} from the table of values seen before in the same
+     * field, adding it if missing. Every field has a table of its own, so a field with many distinct values (a trace id)
+     * does not crowd out one with few (a level); when the probed slots are taken the value replaces the one in its
+     * home slot. Long values are returned as new Strings.
+     */
+    private String share(int index, char[] chars, int offset, int length) {
+        if (length > MAX_SHARED_LENGTH) {
+            return new String(chars, offset, length);
+        }
+        String[] table = tables[index];
+        if (table == null) {
+            table = new String[TABLE_SIZE];
+            tables[index] = table;
+        }
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[offset + i];
+        }
+        int home = (hash ^ (hash >>> 16)) & (TABLE_SIZE - 1);
+        int empty = -1;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (home + probe) & (TABLE_SIZE - 1);
+            String candidate = table[slot];
+            if (candidate == null) {
+                empty = slot;
+                break;
+            }
+            if (candidate.length() == length && matches(candidate, chars, offset)) {
+                return candidate;
+            }
+        }
+        String value = new String(chars, offset, length);
+        table[empty >= 0 ? empty : home] = value;
+        return value;
+    }
+
+    private static boolean matches(String candidate, char[] chars, int offset) {
+        for (int i = 0; i < candidate.length(); i++) {
+            if (candidate.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decides which lines a {@link MergedLogReader} keeps. Filters run on the reading threads against the record view,
+ * before the line is copied, so the factories here do their preparation (e.g. encoding the text) up front.
+ */
+@FunctionalInterface
+public interface LogFilter {
+
+    boolean test(String container, LogRecord record);
+
+    default LogFilter and(LogFilter other) {
+        return (container, record) -> test(container, record) && other.test(container, record);
+    }
+
+    static LogFilter all() {
+        return (container, record) -> true;
+    }
+
+    /**
+     * Lines whose message contains {@code text}, compared byte for byte as UTF-8.
+     */
+    static LogFilter containing(String text) {
+        byte[] needle = text.getBytes(StandardCharsets.UTF_8);
+        return (container, record) -> record.messageContains(needle);
+    }
+
+    /**
+     * Lines written as JSON objects whose string field {@code field} equals {@code value}; see
+     * {@link LogFieldExtractor} for nested names. Each reading thread gets its own {@link LogFields}.
+     */
+    static LogFilter field(String field, String value) {
+        LogFieldExtractor extractor = new LogFieldExtractor(field);
+        ThreadLocal<LogFields> fields = ThreadLocal.withInitial(extractor::newFields);
+        return (container, record) -> {
+            LogFields current = fields.get();
+            return extractor.extract(record, current) && value.equals(current.getString(0));
+        };
+    }
+
+    static LogFilter stream(LOG_TYPE type) {
+        return (container, record) -> record.getType() == type;
+    }
+
+    /**
+     * Lines with a timestamp in {@code [fromNanos, toNanos]}.
+     */
+    static LogFilter between(long fromNanos, long toNanos) {
+        return (container, record) -> {
+            long timestamp = record.getTimestampNanos();
+            return timestamp >= fromNanos && timestamp <= toNanos;
+        };
+    }
+}
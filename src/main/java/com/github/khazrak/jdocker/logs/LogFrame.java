@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One frame of a container's log stream, the payload is owned by the frame.
+ */
+@Getter
+public final class LogFrame {
+
+    private final LOG_TYPE type;
+    private final byte[] payload;
+
+    public LogFrame(LOG_TYPE type, byte[] payload) {
+        this.type = type;
+        this.payload = payload;
+    }
+
+    public int size() {
+        return payload.length;
+    }
+
+    public String asString() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return type + ": " + asString();
+    }
+}
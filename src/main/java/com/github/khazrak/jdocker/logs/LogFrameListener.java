@@ -0,0 +1,29 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+/**
+ * Receives the frames of a {@link LogSubscription}. Callbacks are made one at a time, in order, on the
+ * subscription's executor, never on the thread reading from the daemon.
+ */
+public interface LogFrameListener {
+
+    void onFrame(LogFrame frame);
+
+    default void onComplete() {
+    }
+
+    default void onError(Throwable throwable) {
+    }
+}
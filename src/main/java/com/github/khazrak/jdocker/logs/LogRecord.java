@@ -0,0 +1,241 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
+import com.github.khazrak.jdocker.utils.Rfc3339;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One log line as a view over the bytes it was read from. With {@code timestamps=true} the daemon starts every line
+ * with an RFC 3339 timestamp and a space; the timestamp is only parsed, and the message only decoded, when asked for.
+ *
+ * A record filled by {@link LogRecordReader#next(LogRecord)} is only valid until the next call, {@link #copy()} it to
+ * keep it. Ordered by timestamp, lines without one sort first.
+ */
+public final class LogRecord implements Comparable<LogRecord> {
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final int MIN_TIMESTAMP_LENGTH = 20;
+
+    private final AsciiView timestampText = new AsciiView();
+
+    private LOG_TYPE type = LOG_TYPE.NONE;
+    private byte[] bytes = EMPTY;
+    private int offset;
+    private int length;
+    private int messageOffset;
+    private boolean timestamped;
+    private boolean timestampParsed;
+    private long timestampNanos;
+    private String message;
+
+    /**
+     * Points the record at {@code bytes[offset, offset + length)}, one line without its newline. With
+     * {@code timestamps} a leading timestamp is split off the message.
+     */
+    public void set(LOG_TYPE type, byte[] bytes, int offset, int length, boolean timestamps) {
+        this.type = type;
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.message = null;
+        this.timestampParsed = false;
+        this.timestampNanos = Long.MIN_VALUE;
+        this.timestamped = false;
+        this.messageOffset = offset;
+        if (timestamps) {
+            int space = indexOf(bytes, offset, offset + length, (byte) ' ');
+            if (space - offset >= MIN_TIMESTAMP_LENGTH && bytes[offset + 4] == '-' && bytes[offset + 10] == 'T') {
+                this.timestamped = true;
+                this.messageOffset = space + 1;
+            }
+        }
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    int length() {
+        return length;
+    }
+
+    int messageOffset() {
+        return messageOffset;
+    }
+
+    public LOG_TYPE getType() {
+        return type;
+    }
+
+    public boolean hasTimestamp() {
+        return timestamped;
+    }
+
+    /**
+     * The timestamp in nanoseconds since the epoch, {@link Long#MIN_VALUE} if the line has none or it can not be
+     * parsed.
+     */
+    public long getTimestampNanos() {
+        if (!timestampParsed) {
+            timestampParsed = true;
+            if (timestamped) {
+                timestampText.wrap(bytes, offset, messageOffset - 1);
+                try {
+                    timestampNanos = Rfc3339.parseEpochNanos(timestampText, 0, timestampText.length());
+                } catch (IllegalArgumentException e) {
+                    timestampNanos = Long.MIN_VALUE;
+                }
+            }
+        }
+        return timestampNanos;
+    }
+
+    /**
+     * Length of the whole line, timestamp included.
+     */
+    public int lineLength() {
+        return length;
+    }
+
+    /**
+     * Copies the whole line, timestamp included, to {@code dest} at {@code destOffset}.
+     */
+    public void copyLine(byte[] dest, int destOffset) {
+        System.arraycopy(bytes, offset, dest, destOffset, length);
+    }
+
+    public int messageLength() {
+        return offset + length - messageOffset;
+    }
+
+    public byte messageByte(int index) {
+        if (index < 0 || index >= messageLength()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + messageLength());
+        }
+        return bytes[messageOffset + index];
+    }
+
+    /**
+     * Whether the raw message contains {@code needle}, for filtering without decoding.
+     */
+    public boolean messageContains(byte[] needle) {
+        int end = offset + length - needle.length;
+        outer:
+        for (int i = messageOffset; i <= end; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (bytes[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public void writeMessage(OutputStream out) throws IOException {
+        out.write(bytes, messageOffset, messageLength());
+    }
+
+    /**
+     * The message decoded as UTF-8, without the timestamp. Decoded once per line.
+     */
+    public String message() {
+        if (message == null) {
+            message = new String(bytes, messageOffset, messageLength(), StandardCharsets.UTF_8);
+        }
+        return message;
+    }
+
+    /**
+     * A record owning a copy of the line's bytes, keeping a timestamp that was already parsed.
+     */
+    public LogRecord copy() {
+        byte[] owned = new byte[length];
+        System.arraycopy(bytes, offset, owned, 0, length);
+        LogRecord copy = new LogRecord();
+        copy.type = type;
+        copy.bytes = owned;
+        copy.length = length;
+        copy.messageOffset = messageOffset - offset;
+        copy.timestamped = timestamped;
+        copy.timestampParsed = timestampParsed;
+        copy.timestampNanos = timestampNanos;
+        copy.message = message;
+        return copy;
+    }
+
+    @Override
+    public int compareTo(LogRecord other) {
+        return Long.compare(getTimestampNanos(), other.getTimestampNanos());
+    }
+
+    @Override
+    public String toString() {
+        return type + ": " + new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * ASCII bytes seen as a CharSequence, so the timestamp can be parsed in place.
+     */
+    private static final class AsciiView implements CharSequence {
+
+        private byte[] bytes;
+        private int start;
+        private int end;
+
+        void wrap(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[start + index] & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(bytes, start + from, to - from, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
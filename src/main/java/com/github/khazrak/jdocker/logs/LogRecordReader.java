@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.github.khazrak.jdocker.handlers.DockerFrameDecoder;
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a log stream into {@link LogRecord}s without copying or decoding. A line that lies within one frame is
+ * handed out as a view over the frame buffer, only lines spanning frames are gathered into a line buffer.
+ * Like {@code DockerLogsLineReader}, a line is ended early when the stream switches between stdout and stderr.
+ *
+ * Not thread safe.
+ */
+public class LogRecordReader implements AutoCloseable {
+
+    private final DockerFrameDecoder decoder;
+    private final boolean timestamps;
+    private final int maxLineBytes;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private LOG_TYPE lineType = LOG_TYPE.NONE;
+    private ByteBuffer frame;
+
+    /**
+     * @param timestamps whether the logs were requested with {@code timestamps=true}
+     */
+    public LogRecordReader(InputStream inputStream, boolean timestamps) {
+        this(inputStream, timestamps, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxLineBytes lines spanning frames are split after this many bytes, so the line buffer stays bounded
+     */
+    public LogRecordReader(InputStream inputStream, boolean timestamps, int maxLineBytes) {
+        if (maxLineBytes < 1) {
+            throw new IllegalArgumentException("maxLineBytes < 1: " + maxLineBytes);
+        }
+        this.decoder = new DockerFrameDecoder(inputStream);
+        this.timestamps = timestamps;
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    /**
+     * Fills {@code record} with the next line.
+     *
+     * @return false at the end of the stream
+     */
+    public boolean next(LogRecord record) throws IOException {
+        while (true) {
+            if (frame == null || !frame.hasRemaining()) {
+                if (!decoder.nextFrame()) {
+                    frame = null;
+                    return lineLength > 0 && emit(record);
+                }
+                frame = decoder.frame();
+                if (lineLength > 0 && decoder.frameType() != lineType) {
+                    emit(record);
+                    lineType = decoder.frameType();
+                    return true;
+                }
+                lineType = decoder.frameType();
+            }
+
+            byte[] array = frame.array();
+            int start = frame.arrayOffset() + frame.position();
+            int end = frame.arrayOffset() + frame.limit();
+            int newline = indexOf(array, start, end, (byte) '\n');
+            if (newline >= 0 && lineLength == 0 && newline - start <= maxLineBytes) {
+                frame.position(frame.position() + newline - start + 1);
+                record.set(lineType, array, start, newline - start, timestamps);
+                return true;
+            }
+            int take = Math.min((newline >= 0 ? newline : end) - start, maxLineBytes - lineLength);
+            append(array, start, take);
+            frame.position(frame.position() + take);
+            if (start + take == newline) {
+                frame.position(frame.position() + 1);
+                return emit(record);
+            }
+            if (lineLength >= maxLineBytes) {
+                return emit(record);
+            }
+        }
+    }
+
+    private boolean emit(LogRecord record) {
+        record.set(lineType, line, 0, lineLength, timestamps);
+        lineLength = 0;
+        return true;
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        if (lineLength + length > line.length) {
+            byte[] grown = new byte[Math.max(lineLength + length, line.length * 2)];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        System.arraycopy(bytes, offset, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        decoder.close();
+    }
+}
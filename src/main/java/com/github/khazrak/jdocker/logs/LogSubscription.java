@@ -0,0 +1,336 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
+import com.github.khazrak.jdocker.http.StreamListener;
+import com.github.khazrak.jdocker.http.StreamSubscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Follows a log stream, decoding it into {@link LogFrame}s and handing them to a {@link LogFrameListener} on an
+ * executor. Frames are buffered in between up to {@link LogSubscriptionParameters#getCapacity()} frames and
+ * {@link LogSubscriptionParameters#getMaxBufferedBytes()} bytes, past that the {@link OverflowPolicy} decides, so a
+ * slow listener neither holds up the thread reading from the daemon nor lets the buffer grow without bound.
+ */
+public class LogSubscription implements StreamSubscription {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogSubscription.class);
+
+    private static final int HEADER_SIZE = 8;
+
+    private final LogFrameListener listener;
+    private final Executor executor;
+    private final int capacity;
+    private final long maxBufferedBytes;
+    private final OverflowPolicy policy;
+    private final int sampleRate;
+    private final StreamSubscription upstream;
+
+    private final ArrayDeque<LogFrame> buffer = new ArrayDeque<>();
+    private long bufferedBytes;
+    private int maxBufferedFrames;
+    private long framesReceived;
+    private long bytesReceived;
+    private long framesDelivered;
+    private long framesDropped;
+    private long pauses;
+    private long overflowed;
+
+    private boolean paused;
+    private boolean userPaused;
+    private boolean draining;
+    private boolean ended;
+    private boolean completed;
+    private boolean cancelled;
+    private Throwable failure;
+
+    /**
+     * @param connector opens the log stream, feeding the body to the given listener
+     */
+    public LogSubscription(Function<StreamListener, StreamSubscription> connector, LogSubscriptionParameters params,
+                           LogFrameListener listener, Executor executor) {
+        if (params.getCapacity() < 1 || params.getMaxBufferedBytes() < 1 || params.getSampleRate() < 1 || params.getOverflowPolicy() == null) {
+            throw new IllegalArgumentException("Invalid log subscription parameters");
+        }
+        this.listener = listener;
+        this.executor = executor;
+        this.capacity = params.getCapacity();
+        this.maxBufferedBytes = params.getMaxBufferedBytes();
+        this.policy = params.getOverflowPolicy();
+        this.sampleRate = params.getSampleRate();
+
+        StreamSubscription subscription = connector.apply(new Receiver());
+        synchronized (buffer) {
+            upstream = subscription;
+            if (paused || userPaused) {
+                upstream.pause();
+            }
+        }
+    }
+
+    public LogSubscriptionMetrics getMetrics() {
+        synchronized (buffer) {
+            return new LogSubscriptionMetrics(framesReceived, bytesReceived, framesDelivered, framesDropped,
+                    buffer.size(), bufferedBytes, maxBufferedFrames, pauses);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        synchronized (buffer) {
+            cancelled = true;
+            buffer.clear();
+            bufferedBytes = 0;
+        }
+        upstream.cancel();
+    }
+
+    /**
+     * True until the listener has been told the stream ended, or the subscription was cancelled.
+     */
+    @Override
+    public boolean isOpen() {
+        synchronized (buffer) {
+            return !cancelled && !completed;
+        }
+    }
+
+    @Override
+    public void pause() {
+        synchronized (buffer) {
+            userPaused = true;
+        }
+        upstream.pause();
+    }
+
+    @Override
+    public void resume() {
+        boolean resume;
+        synchronized (buffer) {
+            userPaused = false;
+            resume = !paused;
+        }
+        if (resume) {
+            upstream.resume();
+        }
+    }
+
+    private boolean full() {
+        return buffer.size() >= capacity || bufferedBytes >= maxBufferedBytes;
+    }
+
+    private void offer(LogFrame frame) {
+        boolean schedule = false;
+        synchronized (buffer) {
+            if (cancelled) {
+                return;
+            }
+            framesReceived++;
+            bytesReceived += frame.size();
+
+            if (!full()) {
+                overflowed = 0;
+            }
+            else if (policy == OverflowPolicy.BLOCK) {
+                if (!paused) {
+                    paused = true;
+                    pauses++;
+                    if (upstream != null) {
+                        upstream.pause();
+                    }
+                }
+            }
+            else if (policy == OverflowPolicy.SAMPLE && overflowed++ % sampleRate != 0) {
+                framesDropped++;
+                return;
+            }
+            else {
+                while (full() && !buffer.isEmpty()) {
+                    bufferedBytes -= buffer.pollFirst().size();
+                    framesDropped++;
+                }
+            }
+
+            buffer.addLast(frame);
+            bufferedBytes += frame.size();
+            maxBufferedFrames = Math.max(maxBufferedFrames, buffer.size());
+            if (!draining) {
+                draining = true;
+                schedule = true;
+            }
+        }
+        if (schedule) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void end(Throwable throwable) {
+        boolean schedule = false;
+        synchronized (buffer) {
+            ended = true;
+            failure = throwable;
+            if (!draining) {
+                draining = true;
+                schedule = true;
+            }
+        }
+        if (schedule) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        boolean delivered = false;
+        while (true) {
+            LogFrame frame;
+            boolean resume = false;
+            synchronized (buffer) {
+                if (delivered) {
+                    framesDelivered++;
+                }
+                frame = buffer.pollFirst();
+                if (frame == null) {
+                    if (!ended || cancelled || completed) {
+                        draining = false;
+                        return;
+                    }
+                    completed = true;
+                }
+                else {
+                    bufferedBytes -= frame.size();
+                    if (paused && buffer.size() <= capacity / 2 && bufferedBytes <= maxBufferedBytes / 2) {
+                        paused = false;
+                        resume = !userPaused && upstream != null;
+                    }
+                }
+            }
+
+            if (frame == null) {
+                finish();
+                return;
+            }
+            if (resume) {
+                upstream.resume();
+            }
+            try {
+                listener.onFrame(frame);
+            } catch (RuntimeException e) {
+                logger.error("Exception in log frame listener", e);
+            }
+            delivered = true;
+        }
+    }
+
+    private void finish() {
+        try {
+            if (failure != null) {
+                listener.onError(failure);
+            }
+            else {
+                listener.onComplete();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Exception in log frame listener", e);
+        }
+    }
+
+    /**
+     * Splits the body into frames, it arrives in pieces that do not line up with the frame boundaries.
+     * Only called from the thread reading the stream.
+     */
+    private final class Receiver implements StreamListener {
+
+        private final byte[] header = new byte[HEADER_SIZE];
+        private int headerCount;
+        private boolean started;
+        private boolean raw;
+        private LOG_TYPE type;
+        private byte[] payload;
+        private int payloadCount;
+
+        @Override
+        public void onData(ByteBuffer data) {
+            while (data.hasRemaining()) {
+                if (raw) {
+                    byte[] bytes = new byte[data.remaining()];
+                    data.get(bytes);
+                    offer(new LogFrame(LOG_TYPE.NONE, bytes));
+                    return;
+                }
+                if (payload == null) {
+                    int count = Math.min(HEADER_SIZE - headerCount, data.remaining());
+                    data.get(header, headerCount, count);
+                    headerCount += count;
+                    if (headerCount < HEADER_SIZE) {
+                        return;
+                    }
+                    headerCount = 0;
+                    if (!isHeader()) {
+                        if (started) {
+                            throw new DockerClientException("Invalid log frame header for stream " + header[0]);
+                        }
+                        raw = true;
+                        offer(new LogFrame(LOG_TYPE.NONE, header.clone()));
+                        continue;
+                    }
+                    started = true;
+                    long size = ((header[4] & 0xffL) << 24) | ((header[5] & 0xff) << 16) | ((header[6] & 0xff) << 8) | (header[7] & 0xff);
+                    if (size > Integer.MAX_VALUE - 8) {
+                        throw new DockerClientException("Log frame of " + size + " bytes is too large");
+                    }
+                    type = LOG_TYPE.valueOf(header[0]);
+                    payload = new byte[(int) size];
+                    payloadCount = 0;
+                }
+                int count = Math.min(payload.length - payloadCount, data.remaining());
+                data.get(payload, payloadCount, count);
+                payloadCount += count;
+                if (payloadCount == payload.length) {
+                    byte[] complete = payload;
+                    payload = null;
+                    if (complete.length > 0) {
+                        offer(new LogFrame(type, complete));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!started && !raw && headerCount > 0) {
+                byte[] bytes = new byte[headerCount];
+                System.arraycopy(header, 0, bytes, 0, headerCount);
+                offer(new LogFrame(LOG_TYPE.NONE, bytes));
+            }
+            end(null);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            end(throwable);
+        }
+
+        private boolean isHeader() {
+            return header[0] >= 0 && header[0] <= 2 && header[1] == 0 && header[2] == 0 && header[3] == 0;
+        }
+    }
+}
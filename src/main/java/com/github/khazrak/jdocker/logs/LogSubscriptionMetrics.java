@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of a {@link LogSubscription}'s counters.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class LogSubscriptionMetrics {
+
+    private final long framesReceived;
+    private final long bytesReceived;
+    private final long framesDelivered;
+    private final long framesDropped;
+    private final int bufferedFrames;
+    private final long bufferedBytes;
+
+    /**
+     * Highest number of frames that were buffered at the same time
+     */
+    private final int maxBufferedFrames;
+
+    /**
+     * Number of times reading from the daemon was paused by {@link OverflowPolicy#BLOCK}
+     */
+    private final long pauses;
+}
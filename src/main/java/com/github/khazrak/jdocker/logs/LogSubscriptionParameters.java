@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+public class LogSubscriptionParameters {
+
+    /**
+     * Maximum number of frames buffered between the daemon and the listener
+     */
+    private int capacity;
+
+    /**
+     * Maximum number of payload bytes buffered between the daemon and the listener
+     */
+    private long maxBufferedBytes;
+
+    private OverflowPolicy overflowPolicy;
+
+    /**
+     * With {@link OverflowPolicy#SAMPLE}, one in this many frames is kept while the buffer is full
+     */
+    private int sampleRate;
+
+    public static LogSubscriptionParameters defaults() {
+        return builder().build();
+    }
+
+    public static class LogSubscriptionParametersBuilder {
+        private int capacity = 1024;
+        private long maxBufferedBytes = 8 * 1024 * 1024;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private int sampleRate = 10;
+    }
+}
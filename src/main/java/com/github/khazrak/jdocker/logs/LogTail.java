@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the last lines of a log in buffers allocated once: at most {@code maxLines} lines and {@code maxBytes} bytes
+ * of line data, the oldest lines being dropped to make room. Lines longer than {@code maxBytes} are cut to that
+ * length. Each line is stored in one piece, so it can be handed out as a {@link LogRecord} view; a line that does
+ * not fit before the end of the buffer starts over at the front.
+ *
+ * Not thread safe.
+ */
+public class LogTail {
+
+    private final int maxLines;
+    private final byte[] data;
+    private final int[] starts;
+    private final int[] lengths;
+    private final LOG_TYPE[] types;
+    private final boolean[] timestamped;
+
+    private int head;
+    private int count;
+    private int writePos;
+    private boolean wrapped;
+    private long retainedBytes;
+
+    private long linesSeen;
+    private long linesDropped;
+    private long linesTruncated;
+
+    public LogTail(int maxLines, int maxBytes) {
+        if (maxLines < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("maxLines and maxBytes must be positive: " + maxLines + ", " + maxBytes);
+        }
+        this.maxLines = maxLines;
+        this.data = new byte[maxBytes];
+        this.starts = new int[maxLines];
+        this.lengths = new int[maxLines];
+        this.types = new LOG_TYPE[maxLines];
+        this.timestamped = new boolean[maxLines];
+    }
+
+    /**
+     * Copies the line of {@code record} into the tail.
+     */
+    public void add(LogRecord record) {
+        linesSeen++;
+        int length = record.length();
+        if (length > data.length) {
+            length = data.length;
+            linesTruncated++;
+        }
+        int position = allocate(length);
+        System.arraycopy(record.bytes(), record.offset(), data, position, length);
+        int index = (head + count) % maxLines;
+        starts[index] = position;
+        lengths[index] = length;
+        types[index] = record.getType();
+        timestamped[index] = record.hasTimestamp();
+        count++;
+        writePos = position + length;
+        retainedBytes += length;
+    }
+
+    /**
+     * Hands the retained lines to {@code consumer}, oldest first, through one reused record.
+     */
+    public void forEach(Consumer<LogRecord> consumer) {
+        LogRecord record = new LogRecord();
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % maxLines;
+            record.set(types[index], data, starts[index], lengths[index], timestamped[index]);
+            consumer.accept(record);
+        }
+    }
+
+    /**
+     * The retained lines decoded as UTF-8, oldest first, like {@code logs()} returns them.
+     */
+    public List<String> lines() {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % maxLines;
+            lines.add(new String(data, starts[index], lengths[index], StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the retained lines, each followed by a newline.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % maxLines;
+            out.write(data, starts[index], lengths[index]);
+            out.write('\n');
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public long getLinesSeen() {
+        return linesSeen;
+    }
+
+    public long getLinesDropped() {
+        return linesDropped;
+    }
+
+    public long getLinesTruncated() {
+        return linesTruncated;
+    }
+
+    public void clear() {
+        head = 0;
+        count = 0;
+        writePos = 0;
+        wrapped = false;
+        retainedBytes = 0;
+    }
+
+    /**
+     * Finds room for {@code length} bytes in one piece, dropping the oldest lines until there is. Until the buffer
+     * wraps the lines run from the oldest one to {@code writePos}; after that the newest lines sit in front of the
+     * oldest one and only the space between them is free.
+     */
+    private int allocate(int length) {
+        while (true) {
+            if (count == 0) {
+                writePos = 0;
+                wrapped = false;
+                return 0;
+            }
+            if (count < maxLines) {
+                int oldest = starts[head];
+                if (!wrapped) {
+                    if (data.length - writePos >= length) {
+                        return writePos;
+                    }
+                    if (oldest >= length) {
+                        wrapped = true;
+                        return 0;
+                    }
+                }
+                else if (oldest - writePos >= length) {
+                    return writePos;
+                }
+            }
+            evict();
+        }
+    }
+
+    private void evict() {
+        int start = starts[head];
+        retainedBytes -= lengths[head];
+        types[head] = null;
+        head = (head + 1) % maxLines;
+        count--;
+        linesDropped++;
+        if (count > 0 && wrapped && starts[head] < start) {
+            wrapped = false;
+        }
+    }
+}
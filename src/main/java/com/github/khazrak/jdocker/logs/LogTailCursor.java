@@ -0,0 +1,234 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.model.api124.DockerContainerInspect;
+import com.github.khazrak.jdocker.model.api124.parameters.DockerLogsParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a container's log and picks up where it left off when the stream drops. The log is always read with
+ * {@code follow} and {@code timestamps}; the cursor remembers the last timestamp handed out and how many lines carried
+ * it, reconnects with {@code since} set to that second and drops the lines it already handed out.
+ *
+ * A stream that ends while the container is still running is treated as dropped, one that ends after the container
+ * stopped ends the cursor. Failed reconnects are retried after a delay, up to a limit of attempts in a row.
+ *
+ * Not thread safe, apart from {@link #close()} which may be called from another thread to stop a blocked
+ * {@link #next(LogRecord)}.
+ */
+public class LogTailCursor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogTailCursor.class);
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final DockerClient client;
+    private final String id;
+    private final DockerLogsParameters params;
+    private final long retryDelayMillis;
+    private final int maxAttempts;
+
+    private volatile LogRecordReader reader;
+    private volatile boolean closed;
+    private boolean connected;
+    private int attempts;
+
+    private long lastTimestamp;
+    private int linesAtLast;
+    private boolean replaying;
+    private int replayed;
+
+    public LogTailCursor(DockerClient client, String id, DockerLogsParameters params) {
+        this(client, id, params, LogTailPosition.START, 1, TimeUnit.SECONDS, 30);
+    }
+
+    /**
+     * @param position    where to resume, {@link LogTailPosition#START} to begin with {@code params} as given
+     * @param maxAttempts reconnects in a row without a new line before giving up
+     */
+    public LogTailCursor(DockerClient client, String id, DockerLogsParameters params, LogTailPosition position,
+                         long retryDelay, TimeUnit unit, int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts < 1: " + maxAttempts);
+        }
+        this.client = client;
+        this.id = id;
+        this.params = params;
+        this.retryDelayMillis = unit.toMillis(retryDelay);
+        this.maxAttempts = maxAttempts;
+        this.lastTimestamp = position.getTimestampNanos();
+        this.linesAtLast = position.getLinesAtTimestamp();
+    }
+
+    /**
+     * Fills {@code record} with the next new line, blocking until there is one.
+     *
+     * @return false once the container stopped and its log was read to the end, or the cursor was closed
+     * @throws DockerClientException when reconnecting failed {@code maxAttempts} times in a row
+     */
+    public boolean next(LogRecord record) throws InterruptedException {
+        while (!closed) {
+            if (reader == null && !connect()) {
+                continue;
+            }
+            LogRecordReader current = reader;
+            if (current == null) {
+                return false;
+            }
+            try {
+                while (current.next(record)) {
+                    if (seen(record)) {
+                        continue;
+                    }
+                    advance(record);
+                    attempts = 0;
+                    return true;
+                }
+                disconnect();
+                if (!closed && !isRunning()) {
+                    return false;
+                }
+                logger.debug("Log stream of {} ended while the container is running, reconnecting", id);
+            } catch (IOException e) {
+                disconnect();
+                if (!closed) {
+                    logger.debug("Log stream of {} dropped, reconnecting", id, e);
+                    failed(e);
+                }
+            }
+        }
+        return false;
+    }
+
+    public LogTailPosition getPosition() {
+        return new LogTailPosition(lastTimestamp, linesAtLast);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        disconnect();
+    }
+
+    private boolean connect() throws InterruptedException {
+        if (connected) {
+            pause();
+        }
+        boolean resuming = lastTimestamp != Long.MIN_VALUE;
+        DockerLogsParameters query = DockerLogsParameters.builder()
+                .stdout(params.isStdout())
+                .stderr(params.isStderr())
+                .details(params.isDetails())
+                .follow(true)
+                .timestamps(true)
+                .since(resuming ? Math.floorDiv(lastTimestamp, NANOS_PER_SECOND) : params.getSince())
+                .tail(resuming ? 0 : params.getTail())
+                .build();
+        try {
+            InputStream stream = client.logsRawStream(id, query);
+            if (stream == null) {
+                throw new DockerClientException("No log stream for container " + id);
+            }
+            reader = new LogRecordReader(stream, true);
+        } catch (RuntimeException e) {
+            failed(e);
+            return false;
+        } finally {
+            connected = true;
+        }
+        replaying = resuming;
+        replayed = 0;
+        if (closed) {
+            disconnect();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether the line was handed out before the last reconnect. Lines older than the last timestamp are, and so are
+     * the first {@code linesAtLast} lines carrying it; the first line past those ends the replay.
+     */
+    private boolean seen(LogRecord record) {
+        if (!replaying) {
+            return false;
+        }
+        long timestamp = record.getTimestampNanos();
+        if (timestamp == Long.MIN_VALUE) {
+            return false;
+        }
+        if (timestamp < lastTimestamp) {
+            return true;
+        }
+        if (timestamp == lastTimestamp && replayed < linesAtLast) {
+            replayed++;
+            return true;
+        }
+        replaying = false;
+        return false;
+    }
+
+    private void advance(LogRecord record) {
+        long timestamp = record.getTimestampNanos();
+        if (timestamp == lastTimestamp) {
+            linesAtLast++;
+        }
+        else if (timestamp > lastTimestamp) {
+            lastTimestamp = timestamp;
+            linesAtLast = 1;
+        }
+    }
+
+    private boolean isRunning() {
+        try {
+            DockerContainerInspect inspect = client.inspectContainer(id, false);
+            return inspect == null || inspect.getState() == null || inspect.getState().isRunning();
+        } catch (RuntimeException e) {
+            logger.debug("Could not inspect {}, assuming it is still running", id, e);
+            return true;
+        }
+    }
+
+    private void failed(Exception cause) {
+        if (++attempts >= maxAttempts) {
+            throw new DockerClientException("Gave up tailing the log of " + id + " after " + attempts + " attempts", cause);
+        }
+    }
+
+    private void pause() throws InterruptedException {
+        if (retryDelayMillis > 0) {
+            Thread.sleep(retryDelayMillis);
+        }
+    }
+
+    private void disconnect() {
+        LogRecordReader current = reader;
+        reader = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                logger.debug("Exception closing the log stream of {}", id, e);
+            }
+        }
+    }
+}
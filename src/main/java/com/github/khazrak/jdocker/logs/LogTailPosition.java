@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Where a {@link LogTailCursor} is in a container's log: the timestamp of the last line handed out and how many lines
+ * with exactly that timestamp were handed out. Small enough to persist after every batch a shipper commits.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class LogTailPosition {
+
+    public static final LogTailPosition START = new LogTailPosition(Long.MIN_VALUE, 0);
+
+    private final long timestampNanos;
+    private final int linesAtTimestamp;
+}
@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A line of a {@link MergedLogReader} with the container it came from. The record owns its bytes.
+ */
+@Getter
+@AllArgsConstructor
+public class MergedLogLine {
+
+    private final String container;
+    private final LogRecord record;
+
+    @Override
+    public String toString() {
+        return container + " " + record;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.model.api124.parameters.DockerLogsParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the logs of several containers at once, with timestamps, and hands the lines out in timestamp order. Every
+ * container is read on a thread of its own into a queue of at most {@code readAhead} lines; the oldest head of the
+ * queues is taken through a heap. Memory stays bounded by the number of containers times the read ahead, however long
+ * the logs are.
+ *
+ * A line is only handed out once every container still being read has a line queued, so the order holds. When
+ * following, a container that logs nothing for {@code maxWait} is passed over until it logs again; lines it then logs
+ * with older timestamps come out late.
+ *
+ * {@link #next()} is for one thread, {@link #close()} may be called from any.
+ */
+public class MergedLogReader implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MergedLogReader.class);
+
+    private static final int MAX_LINE_BYTES = 1024 * 1024;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final LogRecord END = new LogRecord();
+    private static final long CLOSE_CHECK_MILLIS = 100;
+
+    private final List<Source> sources = new ArrayList<>();
+    private final PriorityQueue<Source> heap;
+    private final long maxWaitNanos;
+    private volatile boolean closed;
+
+    public MergedLogReader(DockerClient client, Collection<String> ids, DockerLogsParameters params, int readAhead) {
+        this(client, ids, params, readAhead, LogFilter.all(), -1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param filter  applied on the reading threads, before a line takes up read ahead
+     * @param maxWait how long to wait for a quiet container before passing it over, negative to always wait, which
+     *                is only sensible without {@code follow}
+     */
+    public MergedLogReader(DockerClient client, Collection<String> ids, DockerLogsParameters params, int readAhead,
+                           LogFilter filter, long maxWait, TimeUnit unit) {
+        if (readAhead < 1) {
+            throw new IllegalArgumentException("readAhead < 1: " + readAhead);
+        }
+        this.maxWaitNanos = maxWait < 0 ? -1 : unit.toNanos(maxWait);
+        this.heap = new PriorityQueue<>(Math.max(1, ids.size()), (a, b) -> {
+            int order = Long.compare(a.head.getTimestampNanos(), b.head.getTimestampNanos());
+            return order != 0 ? order : Integer.compare(a.index, b.index);
+        });
+        DockerLogsParameters query = DockerLogsParameters.builder()
+                .stdout(params.isStdout())
+                .stderr(params.isStderr())
+                .details(params.isDetails())
+                .follow(params.isFollow())
+                .timestamps(true)
+                .since(params.getSince())
+                .tail(params.getTail())
+                .build();
+        for (String id : ids) {
+            Source source = new Source(sources.size(), id, readAhead);
+            sources.add(source);
+            Thread thread = new Thread(() -> source.read(client, query, filter), "jdocker-merged-logs-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            source.thread = thread;
+        }
+        for (Source source : sources) {
+            source.thread.start();
+        }
+    }
+
+    /**
+     * The next line in timestamp order, blocking until every container being read has one queued.
+     *
+     * @return null once all logs were read to the end, or the reader was closed
+     */
+    public MergedLogLine next() throws InterruptedException {
+        while (!closed) {
+            boolean live = false;
+            long deadline = System.nanoTime() + maxWaitNanos;
+            for (Source source : sources) {
+                if (source.head != null || source.ended) {
+                    continue;
+                }
+                LogRecord record = take(source, deadline);
+                if (record == null) {
+                    live = true;
+                }
+                else if (record == END) {
+                    source.ended = true;
+                }
+                else {
+                    source.head = record;
+                    source.quiet = false;
+                    heap.add(source);
+                }
+            }
+
+            if (closed) {
+                break;
+            }
+            Source oldest = heap.poll();
+            if (oldest != null) {
+                MergedLogLine line = new MergedLogLine(oldest.id, oldest.head);
+                oldest.head = null;
+                return line;
+            }
+            if (!live) {
+                return null;
+            }
+            for (Source source : sources) {
+                source.quiet = false;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Source source : sources) {
+            source.close();
+        }
+    }
+
+    /**
+     * Waits for the next line of a container: without limit (short of the reader being closed) if configured so, up to
+     * the deadline the first time it is quiet, and not at all while it stays quiet.
+     */
+    private LogRecord take(Source source, long deadline) throws InterruptedException {
+        if (maxWaitNanos < 0) {
+            while (!closed) {
+                LogRecord record = source.queue.poll(CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    return record;
+                }
+            }
+            return null;
+        }
+        if (source.quiet) {
+            return source.queue.poll();
+        }
+        LogRecord record = source.queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        if (record == null) {
+            source.quiet = true;
+        }
+        return record;
+    }
+
+    private final class Source {
+
+        private final int index;
+        private final String id;
+        private final BlockingQueue<LogRecord> queue;
+        private volatile LogRecordReader reader;
+        private Thread thread;
+        private LogRecord head;
+        private boolean ended;
+        private boolean quiet;
+
+        Source(int index, String id, int readAhead) {
+            this.index = index;
+            this.id = id;
+            this.queue = new ArrayBlockingQueue<>(readAhead);
+        }
+
+        void read(DockerClient client, DockerLogsParameters params, LogFilter filter) {
+            try {
+                InputStream stream = client.logsRawStream(id, params);
+                reader = new LogRecordReader(stream, true, MAX_LINE_BYTES);
+                if (closed) {
+                    return;
+                }
+                LogRecord record = new LogRecord();
+                while (!closed && reader.next(record)) {
+                    if (filter.test(id, record)) {
+                        queue.put(record.copy());
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!closed) {
+                    logger.warn("Reading the log of {} failed, merging without it", id, e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeReader();
+                end();
+            }
+        }
+
+        /**
+         * Queues the end marker behind the lines still queued. Once the merge was closed those lines are dropped as
+         * needed to make room, so the marker always gets in.
+         */
+        private void end() {
+            try {
+                if (!closed) {
+                    queue.put(END);
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            while (!queue.offer(END)) {
+                queue.poll();
+            }
+        }
+
+        void close() {
+            closeReader();
+            thread.interrupt();
+        }
+
+        private void closeReader() {
+            LogRecordReader current = reader;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    logger.debug("Exception closing the log stream of {}", id, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs;
+
+/**
+ * What a {@link LogSubscription} does with a new frame when its buffer is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Keep every frame and stop reading from the daemon until the listener has caught up to half the capacity,
+     * the daemon then holds the logs back.
+     */
+    BLOCK,
+
+    /**
+     * Drop the oldest buffered frame to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Keep one in every {@code sampleRate} of the frames arriving while full (replacing the oldest buffered frame)
+     * and drop the rest, so a log storm still shows up but at a reduced rate.
+     */
+    SAMPLE
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs.archive;
+
+import com.github.khazrak.jdocker.logs.LogRecord;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The segments of one container, in a directory of their own. Lines are gathered into a block buffer that is
+ * deflated into the active segment once it holds {@link LogArchiveParameters#getBlockSize()} bytes.
+ */
+final class ContainerLog {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final Path directory;
+    private final LogArchiveParameters params;
+    private final List<LogSegment> segments = new ArrayList<>();
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater();
+    private final LogRecord scratch = new LogRecord();
+    private LogSegment active;
+    private long nextSequence;
+    private boolean closed;
+
+    private byte[] block;
+    private int blockLength;
+    private int blockLines;
+    private long blockMin = Long.MAX_VALUE;
+    private long blockMax = Long.MIN_VALUE;
+    private byte[] compressed = new byte[0];
+    private byte[] readBuffer = new byte[0];
+
+    ContainerLog(Path directory, LogArchiveParameters params) throws IOException {
+        this.directory = directory;
+        this.params = params;
+        this.deflater = new Deflater(params.getCompressionLevel());
+        this.block = new byte[params.getBlockSize() + LogSegment.LINE_HEADER_SIZE];
+
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.seg")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        for (Path file : files) {
+            segments.add(LogSegment.open(file, params));
+            String name = file.getFileName().toString();
+            nextSequence = Math.max(nextSequence, Long.parseLong(name.substring(0, name.length() - ".seg".length())) + 1);
+        }
+    }
+
+    /**
+     * Lines without a timestamp are filed under the time they were captured.
+     */
+    synchronized void append(LogRecord record) throws IOException {
+        if (closed) {
+            throw new IOException("Log archive is closed");
+        }
+        if (active == null) {
+            active = LogSegment.create(directory.resolve(String.format("%012d.seg", nextSequence++)), params);
+            segments.add(active);
+        }
+        long timestamp = record.getTimestampNanos();
+        if (timestamp == Long.MIN_VALUE) {
+            timestamp = System.currentTimeMillis() * NANOS_PER_MILLI;
+        }
+
+        int needed = blockLength + LogSegment.LINE_HEADER_SIZE + record.lineLength();
+        if (needed > block.length) {
+            byte[] grown = new byte[Math.max(needed, block.length * 2)];
+            System.arraycopy(block, 0, grown, 0, blockLength);
+            block = grown;
+        }
+        int end = LogSegment.putLine(block, blockLength, record, timestamp);
+        LogTokens.addAll(active.bloom(), block, end - record.messageLength(), end);
+        active.include(timestamp);
+        blockLength = end;
+        blockLines++;
+        blockMin = Math.min(blockMin, timestamp);
+        blockMax = Math.max(blockMax, timestamp);
+
+        if (blockLength >= params.getBlockSize()) {
+            writeBlock();
+        }
+    }
+
+    synchronized void flush() throws IOException {
+        if (!closed && blockLines > 0) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Searches the segments oldest first, calling {@code consumer} with the lock held.
+     */
+    synchronized LogSearchStats search(long from, long to, byte[][] tokens, long[] hashes, Consumer<LogRecord> consumer) throws IOException {
+        if (closed) {
+            throw new IOException("Log archive is closed");
+        }
+        int searched = 0;
+        int blocksRead = 0;
+        long[] matched = new long[1];
+        for (LogSegment segment : segments) {
+            if (!segment.overlaps(from, to) || !segment.bloom().mightContainAll(hashes)) {
+                continue;
+            }
+            searched++;
+            FileChannel reader = segment.openForRead();
+            try {
+                for (int i = 0; i < segment.blocks(); i++) {
+                    if (!segment.overlaps(i, from, to)) {
+                        continue;
+                    }
+                    readBuffer = segment.read(reader, i, inflater, readBuffer);
+                    blocksRead++;
+                    scan(readBuffer, segment.rawLength(i), from, to, tokens, consumer, matched);
+                }
+            } finally {
+                if (!segment.isActive()) {
+                    reader.close();
+                }
+            }
+            if (segment == active && blockLines > 0 && blockMin <= to && blockMax >= from) {
+                blocksRead++;
+                scan(block, blockLength, from, to, tokens, consumer, matched);
+            }
+        }
+        return new LogSearchStats(segments.size(), searched, blocksRead, matched[0]);
+    }
+
+    synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+            if (active != null) {
+                active.close();
+                active = null;
+            }
+        } finally {
+            closed = true;
+            deflater.end();
+            inflater.end();
+        }
+    }
+
+    private void scan(byte[] raw, int length, long from, long to, byte[][] tokens, Consumer<LogRecord> consumer, long[] matched) {
+        LogSegment.forEachLine(raw, length, scratch, (timestamp, bytes, messageStart, end) -> {
+            if (timestamp < from || timestamp > to) {
+                return;
+            }
+            if (tokens.length > 0 && !LogTokens.containsAll(bytes, messageStart, end, tokens)) {
+                return;
+            }
+            matched[0]++;
+            consumer.accept(scratch);
+        });
+    }
+
+    private void writeBlock() throws IOException {
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+        int bound = blockLength + blockLength / 1000 + 64;
+        if (compressed.length < bound) {
+            compressed = new byte[bound];
+        }
+        int count = 0;
+        while (!deflater.finished()) {
+            if (count == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            count += deflater.deflate(compressed, count, compressed.length - count);
+        }
+        active.append(compressed, count, blockLength, blockMin, blockMax);
+
+        blockLength = 0;
+        blockLines = 0;
+        blockMin = Long.MAX_VALUE;
+        blockMax = Long.MIN_VALUE;
+        if (active.size() >= params.getSegmentSize()) {
+            active.seal();
+            active = null;
+        }
+    }
+}
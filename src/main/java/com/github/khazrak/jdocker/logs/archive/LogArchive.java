@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs.archive;
+
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.logs.LogRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * On disk archive of container logs for later searching. Each container gets a directory of append only segment
+ * files holding deflated blocks of lines; per segment the time range of every block and a bloom filter over the
+ * tokens of its messages are kept, so a search for a time range and a few words only inflates the blocks that can
+ * match.
+ *
+ * Fed by the logs APIs through {@link #sink(String)}, e.g. {@code client.logs(id, params, archive.sink(id))} or
+ * a {@link com.github.khazrak.jdocker.logs.LogTailCursor} loop. Lines are best requested with timestamps, lines
+ * without one are filed under the time they were captured. Reopening a directory continues in new segments.
+ */
+public class LogArchive implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogArchive.class);
+
+    private final Path directory;
+    private final LogArchiveParameters params;
+    private final ConcurrentMap<String, ContainerLog> containers = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public LogArchive(Path directory) {
+        this(directory, LogArchiveParameters.defaults());
+    }
+
+    public LogArchive(Path directory, LogArchiveParameters params) {
+        if (params.getBlockSize() < 1 || params.getSegmentSize() < 1 || params.getBloomBits() < 64 || params.getBloomHashes() < 1) {
+            throw new IllegalArgumentException("Invalid log archive parameters");
+        }
+        this.directory = directory;
+        this.params = params;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new DockerClientException("Could not create log archive " + directory, e);
+        }
+    }
+
+    /**
+     * A consumer appending the lines it gets to the log of {@code id}.
+     */
+    public Consumer<LogRecord> sink(String id) {
+        ContainerLog log = container(id);
+        return record -> append(log, id, record);
+    }
+
+    public void append(String id, LogRecord record) {
+        append(container(id), id, record);
+    }
+
+    /**
+     * Writes the lines still gathered in memory, so they survive a crash.
+     */
+    public void flush() {
+        for (ContainerLog log : containers.values()) {
+            try {
+                log.flush();
+            } catch (IOException e) {
+                throw new DockerClientException("Could not flush log archive " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Hands the lines of {@code id} with a timestamp in {@code [fromNanos, toNanos]} and, unless {@code terms} is null or
+     * empty, containing every word of {@code terms} (whole words, ASCII case insensitive) to {@code consumer}, oldest
+     * segment first. The record is only valid during the call.
+     */
+    public LogSearchStats search(String id, long fromNanos, long toNanos, String terms, Consumer<LogRecord> consumer) {
+        byte[][] tokens = LogTokens.parse(terms);
+        long[] hashes = new long[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            hashes[i] = LogTokens.hash(tokens[i]);
+        }
+        try {
+            return container(id).search(fromNanos, toNanos, tokens, hashes, consumer);
+        } catch (IOException e) {
+            throw new DockerClientException("Could not search the archived logs of " + id, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (ContainerLog log : containers.values()) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                logger.error("Could not close the archived logs in {}", directory, e);
+            }
+        }
+        containers.clear();
+    }
+
+    private void append(ContainerLog log, String id, LogRecord record) {
+        try {
+            log.append(record);
+        } catch (IOException e) {
+            throw new DockerClientException("Could not archive a log line of " + id, e);
+        }
+    }
+
+    private static String directoryName(String id) {
+        String name = id.replaceAll("[^A-Za-z0-9_.-]", "_");
+        return name.startsWith(".") ? "_" + name : name;
+    }
+
+    private ContainerLog container(String id) {
+        if (closed) {
+            throw new IllegalStateException("Log archive is closed");
+        }
+        return containers.computeIfAbsent(id, key -> {
+            try {
+                return new ContainerLog(directory.resolve(directoryName(key)), params);
+            } catch (IOException e) {
+                throw new DockerClientException("Could not open the archived logs of " + key, e);
+            }
+        });
+    }
+}
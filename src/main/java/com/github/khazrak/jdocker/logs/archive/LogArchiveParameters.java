@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs.archive;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.zip.Deflater;
+
+@Builder
+@Getter
+public class LogArchiveParameters {
+
+    /**
+     * Uncompressed bytes of lines gathered before a block is compressed and written
+     */
+    private int blockSize;
+
+    /**
+     * Bytes written to a segment file before a new one is started
+     */
+    private long segmentSize;
+
+    /**
+     * Size in bits of the token bloom filter of each segment
+     */
+    private int bloomBits;
+
+    private int bloomHashes;
+
+    /**
+     * Deflate level, 0 to 9
+     */
+    private int compressionLevel;
+
+    public static LogArchiveParameters defaults() {
+        return builder().build();
+    }
+
+    public static class LogArchiveParametersBuilder {
+        private int blockSize = 64 * 1024;
+        private long segmentSize = 64 * 1024 * 1024;
+        private int bloomBits = 1 << 20;
+        private int bloomHashes = 5;
+        private int compressionLevel = Deflater.BEST_SPEED;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs.archive;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * How much of the archive a search had to read. Segments are skipped on their time range or bloom filter, blocks of
+ * the remaining segments on their time range.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class LogSearchStats {
+
+    private final int segments;
+    private final int segmentsSearched;
+    private final int blocksRead;
+    private final long linesMatched;
+}
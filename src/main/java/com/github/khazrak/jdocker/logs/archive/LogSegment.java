@@ -0,0 +1,413 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs.archive;
+
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
+import com.github.khazrak.jdocker.logs.LogRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * One append only segment file of deflated blocks. Every block starts with a 32 byte header
+ * {@code [raw length, compressed length, min timestamp, max timestamp, crc32, 0]}; inflated it holds lines as
+ * {@code [stream, flags, timestamp, length, bytes]}.
+ *
+ * The block index (offsets and time ranges) and the token bloom filter are kept in memory and written to a
+ * {@code .idx} file next to the segment when it is sealed. A segment without a readable index, left by a crash, is
+ * scanned to rebuild it; a torn last block is cut off.
+ */
+final class LogSegment {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogSegment.class);
+
+    static final int BLOCK_HEADER_SIZE = 32;
+    static final int LINE_HEADER_SIZE = 14;
+    static final int TIMESTAMPED = 1;
+
+    private static final LOG_TYPE[] TYPES = LOG_TYPE.values();
+    private static final int INDEX_MAGIC = 0x4c494458;
+    private static final int INDEX_VERSION = 1;
+
+    private final Path file;
+    private final TokenBloom bloom;
+    private FileChannel channel;
+    private long size;
+
+    private int blocks;
+    private long[] offsets = new long[16];
+    private int[] rawLengths = new int[16];
+    private int[] compressedLengths = new int[16];
+    private long[] minTimestamps = new long[16];
+    private long[] maxTimestamps = new long[16];
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    private LogSegment(Path file, TokenBloom bloom) {
+        this.file = file;
+        this.bloom = bloom;
+    }
+
+    static LogSegment create(Path file, LogArchiveParameters params) throws IOException {
+        LogSegment segment = new LogSegment(file, new TokenBloom(params.getBloomBits(), params.getBloomHashes()));
+        segment.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return segment;
+    }
+
+    /**
+     * Opens a sealed segment from its index, or rebuilds the index by scanning the file.
+     */
+    static LogSegment open(Path file, LogArchiveParameters params) throws IOException {
+        Path index = indexFile(file);
+        if (Files.exists(index)) {
+            try {
+                return readIndex(file, index);
+            } catch (IOException e) {
+                logger.warn("Could not read log index {}, rebuilding it", index, e);
+            }
+        }
+        LogSegment segment = rebuild(file, params);
+        segment.writeIndex();
+        return segment;
+    }
+
+    TokenBloom bloom() {
+        return bloom;
+    }
+
+    long size() {
+        return size;
+    }
+
+    int blocks() {
+        return blocks;
+    }
+
+    int rawLength(int block) {
+        return rawLengths[block];
+    }
+
+    boolean isActive() {
+        return channel != null;
+    }
+
+    /**
+     * Widens the time range of the segment, called for every line before its block is written.
+     */
+    void include(long timestamp) {
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+    }
+
+    boolean overlaps(long from, long to) {
+        return minTimestamp <= to && maxTimestamp >= from;
+    }
+
+    boolean overlaps(int block, long from, long to) {
+        return minTimestamps[block] <= to && maxTimestamps[block] >= from;
+    }
+
+    void append(byte[] compressed, int compressedLength, int rawLength, long min, long max) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(compressed, 0, compressedLength);
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        header.putInt(rawLength).putInt(compressedLength).putLong(min).putLong(max).putInt((int) crc.getValue()).putInt(0);
+        header.flip();
+        ByteBuffer body = ByteBuffer.wrap(compressed, 0, compressedLength);
+        long position = size;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        while (body.hasRemaining()) {
+            position += channel.write(body, position);
+        }
+        addBlock(size, rawLength, compressedLength, min, max);
+        size = position;
+    }
+
+    /**
+     * The channel to read blocks through: the writing channel of the active segment, a new one for a sealed segment
+     * which the caller has to close.
+     */
+    FileChannel openForRead() throws IOException {
+        return channel != null ? channel : FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    /**
+     * Inflates a block into {@code raw}, grown if too small.
+     *
+     * @return the array holding the lines of the block
+     */
+    byte[] read(FileChannel reader, int block, Inflater inflater, byte[] raw) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(compressedLengths[block]);
+        readFully(reader, compressed, offsets[block] + BLOCK_HEADER_SIZE);
+        if (raw.length < rawLengths[block]) {
+            raw = new byte[rawLengths[block]];
+        }
+        inflate(inflater, compressed.array(), compressed.limit(), raw, rawLengths[block]);
+        return raw;
+    }
+
+    void seal() throws IOException {
+        channel.force(true);
+        channel.close();
+        channel = null;
+        writeIndex();
+    }
+
+    void close() throws IOException {
+        if (channel != null) {
+            seal();
+        }
+    }
+
+    static Path indexFile(Path file) {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.length() - ".seg".length()) + ".idx");
+    }
+
+    /**
+     * Calls {@code visitor} for every line of an inflated block, with {@code record} pointing at it.
+     */
+    static void forEachLine(byte[] raw, int length, LogRecord record, LineVisitor visitor) {
+        int position = 0;
+        while (position + LINE_HEADER_SIZE <= length) {
+            LOG_TYPE type = TYPES[raw[position]];
+            boolean timestamped = (raw[position + 1] & TIMESTAMPED) != 0;
+            long timestamp = getLong(raw, position + 2);
+            int lineLength = getInt(raw, position + 10);
+            int start = position + LINE_HEADER_SIZE;
+            record.set(type, raw, start, lineLength, timestamped);
+            visitor.line(timestamp, raw, start + lineLength - record.messageLength(), start + lineLength);
+            position = start + lineLength;
+        }
+    }
+
+    static int putLine(byte[] raw, int position, LogRecord record, long timestamp) {
+        raw[position] = (byte) record.getType().ordinal();
+        raw[position + 1] = (byte) (record.hasTimestamp() ? TIMESTAMPED : 0);
+        putLong(raw, position + 2, timestamp);
+        putInt(raw, position + 10, record.lineLength());
+        record.copyLine(raw, position + LINE_HEADER_SIZE);
+        return position + LINE_HEADER_SIZE + record.lineLength();
+    }
+
+    interface LineVisitor {
+
+        /**
+         * @param messageStart start of the message, after the timestamp
+         */
+        void line(long timestamp, byte[] raw, int messageStart, int end);
+    }
+
+    private void addBlock(long offset, int rawLength, int compressedLength, long min, long max) {
+        if (blocks == offsets.length) {
+            int grown = blocks * 2;
+            offsets = Arrays.copyOf(offsets, grown);
+            rawLengths = Arrays.copyOf(rawLengths, grown);
+            compressedLengths = Arrays.copyOf(compressedLengths, grown);
+            minTimestamps = Arrays.copyOf(minTimestamps, grown);
+            maxTimestamps = Arrays.copyOf(maxTimestamps, grown);
+        }
+        offsets[blocks] = offset;
+        rawLengths[blocks] = rawLength;
+        compressedLengths[blocks] = compressedLength;
+        minTimestamps[blocks] = min;
+        maxTimestamps[blocks] = max;
+        blocks++;
+        include(min);
+        include(max);
+    }
+
+    private void writeIndex() throws IOException {
+        Path index = indexFile(file);
+        Path temp = index.resolveSibling(index.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(size);
+            out.writeInt(blocks);
+            for (int i = 0; i < blocks; i++) {
+                out.writeLong(offsets[i]);
+                out.writeInt(rawLengths[i]);
+                out.writeInt(compressedLengths[i]);
+                out.writeLong(minTimestamps[i]);
+                out.writeLong(maxTimestamps[i]);
+            }
+            long[] words = bloom.words();
+            out.writeInt(bloom.hashes());
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static LogSegment readIndex(Path file, Path index) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                throw new IOException("Not a log index: " + index);
+            }
+            long size = in.readLong();
+            if (size != Files.size(file)) {
+                throw new IOException("Log index " + index + " does not match the segment size");
+            }
+            int blocks = in.readInt();
+            long[] offsets = new long[blocks];
+            int[] rawLengths = new int[blocks];
+            int[] compressedLengths = new int[blocks];
+            long[] minTimestamps = new long[blocks];
+            long[] maxTimestamps = new long[blocks];
+            for (int i = 0; i < blocks; i++) {
+                offsets[i] = in.readLong();
+                rawLengths[i] = in.readInt();
+                compressedLengths[i] = in.readInt();
+                minTimestamps[i] = in.readLong();
+                maxTimestamps[i] = in.readLong();
+            }
+            int hashes = in.readInt();
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+
+            LogSegment segment = new LogSegment(file, new TokenBloom(words, hashes));
+            for (int i = 0; i < blocks; i++) {
+                segment.addBlock(offsets[i], rawLengths[i], compressedLengths[i], minTimestamps[i], maxTimestamps[i]);
+            }
+            segment.size = size;
+            return segment;
+        }
+    }
+
+    private static LogSegment rebuild(Path file, LogArchiveParameters params) throws IOException {
+        LogSegment segment = new LogSegment(file, new TokenBloom(params.getBloomBits(), params.getBloomHashes()));
+        Inflater inflater = new Inflater();
+        LogRecord record = new LogRecord();
+        byte[] raw = new byte[0];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+            while (position + BLOCK_HEADER_SIZE <= length) {
+                header.clear();
+                readFully(channel, header, position);
+                header.flip();
+                int rawLength = header.getInt();
+                int compressedLength = header.getInt();
+                long min = header.getLong();
+                long max = header.getLong();
+                int crc = header.getInt();
+                if (rawLength < 0 || compressedLength < 0 || position + BLOCK_HEADER_SIZE + compressedLength > length) {
+                    break;
+                }
+                ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+                readFully(channel, compressed, position + BLOCK_HEADER_SIZE);
+                CRC32 check = new CRC32();
+                check.update(compressed.array(), 0, compressedLength);
+                if ((int) check.getValue() != crc) {
+                    break;
+                }
+                if (raw.length < rawLength) {
+                    raw = new byte[rawLength];
+                }
+                try {
+                    inflate(inflater, compressed.array(), compressedLength, raw, rawLength);
+                } catch (IOException e) {
+                    break;
+                }
+                forEachLine(raw, rawLength, record, (timestamp, bytes, messageStart, end) ->
+                        LogTokens.addAll(segment.bloom, bytes, messageStart, end));
+                segment.addBlock(position, rawLength, compressedLength, min, max);
+                position += BLOCK_HEADER_SIZE + compressedLength;
+            }
+            if (position < length) {
+                logger.warn("Cutting {} bytes of a torn block off log segment {}", length - position, file);
+                channel.truncate(position);
+            }
+            segment.size = position;
+        } finally {
+            inflater.end();
+        }
+        return segment;
+    }
+
+    private static void inflate(Inflater inflater, byte[] compressed, int compressedLength, byte[] raw, int rawLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        int count = 0;
+        try {
+            while (count < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, count, rawLength - count);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt log block", e);
+        }
+        if (count != rawLength) {
+            throw new IOException("Corrupt log block, inflated " + count + " of " + rawLength + " bytes");
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Log segment ended early");
+            }
+            position += read;
+        }
+    }
+
+    private static long getLong(byte[] bytes, int position) {
+        return ((long) getInt(bytes, position) << 32) | (getInt(bytes, position + 4) & 0xffffffffL);
+    }
+
+    private static int getInt(byte[] bytes, int position) {
+        return (bytes[position] << 24) | ((bytes[position + 1] & 0xff) << 16) | ((bytes[position + 2] & 0xff) << 8)
+                | (bytes[position + 3] & 0xff);
+    }
+
+    private static void putLong(byte[] bytes, int position, long value) {
+        putInt(bytes, position, (int) (value >>> 32));
+        putInt(bytes, position + 4, (int) value);
+    }
+
+    private static void putInt(byte[] bytes, int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs.archive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits log messages into tokens: runs of ASCII letters, digits and underscores, plus any non ASCII byte so UTF-8
+ * words stay whole. ASCII letters are compared case insensitively.
+ */
+final class LogTokens {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private LogTokens() {
+    }
+
+    /**
+     * The distinct lower cased tokens of a search string.
+     */
+    static byte[][] parse(String terms) {
+        List<byte[]> tokens = new ArrayList<>();
+        if (terms != null) {
+            byte[] bytes = terms.getBytes(StandardCharsets.UTF_8);
+            int i = 0;
+            while (i < bytes.length) {
+                if (!isTokenByte(bytes[i])) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < bytes.length && isTokenByte(bytes[i])) {
+                    i++;
+                }
+                byte[] token = new byte[i - start];
+                for (int j = 0; j < token.length; j++) {
+                    token[j] = lower(bytes[start + j]);
+                }
+                if (!contains(tokens, token)) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens.toArray(new byte[tokens.size()][]);
+    }
+
+    static void addAll(TokenBloom bloom, byte[] bytes, int from, int to) {
+        int i = from;
+        while (i < to) {
+            if (!isTokenByte(bytes[i])) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < to && isTokenByte(bytes[i])) {
+                i++;
+            }
+            bloom.add(hash(bytes, start, i));
+        }
+    }
+
+    /**
+     * Whether every one of {@code tokens} is a token of {@code bytes[from, to)}.
+     */
+    static boolean containsAll(byte[] bytes, int from, int to, byte[][] tokens) {
+        for (byte[] token : tokens) {
+            if (!containsToken(bytes, from, to, token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long hash(byte[] token) {
+        return hash(token, 0, token.length);
+    }
+
+    static long hash(byte[] bytes, int from, int to) {
+        long hash = FNV_OFFSET;
+        for (int i = from; i < to; i++) {
+            hash ^= lower(bytes[i]) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static boolean containsToken(byte[] bytes, int from, int to, byte[] token) {
+        int i = from;
+        while (i < to) {
+            if (!isTokenByte(bytes[i])) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < to && isTokenByte(bytes[i])) {
+                i++;
+            }
+            if (i - start == token.length && equalsIgnoreCase(bytes, start, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] bytes, int start, byte[] token) {
+        for (int j = 0; j < token.length; j++) {
+            if (lower(bytes[start + j]) != token[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(List<byte[]> tokens, byte[] token) {
+        for (byte[] existing : tokens) {
+            if (Arrays.equals(existing, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTokenByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b < 0;
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
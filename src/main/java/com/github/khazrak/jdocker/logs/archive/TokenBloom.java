@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.logs.archive;
+
+/**
+ * Bloom filter over token hashes, probed with double hashing.
+ */
+final class TokenBloom {
+
+    private final long[] words;
+    private final int hashes;
+    private final long bits;
+
+    TokenBloom(int bits, int hashes) {
+        this(new long[(bits + 63) >>> 6], hashes);
+    }
+
+    TokenBloom(long[] words, int hashes) {
+        this.words = words;
+        this.hashes = hashes;
+        this.bits = (long) words.length << 6;
+    }
+
+    void add(long hash) {
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((hash + i * h2) & Long.MAX_VALUE) % bits;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(long hash) {
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((hash + i * h2) & Long.MAX_VALUE) % bits;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean mightContainAll(long[] tokenHashes) {
+        for (long hash : tokenHashes) {
+            if (!mightContain(hash)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+}
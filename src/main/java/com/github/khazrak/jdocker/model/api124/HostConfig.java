@@ -127,16 +127,16 @@ public class HostConfig {
     private List<String> links;
 
     @JsonProperty("Memory")
-    private int memory;
+    private long memory;
 
     @JsonProperty("MemorySwap")
-    private int memorySwap;
+    private long memorySwap;
 
     @JsonProperty("MemoryReservation")
-    private int memoryReservation;
+    private long memoryReservation;
 
     @JsonProperty("KernelMemory")
-    private int kernelMemory;
+    private long kernelMemory;
 
     @JsonProperty("CpuPercent")
     private int cpuPercent;
@@ -145,10 +145,10 @@ public class HostConfig {
     private int cpuShares;
 
     @JsonProperty("CpuPeriod")
-    private int cpuPeriod;
+    private long cpuPeriod;
 
     @JsonProperty("CpuQuota")
-    private int cpuQuota;
+    private long cpuQuota;
 
     @JsonProperty("CpusetCpus")
     private String cpuSetCpus;
@@ -307,16 +307,16 @@ public class HostConfig {
         private List<String> links;
 
         @JsonProperty("Memory")
-        private int memory;
+        private long memory;
 
         @JsonProperty("MemorySwap")
-        private int memorySwap;
+        private long memorySwap;
 
         @JsonProperty("MemoryReservation")
-        private int memoryReservation;
+        private long memoryReservation;
 
         @JsonProperty("KernelMemory")
-        private int kernelMemory;
+        private long kernelMemory;
 
         @JsonProperty("CpuPercent")
         private int cpuPercent;
@@ -325,10 +325,10 @@ public class HostConfig {
         private int cpuShares;
 
         @JsonProperty("CpuPeriod")
-        private int cpuPeriod;
+        private long cpuPeriod;
 
         @JsonProperty("CpuQuota")
-        private int cpuQuota;
+        private long cpuQuota;
 
         @JsonProperty("IOMaximumIOps")
         private int ioMaximumIOps;
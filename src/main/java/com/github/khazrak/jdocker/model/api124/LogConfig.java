@@ -17,11 +17,13 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 import lombok.Builder;
+import lombok.Getter;
 
 import java.util.Map;
 
 @JsonDeserialize(builder = LogConfig.LogConfigBuilder.class)
 @Builder
+@Getter
 public class LogConfig {
 
     public LogConfig (String type, Map<String,String> config) {
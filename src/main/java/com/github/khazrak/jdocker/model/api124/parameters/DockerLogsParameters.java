@@ -49,6 +49,9 @@ public class DockerLogsParameters {
         if(details) {
             queries.put("details", Boolean.toString(true));
         }
+        if(follow) {
+            queries.put("follow", Boolean.toString(true));
+        }
         if(timestamps) {
             queries.put("timestamps", Boolean.toString(true));
         }
@@ -70,6 +73,9 @@ public class DockerLogsParameters {
         if(details) {
             params += "&details=true";
         }
+        if(follow) {
+            params += "&follow=true";
+        }
         if(timestamps) {
             params += "%timestamps=true";
         }
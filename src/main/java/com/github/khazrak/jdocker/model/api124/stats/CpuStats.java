@@ -35,6 +35,9 @@ public class CpuStats {
     @JsonProperty("throttling_data")
     private Map<String, Long> throttlingData;
 
+    @JsonProperty("online_cpus")
+    private int onlineCpus;
+
     @JsonPOJOBuilder(withPrefix = "")
     public static class CpuStatsBuilder {
 
@@ -47,5 +50,8 @@ public class CpuStats {
         @JsonProperty("throttling_data")
         private Map<String, Long> throttlingData;
 
+        @JsonProperty("online_cpus")
+        private int onlineCpus;
+
     }
 }
@@ -25,55 +25,55 @@ import lombok.Getter;
 public class NetworkStats {
 
     @JsonProperty("rx_bytes")
-    private int rxBytes;
+    private long rxBytes;
 
     @JsonProperty("rx_dropped")
-    private int rxDropped;
+    private long rxDropped;
 
     @JsonProperty("rx_errors")
-    private int rxErrors;
+    private long rxErrors;
 
     @JsonProperty("rx_packets")
-    private int rxPackets;
+    private long rxPackets;
 
     @JsonProperty("tx_bytes")
-    private int txBytes;
+    private long txBytes;
 
     @JsonProperty("tx_dropped")
-    private int txDropped;
+    private long txDropped;
 
     @JsonProperty("tx_errors")
-    private int txErrors;
+    private long txErrors;
 
     @JsonProperty("tx_packets")
-    private int txPackets;
+    private long txPackets;
 
 
 
     @JsonPOJOBuilder(withPrefix = "")
     public static class NetworkStatsBuilder {
         @JsonProperty("rx_bytes")
-        private int rxBytes;
+        private long rxBytes;
 
         @JsonProperty("rx_dropped")
-        private int rxDropped;
+        private long rxDropped;
 
         @JsonProperty("rx_errors")
-        private int rxErrors;
+        private long rxErrors;
 
         @JsonProperty("rx_packets")
-        private int rxPackets;
+        private long rxPackets;
 
         @JsonProperty("tx_bytes")
-        private int txBytes;
+        private long txBytes;
 
         @JsonProperty("tx_dropped")
-        private int txDropped;
+        private long txDropped;
 
         @JsonProperty("tx_errors")
-        private int txErrors;
+        private long txErrors;
 
         @JsonProperty("tx_packets")
-        private int txPackets;
+        private long txPackets;
     }
 }
@@ -0,0 +1,392 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.prometheus;
+
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.model.api124.Container;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+import com.github.khazrak.jdocker.model.api124.stats.NetworkStats;
+import com.github.khazrak.jdocker.stats.ContainerStatsCache;
+import com.github.khazrak.jdocker.stats.StatsRecord;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves container CPU, memory, block I/O, network and pids metrics in the Prometheus text format (or OpenMetrics
+ * when the scraper asks for it) on {@code /metrics}, using the JDK's built in {@link HttpServer}.
+ *
+ * The numbers come from a {@link ContainerStatsCache}, so a scrape only renders what the background stats streams
+ * last delivered and never waits for the daemon. Containers are exported once {@link #export(String, String)} is
+ * called for them or, with a discovery interval, for every running container found by listing them periodically.
+ * The exposition text is rendered into buffers that are reused between scrapes.
+ */
+public class PrometheusExporter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusExporter.class);
+
+    private static final String TEXT_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String OPENMETRICS_CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final DockerClient client;
+    private final ContainerStatsCache cache;
+    private final boolean ownsCache;
+    private final HttpServer server;
+    private final ExecutorService serverExecutor;
+    private final ScheduledExecutorService discovery;
+    private final ConcurrentMap<String, String> names = new ConcurrentHashMap<>();
+
+    private final StringBuilder text = new StringBuilder(16 * 1024);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final List<String> ids = new ArrayList<>();
+    private final List<StatsRecord> records = new ArrayList<>();
+    private ByteBuffer bytes = ByteBuffer.allocate(16 * 1024);
+
+    /**
+     * Exports every running container, listing them every 30 seconds, on the given address.
+     */
+    public PrometheusExporter(DockerClient client, InetSocketAddress address) throws IOException {
+        this(client, null, address, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param cache the cache to read samples from, or null for one owned (and closed) by the exporter
+     * @param discoveryInterval how often to list running containers, 0 to only export containers passed to
+     *                          {@link #export(String, String)}
+     */
+    public PrometheusExporter(DockerClient client, ContainerStatsCache cache, InetSocketAddress address,
+                              long discoveryInterval, TimeUnit unit) throws IOException {
+        this.client = client;
+        this.ownsCache = cache == null;
+        this.cache = cache != null ? cache : new ContainerStatsCache(client);
+        this.server = HttpServer.create(address, 0);
+        this.serverExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jdocker-prometheus-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(serverExecutor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+
+        if (discoveryInterval > 0) {
+            discovery = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jdocker-prometheus-discovery");
+                thread.setDaemon(true);
+                return thread;
+            });
+            discovery.scheduleWithFixedDelay(this::discover, 0, discoveryInterval, unit);
+        }
+        else {
+            discovery = null;
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Exports the container, labelled with the given name, starting its background stats stream.
+     */
+    public void export(String id, String name) {
+        names.put(id, name != null ? name : id);
+        cache.track(id);
+    }
+
+    public void unexport(String id) {
+        names.remove(id);
+        cache.untrack(id);
+    }
+
+    /**
+     * Renders the current metrics, the same text a scrape gets.
+     */
+    public String scrape(boolean openMetrics) {
+        synchronized (text) {
+            render(openMetrics);
+            return text.toString();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (discovery != null) {
+            discovery.shutdownNow();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        if (ownsCache) {
+            cache.close();
+        }
+    }
+
+    void discover() {
+        try {
+            Set<String> running = new HashSet<>();
+            for (Container container : client.listContainers()) {
+                running.add(container.getId());
+                if (!names.containsKey(container.getId())) {
+                    export(container.getId(), containerName(container));
+                }
+            }
+            for (String id : names.keySet()) {
+                if (!running.contains(id)) {
+                    unexport(id);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Listing containers for export failed", e);
+        }
+    }
+
+    private static String containerName(Container container) {
+        if (container.getNames() == null || container.getNames().isEmpty()) {
+            return container.getId();
+        }
+        String name = container.getNames().get(0);
+        return name.startsWith("/") ? name.substring(1) : name;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            boolean openMetrics = accept != null && accept.contains("application/openmetrics-text");
+            int length;
+            byte[] body;
+            synchronized (text) {
+                render(openMetrics);
+                length = encode();
+                body = bytes.array();
+                exchange.getResponseHeaders().set("Content-Type", openMetrics ? OPENMETRICS_CONTENT_TYPE : TEXT_CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body, 0, length);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private int encode() {
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (true) {
+            bytes.clear();
+            encoder.reset();
+            CoderResult result = encoder.encode(chars, bytes, true);
+            if (!result.isOverflow()) {
+                encoder.flush(bytes);
+                return bytes.position();
+            }
+            bytes = ByteBuffer.allocate(bytes.capacity() * 2);
+            chars.rewind();
+        }
+    }
+
+    //=== RENDERING ====================================================================================================
+
+    private void render(boolean openMetrics) {
+        text.setLength(0);
+        Map<String, ContainerStats> snapshot = cache.snapshotAll();
+        ids.clear();
+        for (String id : snapshot.keySet()) {
+            if (names.containsKey(id)) {
+                ids.add(id);
+            }
+        }
+        while (records.size() < ids.size()) {
+            records.add(new StatsRecord());
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            records.get(i).set(snapshot.get(ids.get(i)));
+        }
+
+        counter(openMetrics, "container_cpu_usage_seconds_total", "Cumulative cpu time consumed in seconds.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_cpu_usage_seconds_total", ids.get(i)).append(records.get(i).getCpuTotalUsage() / NANOS_PER_SECOND).append('\n');
+        }
+        counter(openMetrics, "container_cpu_user_seconds_total", "Cumulative user cpu time consumed in seconds.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_cpu_user_seconds_total", ids.get(i)).append(records.get(i).getCpuUserUsage() / NANOS_PER_SECOND).append('\n');
+        }
+        counter(openMetrics, "container_cpu_system_seconds_total", "Cumulative system cpu time consumed in seconds.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_cpu_system_seconds_total", ids.get(i)).append(records.get(i).getCpuKernelUsage() / NANOS_PER_SECOND).append('\n');
+        }
+        counter(openMetrics, "container_cpu_cfs_periods_total", "Number of elapsed enforcement period intervals.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_cpu_cfs_periods_total", ids.get(i)).append(records.get(i).getThrottlingPeriods()).append('\n');
+        }
+        counter(openMetrics, "container_cpu_cfs_throttled_periods_total", "Number of throttled period intervals.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_cpu_cfs_throttled_periods_total", ids.get(i)).append(records.get(i).getThrottledPeriods()).append('\n');
+        }
+
+        gauge("container_memory_usage_bytes", "Current memory usage in bytes, including all memory regardless of when it was accessed.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_memory_usage_bytes", ids.get(i)).append(records.get(i).getMemoryUsage()).append('\n');
+        }
+        gauge("container_memory_max_usage_bytes", "Maximum memory usage recorded in bytes.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_memory_max_usage_bytes", ids.get(i)).append(records.get(i).getMemoryMaxUsage()).append('\n');
+        }
+        gauge("container_memory_limit_bytes", "Memory limit in bytes.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_memory_limit_bytes", ids.get(i)).append(records.get(i).getMemoryLimit()).append('\n');
+        }
+        gauge("container_memory_cache_bytes", "Number of bytes of page cache memory.");
+        for (int i = 0; i < ids.size(); i++) {
+            if (records.get(i).getMemoryCache() >= 0) {
+                sample("container_memory_cache_bytes", ids.get(i)).append(records.get(i).getMemoryCache()).append('\n');
+            }
+        }
+        counter(openMetrics, "container_memory_failures_total", "Number of times the memory limit was hit.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_memory_failures_total", ids.get(i)).append(records.get(i).getMemoryFailCount()).append('\n');
+        }
+
+        counter(openMetrics, "container_fs_reads_bytes_total", "Cumulative count of bytes read.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_fs_reads_bytes_total", ids.get(i)).append(records.get(i).getBlockReadBytes()).append('\n');
+        }
+        counter(openMetrics, "container_fs_writes_bytes_total", "Cumulative count of bytes written.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_fs_writes_bytes_total", ids.get(i)).append(records.get(i).getBlockWriteBytes()).append('\n');
+        }
+
+        network(openMetrics, snapshot, "container_network_receive_bytes_total", "Cumulative count of bytes received.", 0);
+        network(openMetrics, snapshot, "container_network_receive_packets_total", "Cumulative count of packets received.", 1);
+        network(openMetrics, snapshot, "container_network_receive_errors_total", "Cumulative count of errors encountered while receiving.", 2);
+        network(openMetrics, snapshot, "container_network_receive_packets_dropped_total", "Cumulative count of packets dropped while receiving.", 3);
+        network(openMetrics, snapshot, "container_network_transmit_bytes_total", "Cumulative count of bytes transmitted.", 4);
+        network(openMetrics, snapshot, "container_network_transmit_packets_total", "Cumulative count of packets transmitted.", 5);
+        network(openMetrics, snapshot, "container_network_transmit_errors_total", "Cumulative count of errors encountered while transmitting.", 6);
+        network(openMetrics, snapshot, "container_network_transmit_packets_dropped_total", "Cumulative count of packets dropped while transmitting.", 7);
+
+        gauge("container_pids", "Number of processes running inside the container.");
+        for (int i = 0; i < ids.size(); i++) {
+            sample("container_pids", ids.get(i)).append(records.get(i).getPids()).append('\n');
+        }
+        gauge("container_last_seen", "Time of the last stats sample, in seconds since the epoch.");
+        for (int i = 0; i < ids.size(); i++) {
+            if (records.get(i).getRead() != Long.MIN_VALUE) {
+                sample("container_last_seen", ids.get(i)).append(records.get(i).getRead() / NANOS_PER_SECOND).append('\n');
+            }
+        }
+
+        if (openMetrics) {
+            text.append("# EOF\n");
+        }
+    }
+
+    private void network(boolean openMetrics, Map<String, ContainerStats> snapshot, String name, String help, int field) {
+        counter(openMetrics, name, help);
+        for (int i = 0; i < ids.size(); i++) {
+            Map<String, NetworkStats> networks = snapshot.get(ids.get(i)).getNetworksStats();
+            if (networks == null) {
+                continue;
+            }
+            for (Map.Entry<String, NetworkStats> network : networks.entrySet()) {
+                labels(name, ids.get(i));
+                text.append(",interface=\"");
+                escape(network.getKey());
+                text.append("\"} ").append(networkValue(network.getValue(), field)).append('\n');
+            }
+        }
+    }
+
+    private static long networkValue(NetworkStats stats, int field) {
+        switch (field) {
+            case 0:
+                return stats.getRxBytes();
+            case 1:
+                return stats.getRxPackets();
+            case 2:
+                return stats.getRxErrors();
+            case 3:
+                return stats.getRxDropped();
+            case 4:
+                return stats.getTxBytes();
+            case 5:
+                return stats.getTxPackets();
+            case 6:
+                return stats.getTxErrors();
+            default:
+                return stats.getTxDropped();
+        }
+    }
+
+    /**
+     * Writes the HELP and TYPE lines of a counter; OpenMetrics names the family without the _total suffix.
+     */
+    private void counter(boolean openMetrics, String name, String help) {
+        int length = openMetrics && name.endsWith("_total") ? name.length() - 6 : name.length();
+        text.append("# HELP ").append(name, 0, length).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name, 0, length).append(" counter\n");
+    }
+
+    private void gauge(String name, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" gauge\n");
+    }
+
+    private StringBuilder sample(String name, String id) {
+        labels(name, id);
+        return text.append("} ");
+    }
+
+    private void labels(String name, String id) {
+        text.append(name).append("{id=\"").append(id, 0, Math.min(id.length(), 12)).append("\",name=\"");
+        escape(names.getOrDefault(id, id));
+        text.append('"');
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                text.append('\\').append(c);
+            }
+            else if (c == '\n') {
+                text.append("\\n");
+            }
+            else {
+                text.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,661 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+import com.github.khazrak.jdocker.model.api124.DockerContainerInspect;
+import com.github.khazrak.jdocker.model.api124.stats.BlkIOStats;
+import com.github.khazrak.jdocker.model.api124.stats.CpuStats;
+import com.github.khazrak.jdocker.model.api124.stats.CpuUsage;
+import com.github.khazrak.jdocker.model.api124.stats.IOServiceBytes;
+import com.github.khazrak.jdocker.model.api124.stats.MemoryStats;
+import com.github.khazrak.jdocker.model.api124.stats.NetworkStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads container stats straight from the cgroup filesystem (v1 or v2) and {@code /proc/<pid>/net/dev}, for clients
+ * running on the same host as the daemon. This costs a few small file reads instead of a request that the daemon
+ * answers by collecting the same files twice a second apart.
+ *
+ * A container is inspected once to find its full id, cgroup parent and init pid; the resolved paths are cached until
+ * {@link #forget(String)} or until reading them fails because the container is gone. Containers whose cgroup can not
+ * be found locally are read through {@link DockerClient#stats(String)} instead. Like the daemon's stream, every
+ * sample carries the previous CPU reading of the same container as {@code precpu_stats}.
+ *
+ * Files are read into one reused buffer, so reads are serialized on the instance.
+ */
+public class CgroupStatsReader implements ContainerStatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(CgroupStatsReader.class);
+
+    private static final long NANOS_PER_TICK = TimeUnit.SECONDS.toNanos(1) / 100;
+    private static final Cgroup REMOTE = new Cgroup(null, 0, false);
+
+    private final DockerClient client;
+    private final Path cgroupRoot;
+    private final Path procRoot;
+    private final ConcurrentMap<String, Cgroup> cgroups = new ConcurrentHashMap<>();
+
+    private byte[] buffer = new byte[8192];
+    private int pos;
+    private int end;
+    private int lineEnd;
+    private int onlineCpus;
+
+    public CgroupStatsReader(DockerClient client) {
+        this(client, Paths.get("/sys/fs/cgroup"), Paths.get("/proc"));
+    }
+
+    public CgroupStatsReader(DockerClient client, Path cgroupRoot, Path procRoot) {
+        this.client = client;
+        this.cgroupRoot = cgroupRoot;
+        this.procRoot = procRoot;
+    }
+
+    /**
+     * Whether the cgroup and proc filesystems are visible at all. Containers can still fall back to the daemon
+     * individually when this is true.
+     */
+    public boolean isLocal() {
+        return Files.isDirectory(cgroupRoot) && Files.isRegularFile(procRoot.resolve("stat"));
+    }
+
+    public boolean isUnified() {
+        return Files.exists(cgroupRoot.resolve("cgroup.controllers"));
+    }
+
+    @Override
+    public ContainerStats stats(String id) {
+        Cgroup cgroup = cgroups.computeIfAbsent(id, this::resolve);
+        if (cgroup == REMOTE) {
+            return client.stats(id);
+        }
+        try {
+            synchronized (this) {
+                return read(cgroup);
+            }
+        } catch (IOException e) {
+            logger.debug("Reading cgroup of container {} failed, falling back to the daemon", id, e);
+            cgroups.remove(id, cgroup);
+            return client.stats(id);
+        }
+    }
+
+    /**
+     * The pressure stall information of the container, or null when the cgroup is not local or is not on cgroup v2
+     * (pressure files only exist in the unified hierarchy).
+     */
+    public ContainerPressure pressure(String id) {
+        Cgroup cgroup = cgroups.computeIfAbsent(id, this::resolve);
+        if (cgroup == REMOTE || !cgroup.unified) {
+            return null;
+        }
+        synchronized (this) {
+            return new ContainerPressure(readPressure(cgroup.path("cpu.pressure")),
+                    readPressure(cgroup.path("memory.pressure")), readPressure(cgroup.path("io.pressure")));
+        }
+    }
+
+    /**
+     * Drops the cached cgroup location of the container, so the next read inspects it again.
+     */
+    public void forget(String id) {
+        cgroups.remove(id);
+    }
+
+    //=== RESOLVING ====================================================================================================
+
+    private Cgroup resolve(String id) {
+        if (!isLocal()) {
+            return REMOTE;
+        }
+        DockerContainerInspect inspect = client.inspectContainer(id, false);
+        if (inspect == null || inspect.getId() == null) {
+            return REMOTE;
+        }
+        String fullId = inspect.getId();
+        int pid = inspect.getState() != null ? inspect.getState().getPid() : 0;
+        String parent = inspect.getHostConfig() != null ? inspect.getHostConfig().getCgroupParent() : null;
+
+        List<String> candidates = new ArrayList<>();
+        if (parent != null && !parent.isEmpty()) {
+            String relative = parent.startsWith("/") ? parent.substring(1) : parent;
+            candidates.add(relative.endsWith(".slice") ? relative + "/docker-" + fullId + ".scope" : relative + "/" + fullId);
+        }
+        candidates.add("system.slice/docker-" + fullId + ".scope");
+        candidates.add("docker/" + fullId);
+
+        Cgroup cgroup;
+        if (isUnified()) {
+            Path unified = find(cgroupRoot, candidates);
+            cgroup = unified == null ? REMOTE : new Cgroup(unified, pid, true);
+        }
+        else {
+            Path cpuacct = find(cgroupRoot.resolve("cpuacct"), candidates);
+            if (cpuacct == null) {
+                cpuacct = find(cgroupRoot.resolve("cpu,cpuacct"), candidates);
+            }
+            Path memory = find(cgroupRoot.resolve("memory"), candidates);
+            cgroup = cpuacct == null || memory == null ? REMOTE : new Cgroup(cpuacct, pid, false);
+            if (cgroup != REMOTE) {
+                cgroup.memory = memory;
+                cgroup.blkio = find(cgroupRoot.resolve("blkio"), candidates);
+                cgroup.pids = find(cgroupRoot.resolve("pids"), candidates);
+            }
+        }
+        logger.debug("Container {} resolved to cgroup {}", id, cgroup.cpu);
+        return cgroup;
+    }
+
+    private static Path find(Path root, List<String> candidates) {
+        for (String candidate : candidates) {
+            Path path = root.resolve(candidate);
+            if (Files.isDirectory(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    //=== READING ======================================================================================================
+
+    private ContainerStats read(Cgroup cgroup) throws IOException {
+        CpuStats cpuStats = cgroup.unified ? readCpuV2(cgroup) : readCpuV1(cgroup);
+        CpuStats preCpuStats = cgroup.previous != null ? cgroup.previous : CpuStats.builder().build();
+        cgroup.previous = cpuStats;
+
+        Map<String, Integer> pids = new HashMap<>();
+        Path pidsFile = cgroup.unified ? cgroup.path("pids.current") : cgroup.pids != null ? cgroup.pids.resolve("pids.current") : null;
+        if (pidsFile != null && load(pidsFile, true)) {
+            pids.put("current", (int) singleValue());
+        }
+
+        return ContainerStats.builder()
+                .read(Instant.now().toString())
+                .cpuStats(cpuStats)
+                .preCpuStats(preCpuStats)
+                .memoryStats(cgroup.unified ? readMemoryV2(cgroup) : readMemoryV1(cgroup))
+                .blkioStats(cgroup.unified ? readIoV2(cgroup) : readBlkioV1(cgroup))
+                .networksStats(readNetworks(cgroup.pid))
+                .pidsStats(pids)
+                .build();
+    }
+
+    private CpuStats readCpuV1(Cgroup cgroup) throws IOException {
+        load(cgroup.path("cpuacct.usage"), false);
+        long total = singleValue();
+
+        List<Long> perCpu = new ArrayList<>();
+        if (load(cgroup.path("cpuacct.usage_percpu"), true) && nextLine()) {
+            while (hasToken()) {
+                perCpu.add(longToken());
+            }
+        }
+
+        Map<String, Long> times = load(cgroup.path("cpuacct.stat"), true) ? keyedValues() : Collections.emptyMap();
+        Long user = times.get("user");
+        Long system = times.get("system");
+
+        Map<String, Long> throttling = new HashMap<>();
+        if (load(cgroup.path("cpu.stat"), true)) {
+            Map<String, Long> stat = keyedValues();
+            putIfPresent(throttling, "periods", stat.get("nr_periods"));
+            putIfPresent(throttling, "throttled_periods", stat.get("nr_throttled"));
+            putIfPresent(throttling, "throttled_time", stat.get("throttled_time"));
+        }
+
+        return CpuStats.builder()
+                .cpuUsage(CpuUsage.builder()
+                        .totalUsage(total)
+                        .perCpuUsage(perCpu)
+                        .usageInUsermode(user != null ? user * NANOS_PER_TICK : null)
+                        .usageInKernelMode(system != null ? system * NANOS_PER_TICK : 0)
+                        .build())
+                .systemCpuUsage(readSystemCpu())
+                .onlineCpus(onlineCpus)
+                .throttlingData(throttling)
+                .build();
+    }
+
+    private CpuStats readCpuV2(Cgroup cgroup) throws IOException {
+        load(cgroup.path("cpu.stat"), false);
+        Map<String, Long> stat = keyedValues();
+
+        Map<String, Long> throttling = new HashMap<>();
+        putIfPresent(throttling, "periods", stat.get("nr_periods"));
+        putIfPresent(throttling, "throttled_periods", stat.get("nr_throttled"));
+        Long throttled = stat.get("throttled_usec");
+        putIfPresent(throttling, "throttled_time", throttled != null ? throttled * 1000 : null);
+
+        Long user = stat.get("user_usec");
+        Long system = stat.get("system_usec");
+        return CpuStats.builder()
+                .cpuUsage(CpuUsage.builder()
+                        .totalUsage(stat.getOrDefault("usage_usec", 0L) * 1000)
+                        .usageInUsermode(user != null ? user * 1000 : null)
+                        .usageInKernelMode(system != null ? system * 1000 : 0)
+                        .build())
+                .systemCpuUsage(readSystemCpu())
+                .onlineCpus(onlineCpus)
+                .throttlingData(throttling)
+                .build();
+    }
+
+    /**
+     * Host CPU time in nanoseconds from the first line of /proc/stat, counting the cpu lines into {@link #onlineCpus}
+     * on the way.
+     */
+    private long readSystemCpu() throws IOException {
+        load(procRoot.resolve("stat"), false);
+        long total = 0;
+        int cpus = 0;
+        while (nextLine()) {
+            if (!lineStartsWith("cpu")) {
+                continue;
+            }
+            if (lineEnd - pos > 3 && buffer[pos + 3] == ' ') {
+                skipToken();
+                for (int i = 0; i < 8 && hasToken(); i++) {
+                    total += longToken();
+                }
+            }
+            else {
+                cpus++;
+            }
+        }
+        onlineCpus = cpus;
+        return total * NANOS_PER_TICK;
+    }
+
+    private MemoryStats readMemoryV1(Cgroup cgroup) throws IOException {
+        Path memory = cgroup.memory;
+        load(memory.resolve("memory.usage_in_bytes"), false);
+        long usage = singleValue();
+        long maxUsage = load(memory.resolve("memory.max_usage_in_bytes"), true) ? singleValue() : 0;
+        long limit = load(memory.resolve("memory.limit_in_bytes"), true) ? singleValue() : 0;
+        int failCount = load(memory.resolve("memory.failcnt"), true) ? (int) singleValue() : 0;
+        Map<String, Long> stat = load(memory.resolve("memory.stat"), true) ? keyedValues() : new HashMap<>();
+
+        return MemoryStats.builder()
+                .usage(usage)
+                .maxUsage(maxUsage)
+                .limit(limit)
+                .failCount(failCount)
+                .stats(stat)
+                .build();
+    }
+
+    private MemoryStats readMemoryV2(Cgroup cgroup) throws IOException {
+        load(cgroup.path("memory.current"), false);
+        long usage = singleValue();
+        long maxUsage = load(cgroup.path("memory.peak"), true) ? singleValue() : 0;
+        long limit = load(cgroup.path("memory.max"), true) ? singleValue() : -1;
+        if (limit < 0) {
+            limit = readHostMemory();
+        }
+        Map<String, Long> stat = load(cgroup.path("memory.stat"), true) ? keyedValues() : new HashMap<>();
+
+        return MemoryStats.builder()
+                .usage(usage)
+                .maxUsage(maxUsage)
+                .limit(limit)
+                .stats(stat)
+                .build();
+    }
+
+    private long readHostMemory() throws IOException {
+        if (load(procRoot.resolve("meminfo"), true)) {
+            while (nextLine()) {
+                if (lineStartsWith("MemTotal:")) {
+                    skipToken();
+                    return longToken() * 1024;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private BlkIOStats readBlkioV1(Cgroup cgroup) throws IOException {
+        List<IOServiceBytes> entries = new ArrayList<>();
+        if (cgroup.blkio != null && (load(cgroup.blkio.resolve("blkio.throttle.io_service_bytes_recursive"), true)
+                || load(cgroup.blkio.resolve("blkio.io_service_bytes_recursive"), true))) {
+            while (nextLine()) {
+                int colon = indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                int major = (int) parseLong(pos, colon);
+                pos = colon + 1;
+                int minor = (int) longToken();
+                String op = token();
+                long value = longToken();
+                entries.add(IOServiceBytes.builder().major(major).minor(minor).op(op).value(value).build());
+            }
+        }
+        return BlkIOStats.builder().ioServiceBytesRecursive(entries).build();
+    }
+
+    private BlkIOStats readIoV2(Cgroup cgroup) throws IOException {
+        List<IOServiceBytes> entries = new ArrayList<>();
+        if (load(cgroup.path("io.stat"), true)) {
+            while (nextLine()) {
+                int colon = indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                int major = (int) parseLong(pos, colon);
+                pos = colon + 1;
+                int minor = (int) longToken();
+                long read = 0;
+                long write = 0;
+                while (hasToken()) {
+                    int start = pos;
+                    skipToken();
+                    int equals = indexOf(start, pos, '=');
+                    if (equals < 0) {
+                        continue;
+                    }
+                    if (regionEquals(start, equals, "rbytes")) {
+                        read = parseLong(equals + 1, pos);
+                    }
+                    else if (regionEquals(start, equals, "wbytes")) {
+                        write = parseLong(equals + 1, pos);
+                    }
+                }
+                entries.add(IOServiceBytes.builder().major(major).minor(minor).op("Read").value(read).build());
+                entries.add(IOServiceBytes.builder().major(major).minor(minor).op("Write").value(write).build());
+            }
+        }
+        return BlkIOStats.builder().ioServiceBytesRecursive(entries).build();
+    }
+
+    private Map<String, NetworkStats> readNetworks(int pid) throws IOException {
+        Map<String, NetworkStats> networks = new HashMap<>();
+        if (pid <= 0 || !load(procRoot.resolve(Integer.toString(pid)).resolve("net").resolve("dev"), true)) {
+            return networks;
+        }
+        // Two header lines, then "name: rx bytes packets errs drop fifo frame compressed multicast tx bytes packets errs drop ..."
+        nextLine();
+        nextLine();
+        while (nextLine()) {
+            int colon = indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            while (buffer[pos] == ' ') {
+                pos++;
+            }
+            String name = new String(buffer, pos, colon - pos, StandardCharsets.US_ASCII);
+            pos = colon + 1;
+            if (name.equals("lo")) {
+                continue;
+            }
+            long[] values = new long[12];
+            for (int i = 0; i < values.length && hasToken(); i++) {
+                values[i] = longToken();
+            }
+            networks.put(name, NetworkStats.builder()
+                    .rxBytes(values[0]).rxPackets(values[1]).rxErrors(values[2]).rxDropped(values[3])
+                    .txBytes(values[8]).txPackets(values[9]).txErrors(values[10]).txDropped(values[11])
+                    .build());
+        }
+        return networks;
+    }
+
+    private Pressure readPressure(Path file) {
+        try {
+            if (!load(file, true)) {
+                return null;
+            }
+        } catch (IOException e) {
+            logger.debug("Reading {} failed", file, e);
+            return null;
+        }
+        double[] some = new double[3];
+        double[] full = new double[3];
+        long someTotal = 0;
+        long fullTotal = 0;
+        while (nextLine()) {
+            boolean isFull = lineStartsWith("full");
+            double[] averages = isFull ? full : some;
+            skipToken();
+            while (hasToken()) {
+                int start = pos;
+                skipToken();
+                int equals = indexOf(start, pos, '=');
+                if (equals < 0) {
+                    continue;
+                }
+                if (regionEquals(start, equals, "total")) {
+                    long total = parseLong(equals + 1, pos);
+                    if (isFull) {
+                        fullTotal = total;
+                    }
+                    else {
+                        someTotal = total;
+                    }
+                }
+                else {
+                    double value = Double.parseDouble(new String(buffer, equals + 1, pos - equals - 1, StandardCharsets.US_ASCII));
+                    if (regionEquals(start, equals, "avg10")) {
+                        averages[0] = value;
+                    }
+                    else if (regionEquals(start, equals, "avg60")) {
+                        averages[1] = value;
+                    }
+                    else if (regionEquals(start, equals, "avg300")) {
+                        averages[2] = value;
+                    }
+                }
+            }
+        }
+        return new Pressure(some[0], some[1], some[2], someTotal, full[0], full[1], full[2], fullTotal);
+    }
+
+    //=== PARSING ======================================================================================================
+
+    /**
+     * Reads the whole file into the buffer.
+     *
+     * @return false if the file does not exist and {@code optional} is set
+     */
+    private boolean load(Path file, boolean optional) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int length = 0;
+            while (true) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int read = channel.read(ByteBuffer.wrap(buffer, length, buffer.length - length));
+                if (read < 0) {
+                    break;
+                }
+                length += read;
+            }
+            pos = 0;
+            end = length;
+            lineEnd = -1;
+            return true;
+        } catch (NoSuchFileException e) {
+            if (optional) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Moves to the start of the next line, returning false at the end of the buffer.
+     */
+    private boolean nextLine() {
+        if (lineEnd >= 0) {
+            pos = lineEnd + 1;
+        }
+        if (pos >= end) {
+            return false;
+        }
+        lineEnd = pos;
+        while (lineEnd < end && buffer[lineEnd] != '\n') {
+            lineEnd++;
+        }
+        return true;
+    }
+
+    private boolean hasToken() {
+        while (pos < lineEnd && (buffer[pos] == ' ' || buffer[pos] == '\t')) {
+            pos++;
+        }
+        return pos < lineEnd;
+    }
+
+    private void skipToken() {
+        hasToken();
+        while (pos < lineEnd && buffer[pos] != ' ' && buffer[pos] != '\t') {
+            pos++;
+        }
+    }
+
+    private String token() {
+        hasToken();
+        int start = pos;
+        skipToken();
+        return new String(buffer, start, pos - start, StandardCharsets.US_ASCII);
+    }
+
+    private long longToken() {
+        hasToken();
+        int start = pos;
+        skipToken();
+        return parseLong(start, pos);
+    }
+
+    /**
+     * The number in a single value file; "max" (no limit) is returned as -1.
+     */
+    private long singleValue() {
+        nextLine();
+        hasToken();
+        if (regionEquals(pos, Math.min(pos + 3, lineEnd), "max")) {
+            return -1;
+        }
+        return longToken();
+    }
+
+    /**
+     * Parses "key value" lines from the current position on.
+     */
+    private Map<String, Long> keyedValues() {
+        Map<String, Long> values = new HashMap<>();
+        while (nextLine()) {
+            if (hasToken()) {
+                String key = token();
+                if (hasToken()) {
+                    values.put(key, longToken());
+                }
+            }
+        }
+        return values;
+    }
+
+    private long parseLong(int from, int to) {
+        long value = 0;
+        boolean negative = from < to && buffer[from] == '-';
+        for (int i = negative ? from + 1 : from; i < to; i++) {
+            byte b = buffer[i];
+            if (b < '0' || b > '9') {
+                throw new NumberFormatException("Not a number: " + new String(buffer, from, to - from, StandardCharsets.US_ASCII));
+            }
+            value = value * 10 + (b - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private int indexOf(char c) {
+        return indexOf(pos, lineEnd, c);
+    }
+
+    private int indexOf(int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean lineStartsWith(String prefix) {
+        return lineEnd - pos >= prefix.length() && regionEquals(pos, pos + prefix.length(), prefix);
+    }
+
+    private boolean regionEquals(int from, int to, String text) {
+        if (to - from != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (buffer[from + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void putIfPresent(Map<String, Long> map, String key, Long value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    private static class Cgroup {
+
+        private final Path cpu;
+        private final int pid;
+        private final boolean unified;
+        private Path memory;
+        private Path blkio;
+        private Path pids;
+        private CpuStats previous;
+
+        Cgroup(Path cpu, int pid, boolean unified) {
+            this.cpu = cpu;
+            this.pid = pid;
+            this.unified = unified;
+        }
+
+        Path path(String file) {
+            return cpu.resolve(file);
+        }
+    }
+}
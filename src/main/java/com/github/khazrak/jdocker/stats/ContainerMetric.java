@@ -0,0 +1,27 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+/**
+ * The values derived by {@link ContainerMetricsCalculator}, usable as an index into {@link ContainerMetrics}.
+ */
+public enum ContainerMetric {
+    CPU_PERCENT,
+    MEMORY_USAGE,
+    MEMORY_PERCENT,
+    BLOCK_READ_RATE,
+    BLOCK_WRITE_RATE,
+    NETWORK_RX_RATE,
+    NETWORK_TX_RATE
+}
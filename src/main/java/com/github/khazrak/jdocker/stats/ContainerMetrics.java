@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The latest values of a {@link ContainerMetricsCalculator}. Rates are per second, memory is in bytes and the
+ * timestamp is in nanoseconds since the epoch. The instance is owned by the calculator and overwritten by every
+ * update; copy what needs to be kept.
+ */
+@Getter
+@ToString(exclude = "averages")
+public class ContainerMetrics {
+
+    static final int METRIC_COUNT = ContainerMetric.values().length;
+
+    long timestamp;
+    double cpuPercent;
+    long memoryUsage;
+    long memoryLimit;
+    double memoryPercent;
+    double blockReadRate;
+    double blockWriteRate;
+    double networkRxRate;
+    double networkTxRate;
+    int pids;
+
+    @Getter(AccessLevel.NONE)
+    final double[] averages = new double[StatsWindow.values().length * METRIC_COUNT];
+
+    public double get(ContainerMetric metric) {
+        switch (metric) {
+            case CPU_PERCENT:
+                return cpuPercent;
+            case MEMORY_USAGE:
+                return memoryUsage;
+            case MEMORY_PERCENT:
+                return memoryPercent;
+            case BLOCK_READ_RATE:
+                return blockReadRate;
+            case BLOCK_WRITE_RATE:
+                return blockWriteRate;
+            case NETWORK_RX_RATE:
+                return networkRxRate;
+            case NETWORK_TX_RATE:
+                return networkTxRate;
+            default:
+                throw new IllegalArgumentException("Unknown metric " + metric);
+        }
+    }
+
+    /**
+     * The mean of the metric over the samples within the window, or the current value when no sample with a rate
+     * has been seen yet.
+     */
+    public double average(ContainerMetric metric, StatsWindow window) {
+        return averages[window.ordinal() * METRIC_COUNT + metric.ordinal()];
+    }
+}
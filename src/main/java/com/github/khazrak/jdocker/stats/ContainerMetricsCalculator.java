@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+
+/**
+ * Turns successive samples of one container's stats stream into the values {@code docker stats} shows: CPU and
+ * memory percentages and block I/O and network rates, plus their averages over {@link StatsWindow rolling windows}.
+ *
+ * CPU usage is taken against {@code precpu_stats} when the daemon filled it in and against the previous sample
+ * otherwise. Rates are computed from the {@code read} timestamps, and a counter that goes backwards (the container
+ * restarted) gives a rate of 0 for that sample. Memory usage leaves out the page cache, like the docker cli does.
+ *
+ * All state is kept in primitive fields and arrays that are reused between samples. Not thread safe.
+ */
+public class ContainerMetricsCalculator {
+
+    private static final int METRICS = ContainerMetrics.METRIC_COUNT;
+    private static final ContainerMetric[] METRIC_VALUES = ContainerMetric.values();
+    private static final StatsWindow[] WINDOWS = StatsWindow.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ContainerMetrics metrics = new ContainerMetrics();
+    private final StatsRecord scratch = new StatsRecord();
+
+    private boolean hasPrevious;
+    private long previousTime;
+    private long previousCpu;
+    private long previousSystemCpu;
+    private long previousBlockRead;
+    private long previousBlockWrite;
+    private long previousRx;
+    private long previousTx;
+
+    // Samples within the largest window, indexed by sequence number & mask
+    private long[] times = new long[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY * METRICS];
+    private int mask = INITIAL_CAPACITY - 1;
+    private long next;
+    private final long[] windowStart = new long[WINDOWS.length];
+    private final double[] sums = new double[WINDOWS.length * METRICS];
+
+    /**
+     * Adds a sample and returns the updated metrics, which is the same instance every call.
+     */
+    public ContainerMetrics update(ContainerStats stats) {
+        return update(scratch.set(stats));
+    }
+
+    /**
+     * Adds a sample decoded by {@link StatsRecordDecoder}; this path allocates nothing.
+     */
+    public ContainerMetrics update(StatsRecord record) {
+        long time = record.read;
+        long elapsed = hasPrevious && time != Long.MIN_VALUE ? time - previousTime : 0;
+        double seconds = elapsed / 1e9;
+
+        long cpu = record.cpuTotalUsage;
+        long systemCpu = record.systemCpuUsage;
+        if (record.preSystemCpuUsage > 0) {
+            metrics.cpuPercent = cpuPercent(record, cpu - record.preCpuTotalUsage, systemCpu - record.preSystemCpuUsage);
+        }
+        else if (hasPrevious) {
+            metrics.cpuPercent = cpuPercent(record, cpu - previousCpu, systemCpu - previousSystemCpu);
+        }
+        else {
+            metrics.cpuPercent = 0;
+        }
+
+        long usage = record.memoryUsage;
+        long cache = record.memoryInactiveFile >= 0 ? record.memoryInactiveFile : record.memoryCache;
+        if (cache >= 0 && cache < usage) {
+            usage -= cache;
+        }
+        metrics.memoryUsage = usage;
+        metrics.memoryLimit = record.memoryLimit;
+        metrics.memoryPercent = record.memoryLimit > 0 ? usage * 100.0 / record.memoryLimit : 0;
+
+        long blockRead = record.blockReadBytes;
+        long blockWrite = record.blockWriteBytes;
+        long rx = record.networkRxBytes;
+        long tx = record.networkTxBytes;
+
+        boolean rated = elapsed > 0;
+        metrics.blockReadRate = rated ? rate(blockRead - previousBlockRead, seconds) : 0;
+        metrics.blockWriteRate = rated ? rate(blockWrite - previousBlockWrite, seconds) : 0;
+        metrics.networkRxRate = rated ? rate(rx - previousRx, seconds) : 0;
+        metrics.networkTxRate = rated ? rate(tx - previousTx, seconds) : 0;
+
+        metrics.pids = (int) record.pids;
+        metrics.timestamp = time;
+
+        if (rated) {
+            addToWindows(time);
+        }
+        else if (next == 0) {
+            for (int w = 0; w < WINDOWS.length; w++) {
+                for (int m = 0; m < METRICS; m++) {
+                    metrics.averages[w * METRICS + m] = metrics.get(METRIC_VALUES[m]);
+                }
+            }
+        }
+
+        hasPrevious = time != Long.MIN_VALUE;
+        previousTime = time;
+        previousCpu = cpu;
+        previousSystemCpu = systemCpu;
+        previousBlockRead = blockRead;
+        previousBlockWrite = blockWrite;
+        previousRx = rx;
+        previousTx = tx;
+        return metrics;
+    }
+
+    public ContainerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Forgets all samples, for reuse with another container.
+     */
+    public void reset() {
+        hasPrevious = false;
+        next = 0;
+        for (int w = 0; w < WINDOWS.length; w++) {
+            windowStart[w] = 0;
+        }
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = 0;
+            metrics.averages[i] = 0;
+        }
+    }
+
+    private static double cpuPercent(StatsRecord record, long cpuDelta, long systemDelta) {
+        if (cpuDelta <= 0 || systemDelta <= 0) {
+            return 0;
+        }
+        int cpus = record.onlineCpus > 0 ? record.onlineCpus : record.perCpuCount > 0 ? record.perCpuCount : 1;
+        return (double) cpuDelta / systemDelta * cpus * 100.0;
+    }
+
+    private static double rate(long delta, double seconds) {
+        return delta > 0 ? delta / seconds : 0;
+    }
+
+    private void addToWindows(long time) {
+        // The last window is the largest, so its start is the oldest sample still needed
+        if (next - windowStart[WINDOWS.length - 1] > mask) {
+            grow();
+        }
+        int slot = (int) (next & mask);
+        times[slot] = time;
+        int base = slot * METRICS;
+        values[base + ContainerMetric.CPU_PERCENT.ordinal()] = metrics.cpuPercent;
+        values[base + ContainerMetric.MEMORY_USAGE.ordinal()] = metrics.memoryUsage;
+        values[base + ContainerMetric.MEMORY_PERCENT.ordinal()] = metrics.memoryPercent;
+        values[base + ContainerMetric.BLOCK_READ_RATE.ordinal()] = metrics.blockReadRate;
+        values[base + ContainerMetric.BLOCK_WRITE_RATE.ordinal()] = metrics.blockWriteRate;
+        values[base + ContainerMetric.NETWORK_RX_RATE.ordinal()] = metrics.networkRxRate;
+        values[base + ContainerMetric.NETWORK_TX_RATE.ordinal()] = metrics.networkTxRate;
+        next++;
+
+        for (int w = 0; w < WINDOWS.length; w++) {
+            int sumBase = w * METRICS;
+            for (int m = 0; m < METRICS; m++) {
+                sums[sumBase + m] += values[base + m];
+            }
+            long oldest = time - WINDOWS[w].getNanos();
+            while (next - windowStart[w] > 1 && times[(int) (windowStart[w] & mask)] <= oldest) {
+                int expired = (int) (windowStart[w] & mask) * METRICS;
+                for (int m = 0; m < METRICS; m++) {
+                    sums[sumBase + m] -= values[expired + m];
+                }
+                windowStart[w]++;
+            }
+            long count = next - windowStart[w];
+            for (int m = 0; m < METRICS; m++) {
+                metrics.averages[sumBase + m] = sums[sumBase + m] / count;
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = times.length * 2;
+        long[] newTimes = new long[capacity];
+        double[] newValues = new double[capacity * METRICS];
+        int newMask = capacity - 1;
+        for (long seq = windowStart[WINDOWS.length - 1]; seq < next; seq++) {
+            int from = (int) (seq & mask);
+            int to = (int) (seq & newMask);
+            newTimes[to] = times[from];
+            System.arraycopy(values, from * METRICS, newValues, to * METRICS, METRICS);
+        }
+        times = newTimes;
+        values = newValues;
+        mask = newMask;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.http.StreamSubscription;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the latest stats sample of every tracked container in memory, so current usage can be read without the
+ * second or so a one-shot {@link DockerClient#stats(String)} call spends waiting for the daemon to collect two
+ * samples.
+ *
+ * A container is tracked on first use, which opens a stats stream for it in the background. A stream that ends (the
+ * container stopped) is reopened on the next access, one that fails (the container is gone) stops tracking the
+ * container. Containers that have not been read for the idle timeout are untracked and their stream closed.
+ */
+public class ContainerStatsCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContainerStatsCache.class);
+    private static final AtomicInteger count = new AtomicInteger();
+    private static final long MIN_SWEEP_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final DockerClient client;
+    private final long idleTimeout;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    public ContainerStatsCache(DockerClient client) {
+        this(client, 5, TimeUnit.MINUTES);
+    }
+
+    public ContainerStatsCache(DockerClient client, long idleTimeout, TimeUnit unit) {
+        this.client = client;
+        this.idleTimeout = unit.toNanos(idleTimeout);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jdocker-stats-cache-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(this.idleTimeout / 2, MIN_SWEEP_INTERVAL);
+        evictor.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts streaming stats for the container unless it is already tracked.
+     */
+    public void track(String id) {
+        touch(id);
+    }
+
+    public void untrack(String id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            entry.close();
+        }
+    }
+
+    public Set<String> tracked() {
+        return entries.keySet();
+    }
+
+    /**
+     * The latest sample of the container, tracking it if needed. Never waits for the daemon, so this is null until
+     * the first sample of a newly tracked container has arrived.
+     */
+    public ContainerStats latestStats(String id) {
+        return touch(id).latest;
+    }
+
+    /**
+     * Like {@link #latestStats(String)}, but waits up to the timeout for the first sample of a newly tracked
+     * container.
+     */
+    public ContainerStats latestStats(String id, long timeout, TimeUnit unit) throws InterruptedException {
+        Entry entry = touch(id);
+        entry.first.await(timeout, unit);
+        return entry.latest;
+    }
+
+    /**
+     * The latest sample of every tracked container that has one. Only reads what is cached: it does not count as an
+     * access, so idle containers are still evicted, and it neither tracks containers nor reopens ended streams.
+     */
+    public Map<String, ContainerStats> snapshotAll() {
+        Map<String, ContainerStats> snapshot = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            ContainerStats stats = entry.latest;
+            if (stats != null) {
+                snapshot.put(entry.id, stats);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Tracks all of the containers and returns the latest sample of those that have one, waiting up to the timeout
+     * in total for the first samples of newly tracked containers.
+     */
+    public Map<String, ContainerStats> snapshotAll(Collection<String> ids, long timeout, TimeUnit unit) throws InterruptedException {
+        for (String id : ids) {
+            touch(id);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Map<String, ContainerStats> snapshot = new HashMap<>();
+        for (String id : ids) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                continue;
+            }
+            entry.first.await(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            if (entry.latest != null) {
+                snapshot.put(id, entry.latest);
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        for (String id : entries.keySet()) {
+            untrack(id);
+        }
+    }
+
+    private Entry touch(String id) {
+        if (closed) {
+            throw new IllegalStateException("Stats cache is closed");
+        }
+        while (true) {
+            // the access is recorded inside compute, so it can not interleave with the eviction check of the entry
+            Entry entry = entries.compute(id, (key, current) -> {
+                Entry touched = current != null ? current : new Entry(key);
+                touched.lastAccess = System.nanoTime();
+                return touched;
+            });
+            if (entry.ensureOpen()) {
+                return entry;
+            }
+            // closed by a failure or untrack in the meantime, start over with a fresh entry
+            entries.remove(id, entry);
+        }
+    }
+
+    void evictIdle() {
+        long now = System.nanoTime();
+        for (Entry entry : entries.values()) {
+            if (now - entry.lastAccess > idleTimeout && evict(entry, now)) {
+                logger.debug("Untracking idle container {}", entry.id);
+                entry.close();
+            }
+        }
+    }
+
+    private boolean evict(Entry entry, long now) {
+        boolean[] evicted = new boolean[1];
+        entries.computeIfPresent(entry.id, (id, current) -> {
+            if (current == entry && now - current.lastAccess > idleTimeout) {
+                evicted[0] = true;
+                return null;
+            }
+            return current;
+        });
+        return evicted[0];
+    }
+
+    private class Entry implements ContainerStatsListener {
+
+        private final String id;
+        private final CountDownLatch first = new CountDownLatch(1);
+        private volatile ContainerStats latest;
+        private volatile long lastAccess;
+        private StreamSubscription subscription;
+        private boolean closed;
+
+        Entry(String id) {
+            this.id = id;
+        }
+
+        /**
+         * @return false if the entry was closed
+         */
+        synchronized boolean ensureOpen() {
+            if (closed) {
+                return false;
+            }
+            if (subscription == null || !subscription.isOpen()) {
+                subscription = client.subscribeStats(id, this);
+            }
+            return true;
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onStats(ContainerStats stats) {
+            latest = stats;
+            first.countDown();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            logger.debug("Stats stream of container {} failed, untracking it", id, throwable);
+            if (entries.remove(id, this)) {
+                close();
+            }
+            first.countDown();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.http.StreamListener;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Turns the pieces of a streaming stats body into {@link ContainerStats}. The daemon writes one JSON document per
+ * line, so complete lines are collected in a buffer that is reused for every sample and parsed in place.
+ */
+public class ContainerStatsDecoder implements StreamListener {
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_DOCUMENT_SIZE = 16 * 1024 * 1024;
+
+    private final ObjectReader reader;
+    private final ContainerStatsListener listener;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+    private boolean failed;
+
+    /**
+     * @param reader a reader for {@link ContainerStats}
+     */
+    public ContainerStatsDecoder(ObjectReader reader, ContainerStatsListener listener) {
+        this.reader = reader;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onData(ByteBuffer data) {
+        if (failed) {
+            return;
+        }
+        int start = data.position();
+        int limit = data.limit();
+        for (int i = start; i < limit; i++) {
+            if (data.get(i) == '\n') {
+                append(data, i - start);
+                data.get();
+                start = i + 1;
+                try {
+                    emit();
+                } catch (IOException e) {
+                    throw new DockerClientException("Exception during reading of stats", e);
+                }
+            }
+        }
+        append(data, limit - start);
+    }
+
+    @Override
+    public void onComplete() {
+        if (failed) {
+            return;
+        }
+        try {
+            emit();
+        } catch (IOException e) {
+            onError(e);
+            return;
+        }
+        listener.onComplete();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (!failed) {
+            failed = true;
+            listener.onError(throwable);
+        }
+    }
+
+    private void append(ByteBuffer data, int count) {
+        while (length + count > buffer.length) {
+            grow();
+        }
+        data.get(buffer, length, count);
+        length += count;
+    }
+
+    private void emit() throws IOException {
+        int end = length;
+        while (end > 0 && (buffer[end - 1] == '\r' || buffer[end - 1] == ' ')) {
+            end--;
+        }
+        length = 0;
+        if (end > 0) {
+            ContainerStats stats = reader.readValue(buffer, 0, end);
+            listener.onStats(stats);
+        }
+    }
+
+    private void grow() {
+        if (buffer.length >= MAX_DOCUMENT_SIZE) {
+            throw new IllegalStateException("Stats document larger than " + MAX_DOCUMENT_SIZE + " bytes");
+        }
+        byte[] grown = new byte[buffer.length * 2];
+        System.arraycopy(buffer, 0, grown, 0, length);
+        buffer = grown;
+    }
+}
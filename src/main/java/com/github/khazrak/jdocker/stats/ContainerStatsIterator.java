@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the samples of a streaming stats response one at a time, using a single parser over the response body
+ * for every sample. Blocks in {@link #hasNext()} until the daemon sends the next sample (about once a second).
+ */
+public class ContainerStatsIterator implements Iterator<ContainerStats>, AutoCloseable {
+
+    private final InputStream in;
+    private final ObjectReader reader;
+    private final JsonParser parser;
+    private ContainerStats next;
+    private boolean closed;
+
+    /**
+     * @param reader a reader for {@link ContainerStats}
+     */
+    public ContainerStatsIterator(InputStream in, ObjectReader reader) throws IOException {
+        this.in = in;
+        this.reader = reader;
+        this.parser = reader.getFactory().createParser(in);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                close();
+                return false;
+            }
+            next = reader.readValue(parser);
+            return true;
+        } catch (IOException e) {
+            close();
+            throw new DockerClientException("Exception during reading of stats", e);
+        }
+    }
+
+    @Override
+    public ContainerStats next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ContainerStats stats = next;
+        next = null;
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                parser.close();
+                in.close();
+            } catch (IOException e) {
+                // the stream is abandoned either way
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+
+/**
+ * Receives the samples of a stats stream. Callbacks run on the thread reading the stream, which may be a shared
+ * selector thread, so they should return quickly.
+ */
+public interface ContainerStatsListener {
+
+    void onStats(ContainerStats stats);
+
+    default void onComplete() {
+    }
+
+    default void onError(Throwable throwable) {
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * One pressure stall information file of a cgroup ({@code cpu.pressure}, {@code memory.pressure} or
+ * {@code io.pressure}). Averages are percentages of wall time over 10s, 60s and 300s, totals are in microseconds.
+ * The {@code full} values are 0 for cpu on kernels that only report {@code some}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class Pressure {
+
+    private final double someAvg10;
+    private final double someAvg60;
+    private final double someAvg300;
+    private final long someTotal;
+    private final double fullAvg10;
+    private final double fullAvg60;
+    private final double fullAvg300;
+    private final long fullTotal;
+}
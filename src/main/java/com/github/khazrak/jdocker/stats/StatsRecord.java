@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+import com.github.khazrak.jdocker.model.api124.stats.BlkIOStats;
+import com.github.khazrak.jdocker.model.api124.stats.CpuStats;
+import com.github.khazrak.jdocker.model.api124.stats.IOServiceBytes;
+import com.github.khazrak.jdocker.model.api124.stats.MemoryStats;
+import com.github.khazrak.jdocker.model.api124.stats.NetworkStats;
+import com.github.khazrak.jdocker.utils.Rfc3339;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A stats sample flattened into primitive fields, meant to be reused for every sample of a stream so decoding with
+ * {@link StatsRecordDecoder} allocates nothing once the per-cpu array has grown to size. Block I/O and network
+ * counters are summed over devices and interfaces. Memory page cache counters the daemon did not send are -1. Only the
+ * first {@code perCpuCount} entries of {@code perCpuUsage} are set.
+ *
+ * {@code read} is in nanoseconds since the epoch, {@link Long#MIN_VALUE} when missing or the zero time.
+ */
+@Getter
+public class StatsRecord {
+
+    long read;
+
+    long cpuTotalUsage;
+    long cpuKernelUsage;
+    long cpuUserUsage;
+    long systemCpuUsage;
+    int onlineCpus;
+    long[] perCpuUsage = new long[16];
+    int perCpuCount;
+    long throttlingPeriods;
+    long throttledPeriods;
+    long throttledTime;
+
+    long preCpuTotalUsage;
+    long preSystemCpuUsage;
+
+    long memoryUsage;
+    long memoryMaxUsage;
+    long memoryLimit;
+    long memoryFailCount;
+    long memoryCache;
+    long memoryRss;
+    long memoryInactiveFile;
+
+    long blockReadBytes;
+    long blockWriteBytes;
+
+    int networkCount;
+    long networkRxBytes;
+    long networkRxPackets;
+    long networkRxErrors;
+    long networkRxDropped;
+    long networkTxBytes;
+    long networkTxPackets;
+    long networkTxErrors;
+    long networkTxDropped;
+
+    long pids;
+
+    public void clear() {
+        read = Long.MIN_VALUE;
+        cpuTotalUsage = 0;
+        cpuKernelUsage = 0;
+        cpuUserUsage = 0;
+        systemCpuUsage = 0;
+        onlineCpus = 0;
+        perCpuCount = 0;
+        throttlingPeriods = 0;
+        throttledPeriods = 0;
+        throttledTime = 0;
+        preCpuTotalUsage = 0;
+        preSystemCpuUsage = 0;
+        memoryUsage = 0;
+        memoryMaxUsage = 0;
+        memoryLimit = 0;
+        memoryFailCount = 0;
+        memoryCache = -1;
+        memoryRss = -1;
+        memoryInactiveFile = -1;
+        blockReadBytes = 0;
+        blockWriteBytes = 0;
+        networkCount = 0;
+        networkRxBytes = 0;
+        networkRxPackets = 0;
+        networkRxErrors = 0;
+        networkRxDropped = 0;
+        networkTxBytes = 0;
+        networkTxPackets = 0;
+        networkTxErrors = 0;
+        networkTxDropped = 0;
+        pids = 0;
+    }
+
+    void addPerCpuUsage(long usage) {
+        if (perCpuCount == perCpuUsage.length) {
+            perCpuUsage = Arrays.copyOf(perCpuUsage, perCpuUsage.length * 2);
+        }
+        perCpuUsage[perCpuCount++] = usage;
+    }
+
+    /**
+     * Fills the record from a sample decoded into the model classes.
+     */
+    public StatsRecord set(ContainerStats stats) {
+        clear();
+        if (stats.getRead() != null) {
+            read = Rfc3339.parseEpochNanos(stats.getRead());
+        }
+
+        CpuStats cpu = stats.getCpuStats();
+        if (cpu != null) {
+            systemCpuUsage = cpu.getSystemCpuUsage();
+            onlineCpus = cpu.getOnlineCpus();
+            if (cpu.getCpuUsage() != null) {
+                cpuTotalUsage = cpu.getCpuUsage().getTotalUsage();
+                cpuKernelUsage = cpu.getCpuUsage().getUsageInKernelMode();
+                cpuUserUsage = cpu.getCpuUsage().getUsageInUsermode() != null ? cpu.getCpuUsage().getUsageInUsermode() : 0;
+                List<Long> perCpu = cpu.getCpuUsage().getPerCpuUsage();
+                if (perCpu != null) {
+                    for (int i = 0; i < perCpu.size(); i++) {
+                        addPerCpuUsage(perCpu.get(i));
+                    }
+                }
+            }
+            Map<String, Long> throttling = cpu.getThrottlingData();
+            if (throttling != null) {
+                throttlingPeriods = throttling.getOrDefault("periods", 0L);
+                throttledPeriods = throttling.getOrDefault("throttled_periods", 0L);
+                throttledTime = throttling.getOrDefault("throttled_time", 0L);
+            }
+        }
+        CpuStats preCpu = stats.getPreCpuStats();
+        if (preCpu != null) {
+            preSystemCpuUsage = preCpu.getSystemCpuUsage();
+            preCpuTotalUsage = preCpu.getCpuUsage() != null ? preCpu.getCpuUsage().getTotalUsage() : 0;
+        }
+
+        MemoryStats memory = stats.getMemoryStats();
+        if (memory != null) {
+            memoryUsage = memory.getUsage();
+            memoryMaxUsage = memory.getMaxUsage();
+            memoryLimit = memory.getLimit();
+            memoryFailCount = memory.getFailCount();
+            Map<String, Long> detail = memory.getStats();
+            if (detail != null) {
+                memoryCache = detail.getOrDefault("cache", -1L);
+                memoryRss = detail.getOrDefault("rss", -1L);
+                memoryInactiveFile = detail.getOrDefault("total_inactive_file", detail.getOrDefault("inactive_file", -1L));
+            }
+        }
+
+        BlkIOStats blkio = stats.getBlkioStats();
+        if (blkio != null && blkio.getIoServiceBytesRecursive() != null) {
+            List<IOServiceBytes> entries = blkio.getIoServiceBytesRecursive();
+            for (int i = 0; i < entries.size(); i++) {
+                addBlockIo(entries.get(i).getOp(), entries.get(i).getValue());
+            }
+        }
+
+        if (stats.getNetworksStats() != null) {
+            for (NetworkStats network : stats.getNetworksStats().values()) {
+                networkCount++;
+                networkRxBytes += network.getRxBytes();
+                networkRxPackets += network.getRxPackets();
+                networkRxErrors += network.getRxErrors();
+                networkRxDropped += network.getRxDropped();
+                networkTxBytes += network.getTxBytes();
+                networkTxPackets += network.getTxPackets();
+                networkTxErrors += network.getTxErrors();
+                networkTxDropped += network.getTxDropped();
+            }
+        }
+
+        Map<String, Integer> pidsStats = stats.getPidsStats();
+        if (pidsStats != null && pidsStats.get("current") != null) {
+            pids = pidsStats.get("current");
+        }
+        return this;
+    }
+
+    private void addBlockIo(String op, long value) {
+        if ("Read".equalsIgnoreCase(op)) {
+            blockReadBytes += value;
+        }
+        else if ("Write".equalsIgnoreCase(op)) {
+            blockWriteBytes += value;
+        }
+    }
+}
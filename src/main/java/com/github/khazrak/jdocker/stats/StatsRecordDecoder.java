@@ -0,0 +1,413 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.utils.Rfc3339;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the samples of a streaming stats response into a caller supplied {@link StatsRecord}, reading the tokens
+ * directly instead of binding to the model classes. Field names come from Jackson's symbol table and numbers and the
+ * timestamp are read from the parser's buffers, so once warmed up no objects are created per sample.
+ *
+ * Blocks in {@link #next(StatsRecord)} until the daemon sends the next sample. Not thread safe.
+ */
+public class StatsRecordDecoder implements AutoCloseable {
+
+    private final InputStream in;
+    private final JsonParser parser;
+    private final CharArraySequence text = new CharArraySequence();
+    private boolean closed;
+
+    public StatsRecordDecoder(InputStream in, JsonFactory factory) throws IOException {
+        this.in = in;
+        this.parser = factory.createParser(in);
+    }
+
+    /**
+     * Reads the next sample into the record.
+     *
+     * @return false at the end of the stream, the record is left cleared
+     */
+    public boolean next(StatsRecord record) {
+        record.clear();
+        if (closed) {
+            return false;
+        }
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                close();
+                return false;
+            }
+            decode(parser, record, text);
+            return true;
+        } catch (IOException e) {
+            close();
+            throw new DockerClientException("Exception during reading of stats", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                parser.close();
+                in.close();
+            } catch (IOException e) {
+                // the stream is abandoned either way
+            }
+        }
+    }
+
+    /**
+     * Decodes one sample from a parser positioned on its {@code START_OBJECT}, leaving it on the matching
+     * {@code END_OBJECT}. The record is expected to be cleared.
+     */
+    public static void decode(JsonParser parser, StatsRecord record) throws IOException {
+        decode(parser, record, new CharArraySequence());
+    }
+
+    private static void decode(JsonParser parser, StatsRecord record, CharArraySequence text) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "read":
+                    text.set(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    record.read = Rfc3339.parseEpochNanos(text, 0, text.length());
+                    break;
+                case "cpu_stats":
+                    cpuStats(parser, record, false);
+                    break;
+                case "precpu_stats":
+                    cpuStats(parser, record, true);
+                    break;
+                case "memory_stats":
+                    memoryStats(parser, record);
+                    break;
+                case "blkio_stats":
+                    blkioStats(parser, record);
+                    break;
+                case "networks":
+                    networks(parser, record);
+                    break;
+                case "pids_stats":
+                    pidsStats(parser, record);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static void cpuStats(JsonParser parser, StatsRecord record, boolean previous) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "cpu_usage":
+                    cpuUsage(parser, record, previous);
+                    break;
+                case "system_cpu_usage":
+                    if (previous) {
+                        record.preSystemCpuUsage = parser.getLongValue();
+                    }
+                    else {
+                        record.systemCpuUsage = parser.getLongValue();
+                    }
+                    break;
+                case "online_cpus":
+                    if (!previous) {
+                        record.onlineCpus = parser.getIntValue();
+                    }
+                    break;
+                case "throttling_data":
+                    if (previous) {
+                        parser.skipChildren();
+                    }
+                    else {
+                        throttlingData(parser, record);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static void cpuUsage(JsonParser parser, StatsRecord record, boolean previous) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (previous) {
+                if (field.equals("total_usage")) {
+                    record.preCpuTotalUsage = parser.getLongValue();
+                }
+                else {
+                    parser.skipChildren();
+                }
+                continue;
+            }
+            switch (field) {
+                case "total_usage":
+                    record.cpuTotalUsage = parser.getLongValue();
+                    break;
+                case "usage_in_kernelmode":
+                    record.cpuKernelUsage = parser.getLongValue();
+                    break;
+                case "usage_in_usermode":
+                    record.cpuUserUsage = parser.getLongValue();
+                    break;
+                case "percpu_usage":
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        record.addPerCpuUsage(parser.getLongValue());
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static void throttlingData(JsonParser parser, StatsRecord record) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "periods":
+                    record.throttlingPeriods = parser.getLongValue();
+                    break;
+                case "throttled_periods":
+                    record.throttledPeriods = parser.getLongValue();
+                    break;
+                case "throttled_time":
+                    record.throttledTime = parser.getLongValue();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static void memoryStats(JsonParser parser, StatsRecord record) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "usage":
+                    record.memoryUsage = parser.getLongValue();
+                    break;
+                case "max_usage":
+                    record.memoryMaxUsage = parser.getLongValue();
+                    break;
+                case "limit":
+                    record.memoryLimit = parser.getLongValue();
+                    break;
+                case "failcnt":
+                    record.memoryFailCount = parser.getLongValue();
+                    break;
+                case "stats":
+                    memoryDetail(parser, record);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static void memoryDetail(JsonParser parser, StatsRecord record) throws IOException {
+        long inactiveFile = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "cache":
+                    record.memoryCache = parser.getLongValue();
+                    break;
+                case "rss":
+                    record.memoryRss = parser.getLongValue();
+                    break;
+                case "total_inactive_file":
+                    record.memoryInactiveFile = parser.getLongValue();
+                    break;
+                case "inactive_file":
+                    inactiveFile = parser.getLongValue();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (record.memoryInactiveFile < 0) {
+            record.memoryInactiveFile = inactiveFile;
+        }
+    }
+
+    private static void blkioStats(JsonParser parser, StatsRecord record) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY && field.equals("io_service_bytes_recursive")) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    ioServiceBytes(parser, record);
+                }
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void ioServiceBytes(JsonParser parser, StatsRecord record) throws IOException {
+        int op = 0;
+        long value = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("op")) {
+                op = textEqualsIgnoreCase(parser, "Read") ? 1 : textEqualsIgnoreCase(parser, "Write") ? 2 : 0;
+            }
+            else if (field.equals("value")) {
+                value = parser.getLongValue();
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        if (op == 1) {
+            record.blockReadBytes += value;
+        }
+        else if (op == 2) {
+            record.blockWriteBytes += value;
+        }
+    }
+
+    private static void networks(JsonParser parser, StatsRecord record) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            record.networkCount++;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "rx_bytes":
+                        record.networkRxBytes += parser.getLongValue();
+                        break;
+                    case "rx_packets":
+                        record.networkRxPackets += parser.getLongValue();
+                        break;
+                    case "rx_errors":
+                        record.networkRxErrors += parser.getLongValue();
+                        break;
+                    case "rx_dropped":
+                        record.networkRxDropped += parser.getLongValue();
+                        break;
+                    case "tx_bytes":
+                        record.networkTxBytes += parser.getLongValue();
+                        break;
+                    case "tx_packets":
+                        record.networkTxPackets += parser.getLongValue();
+                        break;
+                    case "tx_errors":
+                        record.networkTxErrors += parser.getLongValue();
+                        break;
+                    case "tx_dropped":
+                        record.networkTxDropped += parser.getLongValue();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static void pidsStats(JsonParser parser, StatsRecord record) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("current")) {
+                record.pids = parser.getLongValue();
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static boolean textEqualsIgnoreCase(JsonParser parser, String expected) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.VALUE_STRING || parser.getTextLength() != expected.length()) {
+            return false;
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toLowerCase(chars[offset + i]) != Character.toLowerCase(expected.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A reusable view of a parser's character buffer.
+     */
+    private static final class CharArraySequence implements CharSequence {
+
+        private char[] chars;
+        private int offset;
+        private int length;
+
+        void set(char[] chars, int offset, int length) {
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rolling windows {@link ContainerMetricsCalculator} keeps averages for.
+ */
+public enum StatsWindow {
+    TEN_SECONDS(10),
+    ONE_MINUTE(60),
+    FIVE_MINUTES(300);
+
+    @Getter
+    private final long nanos;
+
+    StatsWindow(long seconds) {
+        this.nanos = TimeUnit.SECONDS.toNanos(seconds);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats.history;
+
+import java.nio.LongBuffer;
+
+/**
+ * Reads a bit stream written by {@link BitOutput}, from heap or mapped words.
+ */
+final class BitInput {
+
+    private final LongBuffer words;
+    private long position;
+
+    BitInput(LongBuffer words) {
+        this.words = words;
+    }
+
+    boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    long readBits(int count) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) (position >>> 6);
+        int used = (int) (position & 63);
+        int available = 64 - used;
+        position += count;
+        if (count <= available) {
+            return (words.get(index) << used) >>> (64 - count);
+        }
+        int rest = count - available;
+        long high = words.get(index) & ((1L << available) - 1);
+        return (high << rest) | (words.get(index + 1) >>> (64 - rest));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats.history;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable bit stream backed by a long array, bits are written most significant first.
+ */
+final class BitOutput {
+
+    private long[] words = new long[32];
+    private long bits;
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Writes the low {@code count} bits of {@code value}.
+     */
+    void writeBits(long value, int count) {
+        if (count == 0) {
+            return;
+        }
+        int index = (int) (bits >>> 6);
+        int free = 64 - (int) (bits & 63);
+        if (index + 2 > words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        if (count < 64) {
+            value &= (1L << count) - 1;
+        }
+        if (count <= free) {
+            words[index] |= value << (free - count);
+        }
+        else {
+            int rest = count - free;
+            words[index] |= value >>> rest;
+            words[index + 1] |= value << (64 - rest);
+        }
+        bits += count;
+    }
+
+    long bits() {
+        return bits;
+    }
+
+    int wordCount() {
+        return (int) ((bits + 63) >>> 6);
+    }
+
+    /**
+     * A view of the words written so far, only valid until the next write.
+     */
+    LongBuffer view() {
+        return LongBuffer.wrap(words, 0, wordCount()).slice();
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(words, wordCount());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats.history;
+
+import java.nio.LongBuffer;
+
+/**
+ * A sealed run of encoded rows, held on the heap or in a {@link SpillFile}.
+ */
+final class Block {
+
+    final long firstTime;
+    final long lastTime;
+    final int count;
+    /**
+     * Index of the spill segment holding the words, -1 when they are on the heap
+     */
+    final int segment;
+    private final long[] words;
+    private final LongBuffer mapped;
+
+    Block(long firstTime, long lastTime, int count, long[] words) {
+        this(firstTime, lastTime, count, words, null, -1);
+    }
+
+    Block(long firstTime, long lastTime, int count, long[] words, LongBuffer mapped, int segment) {
+        this.firstTime = firstTime;
+        this.lastTime = lastTime;
+        this.count = count;
+        this.segment = segment;
+        this.words = words;
+        this.mapped = mapped;
+    }
+
+    boolean overlaps(long from, long to) {
+        return lastTime >= from && firstTime <= to;
+    }
+
+    boolean isSpilled() {
+        return mapped != null;
+    }
+
+    long heapBytes() {
+        return words != null ? words.length * 8L : 0;
+    }
+
+    LongBuffer words() {
+        return mapped != null ? mapped.duplicate() : LongBuffer.wrap(words);
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats.history;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The result of {@link MetricsHistory#downsample}: one value per step that had samples, the timestamp being the start
+ * of the step in nanoseconds since the epoch. Only the first {@code size} entries of the arrays are used.
+ */
+@Getter
+@AllArgsConstructor
+public class DownsampledSeries {
+
+    private final long[] timestamps;
+    private final double[] values;
+    private final int size;
+}
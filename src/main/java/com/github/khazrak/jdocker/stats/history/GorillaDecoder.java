@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats.history;
+
+import java.nio.LongBuffer;
+
+/**
+ * Reads back the rows written by a {@link GorillaEncoder}.
+ */
+final class GorillaDecoder {
+
+    private final BitInput in;
+    private final int count;
+    private final int columns;
+    private final long[] values;
+    private final int[] leading;
+    private final int[] trailing;
+
+    private int index;
+    private long time;
+    private long delta;
+
+    GorillaDecoder(LongBuffer words, int count, int columns) {
+        this.in = new BitInput(words);
+        this.count = count;
+        this.columns = columns;
+        this.values = new long[columns];
+        this.leading = new int[columns];
+        this.trailing = new int[columns];
+    }
+
+    boolean next() {
+        if (index >= count) {
+            return false;
+        }
+        if (index == 0) {
+            time = in.readBits(64);
+            for (int i = 0; i < columns; i++) {
+                values[i] = in.readBits(64);
+            }
+        }
+        else {
+            delta += readDeltaOfDelta();
+            time += delta;
+            for (int i = 0; i < columns; i++) {
+                readValue(i);
+            }
+        }
+        index++;
+        return true;
+    }
+
+    long time() {
+        return time;
+    }
+
+    double value(int column) {
+        return Double.longBitsToDouble(values[column]);
+    }
+
+    private long readDeltaOfDelta() {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return in.readBits(7) - 63;
+        }
+        if (!in.readBit()) {
+            return in.readBits(9) - 255;
+        }
+        if (!in.readBit()) {
+            return in.readBits(12) - 2047;
+        }
+        return in.readBits(64);
+    }
+
+    private void readValue(int column) {
+        if (!in.readBit()) {
+            return;
+        }
+        if (in.readBit()) {
+            leading[column] = (int) in.readBits(5);
+            int length = (int) in.readBits(6);
+            if (length == 0) {
+                length = 64;
+            }
+            trailing[column] = 64 - leading[column] - length;
+        }
+        int length = 64 - leading[column] - trailing[column];
+        values[column] ^= in.readBits(length) << trailing[column];
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats.history;
+
+/**
+ * Encodes rows of a timestamp and a fixed number of double columns the way Facebook's Gorilla does: timestamps as
+ * delta of deltas, values as the XOR with the previous value of the column, keeping only its meaningful bits.
+ *
+ * Timestamp delta of deltas are written as {@code 0}, {@code 10}+7 bits, {@code 110}+9 bits, {@code 1110}+12 bits
+ * or {@code 1111}+64 bits. Values are written as {@code 0} when unchanged, {@code 10}+bits when the meaningful bits
+ * fit in the previous window, or {@code 11}+5 bits of leading zeros+6 bits of length+bits otherwise. The first row
+ * is stored raw.
+ */
+final class GorillaEncoder {
+
+    private final BitOutput out = new BitOutput();
+    private final int columns;
+    private final long[] previousValues;
+    private final int[] previousLeading;
+    private final int[] previousTrailing;
+
+    private int count;
+    private long firstTime;
+    private long previousTime;
+    private long previousDelta;
+
+    GorillaEncoder(int columns) {
+        this.columns = columns;
+        this.previousValues = new long[columns];
+        this.previousLeading = new int[columns];
+        this.previousTrailing = new int[columns];
+    }
+
+    void append(long time, double[] row) {
+        if (count == 0) {
+            firstTime = time;
+            out.writeBits(time, 64);
+            for (int i = 0; i < columns; i++) {
+                long bits = Double.doubleToRawLongBits(row[i]);
+                out.writeBits(bits, 64);
+                previousValues[i] = bits;
+                previousLeading[i] = -1;
+            }
+        }
+        else {
+            long delta = time - previousTime;
+            writeDeltaOfDelta(delta - previousDelta);
+            previousDelta = delta;
+            for (int i = 0; i < columns; i++) {
+                writeValue(i, Double.doubleToRawLongBits(row[i]));
+            }
+        }
+        previousTime = time;
+        count++;
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            out.writeBits(0, 1);
+        }
+        else if (dod >= -63 && dod <= 64) {
+            out.writeBits(0b10, 2);
+            out.writeBits(dod + 63, 7);
+        }
+        else if (dod >= -255 && dod <= 256) {
+            out.writeBits(0b110, 3);
+            out.writeBits(dod + 255, 9);
+        }
+        else if (dod >= -2047 && dod <= 2048) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(dod + 2047, 12);
+        }
+        else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(dod, 64);
+        }
+    }
+
+    private void writeValue(int column, long bits) {
+        long xor = bits ^ previousValues[column];
+        previousValues[column] = bits;
+        if (xor == 0) {
+            out.writeBits(0, 1);
+            return;
+        }
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (previousLeading[column] >= 0 && leading >= previousLeading[column] && trailing >= previousTrailing[column]) {
+            out.writeBits(0b10, 2);
+            int length = 64 - previousLeading[column] - previousTrailing[column];
+            out.writeBits(xor >>> previousTrailing[column], length);
+        }
+        else {
+            int length = 64 - leading - trailing;
+            out.writeBits(0b11, 2);
+            out.writeBits(leading, 5);
+            out.writeBits(length & 63, 6);
+            out.writeBits(xor >>> trailing, length);
+            previousLeading[column] = leading;
+            previousTrailing[column] = trailing;
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstTime() {
+        return firstTime;
+    }
+
+    long lastTime() {
+        return previousTime;
+    }
+
+    BitOutput output() {
+        return out;
+    }
+}
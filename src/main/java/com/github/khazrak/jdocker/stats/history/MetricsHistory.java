@@ -0,0 +1,306 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats.history;
+
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+import com.github.khazrak.jdocker.stats.ContainerMetric;
+import com.github.khazrak.jdocker.stats.ContainerMetrics;
+import com.github.khazrak.jdocker.stats.ContainerMetricsCalculator;
+import com.github.khazrak.jdocker.stats.ContainerStatsListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * History of the derived metrics of many containers, kept in Gorilla style compressed blocks (delta of delta
+ * timestamps, XOR compressed values) so hours of one second samples take a few bytes per sample instead of the
+ * hundreds a {@link ContainerStats} object does.
+ *
+ * Each container has one series with a column per {@link ContainerMetric}. Samples are appended to an open block that
+ * is sealed after {@link MetricsHistoryParameters#getSamplesPerBlock()} samples and, if a spill file is configured,
+ * moved off the heap into a memory mapped file. Timestamps are kept with millisecond precision and samples older than
+ * the newest one of the container are ignored.
+ */
+public class MetricsHistory implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHistory.class);
+    private static final ContainerMetric[] METRICS = ContainerMetric.values();
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final MetricsHistoryParameters params;
+    private final SpillFile spill;
+    private final ConcurrentMap<String, Series> series = new ConcurrentHashMap<>();
+
+    public MetricsHistory() {
+        this(MetricsHistoryParameters.defaults());
+    }
+
+    public MetricsHistory(MetricsHistoryParameters params) {
+        this.params = params;
+        if (params.getSpillFile() != null) {
+            try {
+                this.spill = new SpillFile(params.getSpillFile(), params.getSpillSegmentSize());
+            } catch (IOException e) {
+                throw new DockerClientException("Could not open spill file " + params.getSpillFile(), e);
+            }
+        }
+        else {
+            this.spill = null;
+        }
+    }
+
+    /**
+     * Derives the metrics of a raw stats sample, with the previous sample of the same container, and records them.
+     */
+    public void record(String id, ContainerStats stats) {
+        Series s = series(id);
+        synchronized (s) {
+            s.append(s.calculator.update(stats));
+        }
+    }
+
+    public void record(String id, ContainerMetrics metrics) {
+        Series s = series(id);
+        synchronized (s) {
+            s.append(metrics);
+        }
+    }
+
+    /**
+     * A listener recording every sample of a stats stream, for {@code client.subscribeStats(id, history.listener(id))}.
+     */
+    public ContainerStatsListener listener(String id) {
+        return stats -> record(id, stats);
+    }
+
+    public Set<String> containers() {
+        return series.keySet();
+    }
+
+    public void remove(String id) {
+        Series s = series.remove(id);
+        if (s != null) {
+            synchronized (s) {
+                s.removed = true;
+                s.sealed.forEach(this::release);
+                s.sealed.clear();
+            }
+        }
+    }
+
+    /**
+     * Passes the samples of the metric within {@code [from, to]} (nanoseconds since the epoch) to the consumer in
+     * time order. The consumer runs while the series is locked, so it should not record into this history.
+     */
+    public void query(String id, ContainerMetric metric, long from, long to, SampleConsumer consumer) {
+        Series s = series.get(id);
+        if (s == null) {
+            return;
+        }
+        long fromMillis = Math.floorDiv(from, NANOS_PER_MILLI);
+        long toMillis = Math.floorDiv(to, NANOS_PER_MILLI);
+        int column = metric.ordinal();
+        synchronized (s) {
+            for (Block block : s.sealed) {
+                if (block.overlaps(fromMillis, toMillis)) {
+                    scan(block.words(), block.count, column, fromMillis, toMillis, consumer);
+                }
+            }
+            GorillaEncoder open = s.open;
+            if (open.count() > 0 && open.lastTime() >= fromMillis && open.firstTime() <= toMillis) {
+                scan(open.output().view(), open.count(), column, fromMillis, toMillis, consumer);
+            }
+        }
+    }
+
+    /**
+     * Combines the samples of the metric within {@code [from, to)} into steps of {@code step} nanoseconds starting
+     * at {@code from}. Steps without samples are left out.
+     */
+    public DownsampledSeries downsample(String id, ContainerMetric metric, long from, long to, long step, Aggregation aggregation) {
+        if (step <= 0 || to <= from) {
+            throw new IllegalArgumentException("Invalid range " + from + " to " + to + " with step " + step);
+        }
+        int steps = (int) Math.min((to - from + step - 1) / step, Integer.MAX_VALUE - 8);
+        double[] values = new double[steps];
+        int[] counts = new int[steps];
+
+        query(id, metric, from, to - 1, (timestamp, value) -> {
+            int index = (int) ((timestamp - from) / step);
+            if (index < 0 || index >= steps) {
+                return;
+            }
+            int count = counts[index]++;
+            if (count == 0) {
+                values[index] = value;
+                return;
+            }
+            switch (aggregation) {
+                case MIN:
+                    values[index] = Math.min(values[index], value);
+                    break;
+                case MAX:
+                    values[index] = Math.max(values[index], value);
+                    break;
+                case MEAN:
+                    values[index] += (value - values[index]) / (count + 1);
+                    break;
+                case LAST:
+                    values[index] = value;
+                    break;
+            }
+        });
+
+        int size = 0;
+        long[] timestamps = new long[steps];
+        for (int i = 0; i < steps; i++) {
+            if (counts[i] > 0) {
+                timestamps[size] = from + i * step;
+                values[size] = values[i];
+                size++;
+            }
+        }
+        return new DownsampledSeries(Arrays.copyOf(timestamps, size), Arrays.copyOf(values, size), size);
+    }
+
+    /**
+     * Number of samples held for the container.
+     */
+    public long sampleCount(String id) {
+        Series s = series.get(id);
+        if (s == null) {
+            return 0;
+        }
+        synchronized (s) {
+            long count = s.open.count();
+            for (Block block : s.sealed) {
+                count += block.count;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Approximate heap used by the compressed samples, excluding spilled blocks.
+     */
+    public long heapBytes() {
+        long bytes = 0;
+        for (Series s : series.values()) {
+            synchronized (s) {
+                bytes += s.open.output().wordCount() * 8L;
+                for (Block block : s.sealed) {
+                    bytes += block.heapBytes();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        series.clear();
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                logger.error("Could not close spill file", e);
+            }
+        }
+    }
+
+    private void release(Block block) {
+        if (spill != null) {
+            spill.release(block);
+        }
+    }
+
+    private Series series(String id) {
+        return series.computeIfAbsent(id, key -> new Series());
+    }
+
+    private static void scan(LongBuffer words, int count, int column, long fromMillis, long toMillis, SampleConsumer consumer) {
+        GorillaDecoder decoder = new GorillaDecoder(words, count, METRICS.length);
+        while (decoder.next()) {
+            long time = decoder.time();
+            if (time > toMillis) {
+                break;
+            }
+            if (time >= fromMillis) {
+                consumer.accept(time * NANOS_PER_MILLI, decoder.value(column));
+            }
+        }
+    }
+
+    private class Series {
+
+        private final ContainerMetricsCalculator calculator = new ContainerMetricsCalculator();
+        private final List<Block> sealed = new ArrayList<>();
+        private final double[] row = new double[METRICS.length];
+        private GorillaEncoder open = new GorillaEncoder(METRICS.length);
+        private boolean removed;
+
+        void append(ContainerMetrics metrics) {
+            if (removed || metrics.getTimestamp() == Long.MIN_VALUE) {
+                return;
+            }
+            long time = Math.floorDiv(metrics.getTimestamp(), NANOS_PER_MILLI);
+            if (open.count() > 0 ? time < open.lastTime() : !sealed.isEmpty() && time < sealed.get(sealed.size() - 1).lastTime) {
+                return;
+            }
+            for (int i = 0; i < METRICS.length; i++) {
+                row[i] = metrics.get(METRICS[i]);
+            }
+            open.append(time, row);
+            if (open.count() >= params.getSamplesPerBlock()) {
+                seal();
+            }
+        }
+
+        private void seal() {
+            long[] words = open.output().toArray();
+            Block block = null;
+            if (spill != null) {
+                try {
+                    block = spill.write(open.firstTime(), open.lastTime(), open.count(), words);
+                } catch (IOException e) {
+                    logger.error("Could not spill block, keeping it on the heap", e);
+                }
+            }
+            sealed.add(block != null ? block : new Block(open.firstTime(), open.lastTime(), open.count(), words));
+            long newest = open.lastTime();
+            open = new GorillaEncoder(METRICS.length);
+
+            long oldest = newest - params.getRetentionNanos() / NANOS_PER_MILLI;
+            Iterator<Block> blocks = sealed.iterator();
+            while (blocks.hasNext()) {
+                Block dropped = blocks.next();
+                if (dropped.lastTime >= oldest) {
+                    break;
+                }
+                blocks.remove();
+                release(dropped);
+            }
+        }
+    }
+}
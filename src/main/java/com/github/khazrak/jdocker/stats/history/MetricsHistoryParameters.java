@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats.history;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@Builder
+@Getter
+public class MetricsHistoryParameters {
+
+    /**
+     * Number of samples per compressed block; a block is sealed (and spilled if configured) once full
+     */
+    private int samplesPerBlock;
+
+    /**
+     * Sealed blocks whose newest sample is older than this, relative to the newest sample of the container, are dropped
+     */
+    private long retentionNanos;
+
+    /**
+     * File sealed blocks are moved to, memory mapped. Null keeps everything on the heap
+     */
+    private Path spillFile;
+
+    /**
+     * Size of each mapped region of the spill file
+     */
+    private long spillSegmentSize;
+
+    public static MetricsHistoryParameters defaults() {
+        return builder().build();
+    }
+
+    public static class MetricsHistoryParametersBuilder {
+        private int samplesPerBlock = 600;
+        private long retentionNanos = TimeUnit.HOURS.toNanos(24);
+        private long spillSegmentSize = 16 * 1024 * 1024;
+    }
+}
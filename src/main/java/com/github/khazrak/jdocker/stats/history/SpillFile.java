@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.stats.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * File of sealed block words, mapped in fixed size segments. Every segment counts the blocks written into it; once all
+ * of them were released (dropped by retention or with their container) the segment is reused for new blocks, so the
+ * file grows with the blocks retained rather than with all blocks ever sealed.
+ */
+final class SpillFile implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final long segmentSize;
+    private final List<Segment> segments = new ArrayList<>();
+    private final Deque<Integer> free = new ArrayDeque<>();
+    private int current = -1;
+
+    SpillFile(Path path, long segmentSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Copies the words into the file and returns a block reading them from the mapping. The block has to be
+     * {@link #release(Block) released} once it is dropped.
+     */
+    synchronized Block write(long firstTime, long lastTime, int count, long[] words) throws IOException {
+        int bytes = words.length * 8;
+        if (bytes > segmentSize) {
+            throw new IOException("Block of " + bytes + " bytes does not fit in a spill segment of " + segmentSize);
+        }
+        if (current < 0 || segments.get(current).buffer.remaining() < bytes) {
+            nextSegment();
+        }
+        Segment segment = segments.get(current);
+        MappedByteBuffer buffer = segment.buffer;
+        int start = buffer.position();
+        buffer.asLongBuffer().put(words);
+        buffer.position(start + bytes);
+        segment.blocks++;
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(start).limit(start + bytes);
+        return new Block(firstTime, lastTime, count, null, view.slice().asLongBuffer(), current);
+    }
+
+    /**
+     * Gives up the space of a spilled block. Its words must not be read afterwards.
+     */
+    synchronized void release(Block block) {
+        if (block.segment < 0 || !channel.isOpen()) {
+            return;
+        }
+        Segment segment = segments.get(block.segment);
+        if (--segment.blocks == 0 && block.segment != current) {
+            free.add(block.segment);
+        }
+    }
+
+    private void nextSegment() throws IOException {
+        if (current >= 0 && segments.get(current).blocks == 0) {
+            // every block of the one being filled was released already, start it over
+            segments.get(current).buffer.clear();
+            return;
+        }
+        Integer reused = free.poll();
+        if (reused != null) {
+            current = reused;
+            segments.get(current).buffer.clear();
+        }
+        else {
+            current = segments.size();
+            segments.add(new Segment(channel.map(FileChannel.MapMode.READ_WRITE, current * segmentSize, segmentSize)));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        segments.clear();
+        free.clear();
+        current = -1;
+        channel.close();
+    }
+
+    private static final class Segment {
+
+        private final MappedByteBuffer buffer;
+        private int blocks;
+
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
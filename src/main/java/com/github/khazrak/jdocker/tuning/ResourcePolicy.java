@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.tuning;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds and thresholds {@link ResourceTuner} applies to one container. Memory is only tuned for containers started
+ * with a memory limit and CPU only for containers started with a CPU quota; the tuner never imposes a limit a
+ * container did not have.
+ */
+@Builder
+@Getter
+public class ResourcePolicy {
+
+    /**
+     * Lowest and highest memory limit the tuner may set, in bytes
+     */
+    private long minMemory;
+    private long maxMemory;
+
+    /**
+     * The limit is raised once usage (without page cache) reaches this fraction of it, or right away when the
+     * container hit its limit since the last evaluation
+     */
+    private double memoryHighWatermark;
+
+    /**
+     * The limit is lowered when the five minute average usage stays below this fraction of it, 0 to never lower it
+     */
+    private double memoryLowWatermark;
+
+    /**
+     * Factor a limit is grown by, and shrunk by (as its inverse), per update
+     */
+    private double memoryStep;
+
+    /**
+     * Lowest and highest CPU quota the tuner may set, in microseconds per {@code CpuPeriod}
+     */
+    private long minCpuQuota;
+    private long maxCpuQuota;
+
+    /**
+     * The quota is raised when the one minute average CPU usage exceeds this fraction of it
+     */
+    private double cpuBusyThreshold;
+
+    /**
+     * The quota is trimmed when the one minute average CPU usage is below this fraction of it
+     */
+    private double cpuIdleThreshold;
+
+    private double cpuStep;
+
+    /**
+     * Minimum time between two updates of the same container
+     */
+    private long cooldownNanos;
+
+    public static ResourcePolicy defaults() {
+        return builder().build();
+    }
+
+    public static class ResourcePolicyBuilder {
+        private long minMemory = 64 * 1024 * 1024;
+        private long maxMemory = Long.MAX_VALUE;
+        private double memoryHighWatermark = 0.85;
+        private double memoryLowWatermark = 0;
+        private double memoryStep = 1.25;
+        private long minCpuQuota = 10000;
+        private long maxCpuQuota = Long.MAX_VALUE;
+        private double cpuBusyThreshold = 0.9;
+        private double cpuIdleThreshold = 0.3;
+        private double cpuStep = 1.25;
+        private long cooldownNanos = TimeUnit.MINUTES.toNanos(1);
+    }
+}
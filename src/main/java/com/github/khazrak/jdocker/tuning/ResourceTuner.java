@@ -0,0 +1,362 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.tuning;
+
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.http.StreamSubscription;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+import com.github.khazrak.jdocker.model.api124.DockerContainerInspect;
+import com.github.khazrak.jdocker.model.api124.HostConfig;
+import com.github.khazrak.jdocker.model.api124.requests.ContainerUpdateRequest;
+import com.github.khazrak.jdocker.stats.ContainerMetric;
+import com.github.khazrak.jdocker.stats.ContainerMetrics;
+import com.github.khazrak.jdocker.stats.ContainerMetricsCalculator;
+import com.github.khazrak.jdocker.stats.ContainerStatsListener;
+import com.github.khazrak.jdocker.stats.StatsWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adjusts the memory limit and CPU quota of running containers through {@link DockerClient#update} based on their
+ * stats streams, within the bounds of a {@link ResourcePolicy} per container: memory is raised before the container
+ * runs into its limit and CPU quota that sits idle is trimmed (and raised again under load).
+ *
+ * Containers are evaluated together on every tick. Changes to the same container are merged into one update call,
+ * containers updated recently are skipped until their cooldown passes (unless they hit their memory limit), and at
+ * most {@code maxUpdatesPerTick} update calls are made per tick, the most urgent first; the rest are retried on the
+ * next tick.
+ */
+public class ResourceTuner implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceTuner.class);
+
+    private static final long MEMORY_ALIGNMENT = 1024 * 1024;
+    private static final long QUOTA_ALIGNMENT = 1000;
+    private static final long DEFAULT_CPU_PERIOD = 100000;
+
+    private final DockerClient client;
+    private final int maxUpdatesPerTick;
+    private final ConcurrentMap<String, Managed> managed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public ResourceTuner(DockerClient client) {
+        this(client, 10, TimeUnit.SECONDS, 20);
+    }
+
+    /**
+     * @param interval time between ticks, 0 to only evaluate when {@link #tick()} is called
+     */
+    public ResourceTuner(DockerClient client, long interval, TimeUnit unit, int maxUpdatesPerTick) {
+        this.client = client;
+        this.maxUpdatesPerTick = maxUpdatesPerTick;
+        if (interval > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jdocker-resource-tuner");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::tickSafely, interval, interval, unit);
+        }
+        else {
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Starts tuning the container, reading its current limits once and following its stats. Managing a container
+     * again replaces its policy and limits.
+     */
+    public void manage(String id, ResourcePolicy policy) {
+        DockerContainerInspect inspect = client.inspectContainer(id, false);
+        HostConfig hostConfig = inspect != null ? inspect.getHostConfig() : null;
+        Managed container = hostConfig != null
+                ? new Managed(id, policy, hostConfig.getMemory(), hostConfig.getMemorySwap(), hostConfig.getCpuQuota(),
+                hostConfig.getCpuPeriod() > 0 ? hostConfig.getCpuPeriod() : DEFAULT_CPU_PERIOD)
+                : new Managed(id, policy, 0, 0, 0, DEFAULT_CPU_PERIOD);
+        Managed previous = managed.put(id, container);
+        if (previous != null) {
+            previous.close();
+        }
+        container.ensureStreaming();
+    }
+
+    public void unmanage(String id) {
+        Managed container = managed.remove(id);
+        if (container != null) {
+            container.close();
+        }
+    }
+
+    public Set<String> managed() {
+        return managed.keySet();
+    }
+
+    /**
+     * Evaluates every managed container and makes the resulting update calls.
+     *
+     * @return the decisions of this tick, with the ones over the per tick budget or whose update failed marked as
+     * not applied
+     */
+    public synchronized List<TuningDecision> tick() {
+        long now = System.nanoTime();
+        List<Pending> pending = new ArrayList<>();
+        for (Managed container : managed.values()) {
+            container.ensureStreaming();
+            Pending update = container.evaluate(now);
+            if (update != null) {
+                pending.add(update);
+            }
+        }
+        pending.sort(Comparator.comparingInt(update -> update.urgency));
+
+        List<TuningDecision> decisions = new ArrayList<>(pending.size());
+        int calls = 0;
+        for (Pending update : pending) {
+            boolean applied = false;
+            if (calls < maxUpdatesPerTick) {
+                calls++;
+                applied = apply(update, now);
+            }
+            Managed container = update.container;
+            decisions.add(new TuningDecision(container.id, container.memory, update.memory, container.cpuQuota,
+                    update.cpuQuota, update.reason, applied));
+            if (applied) {
+                container.applied(update, now);
+            }
+        }
+        return decisions;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        for (String id : managed.keySet()) {
+            unmanage(id);
+        }
+    }
+
+    private void tickSafely() {
+        try {
+            for (TuningDecision decision : tick()) {
+                logger.info("{}", decision);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Resource tuning failed", e);
+        }
+    }
+
+    private boolean apply(Pending update, long now) {
+        Managed container = update.container;
+        ContainerUpdateRequest request = ContainerUpdateRequest.builder()
+                .memory(update.memory != container.memory ? update.memory : 0)
+                .memorySwap(update.memory != container.memory ? update.memorySwap : 0)
+                .cpuQuota(update.cpuQuota != container.cpuQuota ? update.cpuQuota : 0)
+                .build();
+        try {
+            client.update(container.id, request);
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Updating resources of container {} failed", container.id, e);
+            return false;
+        }
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static long alignUp(double value, long alignment) {
+        return (long) Math.ceil(value / alignment) * alignment;
+    }
+
+    private static class Pending {
+
+        private final Managed container;
+        private final long memory;
+        private final long memorySwap;
+        private final long cpuQuota;
+        private final long failCount;
+        private final int urgency;
+        private final String reason;
+
+        Pending(Managed container, long memory, long memorySwap, long cpuQuota, long failCount, int urgency, String reason) {
+            this.container = container;
+            this.memory = memory;
+            this.memorySwap = memorySwap;
+            this.cpuQuota = cpuQuota;
+            this.failCount = failCount;
+            this.urgency = urgency;
+            this.reason = reason;
+        }
+    }
+
+    private class Managed implements ContainerStatsListener {
+
+        private final String id;
+        private final ResourcePolicy policy;
+        private final long cpuPeriod;
+        private final ContainerMetricsCalculator calculator = new ContainerMetricsCalculator();
+        private StreamSubscription subscription;
+        private boolean closed;
+
+        private long memory;
+        private long memorySwap;
+        private long cpuQuota;
+        private boolean hasLastUpdate;
+        private long lastUpdate;
+        private long failCount;
+        private long seenFailCount = -1;
+
+        Managed(String id, ResourcePolicy policy, long memory, long memorySwap, long cpuQuota, long cpuPeriod) {
+            this.id = id;
+            this.policy = policy;
+            this.memory = memory;
+            this.memorySwap = memorySwap;
+            this.cpuQuota = cpuQuota;
+            this.cpuPeriod = cpuPeriod;
+        }
+
+        @Override
+        public synchronized void onStats(ContainerStats stats) {
+            calculator.update(stats);
+            if (stats.getMemoryStats() != null) {
+                failCount = stats.getMemoryStats().getFailCount();
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            logger.debug("Stats of container {} ended, reopening them on the next tick", id);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            logger.warn("Stats of container {} failed, no longer tuning it", id, throwable);
+            managed.remove(id, this);
+        }
+
+        synchronized Pending evaluate(long now) {
+            ContainerMetrics metrics = calculator.getMetrics();
+            if (metrics.getTimestamp() == 0 || metrics.getTimestamp() == Long.MIN_VALUE) {
+                return null;
+            }
+            if (seenFailCount < 0) {
+                seenFailCount = failCount;
+            }
+            // a limit hit stays pending until an update for it was made, so one over the budget is retried next tick
+            boolean limitHit = failCount > seenFailCount;
+            if (hasLastUpdate && now - lastUpdate < policy.getCooldownNanos() && !limitHit) {
+                return null;
+            }
+
+            StringBuilder reason = new StringBuilder();
+            int urgency = Integer.MAX_VALUE;
+
+            long newMemory = memory;
+            if (memory > 0) {
+                long usage = metrics.getMemoryUsage();
+                double average = metrics.average(ContainerMetric.MEMORY_USAGE, StatsWindow.FIVE_MINUTES);
+                if (limitHit || usage >= policy.getMemoryHighWatermark() * memory) {
+                    double target = Math.max(memory * policy.getMemoryStep(), usage / policy.getMemoryHighWatermark());
+                    newMemory = clamp(alignUp(target, MEMORY_ALIGNMENT), policy.getMinMemory(), policy.getMaxMemory());
+                    urgency = limitHit ? 0 : 1;
+                    reason.append(limitHit ? "memory limit hit" : "memory usage " + percent(usage, memory) + " of limit");
+                }
+                else if (policy.getMemoryLowWatermark() > 0 && average < policy.getMemoryLowWatermark() * memory) {
+                    double target = Math.max(memory / policy.getMemoryStep(), usage / policy.getMemoryHighWatermark());
+                    newMemory = clamp(alignUp(target, MEMORY_ALIGNMENT), policy.getMinMemory(), policy.getMaxMemory());
+                    urgency = 3;
+                    reason.append("memory usage ").append(percent((long) average, memory)).append(" of limit");
+                }
+                if (newMemory == memory) {
+                    reason.setLength(0);
+                }
+            }
+
+            long newQuota = cpuQuota;
+            if (cpuQuota > 0) {
+                double cores = metrics.average(ContainerMetric.CPU_PERCENT, StatsWindow.ONE_MINUTE) / 100;
+                double used = cores * cpuPeriod / cpuQuota;
+                if (used > policy.getCpuBusyThreshold()) {
+                    newQuota = clamp(alignUp(cpuQuota * policy.getCpuStep(), QUOTA_ALIGNMENT), policy.getMinCpuQuota(), policy.getMaxCpuQuota());
+                    urgency = Math.min(urgency, 2);
+                }
+                else if (used < policy.getCpuIdleThreshold()) {
+                    double target = Math.max(cpuQuota / policy.getCpuStep(), cores * cpuPeriod / policy.getCpuBusyThreshold());
+                    newQuota = clamp(alignUp(target, QUOTA_ALIGNMENT), policy.getMinCpuQuota(), policy.getMaxCpuQuota());
+                    urgency = Math.min(urgency, 3);
+                }
+                if (newQuota != cpuQuota) {
+                    if (reason.length() > 0) {
+                        reason.append(", ");
+                    }
+                    reason.append("cpu usage ").append(percent((long) (used * 1000), 1000)).append(" of quota");
+                }
+            }
+
+            if (newMemory == memory && newQuota == cpuQuota) {
+                // nothing left to raise, e.g. already at the maximum
+                seenFailCount = failCount;
+                return null;
+            }
+            long newSwap = memorySwap > 0 ? newMemory + (memorySwap - memory) : memorySwap;
+            return new Pending(this, newMemory, newSwap, newQuota, failCount, urgency, reason.toString());
+        }
+
+        /**
+         * Records an update that was made, starting the cooldown.
+         */
+        synchronized void applied(Pending update, long now) {
+            memory = update.memory;
+            memorySwap = update.memorySwap;
+            cpuQuota = update.cpuQuota;
+            seenFailCount = Math.max(seenFailCount, update.failCount);
+            hasLastUpdate = true;
+            lastUpdate = now;
+        }
+
+        /**
+         * Opens the stats stream, or reopens it when it ended (the container was stopped or restarted).
+         */
+        synchronized void ensureStreaming() {
+            if (!closed && (subscription == null || !subscription.isOpen())) {
+                subscription = client.subscribeStats(id, this);
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            StreamSubscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    private static String percent(long value, long total) {
+        return Math.round(value * 100.0 / total) + "%";
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.tuning;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * An update made by {@link ResourceTuner}. Values that were not changed are equal to their previous value.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class TuningDecision {
+
+    private final String id;
+    private final long previousMemory;
+    private final long memory;
+    private final long previousCpuQuota;
+    private final long cpuQuota;
+    private final String reason;
+    private final boolean applied;
+}
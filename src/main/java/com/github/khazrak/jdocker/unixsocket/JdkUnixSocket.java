@@ -0,0 +1,568 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.unixsocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Unix domain socket backed by the JDK's own {@link SocketChannel} (Java 16 and later).
+ *
+ * The JDK types are looked up reflectively so the library still builds and runs on Java 8, where
+ * {@link #isSupported()} returns false and {@link UnixSocketFactory} falls back to {@link JnrUnixSocket}.
+ * All socket I/O goes through direct buffers sized from SO_RCVBUF/SO_SNDBUF.
+ */
+final class JdkUnixSocket extends FileSocket {
+
+    private static final int MIN_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_BUFFER_SIZE = 256 * 1024;
+
+    private static final ProtocolFamily UNIX = unixProtocolFamily();
+    private static final Method OPEN = method(SocketChannel.class, "open", ProtocolFamily.class);
+    private static final Method ADDRESS_OF = method(className("java.net.UnixDomainSocketAddress"), "of", String.class);
+
+    private final Object connectLock = new Object();
+    private final Object ioLock = new Object();
+    private final SocketChannel channel;
+    private final SocketAddress address;
+
+    private volatile boolean inputShutdown, outputShutdown;
+    private volatile int soTimeout;
+    private Selector selector;
+
+    private InputStream inputStream;
+    private OutputStream outputStream;
+
+    static boolean isSupported() {
+        return UNIX != null && OPEN != null && ADDRESS_OF != null;
+    }
+
+    /**
+     * Opens a connected, blocking channel to the socket at the given path, with the buffer sizes that are greater
+     * than 0.
+     */
+    static SocketChannel openChannel(String path, int sendBufferSize, int receiveBufferSize) throws IOException {
+        if (!isSupported()) {
+            throw new SocketException("Unix domain socket channels are not supported by this JVM");
+        }
+        SocketChannel channel = (SocketChannel) invoke(OPEN, null, UNIX);
+        try {
+            if (sendBufferSize > 0) {
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, sendBufferSize);
+            }
+            if (receiveBufferSize > 0) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            }
+            channel.connect((SocketAddress) invoke(ADDRESS_OF, null, path));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    JdkUnixSocket(String path) throws IOException {
+        if (!isSupported()) {
+            throw new SocketException("Unix domain socket channels are not supported by this JVM");
+        }
+        this.channel = (SocketChannel) invoke(OPEN, null, UNIX);
+        this.address = (SocketAddress) invoke(ADDRESS_OF, null, path);
+    }
+
+    @Override
+    public void connect(SocketAddress endpoint) throws IOException {
+        connect(endpoint, 0);
+    }
+
+    @Override
+    public void connect(SocketAddress dummy, int timeout) throws IOException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout may not be negative: " + timeout);
+        }
+
+        synchronized (connectLock) {
+            channel.connect(address);
+        }
+    }
+
+    @Override
+    public void bind(SocketAddress bindpoint) throws IOException {
+        throw new SocketException("Bind is not supported");
+    }
+
+    @Override
+    public InetAddress getInetAddress() {
+        return null;
+    }
+
+    @Override
+    public InetAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public int getPort() {
+        return -1;
+    }
+
+    @Override
+    public int getLocalPort() {
+        return -1;
+    }
+
+    @Override
+    public SocketAddress getRemoteSocketAddress() {
+        return address;
+    }
+
+    @Override
+    public SocketAddress getLocalSocketAddress() {
+        return null;
+    }
+
+    @Override
+    public SocketChannel getChannel() {
+        return null;
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+        checkConnected();
+
+        if (inputShutdown) {
+            throw new SocketException("Socket input is shutdown");
+        }
+
+        if (inputStream == null) {
+            inputStream = new ChannelInputStream(bufferSize(getReceiveBufferSize()));
+        }
+        return inputStream;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        checkConnected();
+
+        if (outputShutdown) {
+            throw new SocketException("Socket output is shutdown");
+        }
+
+        if (outputStream == null) {
+            outputStream = new ChannelOutputStream(bufferSize(getSendBufferSize()));
+        }
+        return outputStream;
+    }
+
+    private void checkConnected() throws SocketException {
+        if (!channel.isOpen()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        if (!channel.isConnected()) {
+            throw new SocketException("Socket is not connected");
+        }
+    }
+
+    private static int bufferSize(int socketBufferSize) {
+        return Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, socketBufferSize));
+    }
+
+    @Override
+    public void sendUrgentData(int data) throws IOException {
+        throw new SocketException("Urgent data not supported");
+    }
+
+    @Override
+    public void setSoTimeout(int timeout) throws SocketException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout may not be negative: " + timeout);
+        }
+        soTimeout = timeout;
+    }
+
+    @Override
+    public int getSoTimeout() throws SocketException {
+        return soTimeout;
+    }
+
+    @Override
+    public void setSendBufferSize(int size) throws SocketException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Send buffer size must be positive: " + size);
+        }
+        setOption(StandardSocketOptions.SO_SNDBUF, size);
+    }
+
+    @Override
+    public int getSendBufferSize() throws SocketException {
+        return getOption(StandardSocketOptions.SO_SNDBUF);
+    }
+
+    @Override
+    public void setReceiveBufferSize(int size) throws SocketException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Receive buffer size must be positive: " + size);
+        }
+        setOption(StandardSocketOptions.SO_RCVBUF, size);
+    }
+
+    @Override
+    public int getReceiveBufferSize() throws SocketException {
+        return getOption(StandardSocketOptions.SO_RCVBUF);
+    }
+
+    private void setOption(SocketOption<Integer> option, int value) throws SocketException {
+        if (!channel.isOpen()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        try {
+            channel.setOption(option, value);
+        } catch (IOException e) {
+            throw socketException(e);
+        }
+    }
+
+    private int getOption(SocketOption<Integer> option) throws SocketException {
+        if (!channel.isOpen()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        try {
+            return channel.getOption(option);
+        } catch (IOException e) {
+            throw socketException(e);
+        }
+    }
+
+    private static SocketException socketException(IOException cause) {
+        SocketException exception = new SocketException(cause.getMessage());
+        exception.initCause(cause);
+        return exception;
+    }
+
+    @Override
+    public void setKeepAlive(boolean on) throws SocketException {
+        // not applicable to unix domain sockets
+    }
+
+    @Override
+    public boolean getKeepAlive() throws SocketException {
+        return false;
+    }
+
+    @Override
+    public void setTcpNoDelay(boolean on) throws SocketException {
+        // not applicable to unix domain sockets
+    }
+
+    @Override
+    public boolean getTcpNoDelay() throws SocketException {
+        return true;
+    }
+
+    @Override
+    public void setTrafficClass(int tc) throws SocketException {
+        if (tc < 0 || tc > 255) {
+            throw new IllegalArgumentException("Traffic class is not in range 0 -- 255: " + tc);
+        }
+
+        if (isClosed()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        // just ignore
+    }
+
+    @Override
+    public int getTrafficClass() throws SocketException {
+        throw new UnsupportedOperationException("Getting the traffic class is not supported");
+    }
+
+    @Override
+    public void setReuseAddress(boolean on) throws SocketException {
+        if (isClosed()) {
+            throw new SocketException("Socket is closed");
+        }
+
+        // just ignore
+    }
+
+    @Override
+    public boolean getReuseAddress() throws SocketException {
+        throw new UnsupportedOperationException("Getting the SO_REUSEADDR option is not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputShutdown = true;
+        outputShutdown = true;
+        channel.close();
+        synchronized (ioLock) {
+            if (selector != null) {
+                selector.close();
+            }
+        }
+    }
+
+    @Override
+    public void shutdownInput() throws IOException {
+        channel.shutdownInput();
+        inputShutdown = true;
+    }
+
+    @Override
+    public void shutdownOutput() throws IOException {
+        channel.shutdownOutput();
+        outputShutdown = true;
+    }
+
+    @Override
+    public String toString() {
+        if (isConnected()) {
+            return "UnixSocket[addr=" + address + ']';
+        }
+
+        return "UnixSocket[unconnected]";
+    }
+
+    @Override
+    public boolean isConnected() {
+        return channel.isConnected();
+    }
+
+    @Override
+    public boolean isBound() {
+        return false;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !channel.isOpen();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return inputShutdown;
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return outputShutdown;
+    }
+
+    @Override
+    public void setPerformancePreferences(int connectionTime, int latency, int bandwidth) {
+        // no-op
+    }
+
+    /**
+     * Blocking channels can't time out, so once a read timeout is set the channel is switched to
+     * non-blocking mode and reads/writes wait on a private selector instead.
+     */
+    private int read(ByteBuffer dst) throws IOException {
+        synchronized (ioLock) {
+            if (soTimeout == 0 && channel.isBlocking()) {
+                return channel.read(dst);
+            }
+
+            SelectionKey key = register(SelectionKey.OP_READ);
+            int read;
+            while ((read = channel.read(dst)) == 0) {
+                if (selector.select(soTimeout) == 0 && soTimeout > 0) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+                selector.selectedKeys().clear();
+                key.interestOps(SelectionKey.OP_READ);
+            }
+            return read;
+        }
+    }
+
+    private void write(ByteBuffer src) throws IOException {
+        synchronized (ioLock) {
+            if (channel.isBlocking()) {
+                while (src.hasRemaining()) {
+                    channel.write(src);
+                }
+                return;
+            }
+
+            SelectionKey key = register(SelectionKey.OP_WRITE);
+            while (src.hasRemaining()) {
+                if (channel.write(src) == 0) {
+                    selector.select();
+                    selector.selectedKeys().clear();
+                    key.interestOps(SelectionKey.OP_WRITE);
+                }
+            }
+        }
+    }
+
+    private SelectionKey register(int ops) throws IOException {
+        if (selector == null) {
+            selector = Selector.open();
+            channel.configureBlocking(false);
+        }
+        return channel.register(selector, ops);
+    }
+
+    private final class ChannelInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ChannelInputStream(int size) {
+            buffer = ByteBuffer.allocateDirect(size);
+            buffer.flip();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        private boolean fill() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            if (inputShutdown) {
+                return false;
+            }
+            buffer.clear();
+            int read = JdkUnixSocket.this.read(buffer);
+            buffer.flip();
+            return read > 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            shutdownInput();
+        }
+    }
+
+    private final class ChannelOutputStream extends OutputStream {
+
+        private final ByteBuffer buffer;
+
+        ChannelOutputStream(int size) {
+            buffer = ByteBuffer.allocateDirect(size);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int count = Math.min(len, buffer.remaining());
+                buffer.put(b, off, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            buffer.flip();
+            try {
+                JdkUnixSocket.this.write(buffer);
+            } finally {
+                buffer.clear();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            shutdownOutput();
+        }
+    }
+
+    private static ProtocolFamily unixProtocolFamily() {
+        try {
+            return StandardProtocolFamily.valueOf("UNIX");
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Class<?> className(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameters) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return type.getMethod(name, parameters);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) throws IOException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new SocketException(e.getCause().toString());
+        } catch (IllegalAccessException e) {
+            throw new SocketException(e.toString());
+        }
+    }
+}
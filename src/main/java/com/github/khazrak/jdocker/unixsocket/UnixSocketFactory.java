@@ -169,7 +169,9 @@ END OF TERMS AND CONDITIONS
 */
 package com.github.khazrak.jdocker.unixsocket;
 
+import jnr.enxio.channels.NativeSelectorProvider;
 import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
 import okhttp3.HttpUrl;
 
 import java.io.File;
@@ -178,6 +180,8 @@ import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.URLEncoder;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.spi.SelectorProvider;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
@@ -228,17 +232,62 @@ public class UnixSocketFactory extends FileSocketFactory {
         return builder.build();
     }
 
+    /**
+     * True when the running JVM has unix domain socket channels (Java 16+), in which case
+     * they are used instead of jnr-unixsocket.
+     */
+    public static boolean isJdkChannelSupported() {
+        return JdkUnixSocket.isSupported();
+    }
+
     private final String path;
+    private final boolean jdkChannel;
 
     public UnixSocketFactory(String path) {
+        this(path, isJdkChannelSupported());
+    }
+
+    public UnixSocketFactory(String path, boolean jdkChannel) {
+        if (jdkChannel && !isJdkChannelSupported()) {
+            throw new IllegalArgumentException("Unix domain socket channels require Java 16 or later");
+        }
         this.path = path;
+        this.jdkChannel = jdkChannel;
     }
 
     @Override
     public Socket createSocket() throws IOException {
+        if (jdkChannel) {
+            return new JdkUnixSocket(path);
+        }
         return new JnrUnixSocket(new UnixSocketAddress(new File(path)));
     }
 
+    /**
+     * Opens a connected, blocking channel for use with a selector from {@link #selectorProvider()}.
+     */
+    public SelectableChannel openChannel() throws IOException {
+        return openChannel(0, 0);
+    }
+
+    /**
+     * Like {@link #openChannel()}, with the buffer sizes that are greater than 0. jnr-unixsocket channels ignore them,
+     * as its sockets do.
+     */
+    public SelectableChannel openChannel(int sendBufferSize, int receiveBufferSize) throws IOException {
+        if (jdkChannel) {
+            return JdkUnixSocket.openChannel(path, sendBufferSize, receiveBufferSize);
+        }
+        return UnixSocketChannel.open(new UnixSocketAddress(new File(path)));
+    }
+
+    public SelectorProvider selectorProvider() {
+        if (jdkChannel) {
+            return SelectorProvider.provider();
+        }
+        return NativeSelectorProvider.getInstance();
+    }
+
     @Override
     public Socket createSocket(String s, int i) throws IOException {
         throw new UnsupportedOperationException();
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.utils;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * A Docker remote API version such as 1.24, as reported in the "ApiVersion" of {@code /version}.
+ */
+@Getter
+@EqualsAndHashCode
+public final class ApiVersion implements Comparable<ApiVersion> {
+
+    public static final ApiVersion V1_24 = new ApiVersion(1, 24);
+    public static final ApiVersion V1_41 = new ApiVersion(1, 41);
+
+    private final int major;
+    private final int minor;
+
+    public ApiVersion(int major, int minor) {
+        if (major < 0 || minor < 0) {
+            throw new IllegalArgumentException("Invalid api version " + major + "." + minor);
+        }
+        this.major = major;
+        this.minor = minor;
+    }
+
+    /**
+     * Parses "1.41", tolerating a leading "v" as used in request paths.
+     */
+    public static ApiVersion parse(String version) {
+        if (version == null) {
+            throw new IllegalArgumentException("Api version is null");
+        }
+        String value = version.startsWith("v") ? version.substring(1) : version;
+        int dot = value.indexOf('.');
+        if (dot <= 0 || dot == value.length() - 1) {
+            throw new IllegalArgumentException("Invalid api version " + version);
+        }
+        try {
+            return new ApiVersion(Integer.parseInt(value.substring(0, dot)), Integer.parseInt(value.substring(dot + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid api version " + version, e);
+        }
+    }
+
+    public boolean isAtLeast(ApiVersion other) {
+        return compareTo(other) >= 0;
+    }
+
+    @Override
+    public int compareTo(ApiVersion other) {
+        return major != other.major ? Integer.compare(major, other.major) : Integer.compare(minor, other.minor);
+    }
+
+    @Override
+    public String toString() {
+        return major + "." + minor;
+    }
+
+}
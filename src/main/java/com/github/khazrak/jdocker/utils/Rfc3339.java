@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.utils;
+
+/**
+ * Parser for the RFC 3339 timestamps written by the daemon (e.g. {@code 2016-09-22T09:14:16.951730048Z}) that works
+ * on any CharSequence and allocates nothing, for use on per sample and per log line paths.
+ */
+public final class Rfc3339 {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private Rfc3339() {
+    }
+
+    public static long parseEpochNanos(CharSequence text) {
+        return parseEpochNanos(text, 0, text.length());
+    }
+
+    /**
+     * Parses {@code text[start, end)} into nanoseconds since the epoch. Times that do not fit in a long (before 1677
+     * or after 2262), such as the daemon's zero time {@code 0001-01-01T00:00:00Z}, are returned as
+     * {@link Long#MIN_VALUE}.
+     *
+     * @throws IllegalArgumentException if the text is not an RFC 3339 timestamp
+     */
+    public static long parseEpochNanos(CharSequence text, int start, int end) {
+        if (end - start < 20
+                || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-'
+                || !isDateTimeSeparator(text.charAt(start + 10))
+                || text.charAt(start + 13) != ':' || text.charAt(start + 16) != ':') {
+            throw invalid(text, start, end);
+        }
+        int year = digits(text, start, 4, end);
+        int month = digits(text, start + 5, 2, end);
+        int day = digits(text, start + 8, 2, end);
+        int hour = digits(text, start + 11, 2, end);
+        int minute = digits(text, start + 14, 2, end);
+        int second = digits(text, start + 17, 2, end);
+        if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 60) {
+            throw invalid(text, start, end);
+        }
+
+        int pos = start + 19;
+        long nanos = 0;
+        if (text.charAt(pos) == '.') {
+            pos++;
+            int count = 0;
+            while (pos < end && isDigit(text.charAt(pos))) {
+                if (count < 9) {
+                    nanos = nanos * 10 + (text.charAt(pos) - '0');
+                }
+                count++;
+                pos++;
+            }
+            if (count == 0) {
+                throw invalid(text, start, end);
+            }
+            for (int i = count; i < 9; i++) {
+                nanos *= 10;
+            }
+        }
+
+        if (pos >= end) {
+            throw invalid(text, start, end);
+        }
+        int offsetSeconds;
+        char zone = text.charAt(pos);
+        if (zone == 'Z' || zone == 'z') {
+            offsetSeconds = 0;
+            pos++;
+        }
+        else if ((zone == '+' || zone == '-') && pos + 6 <= end && text.charAt(pos + 3) == ':') {
+            offsetSeconds = digits(text, pos + 1, 2, end) * 3600 + digits(text, pos + 4, 2, end) * 60;
+            if (zone == '-') {
+                offsetSeconds = -offsetSeconds;
+            }
+            pos += 6;
+        }
+        else {
+            throw invalid(text, start, end);
+        }
+        if (pos != end) {
+            throw invalid(text, start, end);
+        }
+
+        long seconds = daysFromCivil(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+        if (seconds > Long.MAX_VALUE / NANOS_PER_SECOND - 1 || seconds < Long.MIN_VALUE / NANOS_PER_SECOND + 1) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * NANOS_PER_SECOND + nanos;
+    }
+
+    /**
+     * Days since 1970-01-01 of a date in the proleptic Gregorian calendar.
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int digits(CharSequence text, int pos, int count, int end) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                throw invalid(text, pos, end);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isDateTimeSeparator(char c) {
+        return c == 'T' || c == 't' || c == ' ';
+    }
+
+    private static IllegalArgumentException invalid(CharSequence text, int start, int end) {
+        return new IllegalArgumentException("Not an RFC 3339 timestamp: " + text.subSequence(start, end));
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.container;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+import com.github.khazrak.jdocker.stats.CgroupStatsReader;
+import com.github.khazrak.jdocker.stats.ContainerPressure;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerCgroupStats {
+
+    private static final String ID = "73f363f484b41e68898508dfdfdde42b953fe7ad76a00a28b50d7d74355bae4d";
+
+    private DockerClient client;
+    private Path cgroup;
+    private Path proc;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9779));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setup() throws IOException {
+        client = new DefaultDockerClient("http://127.0.0.1:9779");
+        cgroup = folder.newFolder("cgroup").toPath();
+        proc = folder.newFolder("proc").toPath();
+        write(proc.resolve("stat"), "cpu  100 0 50 1000 0 0 0 0 0 0\ncpu0 50 0 25 500 0 0 0 0 0 0\ncpu1 50 0 25 500 0 0 0 0 0 0\nintr 1\n");
+        write(proc.resolve("meminfo"), "MemTotal:       16384 kB\nMemFree:        8192 kB\n");
+        write(proc.resolve("8528/net/dev"), "Inter-|   Receive                                                |  Transmit\n"
+                + " face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop fifo colls carrier compressed\n"
+                + "    lo:     100       1    0    0    0     0          0         0      100       1    0    0    0     0       0          0\n"
+                + "  eth0: 3000000000   20    1    2    0     0          0         0      648       8    0    3    0     0       0          0\n");
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void readsCgroupV1() throws IOException {
+        Path cpu = cgroup.resolve("cpu,cpuacct/docker/" + ID);
+        write(cpu.resolve("cpuacct.usage"), "28359619125\n");
+        write(cpu.resolve("cpuacct.usage_percpu"), "14000000000 14359619125 \n");
+        write(cpu.resolve("cpuacct.stat"), "user 200\nsystem 100\n");
+        write(cpu.resolve("cpu.stat"), "nr_periods 10\nnr_throttled 2\nthrottled_time 5000\n");
+        Path memory = cgroup.resolve("memory/docker/" + ID);
+        write(memory.resolve("memory.usage_in_bytes"), "98668544\n");
+        write(memory.resolve("memory.max_usage_in_bytes"), "99000000\n");
+        write(memory.resolve("memory.limit_in_bytes"), "25220104192\n");
+        write(memory.resolve("memory.failcnt"), "0\n");
+        write(memory.resolve("memory.stat"), "cache 29724672\ntotal_inactive_file 26599424\n");
+        write(cgroup.resolve("blkio/docker/" + ID + "/blkio.throttle.io_service_bytes_recursive"),
+                "8:0 Read 159744\n8:0 Write 6733824\n8:0 Sync 176128\nTotal 6893568\n");
+        write(cgroup.resolve("pids/docker/" + ID + "/pids.current"), "16\n");
+
+        CgroupStatsReader reader = new CgroupStatsReader(client, cgroup, proc);
+        ContainerStats first = reader.stats("mongo");
+        ContainerStats second = reader.stats("mongo");
+
+        assertThat(first.getCpuStats().getCpuUsage().getTotalUsage()).isEqualTo(28359619125L);
+        assertThat(first.getCpuStats().getCpuUsage().getPerCpuUsage()).containsExactly(14000000000L, 14359619125L);
+        assertThat(first.getCpuStats().getCpuUsage().getUsageInUsermode()).isEqualTo(2000000000L);
+        assertThat(first.getCpuStats().getSystemCpuUsage()).isEqualTo(1150 * 10000000L);
+        assertThat(first.getCpuStats().getOnlineCpus()).isEqualTo(2);
+        assertThat(first.getCpuStats().getThrottlingData()).containsEntry("throttled_periods", 2L);
+        assertThat(first.getMemoryStats().getLimit()).isEqualTo(25220104192L);
+        assertThat(first.getMemoryStats().getStats()).containsEntry("total_inactive_file", 26599424L);
+        assertThat(first.getBlkioStats().getIoServiceBytesRecursive()).hasSize(3);
+        assertThat(first.getNetworksStats()).containsOnlyKeys("eth0");
+        assertThat(first.getNetworksStats().get("eth0").getRxBytes()).isEqualTo(3000000000L);
+        assertThat(first.getNetworksStats().get("eth0").getTxDropped()).isEqualTo(3);
+        assertThat(first.getPidsStats()).containsEntry("current", 16);
+        assertThat(second.getPreCpuStats()).isSameAs(first.getCpuStats());
+        assertThat(reader.pressure("mongo")).isNull();
+
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Fjson?size=false")));
+    }
+
+    @Test
+    public void readsCgroupV2() throws IOException {
+        write(cgroup.resolve("cgroup.controllers"), "cpu io memory pids\n");
+        Path unified = cgroup.resolve("system.slice/docker-" + ID + ".scope");
+        write(unified.resolve("cpu.stat"), "usage_usec 28359619\nuser_usec 20000000\nsystem_usec 8359619\nnr_periods 0\nnr_throttled 0\nthrottled_usec 0\n");
+        write(unified.resolve("memory.current"), "98668544\n");
+        write(unified.resolve("memory.max"), "max\n");
+        write(unified.resolve("memory.stat"), "anon 60000000\ninactive_file 26599424\n");
+        write(unified.resolve("io.stat"), "8:0 rbytes=159744 wbytes=6733824 rios=10 wios=20 dbytes=0 dios=0\n");
+        write(unified.resolve("pids.current"), "16\n");
+        write(unified.resolve("cpu.pressure"), "some avg10=1.50 avg60=0.75 avg300=0.25 total=123456\nfull avg10=0.00 avg60=0.00 avg300=0.00 total=0\n");
+        write(unified.resolve("memory.pressure"), "some avg10=0.00 avg60=0.00 avg300=0.00 total=10\nfull avg10=0.00 avg60=0.00 avg300=0.00 total=5\n");
+
+        CgroupStatsReader reader = new CgroupStatsReader(client, cgroup, proc);
+        ContainerStats stats = reader.stats("mongo");
+
+        assertThat(stats.getCpuStats().getCpuUsage().getTotalUsage()).isEqualTo(28359619000L);
+        assertThat(stats.getMemoryStats().getUsage()).isEqualTo(98668544L);
+        assertThat(stats.getMemoryStats().getLimit()).isEqualTo(16384 * 1024L);
+        assertThat(stats.getBlkioStats().getIoServiceBytesRecursive()).extracting("op").containsExactly("Read", "Write");
+        assertThat(stats.getBlkioStats().getIoServiceBytesRecursive().get(1).getValue()).isEqualTo(6733824L);
+        assertThat(stats.getPidsStats()).containsEntry("current", 16);
+
+        ContainerPressure pressure = reader.pressure("mongo");
+        assertThat(pressure.getCpu().getSomeAvg10()).isEqualTo(1.5);
+        assertThat(pressure.getCpu().getSomeTotal()).isEqualTo(123456L);
+        assertThat(pressure.getMemory().getFullTotal()).isEqualTo(5L);
+        assertThat(pressure.getIo()).isNull();
+    }
+
+    @Test
+    public void fallsBackToDaemon() {
+        CgroupStatsReader reader = new CgroupStatsReader(client, cgroup, proc);
+
+        ContainerStats stats = reader.stats("mongo");
+
+        assertThat(stats.getCpuStats().getSystemCpuUsage()).isEqualTo(60897810000000L);
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Fstats?stream=false")));
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
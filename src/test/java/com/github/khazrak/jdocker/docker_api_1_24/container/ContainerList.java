@@ -28,6 +28,8 @@ import com.github.khazrak.jdocker.model.api124.parameters.ListContainerParams;
 import com.github.khazrak.jdocker.utils.Filters;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -99,6 +101,27 @@ public class ContainerList {
         wireMockRule.verify(1, requestPatternBuilder);
     }
 
+    @Test
+    public void streamAll() {
+        final String path = "/v1.24%2Fcontainers%2Fjson?all=true";
+        ListContainerParams request = ListContainerParams.builder().all(true).build();
+
+        List<DockerImageName> images;
+        try (Stream<Container> containers = client.streamContainers(request)) {
+            images = containers.map(Container::getImage).collect(Collectors.toList());
+        }
+
+        DockerImageName mongo = new DockerImageName("mongo");
+        DockerImageName ubuntu = new DockerImageName("ubuntu:14.04");
+
+        assertThat(images).containsExactly(mongo, mongo, ubuntu);
+
+        UrlPattern pattern = UrlPattern.fromOneOf(path, null,null,null);
+        RequestPatternBuilder requestPatternBuilder = RequestPatternBuilder.newRequestPattern(RequestMethod.GET,pattern);
+
+        wireMockRule.verify(1, requestPatternBuilder);
+    }
+
     @Test
     public void listSince() {
         final String path = "/v1.24%2Fcontainers%2Fjson?since=mongo";
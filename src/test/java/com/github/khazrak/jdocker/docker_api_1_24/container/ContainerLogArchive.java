@@ -0,0 +1,139 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.container;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.logs.archive.LogArchive;
+import com.github.khazrak.jdocker.logs.archive.LogArchiveParameters;
+import com.github.khazrak.jdocker.logs.archive.LogSearchStats;
+import com.github.khazrak.jdocker.model.api124.parameters.DockerLogsParameters;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerLogArchive {
+
+    private static final long START = 1473596000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final int LINES = 3000;
+
+    private DockerClient client;
+    private Path directory;
+    private LogArchiveParameters params = LogArchiveParameters.builder()
+            .blockSize(512)
+            .segmentSize(1024)
+            .bloomBits(4096)
+            .build();
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9779));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setup() throws IOException {
+        client = new DefaultDockerClient("http://127.0.0.1:9779");
+        directory = folder.newFolder("archive").toPath();
+        stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Flogs?stdout=true&timestamps=true"))
+                .willReturn(aResponse().withStatus(200).withBody(logBody())));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void searchSkipsSegments() {
+        try (LogArchive archive = new LogArchive(directory, params)) {
+            capture(archive);
+
+            List<String> messages = new ArrayList<>();
+            LogSearchStats stats = archive.search("mongo", nanos(1000), nanos(2000), "oom", record -> messages.add(record.message()));
+
+            assertThat(messages).containsExactly("kernel: OOM killer invoked for pid 1007", "kernel: OOM killer invoked for pid 1507");
+            assertThat(stats.getLinesMatched()).isEqualTo(2);
+            assertThat(stats.getSegmentsSearched()).isLessThan(stats.getSegments() / 10);
+
+            List<String> range = new ArrayList<>();
+            archive.search("mongo", nanos(10), nanos(12), null, record -> range.add(record.message()));
+            assertThat(range).containsExactly("GET /api/items/10 200", "GET /api/items/11 200", "GET /api/items/12 200");
+        }
+    }
+
+    @Test
+    public void reopenRebuildsMissingIndex() throws IOException {
+        try (LogArchive archive = new LogArchive(directory, params)) {
+            capture(archive);
+        }
+
+        Path mongo = directory.resolve("mongo");
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(mongo, "*.seg")) {
+            stream.forEach(segments::add);
+        }
+        segments.sort(null);
+        Path last = segments.get(segments.size() - 1);
+        Files.delete(mongo.resolve(last.getFileName().toString().replace(".seg", ".idx")));
+        Files.write(last, new byte[] {0, 0, 1, 0, 0, 0}, StandardOpenOption.APPEND);
+
+        try (LogArchive archive = new LogArchive(directory, params)) {
+            List<Long> timestamps = new ArrayList<>();
+            archive.search("mongo", nanos(2500), nanos(LINES), "killer", record -> timestamps.add(record.getTimestampNanos()));
+            assertThat(timestamps).containsExactly(nanos(2507));
+
+            List<String> newest = new ArrayList<>();
+            archive.search("mongo", nanos(LINES - 1), nanos(LINES - 1), "", record -> newest.add(record.message()));
+            assertThat(newest).containsExactly("GET /api/items/2999 200");
+        }
+        assertThat(mongo.resolve(last.getFileName().toString().replace(".seg", ".idx"))).exists();
+    }
+
+    private void capture(LogArchive archive) {
+        client.logs("mongo", DockerLogsParameters.builder().stdout(true).timestamps(true).build(), archive.sink("mongo"));
+        archive.flush();
+    }
+
+    private static long nanos(long second) {
+        return (START + second) * NANOS_PER_SECOND;
+    }
+
+    private static byte[] logBody() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < LINES; i++) {
+            String message = i % 500 == 7 ? "kernel: OOM killer invoked for pid " + i : "GET /api/items/" + i + " 200";
+            LogFrames.write(out, 1, Instant.ofEpochSecond(START + i) + " " + message + "\n");
+        }
+        return out.toByteArray();
+    }
+}
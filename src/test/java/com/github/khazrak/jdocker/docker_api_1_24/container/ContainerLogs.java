@@ -26,13 +26,27 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.handlers.DockerFrameDecoder;
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream;
 import com.github.khazrak.jdocker.handlers.DockerLogsLineReader;
+import com.github.khazrak.jdocker.logs.LogFieldExtractor;
+import com.github.khazrak.jdocker.logs.LogFields;
+import com.github.khazrak.jdocker.logs.LogFilter;
+import com.github.khazrak.jdocker.logs.LogRecord;
+import com.github.khazrak.jdocker.logs.LogRecordReader;
+import com.github.khazrak.jdocker.logs.LogTail;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -159,6 +173,280 @@ public class ContainerLogs {
         wireMockRule.verify(1, requestPatternBuilder);
     }
 
+    @Test
+    public void logsSpecialPrefixesStream() throws IOException {
+        DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).build();
+
+        try(DockerLogsLineReader reader = client.logsSpecial("mongo", params)) {
+            assertThat(reader.readLine()).startsWith("<STDOUT> 2016-09-11T12:13:20.326+0000 I CONTROL  [initandlisten] MongoDB starting");
+        }
+    }
+
+    @Test
+    public void logsIntoSinks() {
+        DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).build();
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+        client.logs("mongo", params, stdout, stderr);
+
+        assertThat(stdout.size()).isEqualTo(3426 - 31 * 8);
+        assertThat(stderr.size()).isEqualTo(0);
+        assertThat(new String(stdout.toByteArray(), StandardCharsets.UTF_8).split("\n")).hasSize(31);
+    }
+
+    @Test
+    public void logRecords() throws IOException {
+        ByteArrayOutputStream multiplexed = new ByteArrayOutputStream();
+        LogFrames.write(multiplexed, 1, "2016-09-11T12:13:20.326612345Z first\n2016-09-11T12:13:21.000000001Z sec".getBytes(StandardCharsets.UTF_8));
+        LogFrames.write(multiplexed, 1, "ond line\n".getBytes(StandardCharsets.UTF_8));
+        LogFrames.write(multiplexed, 2, "2016-09-11T12:13:19.5Z oops\n".getBytes(StandardCharsets.UTF_8));
+        wireMockRule.stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Flogs?stderr=true&stdout=true&timestamps=true"))
+                .willReturn(aResponse().withStatus(200).withBody(multiplexed.toByteArray())));
+
+        DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).stderr(true).timestamps(true).build();
+        List<LogRecord> records = new ArrayList<>();
+        LogRecord record = new LogRecord();
+
+        try (LogRecordReader reader = client.logRecords("mongo", params)) {
+            while (reader.next(record)) {
+                records.add(record.copy());
+            }
+        }
+
+        assertThat(records).hasSize(3);
+        assertThat(records.get(0).getType()).isEqualTo(DockerLogsInputStream.LOG_TYPE.STDOUT);
+        assertThat(records.get(0).getTimestampNanos()).isEqualTo(1473596000326612345L);
+        assertThat(records.get(0).message()).isEqualTo("first");
+        assertThat(records.get(1).message()).isEqualTo("second line");
+        assertThat(records.get(1).messageContains("nd li".getBytes(StandardCharsets.UTF_8))).isTrue();
+        assertThat(records.get(2).getType()).isEqualTo(DockerLogsInputStream.LOG_TYPE.STDERR);
+
+        Collections.sort(records);
+        assertThat(records.get(0).message()).isEqualTo("oops");
+        assertThat(records.get(0).getTimestampNanos()).isEqualTo(1473595999500000000L);
+    }
+
+    @Test
+    public void logRecordsWithoutTimestamps() throws IOException {
+        DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).build();
+        LogRecord record = new LogRecord();
+        int count = 0;
+
+        try (LogRecordReader reader = client.logRecords("mongo", params)) {
+            assertThat(reader.next(record)).isTrue();
+            assertThat(record.hasTimestamp()).isFalse();
+            assertThat(record.getTimestampNanos()).isEqualTo(Long.MIN_VALUE);
+            assertThat(record.message()).startsWith("2016-09-11T12:13:20.326+0000 I CONTROL  [initandlisten] MongoDB starting");
+            count++;
+            while (reader.next(record)) {
+                count++;
+            }
+        }
+
+        assertThat(count).isEqualTo(31);
+    }
+
+    @Test
+    public void logsTail() {
+        DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).build();
+        List<String> all = client.logs("mongo", params);
+
+        LogTail byLines = client.logsTail("mongo", params, 5, 64 * 1024);
+        assertThat(byLines.lines()).isEqualTo(all.subList(all.size() - 5, all.size()));
+        assertThat(byLines.getLinesSeen()).isEqualTo(31);
+        assertThat(byLines.getLinesDropped()).isEqualTo(26);
+
+        LogTail byBytes = client.logsTail("mongo", params, 1000, 300);
+        List<String> kept = byBytes.lines();
+        assertThat(byBytes.getRetainedBytes()).isLessThanOrEqualTo(300);
+        assertThat(kept).isNotEmpty();
+        assertThat(kept).isEqualTo(all.subList(all.size() - kept.size(), all.size()));
+    }
+
+    @Test
+    public void logsTailTruncatesLongLines() {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longLine.append("0123456789");
+        }
+        wireMockRule.stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Flogs?stdout=true"))
+                .willReturn(aResponse().withStatus(200).withBody(LogFrames.lines("short", longLine.toString()))));
+        DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).build();
+
+        LogTail tail = client.logsTail("mongo", params, 10, 100);
+
+        assertThat(tail.getLinesSeen()).isEqualTo(2);
+        assertThat(tail.getLinesTruncated()).isEqualTo(1);
+        assertThat(tail.lines()).containsExactly(longLine.substring(0, 100));
+    }
+
+    @Test
+    public void logsToConsumer() {
+        DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).build();
+        List<String> messages = new ArrayList<>();
+
+        client.logs("mongo", params, record -> messages.add(record.message()));
+
+        assertThat(messages).isEqualTo(client.logs("mongo", params));
+    }
+
+    @Test
+    public void logTailWrapsAndSplitsLongLines() throws IOException {
+        ByteArrayOutputStream multiplexed = new ByteArrayOutputStream();
+        LogFrames.write(multiplexed, 1, "aaaa\nbbbb\ncc".getBytes(StandardCharsets.UTF_8));
+        LogFrames.write(multiplexed, 1, "cccccccc\ndd\n".getBytes(StandardCharsets.UTF_8));
+        LogTail tail = new LogTail(10, 11);
+        LogRecord record = new LogRecord();
+
+        try (LogRecordReader reader = new LogRecordReader(new ByteArrayInputStream(multiplexed.toByteArray()), false, 6)) {
+            while (reader.next(record)) {
+                tail.add(record);
+            }
+        }
+
+        assertThat(tail.getLinesSeen()).isEqualTo(5);
+        assertThat(tail.lines()).containsExactly("cccc", "dd");
+        assertThat(tail.getRetainedBytes()).isEqualTo(6);
+        assertThat(tail.getLinesDropped()).isEqualTo(3);
+    }
+
+    @Test
+    public void frameDecoderSplitsStreams() throws IOException {
+        byte[] payload = "one\ntwo\n".getBytes(StandardCharsets.UTF_8);
+        byte[] error = new byte[] {0, (byte) 0xff, '\n'};
+        ByteArrayOutputStream multiplexed = new ByteArrayOutputStream();
+        LogFrames.write(multiplexed, 1, payload);
+        LogFrames.write(multiplexed, 1, new byte[0]);
+        LogFrames.write(multiplexed, 2, error);
+        LogFrames.write(multiplexed, 1, "three".getBytes(StandardCharsets.UTF_8));
+
+        DockerFrameDecoder decoder = new DockerFrameDecoder(new ByteArrayInputStream(multiplexed.toByteArray()));
+        assertThat(decoder.nextFrame()).isTrue();
+        assertThat(decoder.frameType()).isEqualTo(DockerLogsInputStream.LOG_TYPE.STDOUT);
+        assertThat(decoder.frame().remaining()).isEqualTo(payload.length);
+
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        assertThat(decoder.demultiplex(stdout, stderr)).isEqualTo(8);
+        assertThat(stdout.toString("UTF-8")).isEqualTo("three");
+        assertThat(stderr.toByteArray()).isEqualTo(error);
+    }
+
+    @Test
+    public void frameDecoderPassesTtyStreamThrough() throws IOException {
+        byte[] tty = "Thu Sep 29 18:48:28 UTC 2016\n".getBytes(StandardCharsets.UTF_8);
+        DockerFrameDecoder decoder = new DockerFrameDecoder(new ByteArrayInputStream(tty));
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        decoder.demultiplex(stdout, null);
+
+        assertThat(decoder.frameType()).isEqualTo(DockerLogsInputStream.LOG_TYPE.NONE);
+        assertThat(stdout.toByteArray()).isEqualTo(tty);
+    }
+
+    @Test
+    public void extractJsonFields() throws IOException {
+        ByteArrayOutputStream multiplexed = new ByteArrayOutputStream();
+        LogFrames.write(multiplexed, 1, ("2016-09-11T12:13:20.000000001Z {\"level\":\"warn\",\"payload\":{\"items\":[1,{\"level\":\"x\"}]},"
+                + "\"trace\":{\"id\":\"abc\",\"sampled\":true},\"took\":12.5,\"count\":3}\n"
+                + "2016-09-11T12:13:21.000000001Z {\"trace\":{\"id\":\"def\"},\"level\":\"warn\",\"count\":null}\n").getBytes(StandardCharsets.UTF_8));
+        LogFrames.write(multiplexed, 2, "2016-09-11T12:13:22.000000001Z plain text\n".getBytes(StandardCharsets.UTF_8));
+        LogFieldExtractor extractor = new LogFieldExtractor("level", "trace.id", "trace.sampled", "took", "count");
+        LogFields fields = extractor.newFields();
+        LogRecord record = new LogRecord();
+        List<String> levels = new ArrayList<>();
+
+        try (LogRecordReader reader = new LogRecordReader(new ByteArrayInputStream(multiplexed.toByteArray()), true)) {
+            assertThat(reader.next(record)).isTrue();
+            assertThat(extractor.extract(record, fields)).isTrue();
+            assertThat(fields.found()).isEqualTo(5);
+            assertThat(fields.getString("level")).isEqualTo("warn");
+            assertThat(fields.getString(extractor.indexOf("trace.id"))).isEqualTo("abc");
+            assertThat(fields.getBoolean(2, false)).isTrue();
+            assertThat(fields.getDouble(3, 0)).isEqualTo(12.5);
+            assertThat(fields.getLong(4, 0)).isEqualTo(3);
+            levels.add(fields.getString(0));
+
+            assertThat(reader.next(record)).isTrue();
+            assertThat(extractor.extract(record, fields)).isTrue();
+            assertThat(fields.getString(1)).isEqualTo("def");
+            assertThat(fields.kind(4)).isEqualTo(LogFields.Kind.NULL);
+            assertThat(fields.has(3)).isFalse();
+            levels.add(fields.getString(0));
+
+            assertThat(reader.next(record)).isTrue();
+            assertThat(extractor.extract(record, fields)).isFalse();
+            assertThat(fields.found()).isZero();
+        }
+        assertThat(levels.get(1)).isSameAs(levels.get(0));
+    }
+
+    @Test
+    public void sharedValuesSurviveManyDistinctValues() {
+        LogFieldExtractor extractor = new LogFieldExtractor("level", "traceId");
+        LogFields fields = extractor.newFields();
+        for (int i = 0; i < 5000; i++) {
+            byte[] line = ("{\"level\":\"info\",\"traceId\":\"trace-" + i + "\"}").getBytes(StandardCharsets.UTF_8);
+            assertThat(extractor.extract(line, 0, line.length, fields)).isTrue();
+        }
+
+        byte[] fatal = "{\"level\":\"fatal\",\"traceId\":\"trace-5000\"}".getBytes(StandardCharsets.UTF_8);
+        extractor.extract(fatal, 0, fatal.length, fields);
+        String first = fields.getString(0);
+        extractor.extract(fatal, 0, fatal.length, fields);
+
+        assertThat(first).isEqualTo("fatal");
+        assertThat(fields.getString(0)).isSameAs(first);
+        assertThat(fields.getString(1)).isEqualTo("trace-5000");
+    }
+
+    @Test
+    public void sharedValuesSurviveFullProbeWindow() {
+        // five values with the same home slot in the 256 slot table, one more than the four slots probed
+        List<String> colliding = new ArrayList<>();
+        int home = -1;
+        for (int i = 0; colliding.size() < 5; i++) {
+            String value = "v" + i;
+            int hash = value.hashCode();
+            int slot = (hash ^ (hash >>> 16)) & 255;
+            if (home < 0) {
+                home = slot;
+            }
+            if (slot == home) {
+                colliding.add(value);
+            }
+        }
+        LogFieldExtractor extractor = new LogFieldExtractor("level");
+        LogFields fields = extractor.newFields();
+        for (String value : colliding) {
+            byte[] line = ("{\"level\":\"" + value + "\"}").getBytes(StandardCharsets.UTF_8);
+            extractor.extract(line, 0, line.length, fields);
+        }
+        String last = fields.getString(0);
+
+        byte[] line = ("{\"level\":\"" + colliding.get(4) + "\"}").getBytes(StandardCharsets.UTF_8);
+        extractor.extract(line, 0, line.length, fields);
+
+        assertThat(fields.getString(0)).isSameAs(last);
+    }
+
+    @Test
+    public void filterOnJsonField() {
+        LogFilter errors = LogFilter.field("level", "error");
+        LogRecord record = new LogRecord();
+        byte[] error = "{\"msg\":\"boom\",\"level\":\"error\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] info = "{\"level\":\"info\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] broken = "{\"level\":".getBytes(StandardCharsets.UTF_8);
+
+        record.set(DockerLogsInputStream.LOG_TYPE.STDOUT, error, 0, error.length, false);
+        assertThat(errors.test("mongo", record)).isTrue();
+        record.set(DockerLogsInputStream.LOG_TYPE.STDOUT, info, 0, info.length, false);
+        assertThat(errors.test("mongo", record)).isFalse();
+        record.set(DockerLogsInputStream.LOG_TYPE.STDOUT, broken, 0, broken.length, false);
+        assertThat(errors.test("mongo", record)).isFalse();
+    }
+
     //TODO: Add more test for logging with only stderr in call and the other params
 
 }
@@ -0,0 +1,242 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.container;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream;
+import com.github.khazrak.jdocker.logs.LogFrame;
+import com.github.khazrak.jdocker.logs.LogFrameListener;
+import com.github.khazrak.jdocker.logs.LogRecord;
+import com.github.khazrak.jdocker.logs.LogSubscription;
+import com.github.khazrak.jdocker.logs.LogSubscriptionMetrics;
+import com.github.khazrak.jdocker.logs.LogSubscriptionParameters;
+import com.github.khazrak.jdocker.logs.LogTailCursor;
+import com.github.khazrak.jdocker.logs.LogTailPosition;
+import com.github.khazrak.jdocker.logs.OverflowPolicy;
+import com.github.khazrak.jdocker.model.api124.parameters.DockerLogsParameters;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerLogsFollow {
+
+    private static final int FRAMES = 31;
+
+    private DockerClient client;
+    private DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).build();
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9779));
+
+    @Before
+    public void setup() {
+        client = new DefaultDockerClient("http://127.0.0.1:9779");
+        stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Flogs?follow=true&stdout=true"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "text/plain; charset=utf-8")
+                        .withBodyFile("body-mongo-logs-all.txt")));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void followDeliversEveryFrame() throws InterruptedException {
+        Collector collector = new Collector(null);
+
+        LogSubscription subscription = client.followLogs("mongo", params, collector);
+
+        assertThat(collector.done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(collector.error).isNull();
+        assertThat(collector.frames).hasSize(FRAMES);
+        assertThat(collector.frames.get(0).getType()).isEqualTo(DockerLogsInputStream.LOG_TYPE.STDOUT);
+        assertThat(collector.frames.get(0).asString()).startsWith("2016-09-11T12:13:20.326+0000 I CONTROL  [initandlisten] MongoDB starting");
+
+        LogSubscriptionMetrics metrics = subscription.getMetrics();
+        assertThat(metrics.getFramesReceived()).isEqualTo(FRAMES);
+        assertThat(metrics.getFramesDelivered()).isEqualTo(FRAMES);
+        assertThat(metrics.getBytesReceived()).isEqualTo(3426 - FRAMES * 8);
+        assertThat(metrics.getFramesDropped()).isEqualTo(0);
+        assertThat(subscription.isOpen()).isFalse();
+    }
+
+    @Test
+    public void dropOldestKeepsNewestFrames() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Collector collector = new Collector(release);
+        LogSubscriptionParameters options = LogSubscriptionParameters.builder()
+                .capacity(4)
+                .overflowPolicy(OverflowPolicy.DROP_OLDEST)
+                .build();
+
+        LogSubscription subscription = client.followLogs("mongo", params, options, collector);
+        awaitReceived(subscription, FRAMES);
+        release.countDown();
+
+        assertThat(collector.done.await(10, TimeUnit.SECONDS)).isTrue();
+        LogSubscriptionMetrics metrics = subscription.getMetrics();
+        assertThat(metrics.getMaxBufferedFrames()).isLessThanOrEqualTo(4);
+        assertThat(metrics.getFramesDelivered() + metrics.getFramesDropped()).isEqualTo(FRAMES);
+        assertThat(collector.frames.size()).isLessThanOrEqualTo(5);
+        assertThat(collector.frames.get(collector.frames.size() - 1).asString()).contains("dbexit:  rc: 0");
+    }
+
+    @Test
+    public void sampleKeepsSomeOverflowFrames() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Collector collector = new Collector(release);
+        LogSubscriptionParameters options = LogSubscriptionParameters.builder()
+                .capacity(4)
+                .overflowPolicy(OverflowPolicy.SAMPLE)
+                .sampleRate(3)
+                .build();
+
+        LogSubscription subscription = client.followLogs("mongo", params, options, collector);
+        awaitReceived(subscription, FRAMES);
+        release.countDown();
+
+        assertThat(collector.done.await(10, TimeUnit.SECONDS)).isTrue();
+        LogSubscriptionMetrics metrics = subscription.getMetrics();
+        assertThat(metrics.getMaxBufferedFrames()).isLessThanOrEqualTo(4);
+        assertThat(metrics.getFramesDelivered() + metrics.getFramesDropped()).isEqualTo(FRAMES);
+        assertThat(metrics.getFramesDropped()).isGreaterThan(0);
+    }
+
+    @Test
+    public void blockPausesInsteadOfDropping() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Collector collector = new Collector(release);
+        LogSubscriptionParameters options = LogSubscriptionParameters.builder()
+                .capacity(2)
+                .overflowPolicy(OverflowPolicy.BLOCK)
+                .build();
+
+        LogSubscription subscription = client.followLogs("mongo", params, options, collector);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (subscription.getMetrics().getPauses() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        assertThat(collector.done.await(10, TimeUnit.SECONDS)).isTrue();
+        LogSubscriptionMetrics metrics = subscription.getMetrics();
+        assertThat(metrics.getPauses()).isGreaterThan(0);
+        assertThat(metrics.getFramesDropped()).isEqualTo(0);
+        assertThat(collector.frames).hasSize(FRAMES);
+    }
+
+    @Test
+    public void tailCursorResumesWithoutDuplicates() throws InterruptedException {
+        stubTailedLogs();
+        List<String> messages = new ArrayList<>();
+        LogRecord record = new LogRecord();
+
+        try (LogTailCursor cursor = new LogTailCursor(client, "mongo", params, LogTailPosition.START, 10, TimeUnit.MILLISECONDS, 3)) {
+            while (messages.size() < 5 && cursor.next(record)) {
+                messages.add(record.message());
+            }
+            assertThat(cursor.getPosition().getTimestampNanos()).isEqualTo(1473596001000000000L);
+            assertThat(cursor.getPosition().getLinesAtTimestamp()).isEqualTo(1);
+        }
+
+        assertThat(messages).containsExactly("a", "b1", "b2", "b3", "c");
+        verify(1, getRequestedFor(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Flogs?follow=true&since=1473596000&stdout=true&timestamps=true")));
+    }
+
+    @Test
+    public void tailCursorResumesFromPosition() throws InterruptedException {
+        stubTailedLogs();
+        LogRecord record = new LogRecord();
+
+        try (LogTailCursor cursor = new LogTailCursor(client, "mongo", params, new LogTailPosition(1473596000500000000L, 2), 10, TimeUnit.MILLISECONDS, 3)) {
+            assertThat(cursor.next(record)).isTrue();
+            assertThat(record.message()).isEqualTo("b3");
+        }
+
+        verify(0, getRequestedFor(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Flogs?follow=true&stdout=true&timestamps=true")));
+    }
+
+    private static void stubTailedLogs() {
+        stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Flogs?follow=true&stdout=true&timestamps=true"))
+                .willReturn(aResponse().withStatus(200).withBody(LogFrames.lines(
+                        "2016-09-11T12:13:20.1Z a",
+                        "2016-09-11T12:13:20.5Z b1",
+                        "2016-09-11T12:13:20.5Z b2"))));
+        stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Flogs?follow=true&since=1473596000&stdout=true&timestamps=true"))
+                .willReturn(aResponse().withStatus(200).withBody(LogFrames.lines(
+                        "2016-09-11T12:13:20.1Z a",
+                        "2016-09-11T12:13:20.5Z b1",
+                        "2016-09-11T12:13:20.5Z b2",
+                        "2016-09-11T12:13:20.5Z b3",
+                        "2016-09-11T12:13:21Z c"))));
+    }
+
+    private static void awaitReceived(LogSubscription subscription, int frames) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (subscription.getMetrics().getFramesReceived() < frames && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static class Collector implements LogFrameListener {
+
+        private final CountDownLatch release;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final List<LogFrame> frames = new CopyOnWriteArrayList<>();
+        private volatile Throwable error;
+
+        Collector(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void onFrame(LogFrame frame) {
+            try {
+                if (release != null) {
+                    release.await(10, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            frames.add(frame);
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+    }
+}
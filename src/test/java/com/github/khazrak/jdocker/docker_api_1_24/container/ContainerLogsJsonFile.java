@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.container;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream.LOG_TYPE;
+import com.github.khazrak.jdocker.logs.JsonFileLogReader;
+import com.github.khazrak.jdocker.logs.LogRecord;
+import com.github.khazrak.jdocker.model.api124.parameters.DockerLogsParameters;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerLogsJsonFile {
+
+    private static final String ID = "73f363f484b41e68898508dfdfdde42b953fe7ad76a00a28b50d7d74355bae4d";
+
+    private DockerClient client;
+    private Path root;
+    private Path logPath;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9779));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setup() throws IOException {
+        client = new DefaultDockerClient("http://127.0.0.1:9779");
+        root = folder.newFolder("host").toPath();
+        logPath = root.resolve("var/lib/docker/containers/" + ID + "/" + ID + "-json.log");
+        Files.createDirectories(logPath.getParent());
+        write(logPath.resolveSibling(ID + "-json.log.2"), line("first", "stdout", "2016-09-11T12:13:18.1Z"));
+        write(logPath.resolveSibling(ID + "-json.log.1"), line("second", "stderr", "2016-09-11T12:13:19.2Z")
+                + line("tr\\u00e4d \\ud83d\\udc33", "stdout", "2016-09-11T12:13:20.3Z"));
+        write(logPath, line("fourth", "stdout", "2016-09-11T12:13:21.4Z")
+                + line("fifth", "stderr", "2016-09-11T12:13:22.5Z"));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void readsRotatedFiles() throws Exception {
+        DockerLogsParameters all = DockerLogsParameters.builder().stdout(true).stderr(true).timestamps(true).build();
+        try (JsonFileLogReader reader = reader(all)) {
+            assertThat(reader.isLocal()).isTrue();
+            LogRecord record = new LogRecord();
+            assertThat(reader.next(record)).isTrue();
+            assertThat(record.message()).isEqualTo("first");
+            assertThat(record.getTimestampNanos()).isEqualTo(1473595998100000000L);
+            assertThat(reader.next(record)).isTrue();
+            assertThat(record.getType()).isEqualTo(LOG_TYPE.STDERR);
+            assertThat(record.message()).isEqualTo("second");
+        }
+
+        assertThat(messages(all)).containsExactly("first", "second", "tr\u00e4d \ud83d\udc33", "fourth", "fifth");
+        assertThat(messages(DockerLogsParameters.builder().stdout(true).build()))
+                .containsExactly("first", "tr\u00e4d \ud83d\udc33", "fourth");
+        assertThat(messages(DockerLogsParameters.builder().stdout(true).stderr(true).tail(3).build()))
+                .containsExactly("tr\u00e4d \ud83d\udc33", "fourth", "fifth");
+        assertThat(messages(DockerLogsParameters.builder().stdout(true).stderr(true).since(1473596001).build()))
+                .containsExactly("fourth", "fifth");
+    }
+
+    @Test
+    public void followPicksUpGrowthAndRotation() throws Exception {
+        DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).stderr(true).follow(true).tail(1).build();
+        try (JsonFileLogReader reader = reader(params)) {
+            LogRecord record = new LogRecord();
+            assertThat(reader.next(record)).isTrue();
+            assertThat(record.message()).isEqualTo("fifth");
+
+            Files.write(logPath, (line("sixth", "stdout", "2016-09-11T12:13:23Z") + "{\"log\":\"sev").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+            assertThat(reader.next(record)).isTrue();
+            assertThat(record.message()).isEqualTo("sixth");
+
+            Files.write(logPath, ("enth\\n\",\"stream\":\"stdout\",\"time\":\"2016-09-11T12:13:24Z\"}\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+            Files.move(logPath, logPath.resolveSibling(ID + "-json.log.1.tmp"));
+            write(logPath, line("eighth", "stdout", "2016-09-11T12:13:25Z"));
+            assertThat(reader.next(record)).isTrue();
+            assertThat(record.message()).isEqualTo("seventh");
+            assertThat(reader.next(record)).isTrue();
+            assertThat(record.message()).isEqualTo("eighth");
+        }
+    }
+
+    @Test
+    public void fallsBackToDaemon() throws Exception {
+        DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).build();
+        try (JsonFileLogReader reader = new JsonFileLogReader(client, "mongo", params, folder.newFolder("remote").toPath(),
+                10, TimeUnit.MILLISECONDS)) {
+            assertThat(reader.isLocal()).isFalse();
+            int lines = 0;
+            LogRecord record = new LogRecord();
+            while (reader.next(record)) {
+                lines++;
+            }
+            assertThat(lines).isEqualTo(31);
+        }
+    }
+
+    private JsonFileLogReader reader(DockerLogsParameters params) throws IOException {
+        return new JsonFileLogReader(client, "mongo", params, root, 10, TimeUnit.MILLISECONDS);
+    }
+
+    private List<String> messages(DockerLogsParameters params) throws Exception {
+        List<String> messages = new ArrayList<>();
+        try (JsonFileLogReader reader = reader(params)) {
+            LogRecord record = new LogRecord();
+            while (reader.next(record)) {
+                messages.add(record.message());
+            }
+        }
+        return messages;
+    }
+
+    private static String line(String log, String stream, String time) {
+        return "{\"log\":\"" + log + "\\n\",\"stream\":\"" + stream + "\",\"time\":\"" + time + "\"}\n";
+    }
+
+    private static void write(Path path, String content) throws IOException {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
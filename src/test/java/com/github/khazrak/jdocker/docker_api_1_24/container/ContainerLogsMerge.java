@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.container;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.handlers.DockerLogsInputStream;
+import com.github.khazrak.jdocker.logs.LogFilter;
+import com.github.khazrak.jdocker.logs.MergedLogLine;
+import com.github.khazrak.jdocker.logs.MergedLogReader;
+import com.github.khazrak.jdocker.model.api124.parameters.DockerLogsParameters;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerLogsMerge {
+
+    private DockerClient client;
+    private DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).stderr(true).build();
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9779));
+
+    @Before
+    public void setup() {
+        client = new DefaultDockerClient("http://127.0.0.1:9779");
+        stubLogs("web", 1, "2016-09-11T12:13:20.100Z GET /", 1, "2016-09-11T12:13:20.400Z GET /login", 2, "2016-09-11T12:13:21.700Z error: upstream timeout");
+        stubLogs("db", 1, "2016-09-11T12:13:20.200Z connection accepted", 2, "2016-09-11T12:13:21.100Z error: lock timeout");
+        stubLogs("cache", 1, "2016-09-11T12:13:20.300Z hit", 1, "2016-09-11T12:13:20.500Z miss", 1, "2016-09-11T12:13:22Z evicted");
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void mergesInTimestampOrder() throws InterruptedException {
+        List<String> lines = new ArrayList<>();
+
+        try (MergedLogReader reader = new MergedLogReader(client, Arrays.asList("web", "db", "cache"), params, 1)) {
+            MergedLogLine line;
+            while ((line = reader.next()) != null) {
+                lines.add(line.getContainer() + " " + line.getRecord().message());
+            }
+        }
+
+        assertThat(lines).containsExactly(
+                "web GET /",
+                "db connection accepted",
+                "cache hit",
+                "web GET /login",
+                "cache miss",
+                "db error: lock timeout",
+                "web error: upstream timeout",
+                "cache evicted");
+    }
+
+    @Test
+    public void filtersWhileReading() throws InterruptedException {
+        LogFilter errors = LogFilter.stream(DockerLogsInputStream.LOG_TYPE.STDERR).and(LogFilter.containing("timeout"));
+        List<String> lines = new ArrayList<>();
+
+        try (MergedLogReader reader = new MergedLogReader(client, Arrays.asList("web", "db", "cache"), params, 2, errors, 5, TimeUnit.SECONDS)) {
+            MergedLogLine line;
+            while ((line = reader.next()) != null) {
+                lines.add(line.getContainer());
+            }
+        }
+
+        assertThat(lines).containsExactly("db", "web");
+    }
+
+    @Test
+    public void closeWakesBlockedNext() throws InterruptedException {
+        stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Fslow%2Flogs?stderr=true&stdout=true&timestamps=true"))
+                .willReturn(aResponse().withStatus(200).withFixedDelay(3000).withBody("")));
+        MergedLogReader reader = new MergedLogReader(client, Arrays.asList("web", "slow"), params, 1);
+        Thread closer = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reader.close();
+        });
+
+        long start = System.nanoTime();
+        closer.start();
+        MergedLogLine line = reader.next();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        closer.join();
+
+        assertThat(line).isNull();
+        assertThat(reader.next()).isNull();
+        assertThat(elapsed).isLessThan(2000);
+    }
+
+    private static void stubLogs(String id, Object... frames) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < frames.length; i += 2) {
+            LogFrames.write(out, (Integer) frames[i], frames[i + 1] + "\n");
+        }
+        stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2F" + id + "%2Flogs?stderr=true&stdout=true&timestamps=true"))
+                .willReturn(aResponse().withStatus(200).withBody(out.toByteArray())));
+    }
+}
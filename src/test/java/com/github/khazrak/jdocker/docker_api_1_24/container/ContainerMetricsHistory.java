@@ -0,0 +1,162 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.container;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+import com.github.khazrak.jdocker.stats.ContainerMetric;
+import com.github.khazrak.jdocker.stats.ContainerMetrics;
+import com.github.khazrak.jdocker.stats.ContainerMetricsCalculator;
+import com.github.khazrak.jdocker.stats.ContainerStatsIterator;
+import com.github.khazrak.jdocker.stats.history.Aggregation;
+import com.github.khazrak.jdocker.stats.history.DownsampledSeries;
+import com.github.khazrak.jdocker.stats.history.MetricsHistory;
+import com.github.khazrak.jdocker.stats.history.MetricsHistoryParameters;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class ContainerMetricsHistory {
+
+    private DockerClient client;
+    private List<ContainerStats> samples = new ArrayList<>();
+    private List<Double> cpu = new ArrayList<>();
+    private List<Long> times = new ArrayList<>();
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9779));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setup() {
+        client = new DefaultDockerClient("http://127.0.0.1:9779");
+        ContainerMetricsCalculator calculator = new ContainerMetricsCalculator();
+        try (ContainerStatsIterator iterator = client.statsIterator("mongo")) {
+            while (iterator.hasNext()) {
+                ContainerStats stats = iterator.next();
+                samples.add(stats);
+                ContainerMetrics metrics = calculator.update(stats);
+                cpu.add(metrics.getCpuPercent());
+                times.add(metrics.getTimestamp() / 1000000 * 1000000);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void rangeQueryIsLossless() {
+        try (MetricsHistory history = new MetricsHistory()) {
+            samples.forEach(stats -> history.record("mongo", stats));
+
+            assertQueryMatches(history);
+            assertThat(history.heapBytes()).isLessThan(59 * 7 * 8);
+        }
+    }
+
+    @Test
+    public void spillsSealedBlocks() throws IOException {
+        MetricsHistoryParameters params = MetricsHistoryParameters.builder()
+                .samplesPerBlock(8)
+                .spillFile(folder.newFile("history.bin").toPath())
+                .spillSegmentSize(4096)
+                .build();
+
+        try (MetricsHistory history = new MetricsHistory(params)) {
+            samples.forEach(stats -> history.record("mongo", stats));
+
+            assertQueryMatches(history);
+            assertThat(history.sampleCount("mongo")).isEqualTo(59);
+        }
+    }
+
+    @Test
+    public void reusesSpillSpaceOfDroppedBlocks() throws IOException {
+        Path file = folder.newFile("history.bin").toPath();
+        MetricsHistoryParameters params = MetricsHistoryParameters.builder()
+                .samplesPerBlock(2)
+                .retentionNanos(TimeUnit.SECONDS.toNanos(10))
+                .spillFile(file)
+                .spillSegmentSize(1024)
+                .build();
+
+        try (MetricsHistory history = new MetricsHistory(params)) {
+            samples.forEach(stats -> history.record("mongo", stats));
+            long size = Files.size(file);
+            assertThat(history.sampleCount("mongo")).isLessThan(20);
+
+            for (int i = 0; i < 10; i++) {
+                history.remove("mongo");
+                samples.forEach(stats -> history.record("mongo", stats));
+            }
+            assertThat(Files.size(file)).isEqualTo(size);
+            assertThat(size).isLessThanOrEqualTo(4 * 1024);
+        }
+    }
+
+    @Test
+    public void downsample() {
+        try (MetricsHistory history = new MetricsHistory()) {
+            samples.forEach(stats -> history.record("mongo", stats));
+
+            long from = times.get(0);
+            long step = TimeUnit.SECONDS.toNanos(10);
+            DownsampledSeries series = history.downsample("mongo", ContainerMetric.CPU_PERCENT, from, from + 6 * step, step, Aggregation.MEAN);
+
+            assertThat(series.getSize()).isEqualTo(6);
+            double expected = 0;
+            for (int i = 0; i < 10; i++) {
+                expected += cpu.get(i);
+            }
+            assertThat(series.getValues()[0]).isCloseTo(expected / 10, within(1e-9));
+            assertThat(series.getTimestamps()[1]).isEqualTo(from + step);
+        }
+    }
+
+    private void assertQueryMatches(MetricsHistory history) {
+        List<Double> values = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        history.query("mongo", ContainerMetric.CPU_PERCENT, Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> {
+            timestamps.add(timestamp);
+            values.add(value);
+        });
+
+        assertThat(values).isEqualTo(cpu);
+        assertThat(timestamps).isEqualTo(times);
+
+        List<Double> range = new ArrayList<>();
+        history.query("mongo", ContainerMetric.CPU_PERCENT, times.get(20), times.get(29), (timestamp, value) -> range.add(value));
+        assertThat(range).isEqualTo(cpu.subList(20, 30));
+    }
+}
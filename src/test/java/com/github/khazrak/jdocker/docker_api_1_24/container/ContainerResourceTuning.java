@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.container;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.tuning.ResourcePolicy;
+import com.github.khazrak.jdocker.tuning.ResourceTuner;
+import com.github.khazrak.jdocker.tuning.TuningDecision;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerResourceTuning {
+
+    private static final String UPDATE = "/v1.24%2Fcontainers%2Ftuned%2Fupdate";
+
+    private DockerClient client;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9779));
+
+    @Before
+    public void setup() {
+        client = new DefaultDockerClient("http://127.0.0.1:9779");
+        // mongo's stats (about 72MB used without cache, 0.3% of one cpu) under an 80MB limit and half a cpu
+        wireMockRule.stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Ftuned%2Fjson?size=false"))
+                .willReturn(aResponse().withHeader("Content-Type", "application/json")
+                        .withBody("{\"Id\":\"tuned\",\"HostConfig\":{\"Memory\":80000000,\"MemorySwap\":160000000,\"CpuPeriod\":100000,\"CpuQuota\":50000}}")));
+        wireMockRule.stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Ftuned%2Fstats?stream=true"))
+                .willReturn(aResponse().withBodyFile("body-containers-stats-mongo-stream.json")));
+        wireMockRule.stubFor(post(urlEqualTo(UPDATE))
+                .willReturn(aResponse().withHeader("Content-Type", "application/json").withBody("{\"Warnings\":null}")));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void raisesMemoryAndTrimsIdleCpu() throws InterruptedException {
+        try (ResourceTuner tuner = new ResourceTuner(client, 0, TimeUnit.SECONDS, 10)) {
+            tuner.manage("tuned", ResourcePolicy.builder().maxMemory(512 * 1024 * 1024).build());
+            List<TuningDecision> decisions = awaitDecisions(tuner);
+
+            assertThat(decisions).hasSize(1);
+            TuningDecision decision = decisions.get(0);
+            assertThat(decision.isApplied()).isTrue();
+            assertThat(decision.getMemory()).isEqualTo(96 * 1024 * 1024);
+            assertThat(decision.getCpuQuota()).isEqualTo(40000);
+            wireMockRule.verify(postRequestedFor(urlEqualTo(UPDATE)).withRequestBody(equalToJson(
+                    "{\"Memory\":100663296,\"MemorySwap\":180663296,\"CpuQuota\":40000,\"CpuShares\":0}", true, true)));
+        }
+    }
+
+    @Test
+    public void respectsCooldownAndBudget() throws InterruptedException {
+        try (ResourceTuner tuner = new ResourceTuner(client, 0, TimeUnit.SECONDS, 0)) {
+            tuner.manage("tuned", ResourcePolicy.defaults());
+            List<TuningDecision> decisions = awaitDecisions(tuner);
+
+            assertThat(decisions).hasSize(1);
+            assertThat(decisions.get(0).isApplied()).isFalse();
+            wireMockRule.verify(0, postRequestedFor(urlEqualTo(UPDATE)));
+        }
+    }
+
+    @Test
+    public void retriesLimitHitOverBudget() throws InterruptedException, IOException {
+        try (ResourceTuner tuner = new ResourceTuner(client, 0, TimeUnit.SECONDS, 0)) {
+            tuner.manage("tuned", ResourcePolicy.defaults());
+            assertThat(awaitDecisions(tuner)).hasSize(1);
+
+            // the container runs into its limit, seen once the ended stream is reopened
+            String stream = new String(Files.readAllBytes(Paths.get("src/test/resources/1_24/__files/body-containers-stats-mongo-stream.json")),
+                    StandardCharsets.UTF_8);
+            wireMockRule.stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Ftuned%2Fstats?stream=true"))
+                    .willReturn(aResponse().withBody(stream.replace("\"failcnt\":0", "\"failcnt\":3"))));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            List<TuningDecision> decisions = tuner.tick();
+            while (!limitHit(decisions) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                decisions = tuner.tick();
+            }
+            assertThat(limitHit(decisions)).isTrue();
+            assertThat(decisions.get(0).isApplied()).isFalse();
+
+            decisions = tuner.tick();
+            assertThat(limitHit(decisions)).isTrue();
+            wireMockRule.verify(0, postRequestedFor(urlEqualTo(UPDATE)));
+        }
+    }
+
+    private static boolean limitHit(List<TuningDecision> decisions) {
+        return decisions.size() == 1 && decisions.get(0).getReason().startsWith("memory limit hit");
+    }
+
+    /**
+     * Ticks until the first samples have arrived and the tuner has something to do.
+     */
+    private static List<TuningDecision> awaitDecisions(ResourceTuner tuner) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        List<TuningDecision> decisions = tuner.tick();
+        while (decisions.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            decisions = tuner.tick();
+        }
+        return decisions;
+    }
+}
@@ -26,14 +26,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.github.khazrak.jdocker.DefaultDockerClient;
 import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.stats.ContainerMetric;
+import com.github.khazrak.jdocker.stats.ContainerMetrics;
+import com.github.khazrak.jdocker.stats.ContainerMetricsCalculator;
+import com.github.khazrak.jdocker.stats.ContainerStatsIterator;
+import com.github.khazrak.jdocker.stats.ContainerStatsListener;
+import com.github.khazrak.jdocker.stats.StatsRecord;
+import com.github.khazrak.jdocker.stats.StatsRecordDecoder;
+import com.github.khazrak.jdocker.stats.StatsWindow;
+import com.github.khazrak.jdocker.utils.ApiVersion;
+import com.github.khazrak.jdocker.utils.Rfc3339;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 public class ContainerStats {
 
@@ -69,6 +86,43 @@ public class ContainerStats {
         wireMockRule.verify(1, requestPatternBuilder);
     }
 
+    @Test
+    public void oneShotStats() {
+        wireMockRule.stubFor(get(urlEqualTo("/version"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json")
+                        .withBody("{\"Version\":\"20.10.7\",\"ApiVersion\":\"1.41\",\"MinAPIVersion\":\"1.12\",\"Os\":\"linux\",\"Arch\":\"amd64\"}")));
+
+        assertThat(client.getApiVersion()).isEqualTo(ApiVersion.V1_24);
+        assertThat(client.negotiateApiVersion()).isEqualTo(ApiVersion.V1_41);
+
+        com.github.khazrak.jdocker.model.api124.ContainerStats mongoStats = client.stats("mongo");
+
+        assertThat(mongoStats.getCpuStats().getSystemCpuUsage()).isEqualTo(60897810000000L);
+        assertThat(mongoStats.getPreCpuStats().getSystemCpuUsage()).isZero();
+
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/v1.41%2Fcontainers%2Fmongo%2Fstats?one-shot=true&stream=false")));
+        wireMockRule.verify(0, getRequestedFor(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Fstats?stream=false")));
+    }
+
+    @Test
+    public void negotiationKeepsVersionOnServerError() {
+        wireMockRule.stubFor(get(urlEqualTo("/version")).willReturn(aResponse().withStatus(500).withBody("server error")));
+
+        assertThat(client.negotiateApiVersion()).isEqualTo(ApiVersion.V1_24);
+        assertThat(client.stats("mongo").getCpuStats().getSystemCpuUsage()).isPositive();
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/v1.24%2Fcontainers%2Fmongo%2Fstats?stream=false")));
+    }
+
+    @Test
+    public void negotiationKeepsVersionOnUnparseableVersion() {
+        wireMockRule.stubFor(get(urlEqualTo("/version"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json")
+                        .withBody("{\"Version\":\"dev\",\"ApiVersion\":\"latest\"}")));
+
+        assertThat(client.negotiateApiVersion()).isEqualTo(ApiVersion.V1_24);
+        assertThat(client.getApiVersion()).isEqualTo(ApiVersion.V1_24);
+    }
+
     @Test
     public void statsStream() {
         final String path = "/v1.24%2Fcontainers%2Fmongo%2Fstats?stream=true";
@@ -92,4 +146,113 @@ public class ContainerStats {
 
         wireMockRule.verify(1, requestPatternBuilder);
     }
+
+    @Test
+    public void statsIterator() {
+        int count = 0;
+        String last = null;
+
+        try (ContainerStatsIterator iterator = client.statsIterator("mongo")) {
+            while (iterator.hasNext()) {
+                last = iterator.next().getRead();
+                count++;
+            }
+        }
+
+        assertThat(count).isEqualTo(59);
+        assertThat(last).isEqualTo("2016-09-22T09:15:14.951855095Z");
+    }
+
+    @Test
+    public void subscribeStats() throws InterruptedException {
+        List<com.github.khazrak.jdocker.model.api124.ContainerStats> samples = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        client.subscribeStats("mongo", new ContainerStatsListener() {
+            @Override
+            public void onStats(com.github.khazrak.jdocker.model.api124.ContainerStats stats) {
+                samples.add(stats);
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(samples).hasSize(59);
+        assertThat(samples.get(0).getRead()).isEqualTo("2016-09-22T09:14:16.951730048Z");
+        assertThat(samples.get(58).getCpuStats()).isNotNull();
+    }
+
+    @Test
+    public void metricsCalculator() {
+        ContainerMetricsCalculator calculator = new ContainerMetricsCalculator();
+        double cpuTotal = 0;
+        int samples = 0;
+
+        try (ContainerStatsIterator iterator = client.statsIterator("mongo")) {
+            ContainerMetrics metrics = calculator.update(iterator.next());
+            assertThat(metrics.getBlockWriteRate()).isEqualTo(0);
+
+            metrics = calculator.update(iterator.next());
+            assertThat(metrics.getCpuPercent()).isCloseTo(3326647.0 / 7970000000L * 8 * 100, within(1e-9));
+            assertThat(metrics.getMemoryUsage()).isEqualTo(98668544L - 26599424L);
+            cpuTotal += metrics.getCpuPercent();
+            samples++;
+
+            metrics = calculator.update(iterator.next());
+            assertThat(metrics.getBlockWriteRate()).isCloseTo(16384.0, within(1.0));
+            assertThat(metrics.getNetworkRxRate()).isEqualTo(0);
+            cpuTotal += metrics.getCpuPercent();
+            samples++;
+
+            while (iterator.hasNext()) {
+                cpuTotal += calculator.update(iterator.next()).getCpuPercent();
+                samples++;
+            }
+        }
+
+        ContainerMetrics metrics = calculator.getMetrics();
+        assertThat(metrics.getTimestamp()).isEqualTo(Rfc3339.parseEpochNanos("2016-09-22T09:15:14.951855095Z"));
+        assertThat(metrics.getPids()).isEqualTo(16);
+        assertThat(metrics.average(ContainerMetric.CPU_PERCENT, StatsWindow.FIVE_MINUTES)).isCloseTo(cpuTotal / samples, within(1e-9));
+        assertThat(metrics.average(ContainerMetric.MEMORY_USAGE, StatsWindow.TEN_SECONDS)).isGreaterThan(0);
+    }
+
+    @Test
+    public void parseTimestamps() {
+        assertThat(Rfc3339.parseEpochNanos("1970-01-01T00:00:00Z")).isEqualTo(0);
+        assertThat(Rfc3339.parseEpochNanos("2016-09-22T09:14:16.951730048Z")).isEqualTo(1474535656951730048L);
+        assertThat(Rfc3339.parseEpochNanos("2016-09-22T11:14:16.5+02:00")).isEqualTo(1474535656500000000L);
+        assertThat(Rfc3339.parseEpochNanos("0001-01-01T00:00:00Z")).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    public void statsRecords() {
+        List<com.github.khazrak.jdocker.model.api124.ContainerStats> samples = new ArrayList<>();
+        try (ContainerStatsIterator iterator = client.statsIterator("mongo")) {
+            iterator.forEachRemaining(samples::add);
+        }
+
+        StatsRecord record = new StatsRecord();
+        StatsRecord expected = new StatsRecord();
+        ContainerMetricsCalculator calculator = new ContainerMetricsCalculator();
+        int count = 0;
+
+        try (StatsRecordDecoder decoder = client.statsRecords("mongo")) {
+            while (decoder.next(record)) {
+                expected.set(samples.get(count++));
+                assertThat(record).isEqualToComparingFieldByField(expected);
+                calculator.update(record);
+            }
+        }
+
+        assertThat(count).isEqualTo(59);
+        assertThat(record.getRead()).isEqualTo(Long.MIN_VALUE);
+        assertThat(expected.getPerCpuCount()).isEqualTo(8);
+        assertThat(expected.getMemoryInactiveFile()).isEqualTo(26599424L);
+        assertThat(calculator.getMetrics().getTimestamp()).isEqualTo(Rfc3339.parseEpochNanos("2016-09-22T09:15:14.951855095Z"));
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.container;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+import com.github.khazrak.jdocker.stats.ContainerStatsCache;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerStatsCaching {
+
+    private DockerClient client;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9779));
+
+    @Before
+    public void setup() {
+        client = new DefaultDockerClient("http://127.0.0.1:9779");
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void latestStats() throws InterruptedException {
+        try (ContainerStatsCache cache = new ContainerStatsCache(client)) {
+            ContainerStats stats = cache.latestStats("mongo", 10, TimeUnit.SECONDS);
+
+            assertThat(stats).isNotNull();
+            assertThat(cache.tracked()).containsExactly("mongo");
+            assertThat(cache.snapshotAll()).containsKey("mongo");
+        }
+    }
+
+    @Test
+    public void snapshotAllUntracksMissingContainers() throws InterruptedException {
+        wireMockRule.stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Fgone%2Fstats?stream=true"))
+                .willReturn(aResponse().withStatus(404).withBody("{\"message\":\"No such container: gone\"}")));
+
+        try (ContainerStatsCache cache = new ContainerStatsCache(client)) {
+            Map<String, ContainerStats> snapshot = cache.snapshotAll(Arrays.asList("mongo", "gone"), 10, TimeUnit.SECONDS);
+
+            assertThat(snapshot).containsOnlyKeys("mongo");
+            assertThat(cache.tracked()).containsExactly("mongo");
+        }
+    }
+
+    @Test
+    public void evictsIdleContainers() throws InterruptedException {
+        try (ContainerStatsCache cache = new ContainerStatsCache(client, 50, TimeUnit.MILLISECONDS)) {
+            cache.track("mongo");
+            assertThat(cache.tracked()).contains("mongo");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!cache.tracked().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(cache.tracked()).isEmpty();
+        }
+    }
+
+    @Test
+    public void snapshotAllDoesNotKeepContainersTracked() throws InterruptedException {
+        try (ContainerStatsCache cache = new ContainerStatsCache(client, 50, TimeUnit.MILLISECONDS)) {
+            cache.track("mongo");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!cache.tracked().isEmpty() && System.nanoTime() < deadline) {
+                cache.snapshotAll();
+                Thread.sleep(10);
+            }
+            assertThat(cache.tracked()).isEmpty();
+            assertThat(cache.snapshotAll()).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.container;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.prometheus.PrometheusExporter;
+import com.github.khazrak.jdocker.stats.ContainerStatsCache;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerStatsExport {
+
+    private DockerClient client;
+    private ContainerStatsCache cache;
+    private PrometheusExporter exporter;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9779));
+
+    @Before
+    public void setup() throws IOException, InterruptedException {
+        client = new DefaultDockerClient("http://127.0.0.1:9779");
+        cache = new ContainerStatsCache(client);
+        exporter = new PrometheusExporter(client, cache, new InetSocketAddress("127.0.0.1", 0), 0, TimeUnit.SECONDS);
+        exporter.export("mongo", "my-mongo");
+        assertThat(cache.latestStats("mongo", 10, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @After
+    public void tearDown() {
+        exporter.close();
+        cache.close();
+        client.close();
+    }
+
+    @Test
+    public void scrapePrometheusText() throws IOException {
+        HttpURLConnection connection = open();
+
+        String body = read(connection);
+
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getContentType()).startsWith("text/plain; version=0.0.4");
+        assertThat(body).contains("# TYPE container_cpu_usage_seconds_total counter\n");
+        assertThat(body).contains("container_memory_limit_bytes{id=\"mongo\",name=\"my-mongo\"} 25220104192\n");
+        assertThat(body).contains("container_network_receive_bytes_total{id=\"mongo\",name=\"my-mongo\",interface=\"eth0\"} 1296\n");
+        assertThat(body).contains("container_pids{id=\"mongo\",name=\"my-mongo\"} 16\n");
+        assertThat(body).doesNotContain("# EOF");
+    }
+
+    @Test
+    public void scrapeOpenMetrics() throws IOException {
+        HttpURLConnection connection = open();
+        connection.setRequestProperty("Accept", "application/openmetrics-text; version=1.0.0");
+
+        String body = read(connection);
+
+        assertThat(connection.getContentType()).startsWith("application/openmetrics-text");
+        assertThat(body).contains("# TYPE container_cpu_usage_seconds counter\n");
+        assertThat(body).contains("container_cpu_usage_seconds_total{id=\"mongo\",name=\"my-mongo\"} ");
+        assertThat(body).endsWith("# EOF\n");
+    }
+
+    private HttpURLConnection open() throws IOException {
+        URL url = new URL("http://127.0.0.1:" + exporter.getAddress().getPort() + "/metrics");
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
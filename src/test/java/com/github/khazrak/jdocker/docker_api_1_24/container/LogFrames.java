@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.container;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds multiplexed log bodies: every frame is an 8 byte header {@code [stream, 0, 0, 0, size]}, size being a big
+ * endian int, followed by the payload.
+ */
+final class LogFrames {
+
+    private LogFrames() {
+    }
+
+    static void write(ByteArrayOutputStream out, int stream, byte[] payload) {
+        out.write(stream);
+        out.write(0);
+        out.write(0);
+        out.write(0);
+        out.write(payload.length >>> 24);
+        out.write(payload.length >>> 16);
+        out.write(payload.length >>> 8);
+        out.write(payload.length);
+        out.write(payload, 0, payload.length);
+    }
+
+    static void write(ByteArrayOutputStream out, int stream, String text) {
+        write(out, stream, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * One stdout frame per line, each ended with a newline.
+     */
+    static byte[] lines(String... lines) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String line : lines) {
+            write(out, 1, line + "\n");
+        }
+        return out.toByteArray();
+    }
+}
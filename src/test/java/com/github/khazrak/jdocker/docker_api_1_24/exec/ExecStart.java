@@ -25,9 +25,11 @@ import com.github.khazrak.jdocker.DefaultDockerClient;
 import com.github.khazrak.jdocker.DockerClient;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -92,5 +94,16 @@ public class ExecStart {
         wireMockRule.verify(1, requestPatternBuilder);
     }
 
+    @Test
+    public void startAttachedIntoSinks() {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+        client.startExec("8f7abc89befc402cab81d1d01250559e5445f2f94290386e779805c6a274307a", stdout, stderr);
+
+        assertThat(new String(stdout.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("Thu Sep 29 18:48:28 UTC 2016");
+        assertThat(stderr.size()).isEqualTo(0);
+    }
+
 
 }
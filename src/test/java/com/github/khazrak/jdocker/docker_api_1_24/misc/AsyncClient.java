@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.misc;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerAsyncClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.model.api124.Container;
+import com.github.khazrak.jdocker.model.api124.ContainerStats;
+import com.github.khazrak.jdocker.model.api124.DockerContainerInspect;
+import com.github.khazrak.jdocker.utils.HttpURLResolver;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.matching.RequestPatternBuilder;
+import com.github.tomakehurst.wiremock.matching.UrlPattern;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class AsyncClient {
+
+    private DockerClient client;
+    private DockerAsyncClient asyncClient;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9779)); // No-args constructor defaults
+
+    @Before
+    public void setup() {
+        client = new DefaultDockerClient("http://127.0.0.1:9779");
+        asyncClient = client.async();
+    }
+
+    @After
+    public void tearDown() {
+        asyncClient.close();
+        client.close();
+    }
+
+    @Test
+    public void ping() throws Exception {
+        final String path = "/v1.24%2F_ping";
+
+        String ping = asyncClient.ping().get(10, TimeUnit.SECONDS);
+
+        assertThat(ping).isEqualTo("OK");
+
+        UrlPattern pattern = UrlPattern.fromOneOf(path, null,null,null);
+        RequestPatternBuilder requestPatternBuilder = RequestPatternBuilder.newRequestPattern(RequestMethod.GET,pattern);
+
+        wireMockRule.verify(1, requestPatternBuilder);
+    }
+
+    @Test
+    public void asyncClientIsShared() throws Exception {
+        assertThat(client.async()).isSameAs(asyncClient);
+
+        client.async().close();
+
+        assertThat(asyncClient.ping().get(10, TimeUnit.SECONDS)).isEqualTo("OK");
+    }
+
+    @Test
+    public void asyncClientUsesNegotiatedVersion() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/version"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json")
+                        .withBody("{\"Version\":\"20.10.7\",\"ApiVersion\":\"1.41\",\"MinAPIVersion\":\"1.12\"}")));
+
+        client.negotiateApiVersion();
+        ContainerStats stats = client.async().stats("mongo").get(10, TimeUnit.SECONDS);
+
+        assertThat(stats.getCpuStats().getSystemCpuUsage()).isEqualTo(60897810000000L);
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/v1.41%2Fcontainers%2Fmongo%2Fstats?one-shot=true&stream=false")));
+    }
+
+    @Test
+    public void cancellingDerivedFutureCancelsCall() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/v1.24%2Fcontainers%2Fslow%2Fjson?size=false"))
+                .willReturn(aResponse().withStatus(200).withFixedDelay(3000).withBody("{}")));
+        OkHttpClient httpClient = new OkHttpClient();
+        DockerClient slowClient = new DefaultDockerClient(httpClient, new HttpURLResolver(), "http://127.0.0.1:9779", null);
+        try {
+            CompletableFuture<DockerContainerInspect> inspect = slowClient.async().inspectContainer("slow", false)
+                    .thenApply(result -> result);
+            long deadline = System.currentTimeMillis() + 2000;
+            while (httpClient.dispatcher().runningCallsCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(httpClient.dispatcher().runningCallsCount()).isEqualTo(1);
+
+            assertThat(inspect.cancel(false)).isTrue();
+
+            deadline = System.currentTimeMillis() + 2000;
+            while (httpClient.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(httpClient.dispatcher().runningCallsCount()).isZero();
+        } finally {
+            slowClient.close();
+        }
+    }
+
+    @Test
+    public void concurrentCalls() throws Exception {
+        CompletableFuture<DockerContainerInspect> inspect = asyncClient.inspectContainer("mongo", false);
+        CompletableFuture<List<Container>> containers = asyncClient.listContainers();
+
+        CompletableFuture.allOf(inspect, containers).get(10, TimeUnit.SECONDS);
+
+        assertThat(inspect.get().getName()).isEqualTo(client.inspectContainer("mongo", false).getName());
+        assertThat(containers.get()).hasSameSizeAs(client.listContainers());
+    }
+
+    @Test
+    public void startNoneExisting() throws Exception {
+        final String path = "/v1.24%2Fcontainers%2Fnone_existing%2Fstart";
+
+        try {
+            asyncClient.start("none_existing").get(10, TimeUnit.SECONDS);
+            fail("Expected the future to complete exceptionally");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(DockerClientException.class);
+        }
+
+        UrlPattern pattern = UrlPattern.fromOneOf(path, null,null,null);
+        RequestPatternBuilder requestPatternBuilder = RequestPatternBuilder.newRequestPattern(RequestMethod.POST,pattern);
+
+        wireMockRule.verify(1, requestPatternBuilder);
+    }
+}
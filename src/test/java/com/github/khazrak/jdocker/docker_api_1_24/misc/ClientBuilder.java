@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.misc;
+
+import com.github.khazrak.jdocker.DockerAsyncClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.DockerClientBuilder;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientBuilder {
+
+    private static final String URL = "http://127.0.0.1:9782";
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9782));
+
+    @Test
+    public void tunedClient() {
+        DockerClient client = new DockerClientBuilder()
+                .tcp(URL)
+                .maxIdleConnections(32)
+                .keepAlive(1, TimeUnit.MINUTES)
+                .maxRequests(128)
+                .maxRequestsPerHost(128)
+                .sendBufferSize(64 * 1024)
+                .receiveBufferSize(64 * 1024)
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build();
+
+        assertThat(client.ping()).isEqualTo("OK");
+        client.close();
+    }
+
+    @Test
+    public void tunedAsyncClient() throws Exception {
+        DockerAsyncClient client = new DockerClientBuilder()
+                .tcp(URL)
+                .maxRequestsPerHost(128)
+                .buildAsync();
+
+        assertThat(client.ping().get(10, TimeUnit.SECONDS)).isEqualTo("OK");
+        client.close();
+    }
+
+    @Test
+    public void httpEngineAndMultiplexer() {
+        stubFor(get(urlEqualTo("/v1.24/_ping"))
+                .willReturn(aResponse().withStatus(200).withBody("OK")));
+
+        DockerClient client = new DockerClientBuilder()
+                .tcp(URL)
+                .httpEngine(true)
+                .streamSelectorThreads(1)
+                .receiveBufferSize(64 * 1024)
+                .build();
+
+        assertThat(client.ping()).isEqualTo("OK");
+        verify(1, getRequestedFor(urlEqualTo("/v1.24/_ping")));
+        client.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void multiplexerNeedsSelectableTransport() {
+        new DockerClientBuilder()
+                .namedPipe()
+                .streamSelectorThreads(1)
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.misc;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.http.DockerHttpEngine;
+import com.github.khazrak.jdocker.model.api124.DockerContainerInspect;
+import com.github.khazrak.jdocker.model.api124.Volume;
+import com.github.khazrak.jdocker.utils.HttpURLResolver;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpEngine {
+
+    private static final String URL = "http://127.0.0.1:9780";
+
+    private DockerHttpEngine engine;
+    private DockerClient client;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9780));
+
+    @Before
+    public void setup() {
+        engine = DockerHttpEngine.tcp(URL);
+        client = new DefaultDockerClient(new OkHttpClient(), new HttpURLResolver(), URL, engine);
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void pingReusesConnection() {
+        stubFor(get(urlEqualTo("/v1.24/_ping"))
+                .willReturn(aResponse().withStatus(200).withBody("OK")));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(client.ping()).isEqualTo("OK");
+        }
+
+        assertThat(engine.idleConnectionCount()).isEqualTo(1);
+        verify(3, getRequestedFor(urlEqualTo("/v1.24/_ping")));
+    }
+
+    @Test
+    public void inspectChunked() {
+        stubFor(get(urlEqualTo("/v1.24/containers/mongo/json?size=false"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("Transfer-Encoding", "chunked")
+                        .withBodyFile("body-containers-inspect-mongo.json")));
+
+        DockerContainerInspect inspect = client.inspectContainer("mongo", false);
+
+        assertThat(inspect.getId()).isEqualTo("73f363f484b41e68898508dfdfdde42b953fe7ad76a00a28b50d7d74355bae4d");
+        assertThat(engine.idleConnectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void listVolumesReleasesConnection() {
+        stubFor(get(urlEqualTo("/v1.24/volumes"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("Transfer-Encoding", "chunked")
+                        .withBodyFile("body-volumes-list.json")));
+
+        List<Volume> volumes = client.listVolumes();
+
+        assertThat(volumes).hasSize(26);
+        assertThat(volumes.get(0).getDriver()).isEqualTo("local");
+        assertThat(engine.idleConnectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void renameEncodesQuery() {
+        stubFor(post(urlPathEqualTo("/v1.24/containers/mongo/rename"))
+                .willReturn(aResponse().withStatus(204)));
+
+        client.rename("mongo", "new mongo&co");
+
+        verify(1, postRequestedFor(urlEqualTo("/v1.24/containers/mongo/rename?name=new+mongo%26co")));
+    }
+
+    @Test(expected = DockerClientException.class)
+    public void startNoneExisting() {
+        stubFor(post(urlEqualTo("/v1.24/containers/none_existing/start"))
+                .willReturn(aResponse().withStatus(404).withBody("{\"message\":\"No such container: none_existing\"}")));
+
+        client.start("none_existing");
+    }
+}
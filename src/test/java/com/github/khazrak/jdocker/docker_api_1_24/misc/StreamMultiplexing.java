@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.khazrak.jdocker.docker_api_1_24.misc;
+
+import com.github.khazrak.jdocker.DefaultDockerClient;
+import com.github.khazrak.jdocker.DockerClient;
+import com.github.khazrak.jdocker.exception.DockerClientException;
+import com.github.khazrak.jdocker.http.StreamListener;
+import com.github.khazrak.jdocker.http.StreamMultiplexer;
+import com.github.khazrak.jdocker.model.api124.parameters.DockerLogsParameters;
+import com.github.khazrak.jdocker.utils.DockerImageName;
+import com.github.khazrak.jdocker.utils.HttpURLResolver;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamMultiplexing {
+
+    private static final String URL = "http://127.0.0.1:9781";
+
+    private StreamMultiplexer multiplexer;
+    private DockerClient client;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(options().usingFilesUnderClasspath("src/test/resources/1_24").port(9781));
+
+    @Before
+    public void setup() throws Exception {
+        multiplexer = StreamMultiplexer.tcp(URL, 1);
+        client = new DefaultDockerClient(new OkHttpClient(), new HttpURLResolver(), URL, null, multiplexer);
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    @Test
+    public void statsStream() throws Exception {
+        stubFor(get(urlEqualTo("/v1.24/containers/mongo/stats?stream=true"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Transfer-Encoding", "chunked")
+                        .withBodyFile("body-containers-stats-mongo-stream.json")));
+
+        CollectingListener listener = new CollectingListener();
+        client.statsStream("mongo", listener);
+
+        assertThat(listener.await()).isTrue();
+        assertThat(listener.error).isNull();
+        assertThat(listener.bytes.toByteArray())
+                .isEqualTo(Files.readAllBytes(Paths.get("src/test/resources/1_24/__files/body-containers-stats-mongo-stream.json")));
+    }
+
+    @Test
+    public void manyFollowedLogsOnOneThread() throws Exception {
+        stubFor(get(urlPathMatching("/v1.24/containers/c[0-9]+/logs"))
+                .withQueryParam("follow", equalTo("true"))
+                .willReturn(aResponse().withStatus(200).withBody("log line\n")));
+
+        DockerLogsParameters params = DockerLogsParameters.builder().stdout(true).follow(true).build();
+        List<CollectingListener> listeners = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            CollectingListener listener = new CollectingListener();
+            listeners.add(listener);
+            client.logsRawStream("c" + i, params, listener);
+        }
+
+        for (CollectingListener listener : listeners) {
+            assertThat(listener.await()).isTrue();
+            assertThat(listener.bytes.toString("UTF-8")).isEqualTo("log line\n");
+        }
+        assertThat(multiplexer.activeStreams()).isEqualTo(0);
+    }
+
+    @Test
+    public void errorResponse() throws Exception {
+        stubFor(post(urlEqualTo("/v1.24/exec/none_existing/start"))
+                .willReturn(aResponse().withStatus(404).withBody("No such exec instance")));
+
+        CollectingListener listener = new CollectingListener();
+        client.startExec("none_existing", listener);
+
+        assertThat(listener.await()).isTrue();
+        assertThat(listener.error).isInstanceOf(DockerClientException.class);
+        assertThat(listener.error.getMessage()).contains("No such exec instance");
+    }
+
+    @Test
+    public void threadPerStreamWithoutMultiplexer() throws Exception {
+        DockerClient plainClient = new DefaultDockerClient(URL);
+
+        CollectingListener listener = new CollectingListener();
+        plainClient.pullImage(new DockerImageName("busybox"), listener);
+
+        assertThat(listener.await()).isTrue();
+        assertThat(listener.error).isNull();
+        assertThat(listener.bytes.toString("UTF-8")).contains("busybox");
+        plainClient.close();
+    }
+
+    private static class CollectingListener implements StreamListener {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Throwable error;
+
+        @Override
+        public void onData(ByteBuffer data) {
+            byte[] chunk = new byte[data.remaining()];
+            data.get(chunk);
+            bytes.write(chunk, 0, chunk.length);
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return done.await(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import com.github.khazrak.jdocker.DefaultDockerClient;
 import com.github.khazrak.jdocker.DockerClient;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -98,6 +99,27 @@ public class VolumeList {
 
     }
 
+    @Test
+    public void streamFiltersDanglingTrue() {
+
+        final String path = "/v1.24%2Fvolumes?filters=%7B%22dangling%22%3A%7B%22true%22%3Atrue%7D%7D";
+
+        ListVolumeParams params = ListVolumeParams.builder().dangling(true).build();
+
+        long local;
+        try (Stream<Volume> volumes = client.streamVolumes(params)) {
+            local = volumes.filter(v -> "local".equals(v.getDriver())).count();
+        }
+
+        assertThat(local).isEqualTo(20);
+
+        UrlPattern pattern = UrlPattern.fromOneOf(path, null,null,null);
+        RequestPatternBuilder requestPatternBuilder = RequestPatternBuilder.newRequestPattern(RequestMethod.GET,pattern);
+
+        wireMockRule.verify(1, requestPatternBuilder);
+
+    }
+
     @Test
     public void listFiltersDanglingFalse() {
 